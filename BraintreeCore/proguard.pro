@@ -3,3 +3,6 @@
 
 # Optional Visa Checkout dependency
 -dontwarn com.visa.**
+
+# Optional OkHttp dependency
+-dontwarn okhttp3.**
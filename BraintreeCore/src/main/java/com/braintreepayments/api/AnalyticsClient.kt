@@ -19,7 +19,9 @@ internal class AnalyticsClient @VisibleForTesting constructor(
     private val httpClient: BraintreeHttpClient,
     private val analyticsDatabase: AnalyticsDatabase,
     private val workManager: WorkManager,
-    private val deviceInspector: DeviceInspector
+    private val deviceInspector: DeviceInspector,
+    private val analyticsEventBuffer: AnalyticsEventBuffer =
+        AnalyticsEventBuffer(analyticsDatabase, ThreadScheduler())
 ) {
     private var lastKnownAnalyticsUrl: String? = null
 
@@ -27,7 +29,8 @@ internal class AnalyticsClient @VisibleForTesting constructor(
         BraintreeHttpClient(),
         getInstance(context.applicationContext),
         WorkManager.getInstance(context.applicationContext),
-        DeviceInspector()
+        DeviceInspector(),
+        AnalyticsEventBuffer.getInstance(context.applicationContext)
     )
 
     fun sendEvent(
@@ -49,30 +52,27 @@ internal class AnalyticsClient @VisibleForTesting constructor(
         integration: String?,
         timestamp: Long,
         authorization: Authorization
-    ): UUID {
+    ): UUID? {
         lastKnownAnalyticsUrl = configuration.analyticsUrl
-        scheduleAnalyticsWrite("android.$eventName", timestamp, authorization)
-        return scheduleAnalyticsUpload(configuration, authorization, sessionId, integration)
+        val startsBatch = analyticsEventBuffer.add(AnalyticsEvent("android.$eventName", timestamp))
+        // one upload per batch covers every event in it, so later events skip serializing the
+        // configuration and the WorkManager transaction
+        return if (startsBatch) {
+            scheduleAnalyticsUpload(configuration, authorization, sessionId, integration)
+        } else {
+            null
+        }
     }
 
-    private fun scheduleAnalyticsWrite(
-        eventName: String, timestamp: Long, authorization: Authorization
-    ) {
-        val inputData = Data.Builder()
-            .putString(WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
-            .putString(WORK_INPUT_KEY_EVENT_NAME, eventName)
-            .putLong(WORK_INPUT_KEY_TIMESTAMP, timestamp)
-            .build()
-
-        val analyticsWorkRequest =
-            OneTimeWorkRequest.Builder(AnalyticsWriteToDbWorker::class.java)
-                .setInputData(inputData)
-                .build()
-        workManager.enqueueUniqueWork(
-            WORK_NAME_ANALYTICS_WRITE, ExistingWorkPolicy.APPEND_OR_REPLACE, analyticsWorkRequest
-        )
-    }
+    /**
+     * Open a connection to [analyticsUrl] ahead of the next upload. Uploads always use the
+     * HttpURLConnection transport, whose keep-alive cache is shared by every client built on the
+     * pinned socket factory, so the upload worker's client reuses this connection.
+     */
+    fun preconnect(analyticsUrl: String) = httpClient.preconnect(analyticsUrl)
 
+    // NEXT_MAJOR_VERSION: remove along with AnalyticsWriteToDbWorker; events are now written in
+    // batches by AnalyticsEventBuffer and this only drains work enqueued by earlier SDK versions
     fun writeAnalytics(inputData: Data): ListenableWorker.Result {
         val eventName = inputData.getString(WORK_INPUT_KEY_EVENT_NAME)
         val timestamp = inputData.getLong(WORK_INPUT_KEY_TIMESTAMP, INVALID_TIMESTAMP)
@@ -104,8 +104,10 @@ internal class AnalyticsClient @VisibleForTesting constructor(
             .setInitialDelay(DELAY_TIME_SECONDS, TimeUnit.SECONDS)
             .setInputData(inputData)
             .build()
+        // a batch can start while the previous upload is running, after that upload has read the
+        // table; KEEP would drop this request and leave the batch stored until another one starts
         workManager.enqueueUniqueWork(
-            WORK_NAME_ANALYTICS_UPLOAD, ExistingWorkPolicy.KEEP, analyticsWorkRequest
+            WORK_NAME_ANALYTICS_UPLOAD, ExistingWorkPolicy.APPEND_OR_REPLACE, analyticsWorkRequest
         )
         return analyticsWorkRequest.id
     }
@@ -121,17 +123,14 @@ internal class AnalyticsClient @VisibleForTesting constructor(
             ListenableWorker.Result.failure()
         } else {
             try {
-                val analyticsEventDao = analyticsDatabase.analyticsEventDao()
-                val events = analyticsEventDao.getAllEvents()
-                if (events.isNotEmpty()) {
-                    val metadata = deviceInspector.getDeviceMetadata(context, sessionId, integration)
-                    val analyticsRequest = serializeEvents(authorization, events, metadata)
-                    configuration?.analyticsUrl?.let { analyticsUrl ->
-                        httpClient.post(
-                            analyticsUrl, analyticsRequest.toString(), configuration, authorization
-                        )
-                        analyticsEventDao.deleteEvents(events)
-                    }
+                // make sure events still buffered in memory are part of this upload
+                analyticsEventBuffer.flush()
+
+                val analyticsUrl = configuration?.analyticsUrl
+                if (configuration != null && analyticsUrl != null) {
+                    uploadStoredEvents(
+                        context, analyticsUrl, configuration, authorization, sessionId, integration
+                    )
                 }
                 ListenableWorker.Result.success()
             } catch (e: Exception) {
@@ -140,6 +139,41 @@ internal class AnalyticsClient @VisibleForTesting constructor(
         }
     }
 
+    // pages through the table by _id and posts size-capped chunks, so memory use and request size
+    // stay flat no matter how many events accumulated while uploads were failing
+    @Suppress("LongParameterList")
+    @Throws(Exception::class)
+    private fun uploadStoredEvents(
+        context: Context?,
+        analyticsUrl: String,
+        configuration: Configuration,
+        authorization: Authorization?,
+        sessionId: String?,
+        integration: String?
+    ) {
+        val analyticsEventDao = analyticsDatabase.analyticsEventDao()
+        var metadata: DeviceMetadata? = null
+        var lastUploadedId = 0
+        do {
+            val page = analyticsEventDao.getEventsAfter(lastUploadedId, UPLOAD_PAGE_SIZE)
+            if (page.isEmpty()) {
+                break
+            }
+            val deviceMetadata = metadata
+                ?: deviceInspector.getDeviceMetadata(context, sessionId, integration)
+                    .also { metadata = it }
+
+            for (chunk in chunkEvents(page, MAX_UPLOAD_PAYLOAD_BYTES)) {
+                val analyticsRequest = serializeEvents(authorization, chunk, deviceMetadata)
+                httpClient.post(
+                    analyticsUrl, analyticsRequest.toString(), configuration, authorization
+                )
+                analyticsEventDao.deleteEvents(chunk)
+            }
+            lastUploadedId = page.last().id
+        } while (page.size == UPLOAD_PAGE_SIZE)
+    }
+
     fun reportCrash(
         context: Context?, sessionId: String?, integration: String?, authorization: Authorization?
     ) {
@@ -168,7 +202,8 @@ internal class AnalyticsClient @VisibleForTesting constructor(
                     analyticsRequest.toString(),
                     null,
                     authorization,
-                    HttpNoResponse()
+                    HttpNoResponse(),
+                    Scheduler.PRIORITY_LOW
                 )
             }
         } catch (e: JSONException) { /* ignored */
@@ -218,6 +253,36 @@ internal class AnalyticsClient @VisibleForTesting constructor(
         const val WORK_INPUT_KEY_SESSION_ID = "sessionId"
         const val WORK_INPUT_KEY_TIMESTAMP = "timestamp"
         private const val DELAY_TIME_SECONDS = 30L
+        private const val UPLOAD_PAGE_SIZE = 200
+        private const val MAX_UPLOAD_PAYLOAD_BYTES = 32 * 1024
+
+        // approximate size of {"kind":"","timestamp":0000000000000}, excluding the event name
+        private const val SERIALIZED_EVENT_OVERHEAD_BYTES = 40
+
+        /**
+         * Split [events] into consecutive chunks whose serialized size stays under [maxBytes]. An
+         * event that is larger than [maxBytes] on its own is sent in a chunk by itself.
+         */
+        @VisibleForTesting
+        fun chunkEvents(events: List<AnalyticsEvent>, maxBytes: Int): List<List<AnalyticsEvent>> {
+            val chunks = mutableListOf<List<AnalyticsEvent>>()
+            var chunk = mutableListOf<AnalyticsEvent>()
+            var chunkBytes = 0
+            for (event in events) {
+                val eventBytes = event.name.length + SERIALIZED_EVENT_OVERHEAD_BYTES
+                if (chunk.isNotEmpty() && chunkBytes + eventBytes > maxBytes) {
+                    chunks.add(chunk)
+                    chunk = mutableListOf()
+                    chunkBytes = 0
+                }
+                chunk.add(event)
+                chunkBytes += eventBytes
+            }
+            if (chunk.isNotEmpty()) {
+                chunks.add(chunk)
+            }
+            return chunks
+        }
 
         private fun getAuthorizationFromData(inputData: Data?): Authorization? =
             inputData?.getString(WORK_INPUT_KEY_AUTHORIZATION)?.let {
@@ -1,17 +1,31 @@
 package com.braintreepayments.api
 
 import android.content.Context
+import androidx.annotation.VisibleForTesting
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 
-@Database(entities = [AnalyticsEvent::class], version = 1)
+@Database(entities = [AnalyticsEvent::class], version = 2)
 internal abstract class AnalyticsDatabase : RoomDatabase() {
 
     abstract fun analyticsEventDao(): AnalyticsEventDao
 
     companion object {
 
+        // index used to evict the oldest events once the table reaches its row cap
+        @VisibleForTesting
+        val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_analytics_event_timestamp` " +
+                        "ON `analytics_event` (`timestamp`)"
+                )
+            }
+        }
+
         @Volatile
         private var INSTANCE: AnalyticsDatabase? = null
 
@@ -23,7 +37,7 @@ internal abstract class AnalyticsDatabase : RoomDatabase() {
                     context.applicationContext,
                     AnalyticsDatabase::class.java,
                     "analytics_database"
-                ).build()
+                ).addMigrations(MIGRATION_1_2).build()
                 INSTANCE = instance
                 // return instance
                 instance
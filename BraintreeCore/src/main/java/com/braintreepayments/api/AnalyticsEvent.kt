@@ -3,6 +3,7 @@ package com.braintreepayments.api
 import androidx.room.PrimaryKey
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 
 // NEXT MAJOR VERSION: Convert to data class, we're unable to do so now because the
 // counterpart Java class is technically extendable, and making this a data class would
@@ -10,7 +11,7 @@ import androidx.room.Entity
 
 // NEXT MAJOR VERSION: remove open modifiers
 
-@Entity(tableName = "analytics_event")
+@Entity(tableName = "analytics_event", indices = [Index(value = ["timestamp"])])
 open class AnalyticsEvent internal constructor(
     open val name: String,
     open val timestamp: Long
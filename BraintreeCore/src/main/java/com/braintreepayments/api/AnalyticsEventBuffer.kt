@@ -0,0 +1,155 @@
+package com.braintreepayments.api
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Bounded in-memory buffer that collects analytics events and writes them to [AnalyticsDatabase]
+ * in a single batched insert.
+ *
+ * A flush is triggered when [flushThreshold] events are buffered, [flushIntervalMillis] after the
+ * first event of a batch is added, or when the app's UI is hidden. When the buffer is full the
+ * oldest event is dropped to make room for the newest.
+ */
+@Suppress("TooGenericExceptionCaught")
+internal class AnalyticsEventBuffer @VisibleForTesting constructor(
+    private val analyticsDatabase: AnalyticsDatabase,
+    private val scheduler: Scheduler,
+    private val capacity: Int = DEFAULT_CAPACITY,
+    private val flushThreshold: Int = DEFAULT_FLUSH_THRESHOLD,
+    private val flushIntervalMillis: Long = DEFAULT_FLUSH_INTERVAL_MILLIS,
+    private val maxStoredEvents: Int = DEFAULT_MAX_STORED_EVENTS
+) : ComponentCallbacks2 {
+
+    private val events = ArrayDeque<AnalyticsEvent>(capacity)
+    private var isFlushScheduled = false
+
+    private val flushes = AtomicInteger()
+    private val flushedEvents = AtomicInteger()
+    private val droppedEvents = AtomicInteger()
+    private val evictedEvents = AtomicInteger()
+
+    /**
+     * Number of batched database writes performed.
+     */
+    val flushCount: Int
+        get() = flushes.get()
+
+    val flushedEventCount: Int
+        get() = flushedEvents.get()
+
+    /**
+     * Number of events discarded because the buffer was full or the database write failed.
+     */
+    val droppedEventCount: Int
+        get() = droppedEvents.get()
+
+    /**
+     * Number of stored events deleted to keep the table within its row cap.
+     */
+    val evictedEventCount: Int
+        get() = evictedEvents.get()
+
+    val size: Int
+        get() = synchronized(events) { events.size }
+
+    /**
+     * @return true if [event] is the first event of a new batch
+     */
+    fun add(event: AnalyticsEvent): Boolean {
+        var flushNow = false
+        var scheduleFlush = false
+        val startsBatch = synchronized(events) {
+            val isFirstEvent = events.isEmpty()
+            if (events.size >= capacity) {
+                events.removeFirst()
+                droppedEvents.incrementAndGet()
+            }
+            events.addLast(event)
+
+            if (events.size >= flushThreshold) {
+                flushNow = true
+            } else if (!isFlushScheduled) {
+                isFlushScheduled = true
+                scheduleFlush = true
+            }
+            isFirstEvent
+        }
+
+        if (flushNow) {
+            scheduler.runOnBackground({ flush() }, Scheduler.PRIORITY_LOW)
+        } else if (scheduleFlush) {
+            scheduler.runOnBackgroundDelayed({ flush() }, Scheduler.PRIORITY_LOW, flushIntervalMillis)
+        }
+        return startsBatch
+    }
+
+    /**
+     * Write every buffered event to the database in a single transaction, evicting the oldest
+     * stored events if the table would exceed [maxStoredEvents] rows.
+     */
+    @WorkerThread
+    fun flush() {
+        val batch = synchronized(events) {
+            isFlushScheduled = false
+            if (events.isEmpty()) {
+                return
+            }
+            ArrayList(events).also { events.clear() }
+        }
+
+        try {
+            analyticsDatabase.runInTransaction(Runnable {
+                val analyticsEventDao = analyticsDatabase.analyticsEventDao()
+                analyticsEventDao.insertEvents(batch)
+                // keep the table bounded when uploads fail for a long time
+                evictedEvents.addAndGet(analyticsEventDao.deleteEventsExceeding(maxStoredEvents))
+            })
+            flushes.incrementAndGet()
+            flushedEvents.addAndGet(batch.size)
+        } catch (e: Exception) {
+            // analytics are best effort; never crash the host app's background threads
+            droppedEvents.addAndGet(batch.size)
+        }
+    }
+
+    override fun onTrimMemory(level: Int) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            scheduler.runOnBackground({ flush() }, Scheduler.PRIORITY_LOW)
+        }
+    }
+
+    override fun onConfigurationChanged(newConfig: android.content.res.Configuration) {
+        // not needed
+    }
+
+    override fun onLowMemory() {
+        scheduler.runOnBackground({ flush() }, Scheduler.PRIORITY_LOW)
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 100
+        private const val DEFAULT_FLUSH_THRESHOLD = 20
+        private val DEFAULT_FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10)
+        private const val DEFAULT_MAX_STORED_EVENTS = 1000
+
+        @Volatile
+        private var INSTANCE: AnalyticsEventBuffer? = null
+
+        fun getInstance(context: Context): AnalyticsEventBuffer =
+            INSTANCE ?: synchronized(this) {
+                INSTANCE ?: AnalyticsEventBuffer(
+                    AnalyticsDatabase.getInstance(context.applicationContext),
+                    ThreadScheduler()
+                ).also {
+                    // flush when the app moves to the background
+                    context.applicationContext.registerComponentCallbacks(it)
+                    INSTANCE = it
+                }
+            }
+    }
+}
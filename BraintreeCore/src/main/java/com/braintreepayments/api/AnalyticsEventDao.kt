@@ -11,9 +11,32 @@ internal interface AnalyticsEventDao {
     @Insert
     fun insertEvent(event: AnalyticsEvent)
 
+    @Insert
+    fun insertEvents(events: List<AnalyticsEvent>)
+
     @Query("SELECT * FROM analytics_event")
     fun getAllEvents(): List<AnalyticsEvent>
 
+    /**
+     * Keyset pagination over the table in insertion order.
+     */
+    @Query("SELECT * FROM analytics_event WHERE _id > :afterId ORDER BY _id LIMIT :limit")
+    fun getEventsAfter(afterId: Int, limit: Int): List<AnalyticsEvent>
+
+    @Query("SELECT COUNT(*) FROM analytics_event")
+    fun getEventCount(): Int
+
+    /**
+     * Delete the oldest events so that at most [maxEvents] rows remain.
+     *
+     * @return the number of events deleted
+     */
+    @Query(
+        "DELETE FROM analytics_event WHERE _id NOT IN " +
+            "(SELECT _id FROM analytics_event ORDER BY timestamp DESC, _id DESC LIMIT :maxEvents)"
+    )
+    fun deleteEventsExceeding(maxEvents: Int): Int
+
     @Delete
     fun deleteEvents(events: List<AnalyticsEvent>)
 }
@@ -11,48 +11,60 @@ import org.json.JSONObject
 class ApiClient(private val braintreeClient: BraintreeClient) {
 
     fun tokenizeGraphQL(tokenizePayload: JSONObject, callback: TokenizeCallback) =
+        tokenizeGraphQL(tokenizePayload, null, callback)
+
+    /**
+     * @param deadline deadline of the flow the tokenization belongs to, or null for none
+     */
+    fun tokenizeGraphQL(tokenizePayload: JSONObject, deadline: Deadline?, callback: TokenizeCallback) =
         braintreeClient.run {
             sendAnalyticsEvent("card.graphql.tokenization.started")
-            sendGraphQLPOST(tokenizePayload.toString(), object : HttpResponseCallback {
-                override fun onResult(responseBody: String?, httpError: Exception?) {
-                    parseResponseToJSON(responseBody)?.let { json ->
+            sendGraphQLPOST(tokenizePayload.toString(), deadline, object : JSONResponseCallback() {
+                override fun onDecodedResult(result: JSONObject?, error: Exception?) {
+                    result?.let { json ->
                         sendAnalyticsEvent("card.graphql.tokenization.success")
                         callback.onResult(json, null)
-                    } ?: httpError?.let { error ->
+                    } ?: error?.let {
                         sendAnalyticsEvent("card.graphql.tokenization.failure")
-                        callback.onResult(null, error)
+                        callback.onResult(null, it)
                     }
                 }
             })
         }
 
     fun tokenizeREST(paymentMethod: PaymentMethod, callback: TokenizeCallback) =
+        tokenizeREST(paymentMethod, null, callback)
+
+    /**
+     * @param deadline deadline of the flow the tokenization belongs to, or null for none
+     */
+    fun tokenizeREST(paymentMethod: PaymentMethod, deadline: Deadline?, callback: TokenizeCallback) =
         braintreeClient.run {
             val url = versionedPath("$PAYMENT_METHOD_ENDPOINT/${paymentMethod.apiPath}")
             paymentMethod.setSessionId(braintreeClient.sessionId)
 
             sendAnalyticsEvent("card.rest.tokenization.started")
-            sendPOST(url, paymentMethod.buildJSON().toString(), object : HttpResponseCallback {
-                override fun onResult(responseBody: String?, httpError: Exception?) {
-                    parseResponseToJSON(responseBody)?.let { json ->
+            sendPOST(url, paymentMethod.buildJSON().toString(), deadline, object : JSONResponseCallback() {
+                override fun onDecodedResult(result: JSONObject?, error: Exception?) {
+                    result?.let { json ->
                         sendAnalyticsEvent("card.rest.tokenization.success")
                         callback.onResult(json, null)
-                    } ?: httpError?.let { error ->
+                    } ?: error?.let {
                         sendAnalyticsEvent("card.rest.tokenization.failure")
-                        callback.onResult(null, error)
+                        callback.onResult(null, it)
                     }
                 }
             })
         }
 
-    private fun parseResponseToJSON(responseBody: String?): JSONObject? =
-        responseBody?.let {
-            try {
-                JSONObject(it)
-            } catch (e: JSONException) {
-                null
-            }
-        }
+    /**
+     * Parses the response body on the background thread that received it.
+     */
+    private abstract class JSONResponseCallback : DecodingHttpResponseCallback<JSONObject>() {
+
+        @Throws(JSONException::class)
+        override fun decode(responseBody: String): JSONObject = JSONObject(responseBody)
+    }
 
     companion object {
         const val PAYMENT_METHOD_ENDPOINT = "payment_methods"
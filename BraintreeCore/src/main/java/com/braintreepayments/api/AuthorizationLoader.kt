@@ -1,26 +1,44 @@
 package com.braintreepayments.api
 
+import java.util.concurrent.TimeUnit
+
 internal class AuthorizationLoader(
     initialAuthString: String?,
-    private val clientTokenProvider: ClientTokenProvider?
+    private val clientTokenProvider: ClientTokenProvider?,
+    private val clientTokenMaxAgeMillis: Long? = null,
+    private val currentTimeMillis: () -> Long = System::currentTimeMillis
 ) {
-    // cache initial auth if available
+    // cache initial auth if available; written from ClientTokenProvider callbacks on any thread
+    @Volatile
     var authorizationFromCache = initialAuthString?.let { Authorization.fromString(it) }
+        private set
+
+    // time the cached client token was fetched from the ClientTokenProvider, 0 if it was not
+    @Volatile
+    private var clientTokenFetchedAtMillis = 0L
+
+    // earliest time a failed background refresh may be attempted again
+    @Volatile
+    private var refreshRetryAtMillis = 0L
+    private var failedRefreshCount = 0
+
+    // incremented by invalidateClientToken so fetches started before it don't repopulate the cache
+    private var invalidationCount = 0
+
+    // callbacks waiting on the in-flight client token fetch, null while no fetch is in flight
+    private var pendingCallbacks: MutableList<AuthorizationCallback>? = null
+    private val lock = Any()
 
     fun loadAuthorization(callback: AuthorizationCallback) {
-        if (authorizationFromCache != null) {
-            callback.onAuthorizationResult(authorizationFromCache, null)
+        val authorization = authorizationFromCache
+        if (authorization != null) {
+            callback.onAuthorizationResult(authorization, null)
+            if (shouldRefreshClientToken()) {
+                // the caller already has a usable token; fetch the next one in the background
+                fetchClientToken(null)
+            }
         } else if (clientTokenProvider != null) {
-            clientTokenProvider.getClientToken(object : ClientTokenCallback {
-                override fun onSuccess(clientToken: String) {
-                    authorizationFromCache = Authorization.fromString(clientToken)
-                    callback.onAuthorizationResult(authorizationFromCache, null)
-                }
-
-                override fun onFailure(error: Exception) {
-                    callback.onAuthorizationResult(null, error)
-                }
-            })
+            fetchClientToken(callback)
         } else {
             val clientSDKSetupURL =
                 "https://developer.paypal.com/braintree/docs/guides/client-sdk/setup/android/v4#initialization"
@@ -32,7 +50,97 @@ internal class AuthorizationLoader(
     fun invalidateClientToken() {
         // only invalidate client token cache if we can fetch a new one with a client token provider
         if (clientTokenProvider != null) {
-            authorizationFromCache = null
+            synchronized(lock) {
+                invalidationCount++
+                authorizationFromCache = null
+            }
+            if (clientTokenMaxAgeMillis != null) {
+                // prefetch the replacement so the next payment does not wait on the merchant server
+                fetchClientToken(null)
+            }
+        }
+    }
+
+    private fun shouldRefreshClientToken(): Boolean {
+        val maxAgeMillis = clientTokenMaxAgeMillis ?: return false
+        val fetchedAtMillis = clientTokenFetchedAtMillis
+        val now = currentTimeMillis()
+        return fetchedAtMillis > 0 && now - fetchedAtMillis >= maxAgeMillis &&
+                now >= refreshRetryAtMillis
+    }
+
+    /**
+     * Fetch a client token, or wait on the fetch already in flight so concurrent callers share a
+     * single call to the [ClientTokenProvider].
+     *
+     * @param callback notified with the result, or null to only refresh the cached token
+     */
+    private fun fetchClientToken(callback: AuthorizationCallback?) {
+        val provider = clientTokenProvider ?: return
+        val isFirstCaller = synchronized(lock) {
+            val callbacks = pendingCallbacks
+            if (callbacks == null) {
+                pendingCallbacks = mutableListOf<AuthorizationCallback>().apply {
+                    callback?.let { add(it) }
+                }
+                true
+            } else {
+                callback?.let { callbacks.add(it) }
+                false
+            }
+        }
+        if (!isFirstCaller) {
+            return
         }
+        requestClientToken(provider)
+    }
+
+    private fun requestClientToken(provider: ClientTokenProvider) {
+        val startInvalidationCount = synchronized(lock) { invalidationCount }
+        provider.getClientToken(object : ClientTokenCallback {
+            override fun onSuccess(clientToken: String) {
+                val authorization = Authorization.fromString(clientToken)
+                val isCurrent = synchronized(lock) {
+                    (invalidationCount == startInvalidationCount).also { isCurrent ->
+                        if (isCurrent) {
+                            clientTokenFetchedAtMillis = currentTimeMillis()
+                            authorizationFromCache = authorization
+                            failedRefreshCount = 0
+                            refreshRetryAtMillis = 0L
+                        }
+                    }
+                }
+                if (isCurrent) {
+                    notifyPendingCallbacks(authorization, null)
+                } else {
+                    // the provider may have returned the token that was invalidated meanwhile
+                    requestClientToken(provider)
+                }
+            }
+
+            override fun onFailure(error: Exception) {
+                synchronized(lock) {
+                    // back off so a failing provider isn't called again on every request
+                    failedRefreshCount++
+                    val doublings = (failedRefreshCount - 1).coerceAtMost(REFRESH_RETRY_MAX_DOUBLINGS)
+                    val backoffMillis = REFRESH_RETRY_MIN_MILLIS shl doublings
+                    refreshRetryAtMillis = currentTimeMillis() + backoffMillis
+                }
+                notifyPendingCallbacks(null, error)
+            }
+        })
+    }
+
+    private fun notifyPendingCallbacks(authorization: Authorization?, error: Exception?) {
+        val callbacks = synchronized(lock) {
+            pendingCallbacks.also { pendingCallbacks = null }
+        }
+        callbacks?.forEach { it.onAuthorizationResult(authorization, error) }
+    }
+
+    companion object {
+        // a failed background refresh is retried after 30 seconds, doubling up to 16 minutes
+        private val REFRESH_RETRY_MIN_MILLIS = TimeUnit.SECONDS.toMillis(30)
+        private const val REFRESH_RETRY_MAX_DOUBLINGS = 5
     }
 }
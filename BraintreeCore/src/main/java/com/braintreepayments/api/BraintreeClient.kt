@@ -4,10 +4,14 @@ import android.content.Context
 import android.content.Intent
 import android.content.pm.ActivityInfo
 import android.net.Uri
+import android.os.Handler
+import android.os.Looper
 import androidx.annotation.RestrictTo
 import androidx.annotation.VisibleForTesting
 import androidx.fragment.app.FragmentActivity
 import com.braintreepayments.api.IntegrationType.Integration
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Core Braintree class that handles network requests.
@@ -46,6 +50,14 @@ open class BraintreeClient @VisibleForTesting internal constructor(
 
     private val crashReporter: CrashReporter
     private var launchesBrowserSwitchAsNewTask: Boolean = false
+    private val mainThreadHandler by lazy { Handler(Looper.getMainLooper()) }
+
+    /**
+     * Tracer that receives a [TraceSpan] for each stage of operations such as tokenizing a card or
+     * performing 3D Secure verification, or null to stop tracing. Null by default.
+     */
+    @Volatile
+    var tracer: BraintreeTracer? = null
 
     // NOTE: this constructor is used to make dependency injection easy
     internal constructor(params: BraintreeClientParams) : this(
@@ -198,6 +210,118 @@ open class BraintreeClient @VisibleForTesting internal constructor(
         }
     }
 
+    /**
+     * Retrieve Braintree configuration within the [deadline] of a payment flow. The callback is
+     * invoked at most once: with the configuration, or with a [DeadlineExceededException] on the
+     * main thread once the deadline passes first. A fetch that is still in flight keeps running
+     * so that it fills the cache for the next flow.
+     *
+     * @param deadline deadline of the flow, or null to wait for configuration without a limit
+     * @param callback [ConfigurationCallback]
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    open fun getConfiguration(deadline: Deadline?, callback: ConfigurationCallback) {
+        if (deadline == null) {
+            getConfiguration(callback)
+            return
+        }
+        if (deadline.isExpired) {
+            callback.onResult(null, DeadlineExceededException(CONFIGURATION_DEADLINE_MESSAGE))
+            return
+        }
+
+        val isDelivered = AtomicBoolean(false)
+        val timeout = Runnable {
+            if (isDelivered.compareAndSet(false, true)) {
+                callback.onResult(null, DeadlineExceededException(CONFIGURATION_DEADLINE_MESSAGE))
+            }
+        }
+        mainThreadHandler.postDelayed(timeout, deadline.remainingMillis())
+        getConfiguration { configuration, error ->
+            mainThreadHandler.removeCallbacks(timeout)
+            if (isDelivered.compareAndSet(false, true)) {
+                callback.onResult(configuration, error)
+            }
+        }
+    }
+
+    /**
+     * Fetch Braintree configuration ahead of time so that it is already cached when a payment flow
+     * needs it. Call this early, for example when the app or checkout screen starts; errors are
+     * ignored and will be reported by the next call that requires configuration.
+     */
+    fun prefetchConfiguration() {
+        getConfiguration { _, _ -> }
+    }
+
+    /**
+     * Prepare for an upcoming payment by fetching configuration and opening connections to the
+     * Braintree client API, GraphQL and analytics hosts in the background. The first request of a
+     * payment flow then reuses an open connection instead of waiting on DNS, TCP and TLS. Call
+     * this when a payment is likely, for example when the checkout screen is shown; errors are
+     * ignored.
+     */
+    fun warmUp() {
+        getConfiguration { configuration, _ ->
+            if (configuration != null) {
+                httpClient.preconnect(configuration.clientApiUrl)
+                if (configuration.isGraphQLEnabled) {
+                    graphQLClient.preconnect(configuration.graphQLUrl)
+                }
+                val analyticsUrl = configuration.analyticsUrl
+                if (isAnalyticsEnabled(configuration) && analyticsUrl != null) {
+                    // analytics uploads don't use the HTTP/2 transport, so warm their own client
+                    analyticsClient.preconnect(analyticsUrl)
+                }
+            }
+        }
+    }
+
+    /**
+     * Set a listener that is notified of the phases of every request this client sends to
+     * Braintree, such as connecting, time to first byte and reading the response, to measure
+     * latency per endpoint.
+     *
+     * @param listener [HttpEventListener] notified on the thread sending each request, or null to
+     * stop instrumenting requests
+     */
+    fun setHttpEventListener(listener: HttpEventListener?) {
+        httpClient.setEventListener(listener)
+        graphQLClient.setEventListener(listener)
+    }
+
+    /**
+     * Set the executor that runs the callbacks of requests this client sends, for example to use
+     * the SDK from a background service without a main thread looper. Responses are decoded before
+     * they are handed to the executor. Payment flows that start activities must keep the default.
+     *
+     * @param executor executor that runs callbacks, or null to run them on the main thread
+     */
+    fun setCallbackExecutor(executor: Executor?) {
+        httpClient.setCallbackExecutor(executor)
+        graphQLClient.setCallbackExecutor(executor)
+    }
+
+    /**
+     * Register a listener that is notified when requests to a Braintree endpoint start failing
+     * fast after repeated server errors or timeouts, and when the endpoint recovers. Listeners are
+     * shared by every [BraintreeClient] in the process; remove them with
+     * [removeCircuitBreakerListener] when they are no longer needed.
+     *
+     * @param listener [CircuitBreakerListener] notified on the main thread
+     */
+    fun addCircuitBreakerListener(listener: CircuitBreakerListener) {
+        httpClient.addCircuitBreakerListener(listener)
+    }
+
+    /**
+     * @param listener a [CircuitBreakerListener] previously passed to [addCircuitBreakerListener]
+     */
+    fun removeCircuitBreakerListener(listener: CircuitBreakerListener) {
+        httpClient.removeCircuitBreakerListener(listener)
+    }
+
     /**
      * @suppress
      */
@@ -237,76 +361,138 @@ open class BraintreeClient @VisibleForTesting internal constructor(
     }
 
     /**
+     * @return a handle that cancels the request
      * @suppress
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-    fun sendGET(url: String, responseCallback: HttpResponseCallback) {
-        getAuthorization { authorization, authError ->
-            if (authorization != null) {
-                getConfiguration { configuration, configError ->
-                    if (configuration != null) {
-                        httpClient.get(url, configuration, authorization, responseCallback)
-                    } else {
-                        responseCallback.onResult(null, configError)
-                    }
-                }
-            } else {
-                responseCallback.onResult(null, authError)
-            }
-        }
+    fun sendGET(url: String, responseCallback: HttpResponseCallback): RequestHandle =
+        sendGET(url, null, responseCallback)
+
+    /**
+     * @param deadline deadline of the flow the request belongs to; the request only waits for the
+     * time left before it and fails with a [DeadlineExceededException] once it has passed
+     * @return a handle that cancels the request
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun sendGET(
+        url: String,
+        deadline: Deadline?,
+        responseCallback: HttpResponseCallback
+    ): RequestHandle = sendRequest(deadline, responseCallback) { configuration, authorization, callback ->
+        httpClient.get(url, configuration, authorization, callback, deadline)
     }
 
     /**
+     * @return a handle that cancels the request
      * @suppress
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-    fun sendPOST(url: String, data: String, responseCallback: HttpResponseCallback) {
-        getAuthorization { authorization, authError ->
-            if (authorization != null) {
-                getConfiguration { configuration, configError ->
-                    if (configuration != null) {
-                        httpClient.post(
-                            url,
-                            data,
-                            configuration,
-                            authorization,
-                            responseCallback
-                        )
-                    } else {
-                        responseCallback.onResult(null, configError)
-                    }
-                }
-            } else {
-                responseCallback.onResult(null, authError)
-            }
-        }
+    fun sendPOST(url: String, data: String, responseCallback: HttpResponseCallback): RequestHandle =
+        sendPOST(url, data, null, responseCallback)
+
+    /**
+     * @param deadline deadline of the flow the request belongs to; the request only waits for the
+     * time left before it and fails with a [DeadlineExceededException] once it has passed
+     * @return a handle that cancels the request
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun sendPOST(
+        url: String,
+        data: String,
+        deadline: Deadline?,
+        responseCallback: HttpResponseCallback
+    ): RequestHandle = sendRequest(deadline, responseCallback) { configuration, authorization, callback ->
+        httpClient.post(url, data, configuration, authorization, callback, deadline = deadline)
     }
 
     /**
+     * @return a handle that cancels the request
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun sendGraphQLPOST(payload: String?, responseCallback: HttpResponseCallback): RequestHandle =
+        sendGraphQLPOST(payload, null, responseCallback)
+
+    /**
+     * @param deadline deadline of the flow the request belongs to; the request only waits for the
+     * time left before it and fails with a [DeadlineExceededException] once it has passed
+     * @return a handle that cancels the request
      * @suppress
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-    fun sendGraphQLPOST(payload: String?, responseCallback: HttpResponseCallback) {
+    fun sendGraphQLPOST(
+        payload: String?,
+        deadline: Deadline?,
+        responseCallback: HttpResponseCallback
+    ): RequestHandle = sendRequest(deadline, responseCallback) { configuration, authorization, callback ->
+        graphQLClient.post(payload, configuration, authorization, callback, deadline)
+    }
+
+    /**
+     * Load authorization and configuration within the [deadline], then [send] the request unless
+     * it was cancelled in the meantime. Once the returned handle is cancelled, [responseCallback]
+     * receives a [RequestCancelledException] instead of the response.
+     */
+    private fun sendRequest(
+        deadline: Deadline?,
+        responseCallback: HttpResponseCallback,
+        send: (Configuration, Authorization, HttpResponseCallback) -> RequestHandle
+    ): RequestHandle {
+        val handle = RequestHandle()
+        val callback = if (responseCallback is DecodingHttpResponseCallback<*>) {
+            // keep decoding on the background thread that receives the response
+            completingDecodingCallback(handle, responseCallback)
+        } else {
+            object : HttpResponseCallback {
+                override fun onResult(responseBody: String?, httpError: Exception?) {
+                    if (handle.complete()) {
+                        responseCallback.onResult(responseBody, httpError)
+                    } else {
+                        responseCallback.onResult(null, createRequestCancelledException())
+                    }
+                }
+            }
+        }
+
         getAuthorization { authorization, authError ->
             if (authorization != null) {
-                getConfiguration { configuration, configError ->
-                    if (configuration != null) {
-                        graphQLClient.post(
-                            payload,
-                            configuration,
-                            authorization,
-                            responseCallback
-                        )
+                getConfiguration(deadline) { configuration, configError ->
+                    if (configuration == null) {
+                        callback.onResult(null, configError)
+                    } else if (handle.isCancelled) {
+                        callback.onResult(null, createRequestCancelledException())
                     } else {
-                        responseCallback.onResult(null, configError)
+                        val requestHandle = send(configuration, authorization, callback)
+                        handle.setCancelAction { requestHandle.cancel() }
                     }
                 }
             } else {
-                responseCallback.onResult(null, authError)
+                callback.onResult(null, authError)
+            }
+        }
+        return handle
+    }
+
+    private fun <T> completingDecodingCallback(
+        handle: RequestHandle,
+        responseCallback: DecodingHttpResponseCallback<T>
+    ): HttpResponseCallback = object : DecodingHttpResponseCallback<T>() {
+        override fun decode(responseBody: String): T = responseCallback.decode(responseBody)
+
+        override fun onDecodedResult(result: T?, error: Exception?) {
+            if (handle.complete()) {
+                responseCallback.onDecodedResult(result, error)
+            } else {
+                responseCallback.onDecodedResult(null, createRequestCancelledException())
             }
         }
     }
 
+    private fun createRequestCancelledException() =
+        RequestCancelledException(RequestHandle.CANCELLED_MESSAGE)
+
     /**
      * @suppress
      */
@@ -464,8 +650,115 @@ open class BraintreeClient @VisibleForTesting internal constructor(
         this.launchesBrowserSwitchAsNewTask = launchesBrowserSwitchAsNewTask
     }
 
+    /**
+     * Builder for a [BraintreeClient] with options that are not available through its
+     * constructors. Options that are not set keep the same defaults as the constructors.
+     */
+    class Builder private constructor(
+        private val context: Context,
+        private val authorization: String?,
+        private val clientTokenProvider: ClientTokenProvider?
+    ) {
+
+        private var returnUrlScheme: String? = null
+        private var useHttp2: Boolean = false
+        private var maxBackgroundThreads: Int? = null
+        private var staleWhileRevalidateConfiguration: Boolean = false
+        private var requestCompressionThresholdBytes: Int? = null
+        private var clientTokenMaxAgeMillis: Long? = null
+        private var multiProcessConfigurationCache: Boolean = false
+
+        /**
+         * @param context       Android Context
+         * @param authorization The tokenization key or client token to use
+         */
+        constructor(context: Context, authorization: String) : this(context, authorization, null)
+
+        /**
+         * @param context             Android Context
+         * @param clientTokenProvider An implementation of [ClientTokenProvider] that
+         * [BraintreeClient] will use to fetch a client token on demand
+         */
+        constructor(context: Context, clientTokenProvider: ClientTokenProvider) :
+                this(context, null, clientTokenProvider)
+
+        /**
+         * @param returnUrlScheme A custom return url to use for browser and app switching
+         */
+        fun returnUrlScheme(returnUrlScheme: String): Builder = apply {
+            this.returnUrlScheme = returnUrlScheme
+        }
+
+        /**
+         * @param useHttp2 true to multiplex requests to each Braintree host over a single HTTP/2
+         * connection. Requires OkHttp on the classpath; requests use the default transport when it
+         * is not available. False by default.
+         */
+        fun useHttp2(useHttp2: Boolean): Builder = apply {
+            this.useHttp2 = useHttp2
+        }
+
+        /**
+         * @param maxBackgroundThreads the maximum number of threads used for network requests.
+         * The thread pool is shared by every [BraintreeClient] in the process that sets this
+         * option and is sized by the first of them to be built.
+         */
+        fun maxBackgroundThreads(maxBackgroundThreads: Int): Builder = apply {
+            this.maxBackgroundThreads = maxBackgroundThreads
+        }
+
+        /**
+         * @param staleWhileRevalidate true to return an expired cached configuration right away
+         * while a fresh one is fetched in the background. False by default.
+         */
+        fun staleWhileRevalidateConfiguration(staleWhileRevalidate: Boolean): Builder = apply {
+            this.staleWhileRevalidateConfiguration = staleWhileRevalidate
+        }
+
+        /**
+         * @param thresholdBytes minimum request body size in bytes that is sent gzip compressed
+         */
+        fun requestCompressionThresholdBytes(thresholdBytes: Int): Builder = apply {
+            this.requestCompressionThresholdBytes = thresholdBytes
+        }
+
+        /**
+         * @param maxAgeMillis age after which a client token fetched from the
+         * [ClientTokenProvider] is refreshed in the background
+         */
+        fun clientTokenMaxAgeMillis(maxAgeMillis: Long): Builder = apply {
+            this.clientTokenMaxAgeMillis = maxAgeMillis
+        }
+
+        /**
+         * @param multiProcess true to share cached configuration with the app's other processes.
+         * False by default.
+         */
+        fun multiProcessConfigurationCache(multiProcess: Boolean): Builder = apply {
+            this.multiProcessConfigurationCache = multiProcess
+        }
+
+        fun build(): BraintreeClient = BraintreeClient(createOptions())
+
+        internal fun createOptions() = BraintreeOptions(
+            context = context,
+            initialAuthString = authorization,
+            clientTokenProvider = clientTokenProvider,
+            returnUrlScheme = returnUrlScheme,
+            httpTransportType = if (useHttp2) HttpTransportType.HTTP2 else null,
+            maxBackgroundThreads = maxBackgroundThreads,
+            staleWhileRevalidateConfiguration = staleWhileRevalidateConfiguration,
+            requestCompressionThresholdBytes = requestCompressionThresholdBytes,
+            clientTokenMaxAgeMillis = clientTokenMaxAgeMillis,
+            multiProcessConfigurationCache = multiProcessConfigurationCache
+        )
+    }
+
     companion object {
 
+        private const val CONFIGURATION_DEADLINE_MESSAGE =
+            "Configuration was not available before the deadline of the flow"
+
         /**
          * @suppress
          */
@@ -0,0 +1,109 @@
+@file:JvmName("BraintreeClientCoroutines")
+
+package com.braintreepayments.api
+
+import androidx.annotation.RestrictTo
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * Retrieve Braintree configuration.
+ *
+ * @return the [Configuration]
+ * @throws Exception the error that occurred while fetching authorization or configuration
+ */
+suspend fun BraintreeClient.getConfiguration(): Configuration = awaitResult { callback ->
+    getConfiguration { configuration, error -> callback(configuration, error) }
+    null
+}
+
+/**
+ * Emits a [CircuitStateChange] whenever requests to a Braintree endpoint start failing fast after
+ * repeated server errors or timeouts, and when the endpoint recovers. The listener backing the
+ * flow is registered while the flow is collected and removed when collection stops.
+ */
+fun BraintreeClient.circuitStateChanges(): Flow<CircuitStateChange> = callbackFlow {
+    val listener = CircuitBreakerListener { endpoint, state ->
+        trySend(CircuitStateChange(endpoint, state))
+    }
+    addCircuitBreakerListener(listener)
+    awaitClose { removeCircuitBreakerListener(listener) }
+}
+
+/**
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+suspend fun BraintreeClient.getAuthorization(): Authorization = awaitResult { callback ->
+    getAuthorization { authorization, error -> callback(authorization, error) }
+    null
+}
+
+/**
+ * Send a GET request and suspend until its response body is received. Cancelling the calling
+ * coroutine cancels the request.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+suspend fun BraintreeClient.sendGET(url: String, deadline: Deadline? = null): String =
+    awaitResult { callback ->
+        sendGET(url, deadline) { body, error -> callback(body, error) }
+    }
+
+/**
+ * Send a POST request and suspend until its response body is received. Cancelling the calling
+ * coroutine cancels the request.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+suspend fun BraintreeClient.sendPOST(
+    url: String,
+    data: String,
+    deadline: Deadline? = null
+): String = awaitResult { callback ->
+    sendPOST(url, data, deadline) { body, error -> callback(body, error) }
+}
+
+/**
+ * Send a GraphQL request and suspend until its response body is received. Cancelling the calling
+ * coroutine cancels the request.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+suspend fun BraintreeClient.sendGraphQLPOST(
+    payload: String?,
+    deadline: Deadline? = null
+): String = awaitResult { callback ->
+    sendGraphQLPOST(payload, deadline) { body, error -> callback(body, error) }
+}
+
+/**
+ * Start a callback based operation and suspend until it delivers its result. Cancelling the
+ * calling coroutine cancels the [RequestHandle] returned by [start], if any, and a result
+ * delivered afterwards is dropped.
+ *
+ * @param start starts the operation with a callback that receives its result or error
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+suspend fun <T : Any> awaitResult(
+    start: (callback: (result: T?, error: Exception?) -> Unit) -> RequestHandle?
+): T = suspendCancellableCoroutine { continuation ->
+    val handle = start { result, error ->
+        when {
+            result != null -> continuation.resume(result)
+            error != null -> continuation.resumeWithException(error)
+            else -> continuation.resumeWithException(
+                BraintreeException("Operation completed without a result")
+            )
+        }
+    }
+    handle?.let { requestHandle -> continuation.invokeOnCancellation { requestHandle.cancel() } }
+}
@@ -15,18 +15,39 @@ internal data class BraintreeClientParams @VisibleForTesting constructor(
     val browserSwitchClient: BrowserSwitchClient = BrowserSwitchClient(),
     val manifestValidator: ManifestValidator = ManifestValidator(),
     val uuidHelper: UUIDHelper = UUIDHelper(),
-    val configurationLoader: ConfigurationLoader = ConfigurationLoader(context, httpClient),
+    val staleWhileRevalidateConfiguration: Boolean = false,
+    val multiProcessConfigurationCache: Boolean = false,
+    val scheduler: Scheduler = ThreadScheduler(),
+    val configurationLoader: ConfigurationLoader = ConfigurationLoader(
+        context,
+        httpClient,
+        staleWhileRevalidateConfiguration,
+        multiProcessConfigurationCache,
+        scheduler
+    ),
     @Integration val integrationType: String,
 ) {
 
     constructor(options: BraintreeOptions) : this(
         context = options.context,
         authorizationLoader = options.run {
-            AuthorizationLoader(initialAuthString, clientTokenProvider)
+            AuthorizationLoader(initialAuthString, clientTokenProvider, clientTokenMaxAgeMillis)
         },
         sessionId = options.sessionId ?: createUniqueSessionId(),
         returnUrlScheme = options.returnUrlScheme ?: createDefaultReturnUrlScheme(options.context),
-        integrationType = options.integrationType ?: IntegrationType.CUSTOM
+        integrationType = options.integrationType ?: IntegrationType.CUSTOM,
+        httpClient = BraintreeHttpClient(
+            options.httpTransportType ?: HttpTransportType.URL_CONNECTION,
+            createScheduler(options),
+            options.requestCompressionThresholdBytes ?: HttpRequest.NO_COMPRESSION
+        ),
+        graphQLClient = BraintreeGraphQLClient(
+            options.httpTransportType ?: HttpTransportType.URL_CONNECTION,
+            createScheduler(options)
+        ),
+        staleWhileRevalidateConfiguration = options.staleWhileRevalidateConfiguration,
+        multiProcessConfigurationCache = options.multiProcessConfigurationCache,
+        scheduler = createScheduler(options)
     )
 
     val applicationContext: Context = context.applicationContext
@@ -41,5 +62,9 @@ internal data class BraintreeClientParams @VisibleForTesting constructor(
 
         private fun createDefaultReturnUrlScheme(context: Context) =
             "${getAppPackageNameWithoutUnderscores(context)}.braintree"
+
+        // bounded schedulers share one prioritized thread pool across the process
+        private fun createScheduler(options: BraintreeOptions): Scheduler =
+            options.maxBackgroundThreads?.let { ThreadScheduler(it) } ?: ThreadScheduler()
     }
 }
@@ -1,11 +1,17 @@
 package com.braintreepayments.api
 
+import org.json.JSONException
+import org.json.JSONObject
 import java.util.Locale
+import java.util.concurrent.Executor
 
 internal class BraintreeGraphQLClient(
     private val httpClient: HttpClient = createDefaultHttpClient()
 ) {
 
+    constructor(@HttpTransportType.Transport transportType: String, scheduler: Scheduler) :
+            this(createDefaultHttpClient(transportType, scheduler))
+
     fun post(
         path: String?,
         data: String?,
@@ -23,6 +29,7 @@ internal class BraintreeGraphQLClient(
             .path(path)
             .data(data)
             .baseUrl(configuration.graphQLUrl)
+            .endpointLabel(endpointLabel(data))
             .addHeader("User-Agent", "braintree/android/" + BuildConfig.VERSION_NAME)
             .addHeader("Authorization",
                 String.format(Locale.US, "Bearer %s", authorization.bearer))
@@ -34,23 +41,27 @@ internal class BraintreeGraphQLClient(
         data: String?,
         configuration: Configuration,
         authorization: Authorization,
-        callback: HttpResponseCallback
-    ) {
+        callback: HttpResponseCallback,
+        deadline: Deadline? = null
+    ): RequestHandle {
         if (authorization is InvalidAuthorization) {
             val message = authorization.errorMessage
             callback.onResult(null, BraintreeException(message))
-            return
+            return RequestHandle()
         }
         val request = HttpRequest()
             .method("POST")
             .path("")
             .data(data)
             .baseUrl(configuration.graphQLUrl)
+            .endpointLabel(endpointLabel(data))
+            .deadline(deadline)
             .addHeader("User-Agent", "braintree/android/" + BuildConfig.VERSION_NAME)
             .addHeader("Authorization",
                 String.format(Locale.US, "Bearer %s", authorization.bearer))
             .addHeader("Braintree-Version", GraphQLConstants.Headers.API_VERSION)
         httpClient.sendRequest(request, callback)
+        return request.handle
     }
 
     @Throws(Exception::class)
@@ -69,6 +80,7 @@ internal class BraintreeGraphQLClient(
             .path(path)
             .data(data)
             .baseUrl(configuration.graphQLUrl)
+            .endpointLabel(endpointLabel(data))
             .addHeader("User-Agent", "braintree/android/" + BuildConfig.VERSION_NAME)
             .addHeader("Authorization",
                 String.format(Locale.US, "Bearer %s", authorization.bearer))
@@ -76,11 +88,59 @@ internal class BraintreeGraphQLClient(
         return httpClient.sendRequest(request)
     }
 
+    /**
+     * Open a connection to the origin of [url] in the background and keep it ready for the next
+     * request. Failures are ignored.
+     */
+    fun preconnect(url: String) = httpClient.preconnect(url)
+
+    /**
+     * @param listener listener notified of the phases of every request, or null to stop
+     * instrumenting requests
+     */
+    fun setEventListener(listener: HttpEventListener?) {
+        httpClient.eventListener = listener
+    }
+
+    /**
+     * @param executor executor that runs response callbacks, or null to run them on the main
+     * thread
+     */
+    fun setCallbackExecutor(executor: Executor?) {
+        httpClient.callbackExecutor = executor
+    }
+
+    /**
+     * @return `graphql:` followed by the operation name of [data], or null to label the request
+     * with its path
+     */
+    @Suppress("SwallowedException")
+    private fun endpointLabel(data: String?): String? {
+        // only read the payload when the label will be reported
+        if (httpClient.eventListener == null || data == null) {
+            return null
+        }
+        val operationName = try {
+            JSONObject(data).optString(GraphQLConstants.Keys.OPERATION_NAME)
+        } catch (e: JSONException) {
+            ""
+        }
+        return if (operationName.isEmpty()) null else "$GRAPHQL_LABEL:$operationName"
+    }
+
     companion object {
+        private const val GRAPHQL_LABEL = "graphql"
 
-        private fun createDefaultHttpClient(): HttpClient {
-            val socketFactory = TLSSocketFactory(TLSCertificatePinning.certInputStream)
-            return HttpClient(socketFactory, BraintreeGraphQLResponseParser())
+        private fun createDefaultHttpClient(
+            @HttpTransportType.Transport transportType: String = HttpTransportType.URL_CONNECTION,
+            scheduler: Scheduler = ThreadScheduler()
+        ): HttpClient {
+            val transport = HttpTransportFactory().createTransport(
+                transportType == HttpTransportType.HTTP2,
+                TLSCertificatePinning.socketFactory,
+                BraintreeGraphQLResponseParser()
+            )
+            return HttpClient(transport, scheduler, CircuitBreaker.getSharedInstance())
         }
     }
 }
@@ -4,14 +4,26 @@ import android.net.Uri
 import com.braintreepayments.api.HttpClient.RetryStrategy
 import org.json.JSONException
 import org.json.JSONObject
+import java.util.concurrent.Executor
 
 /**
  * Network request class that handles Braintree request specifics and threading.
  */
 internal class BraintreeHttpClient(
-    private val httpClient: HttpClient = createDefaultHttpClient()
+    private val httpClient: HttpClient = createDefaultHttpClient(),
+    private val requestCompressionThreshold: Int = HttpRequest.NO_COMPRESSION
 ) {
 
+    /**
+     * @param requestCompressionThreshold minimum POST body size in bytes that is gzipped before
+     * being sent, or [HttpRequest.NO_COMPRESSION] to always send bodies uncompressed
+     */
+    constructor(
+        @HttpTransportType.Transport transportType: String,
+        scheduler: Scheduler,
+        requestCompressionThreshold: Int = HttpRequest.NO_COMPRESSION
+    ) : this(createDefaultHttpClient(transportType, scheduler), requestCompressionThreshold)
+
     /**
      * Make a HTTP GET request to Braintree using the base url, path and authorization provided.
      * If the path is a full url, it will be used instead of the previously provided url.
@@ -19,13 +31,18 @@ internal class BraintreeHttpClient(
      * @param configuration configuration for the Braintree Android SDK.
      * @param authorization
      * @param callback [HttpResponseCallback]
+     * @param deadline deadline of the flow the request belongs to, or null for none
+     * @return a handle that cancels the request
      */
+    @JvmOverloads
     operator fun get(
         path: String,
         configuration: Configuration?,
         authorization: Authorization?,
-        callback: HttpResponseCallback
-    ) = get(path, configuration, authorization, HttpClient.NO_RETRY, callback)
+        callback: HttpResponseCallback,
+        deadline: Deadline? = null
+    ): RequestHandle =
+        get(path, configuration, authorization, HttpClient.NO_RETRY, callback, deadline)
 
     /**
      * Make a HTTP GET request to Braintree using the base url, path and authorization provided.
@@ -35,26 +52,74 @@ internal class BraintreeHttpClient(
      * @param authorization
      * @param retryStrategy retry strategy
      * @param callback [HttpResponseCallback]
+     * @param deadline deadline of the flow the request belongs to, or null for none
+     * @return a handle that cancels the request
      */
     operator fun get(
         path: String,
         configuration: Configuration?,
         authorization: Authorization?,
         @RetryStrategy retryStrategy: Int,
-        callback: HttpResponseCallback
+        callback: HttpResponseCallback,
+        deadline: Deadline? = null
+    ): RequestHandle {
+        val request = try {
+            createGetRequest(path, configuration, authorization)
+        } catch (e: BraintreeException) {
+            callback.onResult(null, e)
+            return RequestHandle()
+        }
+        request.deadline(deadline)
+        httpClient.sendRequest(request, retryStrategy, callback)
+        return request.handle
+    }
+
+    /**
+     * Make a conditional HTTP GET request to Braintree for a resource the caller has a cached copy
+     * of. If the server responds `304 Not Modified` the callback receives a
+     * [NotModifiedException] and the cached copy can be reused.
+     * @param url The url to request from the server via GET
+     * @param authorization
+     * @param validators validators returned with the cached copy, or null to request the resource
+     * unconditionally
+     * @param retryStrategy retry strategy
+     * @param callback [ConditionalHttpResponseCallback]
+     */
+    fun getConditional(
+        url: String,
+        authorization: Authorization?,
+        validators: HttpCacheValidators?,
+        @RetryStrategy retryStrategy: Int,
+        callback: ConditionalHttpResponseCallback
     ) {
-        if (authorization is InvalidAuthorization) {
-            val message = authorization.errorMessage
-            callback.onResult(null, BraintreeException(message))
+        val request = try {
+            createGetRequest(url, null, authorization)
+        } catch (e: BraintreeException) {
+            callback.onResult(null, null, e)
             return
         }
+        request.validators(validators)
+        httpClient.sendRequest(request, retryStrategy, object : HttpResponseCallback {
+            override fun onResult(responseBody: String?, httpError: Exception?) {
+                callback.onResult(responseBody, request.responseValidators, httpError)
+            }
+        })
+    }
+
+    @Throws(BraintreeException::class)
+    private fun createGetRequest(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?
+    ): HttpRequest {
+        if (authorization is InvalidAuthorization) {
+            throw BraintreeException(authorization.errorMessage)
+        }
         val isRelativeURL = !path.startsWith("http")
         if (configuration == null && isRelativeURL) {
             val message =
                 "Braintree HTTP GET request without configuration cannot have a relative path."
-            val relativeURLNotAllowedError = BraintreeException(message)
-            callback.onResult(null, relativeURLNotAllowedError)
-            return
+            throw BraintreeException(message)
         }
         val targetPath = if (authorization is ClientToken) {
             Uri.parse(path).buildUpon()
@@ -64,6 +129,7 @@ internal class BraintreeHttpClient(
             path
         }
         val request = HttpRequest().method("GET").path(targetPath)
+            .endpointLabel(endpointLabel(path))
             .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
         if (isRelativeURL && configuration != null) {
             request.baseUrl(configuration.clientApiUrl)
@@ -71,7 +137,7 @@ internal class BraintreeHttpClient(
         if (authorization is TokenizationKey) {
             request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
         }
-        httpClient.sendRequest(request, retryStrategy, callback)
+        return request
     }
 
     /**
@@ -82,18 +148,23 @@ internal class BraintreeHttpClient(
      * @param configuration configuration for the Braintree Android SDK.
      * @param authorization
      * @param callback [HttpResponseCallback]
+     * @param priority background scheduling priority of the request
+     * @param deadline deadline of the flow the request belongs to, or null for none
+     * @return a handle that cancels the request
      */
     fun post(
         path: String,
         data: String,
         configuration: Configuration?,
         authorization: Authorization?,
-        callback: HttpResponseCallback
-    ) {
+        callback: HttpResponseCallback,
+        @Scheduler.Priority priority: Int = Scheduler.PRIORITY_DEFAULT,
+        deadline: Deadline? = null
+    ): RequestHandle {
         if (authorization is InvalidAuthorization) {
             val message = authorization.errorMessage
             callback.onResult(null, BraintreeException(message))
-            return
+            return RequestHandle()
         }
         val isRelativeURL = !path.startsWith("http")
         if (configuration == null && isRelativeURL) {
@@ -101,7 +172,7 @@ internal class BraintreeHttpClient(
                 "Braintree HTTP GET request without configuration cannot have a relative path."
             val relativeURLNotAllowedError = BraintreeException(message)
             callback.onResult(null, relativeURLNotAllowedError)
-            return
+            return RequestHandle()
         }
         val requestData = if (authorization is ClientToken) {
             try {
@@ -111,12 +182,16 @@ internal class BraintreeHttpClient(
                 ).toString()
             } catch (e: JSONException) {
                 callback.onResult(null, e)
-                return
+                return RequestHandle()
             }
         } else {
             data
         }
         val request = HttpRequest().method("POST").path(path).data(requestData)
+            .endpointLabel(endpointLabel(path))
+            .priority(priority)
+            .deadline(deadline)
+            .compressData(requestCompressionThreshold)
             .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
         if (isRelativeURL && configuration != null) {
             request.baseUrl(configuration.clientApiUrl)
@@ -125,6 +200,7 @@ internal class BraintreeHttpClient(
             request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
         }
         httpClient.sendRequest(request, callback)
+        return request.handle
     }
 
     /**
@@ -159,6 +235,8 @@ internal class BraintreeHttpClient(
             data
         }
         val request = HttpRequest().method("POST").path(path).data(requestData)
+            .endpointLabel(endpointLabel(path))
+            .compressData(requestCompressionThreshold)
             .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
         if (isRelativeURL && configuration != null) {
             request.baseUrl(configuration.clientApiUrl)
@@ -169,14 +247,64 @@ internal class BraintreeHttpClient(
         return httpClient.sendRequest(request)
     }
 
+    /**
+     * Open a connection to the origin of [url] in the background and keep it ready for the next
+     * request. Failures are ignored.
+     */
+    fun preconnect(url: String) = httpClient.preconnect(url)
+
+    /**
+     * @param listener listener notified of the phases of every request, or null to stop
+     * instrumenting requests
+     */
+    fun setEventListener(listener: HttpEventListener?) {
+        httpClient.eventListener = listener
+    }
+
+    /**
+     * @param executor executor that runs response callbacks, or null to run them on the main
+     * thread
+     */
+    fun setCallbackExecutor(executor: Executor?) {
+        httpClient.callbackExecutor = executor
+    }
+
+    fun addCircuitBreakerListener(listener: CircuitBreakerListener) =
+        httpClient.circuitBreaker.addListener(listener)
+
+    fun removeCircuitBreakerListener(listener: CircuitBreakerListener) =
+        httpClient.circuitBreaker.removeListener(listener)
+
     companion object {
         private const val AUTHORIZATION_FINGERPRINT_KEY = "authorizationFingerprint"
         private const val USER_AGENT_HEADER = "User-Agent"
         private const val CLIENT_KEY_HEADER = "Client-Key"
+        private const val CONFIGURATION_PATH = "v1/configuration"
+        private const val THREE_D_SECURE_LOOKUP_PATH = "three_d_secure/lookup"
+
+        /**
+         * @return a short label for well known endpoints, or null to label the request with its
+         * path
+         */
+        private fun endpointLabel(path: String): String? {
+            val pathWithoutQuery = path.substringBefore('?')
+            return when {
+                pathWithoutQuery.endsWith(CONFIGURATION_PATH) -> "config"
+                pathWithoutQuery.endsWith(THREE_D_SECURE_LOOKUP_PATH) -> "3ds:lookup"
+                else -> null
+            }
+        }
 
-        private fun createDefaultHttpClient(): HttpClient {
-            val socketFactory = TLSSocketFactory(TLSCertificatePinning.certInputStream)
-            return HttpClient(socketFactory, BraintreeHttpResponseParser())
+        private fun createDefaultHttpClient(
+            @HttpTransportType.Transport transportType: String = HttpTransportType.URL_CONNECTION,
+            scheduler: Scheduler = ThreadScheduler()
+        ): HttpClient {
+            val transport = HttpTransportFactory().createTransport(
+                transportType == HttpTransportType.HTTP2,
+                TLSCertificatePinning.socketFactory,
+                BraintreeHttpResponseParser()
+            )
+            return HttpClient(transport, scheduler, CircuitBreaker.getSharedInstance())
         }
     }
 }
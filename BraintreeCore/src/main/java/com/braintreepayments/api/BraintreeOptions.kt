@@ -14,4 +14,10 @@ data class BraintreeOptions @JvmOverloads constructor(
     val initialAuthString: String? = null,
     val clientTokenProvider: ClientTokenProvider? = null,
     @IntegrationType.Integration val integrationType: String? = null,
+    @HttpTransportType.Transport val httpTransportType: String? = null,
+    val maxBackgroundThreads: Int? = null,
+    val staleWhileRevalidateConfiguration: Boolean = false,
+    val requestCompressionThresholdBytes: Int? = null,
+    val clientTokenMaxAgeMillis: Long? = null,
+    val multiProcessConfigurationCache: Boolean = false,
 )
@@ -0,0 +1,20 @@
+package com.braintreepayments.api
+
+/**
+ * Implement this interface to export the spans [BraintreeClient] records for SDK operations such
+ * as card tokenization or 3D Secure verification, for example to a tracing or APM tool.
+ *
+ * Every operation is a root span with a child span per stage, such as loading configuration,
+ * sending the HTTP request and parsing its response, so that the stage that dominates the latency
+ * of an operation can be found.
+ */
+fun interface BraintreeTracer {
+    /**
+     * Called once for every span when it ends. Child spans end before their parent. Spans end on
+     * the thread that completed the stage, so implementations must be thread-safe and return
+     * quickly.
+     *
+     * @param span the [TraceSpan] that ended
+     */
+    fun onSpanEnd(span: TraceSpan)
+}
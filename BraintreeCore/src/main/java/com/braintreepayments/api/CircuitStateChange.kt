@@ -0,0 +1,15 @@
+package com.braintreepayments.api
+
+/**
+ * A change of state of the circuit of a Braintree endpoint, emitted by
+ * [BraintreeClient.circuitStateChanges].
+ *
+ * @property endpoint the host and path of the endpoint, with identifiers replaced by `*`
+ * @property state the new state of the endpoint's circuit, one of
+ * [CircuitBreakerListener.STATE_CLOSED], [CircuitBreakerListener.STATE_OPEN] or
+ * [CircuitBreakerListener.STATE_HALF_OPEN]
+ */
+data class CircuitStateChange internal constructor(
+    val endpoint: String,
+    @CircuitBreakerListener.State val state: Int
+)
@@ -0,0 +1,16 @@
+package com.braintreepayments.api
+
+/**
+ * Callback for a conditional request made with [BraintreeHttpClient.getConditional].
+ */
+internal fun interface ConditionalHttpResponseCallback {
+
+    /**
+     * @param responseBody the body of the response, or null if the request failed or the server
+     * responded `304 Not Modified`
+     * @param validators the validators sent with the response, to be stored with the body
+     * @param httpError a [NotModifiedException] when the cached copy is still current, otherwise
+     * the reason the request failed
+     */
+    fun onResult(responseBody: String?, validators: HttpCacheValidators?, httpError: Exception?)
+}
@@ -1,56 +1,166 @@
 package com.braintreepayments.api
 
 import android.content.Context
+import android.util.Base64
 import androidx.annotation.VisibleForTesting
+import java.io.File
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
 
+/**
+ * Configurations stored on disk by cache key. Reading and saving them goes through the
+ * [ConfigurationStore] and must not run on the main thread.
+ */
 internal class ConfigurationCache @VisibleForTesting constructor(
-        private val sharedPreferences: BraintreeSharedPreferences
+        private val store: ConfigurationStore
     ) {
 
-    fun getConfiguration(cacheKey: String): String? {
-        return getConfiguration(cacheKey, System.currentTimeMillis())
+    /**
+     * @return the configuration stored under [cacheKey] together with the time it was saved and
+     * its validators, however old, or null if none is stored. Reads the entry once, so callers
+     * that need more than the configuration don't read it again.
+     */
+    fun getEntry(cacheKey: String): ConfigurationStore.Entry? {
+        return store.get(cacheKey)
     }
 
-    fun getConfiguration(cacheKey: String, currentTimeMillis: Long): String? {
-        val timestampKey = "${cacheKey}_timestamp"
-        if (sharedPreferences.containsKey(timestampKey)) {
-            val timeInCache = currentTimeMillis - sharedPreferences.getLong(timestampKey)
-            if (timeInCache < TIME_TO_LIVE) {
-                return sharedPreferences.getString(cacheKey, "")
-            }
+    fun refreshTimestamp(cacheKey: String): ConfigurationStore.Entry? {
+        return refreshTimestamp(cacheKey, System.currentTimeMillis())
+    }
+
+    /**
+     * Restart the time to live of the configuration stored under [cacheKey] after the server has
+     * confirmed that it is still current.
+     *
+     * @return the refreshed entry, or null if none is stored
+     */
+    fun refreshTimestamp(cacheKey: String, currentTimeMillis: Long): ConfigurationStore.Entry? {
+        return store.get(cacheKey)?.copy(timestamp = currentTimeMillis)?.also { entry ->
+            store.put(cacheKey, entry)
         }
-        return null
     }
 
-    fun saveConfiguration(configuration: Configuration, cacheKey: String?) {
-        saveConfiguration(configuration, cacheKey, System.currentTimeMillis())
+    fun saveConfiguration(
+        configuration: Configuration,
+        cacheKey: String,
+        validators: HttpCacheValidators? = null
+    ) {
+        saveConfiguration(configuration, cacheKey, validators, System.currentTimeMillis())
     }
 
+    /**
+     * Store [configuration] under [cacheKey] together with the [validators] it was returned with,
+     * replacing validators left over from a previous response.
+     */
     fun saveConfiguration(
         configuration: Configuration,
-        cacheKey: String?,
+        cacheKey: String,
+        validators: HttpCacheValidators?,
         currentTimeMillis: Long
     ) {
-        val timestampKey = "${cacheKey}_timestamp"
-        sharedPreferences.putStringAndLong(
+        store.put(
             cacheKey,
-            configuration.toJson(),
-            timestampKey,
-            currentTimeMillis
+            ConfigurationStore.Entry(configuration.toJson(), currentTimeMillis, validators)
         )
     }
 
+    fun clear() {
+        store.clear()
+    }
+
+    /**
+     * Share stored configurations safely with the app's other processes. When another process
+     * changes a stored configuration, the parsed copy in [memoryCache] under the same key is
+     * dropped, so this process reads the configuration the other process fetched instead of
+     * fetching it again. [memoryCache] must use the same keys as this cache.
+     */
+    fun enableMultiProcessMode(memoryCache: ConfigurationMemoryCache) {
+        store.enableMultiProcessMode { cacheKey -> memoryCache.remove(cacheKey) }
+    }
+
     companion object {
-        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+        val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+
+        // oldest configuration that may be served while a refresh is in flight
+        val MAX_STALENESS = TimeUnit.DAYS.toMillis(1)
+
+        private const val STORE_DIRECTORY = "com.braintreepayments.api.configuration"
+        private const val LEGACY_TIMESTAMP_SUFFIX = "_timestamp"
+        private const val LEGACY_CONFIGURATIONS_REMOVED_KEY =
+            "com.braintreepayments.api.LEGACY_CONFIGURATIONS_REMOVED"
+
+        private val isLegacyRemovalScheduled = AtomicBoolean()
+
+        /**
+         * Key of the configuration for [authorization], shared by the disk and the memory tier so
+         * a change to a stored entry reported by another process maps to the parsed copy in memory.
+         */
+        fun createCacheKey(authorization: Authorization): String {
+            return "${authorization.configUrl}${authorization.bearer}"
+        }
 
         @Volatile
         private var INSTANCE: ConfigurationCache? = null
         fun getInstance(context: Context): ConfigurationCache =
             INSTANCE ?: synchronized(this) {
-                INSTANCE ?: ConfigurationCache(
-                    BraintreeSharedPreferences.getInstance(context)
-                ).also { INSTANCE = it }
+                INSTANCE ?: createInstance(context).also { INSTANCE = it }
+            }
+
+        /**
+         * @param multiProcess `true` to enable multi-process mode on the shared instance; once
+         * enabled it stays enabled for the lifetime of the process
+         * @param scheduler runs the one-time removal of configurations stored by earlier versions
+         */
+        fun getInstance(
+            context: Context,
+            multiProcess: Boolean,
+            scheduler: Scheduler
+        ): ConfigurationCache = getInstance(context).also {
+            if (multiProcess) {
+                it.enableMultiProcessMode(ConfigurationMemoryCache.getInstance())
+            }
+            if (isLegacyRemovalScheduled.compareAndSet(false, true)) {
+                val applicationContext = context.applicationContext
+                scheduler.runOnBackground({
+                    val sharedPreferences = BraintreeSharedPreferences.getInstance(applicationContext)
+                    removeLegacyConfigurations(sharedPreferences)
+                }, Scheduler.PRIORITY_LOW)
             }
+        }
+
+        private fun createInstance(context: Context): ConfigurationCache {
+            val directory = File(context.applicationContext.cacheDir, STORE_DIRECTORY)
+            return ConfigurationCache(ConfigurationStore(directory))
+        }
+
+        /**
+         * Remove configurations that earlier versions stored in [BraintreeSharedPreferences]. They
+         * were keyed by the Base64 encoded configuration url and authorization, with the time they
+         * were saved stored next to them. Reading the keys loads the whole preferences file, so
+         * this runs in the background and only until it has succeeded once.
+         */
+        @VisibleForTesting
+        internal fun removeLegacyConfigurations(sharedPreferences: BraintreeSharedPreferences) {
+            if (sharedPreferences.getBoolean(LEGACY_CONFIGURATIONS_REMOVED_KEY)) {
+                return
+            }
+            val keys = sharedPreferences.keys
+            val legacyKeys = keys
+                .filter { it.endsWith(LEGACY_TIMESTAMP_SUFFIX) }
+                .map { it.removeSuffix(LEGACY_TIMESTAMP_SUFFIX) }
+                .filter { isLegacyCacheKey(it) }
+                .flatMap { listOf(it, "${it}_timestamp", "${it}_etag", "${it}_last_modified") }
+                .filter { keys.contains(it) }
+            if (legacyKeys.isNotEmpty()) {
+                sharedPreferences.remove(legacyKeys)
+            }
+            sharedPreferences.putBoolean(LEGACY_CONFIGURATIONS_REMOVED_KEY, true)
+        }
+
+        private fun isLegacyCacheKey(key: String): Boolean = try {
+            String(Base64.decode(key, Base64.DEFAULT)).startsWith("http")
+        } catch (e: IllegalArgumentException) {
+            false
+        }
     }
 }
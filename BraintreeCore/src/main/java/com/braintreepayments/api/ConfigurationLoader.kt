@@ -2,15 +2,32 @@ package com.braintreepayments.api
 
 import android.content.Context
 import android.net.Uri
-import android.util.Base64
 import org.json.JSONException
 
+/**
+ * Loads configurations from memory, then disk, then the network. Disk reads and writes run on
+ * the [scheduler]'s background threads; results are delivered on the main thread, or right away
+ * when served from memory.
+ */
 internal class ConfigurationLoader internal constructor(
     private val httpClient: BraintreeHttpClient,
-    private val configurationCache: ConfigurationCache
+    private val configurationCache: ConfigurationCache,
+    private val memoryCache: ConfigurationMemoryCache = ConfigurationMemoryCache(),
+    private val staleWhileRevalidate: Boolean = false,
+    private val scheduler: Scheduler = ThreadScheduler()
 ) {
-    constructor(context: Context, httpClient: BraintreeHttpClient) : this(
-        httpClient, ConfigurationCache.getInstance(context)
+    constructor(
+        context: Context,
+        httpClient: BraintreeHttpClient,
+        staleWhileRevalidate: Boolean = false,
+        multiProcess: Boolean = false,
+        scheduler: Scheduler = ThreadScheduler()
+    ) : this(
+        httpClient,
+        ConfigurationCache.getInstance(context, multiProcess, scheduler),
+        ConfigurationMemoryCache.getInstance(),
+        staleWhileRevalidate,
+        scheduler
     )
 
     fun loadConfiguration(authorization: Authorization, callback: ConfigurationLoaderCallback) {
@@ -19,60 +36,164 @@ internal class ConfigurationLoader internal constructor(
             callback.onResult(null, BraintreeException(message))
             return
         }
+
+        // the parsed configuration is served from memory without touching the disk
+        val cacheKey = ConfigurationCache.createCacheKey(authorization)
+        memoryCache.getConfiguration(cacheKey)?.let {
+            callback.onResult(it, null)
+            return
+        }
+
         val configUrl = Uri.parse(authorization.configUrl)
             .buildUpon()
             .appendQueryParameter("configVersion", "3")
             .build()
             .toString()
-        val cachedConfig = getCachedConfiguration(authorization, configUrl)
+        scheduler.runOnBackground {
+            loadStoredConfiguration(authorization, configUrl, cacheKey, callback)
+        }
+    }
 
+    /**
+     * Serve the stored configuration if it is fresh, or stale while revalidating, and fetch it
+     * otherwise. Runs on a background thread; the stored entry is read once.
+     */
+    private fun loadStoredConfiguration(
+        authorization: Authorization,
+        configUrl: String,
+        cacheKey: String,
+        callback: ConfigurationLoaderCallback
+    ) {
+        val entry = configurationCache.getEntry(cacheKey)
+        val timeInCache = entry?.let { System.currentTimeMillis() - it.timestamp } ?: Long.MAX_VALUE
+
+        val cachedConfig = entry?.takeIf { timeInCache < ConfigurationCache.TIME_TO_LIVE }
+            ?.let { parseStoredConfiguration(it, cacheKey) }
         cachedConfig?.let {
-            callback.onResult(cachedConfig, null)
-        } ?: run {
-            httpClient.get(configUrl, null, authorization, HttpClient.RETRY_MAX_3_TIMES,
-                object : HttpResponseCallback {
-                    override fun onResult(responseBody: String?, httpError: Exception?) {
-                        responseBody?.let {
-                            try {
-                                val configuration = Configuration.fromJson(it)
-                                saveConfigurationToCache(configuration, authorization, configUrl)
-                                callback.onResult(configuration, null)
-                            } catch (jsonException: JSONException) {
-                                callback.onResult(null, jsonException)
-                            }
-                        } ?: httpError?.let { error ->
-                            val errorMessageFormat = "Request for configuration has failed: %s"
-                            val errorMessage = String.format(errorMessageFormat, error.message)
-                            val configurationException = ConfigurationException(errorMessage, error)
-                            callback.onResult(null, configurationException)
-                        }
-                    }
-                })
+            scheduler.runOnMain { callback.onResult(it, null) }
+            return
         }
+
+        if (staleWhileRevalidate) {
+            val staleConfig = memoryCache.getStaleConfiguration(cacheKey)
+                ?: entry?.takeIf { timeInCache < ConfigurationCache.MAX_STALENESS }
+                    ?.let { parseStoredConfiguration(it, cacheKey) }
+            staleConfig?.let {
+                scheduler.runOnMain { callback.onResult(it, null) }
+                // refresh in the background; the caller already has a usable configuration
+                fetchConfiguration(authorization, configUrl, cacheKey, entry?.validators) { _, _ -> }
+                return
+            }
+        }
+        fetchConfiguration(authorization, configUrl, cacheKey, entry?.validators, callback)
     }
 
-    private fun saveConfigurationToCache(
-        configuration: Configuration,
+    /**
+     * @param validators validators of the stored copy, if any, so an unchanged configuration is
+     * not downloaded again
+     */
+    private fun fetchConfiguration(
         authorization: Authorization,
-        configUrl: String
+        configUrl: String,
+        cacheKey: String,
+        validators: HttpCacheValidators?,
+        callback: ConfigurationLoaderCallback
     ) {
-        val cacheKey = createCacheKey(authorization, configUrl)
-        configurationCache.saveConfiguration(configuration, cacheKey)
+        // callers that arrive while a fetch is in flight, from any client in the process, wait on
+        // that fetch instead of sending their own request
+        if (!memoryCache.addPendingCallback(cacheKey, callback)) {
+            return
+        }
+        requestConfiguration(authorization, configUrl, cacheKey, validators)
     }
 
-    private fun getCachedConfiguration(authorization: Authorization, configUrl: String): Configuration? {
-        val cacheKey = createCacheKey(authorization, configUrl)
-        val cachedConfigResponse = configurationCache.getConfiguration(cacheKey)
-        return try {
-            Configuration.fromJson(cachedConfigResponse)
-        } catch (e: JSONException) {
-            null
+    private fun requestConfiguration(
+        authorization: Authorization,
+        configUrl: String,
+        cacheKey: String,
+        validators: HttpCacheValidators?
+    ) {
+        httpClient.getConditional(
+            configUrl,
+            authorization,
+            validators,
+            HttpClient.RETRY_MAX_3_TIMES
+        ) { responseBody, responseValidators, httpError ->
+            if (responseBody != null) {
+                try {
+                    val configuration = memoryCache.parseConfiguration(responseBody)
+                    memoryCache.putConfiguration(configuration, cacheKey)
+                    notifyPendingCallbacks(cacheKey, configuration, null)
+                    scheduler.runOnBackground {
+                        configurationCache.saveConfiguration(configuration, cacheKey, responseValidators)
+                    }
+                } catch (jsonException: JSONException) {
+                    notifyPendingCallbacks(cacheKey, null, jsonException)
+                }
+            } else if (httpError is NotModifiedException && validators != null) {
+                revalidateConfiguration(authorization, configUrl, cacheKey)
+            } else if (httpError != null) {
+                val errorMessageFormat = "Request for configuration has failed: %s"
+                val errorMessage = String.format(errorMessageFormat, httpError.message)
+                val configurationException = ConfigurationException(errorMessage, httpError)
+                notifyPendingCallbacks(cacheKey, null, configurationException)
+            }
+        }
+    }
+
+    /**
+     * Restart the time to live of the stored configuration after a `304 Not Modified` response.
+     * The parsed copy in memory is reused when there is one, so nothing is downloaded or parsed and
+     * the callbacks don't wait for the stored copy to be updated.
+     */
+    private fun revalidateConfiguration(
+        authorization: Authorization,
+        configUrl: String,
+        cacheKey: String
+    ) {
+        val now = System.currentTimeMillis()
+        memoryCache.refreshConfiguration(cacheKey, now)?.let { configuration ->
+            notifyPendingCallbacks(cacheKey, configuration, null)
+            scheduler.runOnBackground { configurationCache.refreshTimestamp(cacheKey, now) }
+            return
+        }
+
+        scheduler.runOnBackground {
+            val configuration = configurationCache.refreshTimestamp(cacheKey, now)
+                ?.let { parseStoredConfiguration(it, cacheKey) }
+            scheduler.runOnMain {
+                if (configuration != null) {
+                    notifyPendingCallbacks(cacheKey, configuration, null)
+                } else {
+                    // the stored copy went away while the request was in flight
+                    requestConfiguration(authorization, configUrl, cacheKey, null)
+                }
+            }
         }
     }
 
-    companion object {
-        private fun createCacheKey(authorization: Authorization, configUrl: String): String {
-            return Base64.encodeToString("$configUrl${authorization.bearer}".toByteArray(), 0)
+    private fun notifyPendingCallbacks(
+        cacheKey: String,
+        configuration: Configuration?,
+        error: Exception?
+    ) {
+        memoryCache.removePendingCallbacks(cacheKey)?.forEach { it.onResult(configuration, error) }
+    }
+
+    /**
+     * Parse a stored configuration and promote it to memory.
+     *
+     * @return the parsed configuration, or null if the stored copy is not valid
+     */
+    private fun parseStoredConfiguration(
+        entry: ConfigurationStore.Entry,
+        cacheKey: String
+    ): Configuration? = try {
+        memoryCache.parseConfiguration(entry.configuration).also {
+            // keep the original timestamp so both tiers expire together
+            memoryCache.putConfiguration(it, cacheKey, entry.timestamp)
         }
+    } catch (e: JSONException) {
+        null
     }
 }
@@ -0,0 +1,176 @@
+package com.braintreepayments.api
+
+import androidx.annotation.VisibleForTesting
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Process-wide cache of parsed [Configuration] objects that sits in front of [ConfigurationCache].
+ *
+ * Entries are keyed by authorization and configuration URL and follow the same time to live as
+ * the [ConfigurationCache] tier, so a hit never returns a configuration that the on-disk tier
+ * would already consider expired.
+ */
+internal class ConfigurationMemoryCache @VisibleForTesting constructor(
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES
+) {
+
+    private class Entry(val configuration: Configuration, val timestamp: Long)
+
+    // access ordered so that the least recently used authorization is evicted first
+    private val entries = object : LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean {
+            return size > maxEntries
+        }
+    }
+
+    // callbacks waiting on an in-flight configuration request, keyed like the cached entries so
+    // loaders of different clients in the process share one request per authorization
+    private val pendingCallbacks = mutableMapOf<String, MutableList<ConfigurationLoaderCallback>>()
+
+    private val hits = AtomicInteger()
+    private val misses = AtomicInteger()
+    private val staleHits = AtomicInteger()
+    private val parses = AtomicInteger()
+    private val parseTimeNanos = AtomicLong()
+
+    val hitCount: Int
+        get() = hits.get()
+
+    val missCount: Int
+        get() = misses.get()
+
+    val staleHitCount: Int
+        get() = staleHits.get()
+
+    /**
+     * Number of times a [Configuration] has been parsed from JSON, from either the network or the
+     * on-disk tier.
+     */
+    val parseCount: Int
+        get() = parses.get()
+
+    val totalParseTimeMillis: Long
+        get() = TimeUnit.NANOSECONDS.toMillis(parseTimeNanos.get())
+
+    fun getConfiguration(cacheKey: String): Configuration? =
+        getConfiguration(cacheKey, System.currentTimeMillis())
+
+    @Synchronized
+    fun getConfiguration(cacheKey: String, currentTimeMillis: Long): Configuration? {
+        val entry = entries[cacheKey]
+        if (entry != null && currentTimeMillis - entry.timestamp < TIME_TO_LIVE) {
+            hits.incrementAndGet()
+            return entry.configuration
+        }
+        misses.incrementAndGet()
+        return null
+    }
+
+    fun getStaleConfiguration(cacheKey: String): Configuration? =
+        getStaleConfiguration(cacheKey, System.currentTimeMillis())
+
+    /**
+     * @return the configuration stored under [cacheKey] even if it has outlived the time to live,
+     * as long as it is younger than [ConfigurationCache.MAX_STALENESS]
+     */
+    @Synchronized
+    fun getStaleConfiguration(cacheKey: String, currentTimeMillis: Long): Configuration? {
+        val entry = entries[cacheKey]
+        if (entry != null && currentTimeMillis - entry.timestamp < ConfigurationCache.MAX_STALENESS) {
+            staleHits.incrementAndGet()
+            return entry.configuration
+        }
+        return null
+    }
+
+    /**
+     * Restart the time to live of the entry stored under [cacheKey] without replacing it, for
+     * example after the server confirmed the configuration is still current.
+     *
+     * @return the configuration stored under [cacheKey], however old, or null if there is none
+     */
+    @Synchronized
+    fun refreshConfiguration(cacheKey: String, timestamp: Long): Configuration? {
+        val entry = entries[cacheKey] ?: return null
+        entries[cacheKey] = Entry(entry.configuration, timestamp)
+        return entry.configuration
+    }
+
+    fun putConfiguration(configuration: Configuration, cacheKey: String) =
+        putConfiguration(configuration, cacheKey, System.currentTimeMillis())
+
+    /**
+     * @param timestamp the time the configuration was originally cached; entries promoted from
+     * the on-disk tier keep their original timestamp so they expire at the same time
+     */
+    @Synchronized
+    fun putConfiguration(configuration: Configuration, cacheKey: String, timestamp: Long) {
+        entries[cacheKey] = Entry(configuration, timestamp)
+    }
+
+    /**
+     * Drop the entry stored under [cacheKey], e.g. after another process replaced the stored
+     * configuration it was parsed from.
+     */
+    @Synchronized
+    fun remove(cacheKey: String) {
+        entries.remove(cacheKey)
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+    }
+
+    /**
+     * Wait on the configuration request in flight for [cacheKey], if there is one.
+     *
+     * @return true if no request was in flight and the caller must send it
+     */
+    fun addPendingCallback(cacheKey: String, callback: ConfigurationLoaderCallback): Boolean =
+        synchronized(pendingCallbacks) {
+            val callbacks = pendingCallbacks[cacheKey]
+            if (callbacks == null) {
+                pendingCallbacks[cacheKey] = mutableListOf(callback)
+                true
+            } else {
+                callbacks.add(callback)
+                false
+            }
+        }
+
+    /**
+     * @return the callbacks waiting on the request for [cacheKey], which is no longer in flight
+     */
+    fun removePendingCallbacks(cacheKey: String): List<ConfigurationLoaderCallback>? =
+        synchronized(pendingCallbacks) { pendingCallbacks.remove(cacheKey) }
+
+    /**
+     * Parse [configurationString] and record the time it took.
+     *
+     * @throws org.json.JSONException if the string is not a valid configuration
+     */
+    fun parseConfiguration(configurationString: String?): Configuration {
+        val start = System.nanoTime()
+        try {
+            return Configuration.fromJson(configurationString)
+        } finally {
+            parses.incrementAndGet()
+            parseTimeNanos.addAndGet(System.nanoTime() - start)
+        }
+    }
+
+    companion object {
+        private val TIME_TO_LIVE = ConfigurationCache.TIME_TO_LIVE
+        private const val DEFAULT_MAX_ENTRIES = 8
+
+        @Volatile
+        private var INSTANCE: ConfigurationMemoryCache? = null
+        fun getInstance(): ConfigurationMemoryCache =
+            INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ConfigurationMemoryCache().also { INSTANCE = it }
+            }
+    }
+}
@@ -0,0 +1,355 @@
+package com.braintreepayments.api
+
+import android.os.FileObserver
+import android.util.AtomicFile
+import androidx.annotation.VisibleForTesting
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.channels.OverlappingFileLockException
+import java.security.MessageDigest
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.random.Random
+
+/**
+ * Bounded on-disk store for configuration responses, kept apart from the small key/value
+ * preferences in [BraintreeSharedPreferences].
+ *
+ * Every entry lives in its own file and is written atomically, so reading one entry never loads
+ * or rewrites the others and a crash mid-write leaves the previous entry intact. Saving an entry
+ * evicts entries older than [maxAgeMillis], then the least recently saved entries until at most
+ * [maxEntries] entries and [maxBytes] bytes remain, so the store does not grow as client tokens
+ * rotate. The age and size of each entry are kept in memory, so eviction reads the directory only
+ * once, or again after another process changed it.
+ *
+ * Reading, saving and clearing entries does blocking file I/O and must not run on the main thread.
+ *
+ * Processes of the same app share the store directory. In multi-process mode, enabled with
+ * [enableMultiProcessMode], every read and write also holds a lock on a file in that directory,
+ * so a process never reads an entry another process is writing or evicting, and other processes'
+ * changes are reported to a listener. A read or write that can't get the lock within
+ * [LOCK_TIMEOUT_MILLIS] is skipped, as if the entry were not stored, instead of waiting for the
+ * other process.
+ */
+internal class ConfigurationStore(
+    private val directory: File,
+    private val maxEntries: Int = MAX_ENTRIES,
+    private val maxBytes: Long = MAX_BYTES,
+    private val maxAgeMillis: Long = ConfigurationCache.MAX_STALENESS
+) {
+
+    internal data class Entry(
+        val configuration: String,
+        val timestamp: Long,
+        val validators: HttpCacheValidators?
+    )
+
+    private class IndexEntry(val timestamp: Long, val length: Long)
+
+    @Volatile
+    private var isMultiProcess = false
+
+    // written into every entry this instance saves, so change events caused by its own writes are
+    // told apart from changes made by other processes
+    private val writerId = Random.nextLong()
+
+    // names of entry files this instance deleted and whose delete events are still to come
+    private val deletedFileNames: MutableSet<String> =
+        Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+
+    // keys by the name of the file they are stored in, for reporting changes by key
+    private val keysByFileName = ConcurrentHashMap<String, String>()
+
+    // timestamp and size of every entry file by name; null until the directory is first read
+    private var index: MutableMap<String, IndexEntry>? = null
+
+    // set when another process may have changed the directory since the index was read
+    @Volatile
+    private var isIndexStale = false
+
+    // FileObserver stops delivering events once it is garbage collected
+    private var changeObserver: FileObserver? = null
+
+    /**
+     * Lock entries across processes and notify [onChange] when another process saves or removes
+     * an entry. Has no effect if multi-process mode is already enabled.
+     *
+     * @param onChange called on a background thread with the key of the changed entry; changes to
+     * entries this process has not read or saved are not reported
+     */
+    @Synchronized
+    fun enableMultiProcessMode(onChange: (key: String) -> Unit) {
+        if (isMultiProcess || (!directory.exists() && !directory.mkdirs())) {
+            return
+        }
+        isMultiProcess = true
+
+        val events = FileObserver.CLOSE_WRITE or FileObserver.MOVED_TO or FileObserver.DELETE
+        @Suppress("DEPRECATION")
+        changeObserver = object : FileObserver(directory.path, events) {
+            override fun onEvent(event: Int, path: String?) {
+                if (path?.endsWith(FILE_SUFFIX) == true) {
+                    onFileChanged(event, path, onChange)
+                }
+            }
+        }.also { it.startWatching() }
+    }
+
+    /**
+     * Report a change to the entry file [fileName] unless this instance caused it.
+     */
+    @VisibleForTesting
+    internal fun onFileChanged(event: Int, fileName: String, onChange: (key: String) -> Unit) {
+        val isOwnChange = if (event and FileObserver.DELETE != 0) {
+            deletedFileNames.remove(fileName)
+        } else {
+            // the file holds the id of the last instance that wrote it
+            readWriterId(File(directory, fileName)) == writerId
+        }
+        if (isOwnChange) {
+            return
+        }
+        isIndexStale = true
+        keysByFileName[fileName]?.let(onChange)
+    }
+
+    /**
+     * @return the entry stored under [key], or null if there is none or it cannot be read
+     */
+    @Synchronized
+    fun get(key: String): Entry? = withProcessLock(shared = true) {
+        val file = atomicFileFor(key)
+        if (!file.baseFile.exists()) {
+            null
+        } else {
+            try {
+                file.openRead().use { readEntry(DataInputStream(BufferedInputStream(it))) }
+            } catch (e: IOException) {
+                // an unreadable entry is dropped and fetched again
+                delete(file)
+                null
+            }
+        }
+    }
+
+    @Synchronized
+    fun put(key: String, entry: Entry) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return
+        }
+        withProcessLock(shared = false) { write(key, entry) }
+    }
+
+    @Synchronized
+    fun clear() {
+        withProcessLock(shared = false) {
+            entryFiles().forEach { delete(AtomicFile(it)) }
+            index = mutableMapOf()
+            isIndexStale = false
+        }
+    }
+
+    private fun write(key: String, entry: Entry) {
+        val file = atomicFileFor(key)
+        val stream = try {
+            file.startWrite()
+        } catch (e: IOException) {
+            return
+        }
+        try {
+            val output = DataOutputStream(BufferedOutputStream(stream))
+            writeEntry(output, entry, writerId)
+            // flush without closing; finishWrite syncs and closes the underlying stream
+            output.flush()
+            file.finishWrite(stream)
+        } catch (e: IOException) {
+            file.failWrite(stream)
+            return
+        }
+        val baseFile = file.baseFile
+        index?.put(baseFile.name, IndexEntry(entry.timestamp, baseFile.length()))
+        evict(entry.timestamp)
+    }
+
+    private fun delete(file: AtomicFile) {
+        val name = file.baseFile.name
+        if (isMultiProcess && file.baseFile.exists()) {
+            deletedFileNames.add(name)
+        }
+        file.delete()
+        index?.remove(name)
+    }
+
+    /**
+     * Run [block] while holding a lock on the store shared by all processes of the app. Threads of
+     * this process are already serialized by the store's monitor.
+     *
+     * @return the result of [block], or null if another process held the lock for longer than
+     * [LOCK_TIMEOUT_MILLIS] and [block] did not run
+     */
+    private fun <T> withProcessLock(shared: Boolean, block: () -> T): T? {
+        if (!isMultiProcess) {
+            return block()
+        }
+        val lockFile = try {
+            RandomAccessFile(File(directory, LOCK_FILE), "rw")
+        } catch (e: IOException) {
+            // the lock file can't be created, e.g. the cache dir was cleared; don't block caching
+            return block()
+        }
+        return lockFile.use {
+            val lock = try {
+                tryLock(it.channel, shared) ?: return null
+            } catch (e: IOException) {
+                null
+            }
+            try {
+                block()
+            } finally {
+                lock?.release()
+            }
+        }
+    }
+
+    /**
+     * Poll for the lock instead of blocking in [FileChannel.lock], which can't be interrupted and
+     * would wait for as long as another process holds it.
+     */
+    private fun tryLock(channel: FileChannel, shared: Boolean): FileLock? {
+        repeat((LOCK_TIMEOUT_MILLIS / LOCK_RETRY_MILLIS).toInt()) {
+            val lock = try {
+                channel.tryLock(0L, Long.MAX_VALUE, shared)
+            } catch (e: OverlappingFileLockException) {
+                // another store of this process holds it
+                null
+            }
+            if (lock != null) {
+                return lock
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return null
+            }
+        }
+        return null
+    }
+
+    private fun evict(currentTimeMillis: Long) {
+        val entries = loadIndex()
+        val newestFirst = entries.entries.sortedByDescending { it.value.timestamp }
+
+        var keptEntries = 0
+        var keptBytes = 0L
+        for ((name, indexEntry) in newestFirst) {
+            val keep = currentTimeMillis - indexEntry.timestamp < maxAgeMillis &&
+                    keptEntries < maxEntries &&
+                    keptBytes + indexEntry.length <= maxBytes
+            if (keep) {
+                keptEntries++
+                keptBytes += indexEntry.length
+            } else {
+                delete(AtomicFile(File(directory, name)))
+            }
+        }
+    }
+
+    private fun loadIndex(): MutableMap<String, IndexEntry> {
+        index?.takeUnless { isIndexStale }?.let { return it }
+        isIndexStale = false
+        return entryFiles()
+            .associateTo(mutableMapOf()) { it.name to IndexEntry(readTimestamp(it), it.length()) }
+            .also { index = it }
+    }
+
+    private fun entryFiles(): List<File> =
+        directory.listFiles { file -> file.name.endsWith(FILE_SUFFIX) }?.toList() ?: emptyList()
+
+    private fun readTimestamp(file: File): Long = readHeader(file) { input ->
+        input.readLong() // writer id
+        input.readLong()
+    } ?: 0L
+
+    private fun readWriterId(file: File): Long? = readHeader(file) { it.readLong() }
+
+    /**
+     * @return the result of reading the fields after the format version with [read], or null if
+     * the file is missing, unreadable or in another format
+     */
+    private fun <T> readHeader(file: File, read: (DataInputStream) -> T): T? = try {
+        DataInputStream(FileInputStream(file)).use { input ->
+            if (input.readInt() == FORMAT_VERSION) read(input) else null
+        }
+    } catch (e: IOException) {
+        null
+    }
+
+    private fun atomicFileFor(key: String): AtomicFile {
+        // cache keys may contain characters that are not valid in file names
+        val digest = MessageDigest.getInstance("SHA-256").digest(key.toByteArray())
+        val name = digest.joinToString("") { "%02x".format(it) } + FILE_SUFFIX
+        keysByFileName[name] = key
+        return AtomicFile(File(directory, name))
+    }
+
+    companion object {
+        private const val FILE_SUFFIX = ".config"
+        private const val LOCK_FILE = "store.lock"
+        private const val FORMAT_VERSION = 2
+        private const val LOCK_RETRY_MILLIS = 10L
+
+        // a write holds the lock for a few milliseconds; waiting longer means something is wrong
+        const val LOCK_TIMEOUT_MILLIS = 500L
+
+        // a configuration is a few KB; a handful of entries covers authorization changes
+        const val MAX_ENTRIES = 8
+        const val MAX_BYTES = 256L * 1024
+
+        private fun writeEntry(output: DataOutputStream, entry: Entry, writerId: Long) {
+            output.writeInt(FORMAT_VERSION)
+            output.writeLong(writerId)
+            output.writeLong(entry.timestamp)
+            writeNullableString(output, entry.validators?.entityTag)
+            writeNullableString(output, entry.validators?.lastModified)
+            val configuration = entry.configuration.toByteArray(Charsets.UTF_8)
+            output.writeInt(configuration.size)
+            output.write(configuration)
+        }
+
+        private fun readEntry(input: DataInputStream): Entry {
+            if (input.readInt() != FORMAT_VERSION) {
+                throw IOException("Unsupported configuration entry format")
+            }
+            input.readLong() // writer id
+            val timestamp = input.readLong()
+            val entityTag = readNullableString(input)
+            val lastModified = readNullableString(input)
+            val configuration = ByteArray(input.readInt())
+            input.readFully(configuration)
+
+            val validators = if (entityTag != null || lastModified != null) {
+                HttpCacheValidators(entityTag, lastModified)
+            } else {
+                null
+            }
+            return Entry(String(configuration, Charsets.UTF_8), timestamp, validators)
+        }
+
+        private fun writeNullableString(output: DataOutputStream, value: String?) {
+            output.writeBoolean(value != null)
+            value?.let { output.writeUTF(it) }
+        }
+
+        private fun readNullableString(input: DataInputStream): String? =
+            if (input.readBoolean()) input.readUTF() else null
+    }
+}
@@ -0,0 +1,29 @@
+package com.braintreepayments.api
+
+import androidx.annotation.RestrictTo
+import androidx.annotation.StringDef
+import java.lang.annotation.Retention
+import java.lang.annotation.RetentionPolicy
+
+/**
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+object HttpTransportType {
+
+    /**
+     * One [java.net.HttpURLConnection] per request with keep-alive connection reuse. This is the
+     * default transport.
+     */
+    const val URL_CONNECTION = "url_connection"
+
+    /**
+     * Requests to the same origin are multiplexed over a single HTTP/2 connection. Requires
+     * OkHttp on the classpath; falls back to [URL_CONNECTION] when it is not available.
+     */
+    const val HTTP2 = "http2"
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef(URL_CONNECTION, HTTP2)
+    internal annotation class Transport
+}
@@ -0,0 +1,30 @@
+package com.braintreepayments.api
+
+import androidx.annotation.RestrictTo
+import androidx.fragment.app.Fragment
+import androidx.fragment.app.FragmentActivity
+import androidx.lifecycle.LifecycleOwner
+
+/**
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+object LifecycleHelper {
+
+    /**
+     * Payment flow observers cancel their pending requests when their screen is destroyed, since
+     * nothing is left to receive the results of requests still in flight. A screen recreated after
+     * a configuration change still expects them, so such a destroy must not cancel anything.
+     *
+     * @return true if [lifecycleOwner] is being destroyed to be recreated with a new configuration
+     */
+    @JvmStatic
+    fun isChangingConfigurations(lifecycleOwner: LifecycleOwner): Boolean {
+        val activity = when (lifecycleOwner) {
+            is FragmentActivity -> lifecycleOwner
+            is Fragment -> lifecycleOwner.activity
+            else -> null
+        }
+        return activity?.isChangingConfigurations == true
+    }
+}
@@ -0,0 +1,112 @@
+package com.braintreepayments.api
+
+import androidx.annotation.RestrictTo
+import androidx.annotation.VisibleForTesting
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Records a span of an SDK operation and reports it to a [BraintreeTracer] when it ends. Spans
+ * started without a tracer are disabled: every method is a no-op, so flows can be instrumented
+ * unconditionally.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class Span private constructor(
+    private val tracer: BraintreeTracer?,
+    private val name: String,
+    private val traceId: String,
+    private val parentSpanId: String?,
+    private val clock: Clock
+) {
+
+    internal interface Clock {
+        fun currentTimeMillis(): Long
+        fun nanoTime(): Long
+    }
+
+    private val spanId = newId().substring(0, SPAN_ID_LENGTH)
+    private val startTimeMillis = clock.currentTimeMillis()
+    private val startNanos = clock.nanoTime()
+    private val attributes = LinkedHashMap<String, String>()
+    private val isEnded = AtomicBoolean(false)
+
+    val isEnabled: Boolean
+        get() = tracer != null
+
+    /**
+     * @param name the name of the stage
+     * @return a new span for a stage of this span
+     */
+    fun startChild(name: String): Span =
+        if (tracer == null) DISABLED else Span(tracer, name, traceId, spanId, clock)
+
+    fun setAttribute(key: String, value: String?): Span {
+        if (tracer != null && value != null) {
+            synchronized(attributes) { attributes[key] = value }
+        }
+        return this
+    }
+
+    /**
+     * End the span and report it to the tracer. Only the first call has an effect, so a span can
+     * safely be ended on every path out of a stage.
+     *
+     * @param error the error the stage failed with, or null if it succeeded
+     */
+    @JvmOverloads
+    @Suppress("SwallowedException", "TooGenericExceptionCaught")
+    fun end(error: Exception? = null) {
+        if (tracer == null || !isEnded.compareAndSet(false, true)) {
+            return
+        }
+        val durationMillis = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - startNanos)
+        val span = TraceSpan(
+            name = name,
+            traceId = traceId,
+            spanId = spanId,
+            parentSpanId = parentSpanId,
+            startTimeMillis = startTimeMillis,
+            durationMillis = durationMillis,
+            attributes = synchronized(attributes) { attributes.toMap() },
+            error = error
+        )
+        try {
+            tracer.onSpanEnd(span)
+        } catch (ignored: RuntimeException) {
+            // a faulty tracer must not break the operation
+        }
+    }
+
+    companion object {
+
+        private const val SPAN_ID_LENGTH = 16
+
+        private val SYSTEM_CLOCK = object : Clock {
+            override fun currentTimeMillis() = System.currentTimeMillis()
+            override fun nanoTime() = System.nanoTime()
+        }
+
+        /**
+         * A span that records nothing.
+         */
+        @JvmField
+        val DISABLED = Span(null, "", "", null, SYSTEM_CLOCK)
+
+        /**
+         * @param tracer the tracer to report to, or null to return [DISABLED]
+         * @param name   the name of the operation
+         * @return a new root span for an operation
+         */
+        @JvmStatic
+        fun start(tracer: BraintreeTracer?, name: String): Span = start(tracer, name, SYSTEM_CLOCK)
+
+        @VisibleForTesting
+        internal fun start(tracer: BraintreeTracer?, name: String, clock: Clock): Span =
+            if (tracer == null) DISABLED else Span(tracer, name, newId(), null, clock)
+
+        private fun newId() = UUID.randomUUID().toString().replace("-", "")
+    }
+}
@@ -90,4 +90,11 @@ internal object TLSCertificatePinning {
     @get:Throws(SSLException::class)
     val certInputStream: InputStream
         get() = ByteArrayInputStream(CERTIFICATES.toByteArray(StandardCharsets.UTF_8))
+
+    /**
+     * Socket factory trusting only the pinned certificates, shared by every Braintree http client
+     * in the process. Sessions are cached per host and port, so sharing the factory lets every
+     * client resume the session another client negotiated with the same host. Built on first use.
+     */
+    val socketFactory: TLSSocketFactory by lazy { TLSSocketFactory(certInputStream) }
 }
@@ -0,0 +1,24 @@
+package com.braintreepayments.api
+
+/**
+ * A stage of an SDK operation, reported to a [BraintreeTracer] when it ends.
+ *
+ * @property name the name of the operation, e.g. `card.tokenize`, or of the stage, e.g. `http`
+ * @property traceId id shared by every span of the same operation
+ * @property spanId id of this span
+ * @property parentSpanId id of the span this span is a stage of, or null for the operation itself
+ * @property startTimeMillis wall clock time the span started, in milliseconds since the epoch
+ * @property durationMillis time the span took
+ * @property attributes details of the span, e.g. `transport` = `graphql`
+ * @property error the error the span failed with, or null if it succeeded
+ */
+data class TraceSpan internal constructor(
+    val name: String,
+    val traceId: String,
+    val spanId: String,
+    val parentSpanId: String?,
+    val startTimeMillis: Long,
+    val durationMillis: Long,
+    val attributes: Map<String, String>,
+    val error: Exception?
+)
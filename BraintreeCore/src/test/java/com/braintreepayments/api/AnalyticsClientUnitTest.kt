@@ -31,6 +31,7 @@ class AnalyticsClientUnitTest {
     private lateinit var workManager: WorkManager
     private lateinit var analyticsDatabase: AnalyticsDatabase
     private lateinit var analyticsEventDao: AnalyticsEventDao
+    private lateinit var analyticsEventBuffer: AnalyticsEventBuffer
 
     private var timestamp: Long = 0
 
@@ -48,31 +49,29 @@ class AnalyticsClientUnitTest {
         analyticsDatabase = mockk(relaxed = true)
         analyticsEventDao = mockk(relaxed = true)
         workManager = mockk(relaxed = true)
+        analyticsEventBuffer = mockk(relaxed = true)
 
         every { analyticsDatabase.analyticsEventDao() } returns analyticsEventDao
     }
 
     @Test
     @Throws(JSONException::class)
-    fun sendEvent_enqueuesAnalyticsWriteToDbWorker() {
-        val workRequestSlot = slot<OneTimeWorkRequest>()
-        every {
-            workManager.enqueueUniqueWork(
-                "writeAnalyticsToDb",
-                ExistingWorkPolicy.APPEND_OR_REPLACE,
-                capture(workRequestSlot)
-            )
-        } returns mockk()
+    fun sendEvent_addsEventToAnalyticsEventBuffer() {
+        val analyticsEventSlot = slot<AnalyticsEvent>()
+        every { analyticsEventBuffer.add(capture(analyticsEventSlot)) } returns false
 
         val configuration = fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
-        val sut = AnalyticsClient(httpClient, analyticsDatabase, workManager, deviceInspector)
+        val sut = AnalyticsClient(
+            httpClient, analyticsDatabase, workManager, deviceInspector, analyticsEventBuffer
+        )
         sut.sendEvent(configuration, eventName, sessionId, integration, 123, authorization)
 
-        val workSpec = workRequestSlot.captured.workSpec
-        assertEquals(AnalyticsWriteToDbWorker::class.java.name, workSpec.workerClassName)
-        assertEquals(authorization.toString(), workSpec.input.getString("authorization"))
-        assertEquals("android.sample-event-name", workSpec.input.getString("eventName"))
-        assertEquals(123, workSpec.input.getLong("timestamp", 0))
+        val event = analyticsEventSlot.captured
+        assertEquals("android.sample-event-name", event.name)
+        assertEquals(123, event.timestamp)
+        verify(exactly = 0) {
+            workManager.enqueueUniqueWork("writeAnalyticsToDb", any(), any<OneTimeWorkRequest>())
+        }
     }
 
     @Test
@@ -82,7 +81,7 @@ class AnalyticsClientUnitTest {
         every {
             workManager.enqueueUniqueWork(
                 "uploadAnalytics",
-                ExistingWorkPolicy.KEEP,
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
                 capture(workRequestSlot)
             )
         } returns mockk()
@@ -100,6 +99,24 @@ class AnalyticsClientUnitTest {
         assertEquals("sample-integration", workSpec.input.getString("integration"))
     }
 
+    @Test
+    @Throws(JSONException::class)
+    fun sendEvent_whenEventDoesNotStartBatch_doesNotEnqueueAnalyticsUploadWorker() {
+        every { analyticsEventBuffer.add(any()) } returnsMany listOf(true, false, false)
+
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
+        val sut = AnalyticsClient(
+            httpClient, analyticsDatabase, workManager, deviceInspector, analyticsEventBuffer
+        )
+        sut.sendEvent(configuration, eventName, sessionId, integration, 123, authorization)
+        sut.sendEvent(configuration, eventName, sessionId, integration, 124, authorization)
+        sut.sendEvent(configuration, eventName, sessionId, integration, 125, authorization)
+
+        verify(exactly = 1) {
+            workManager.enqueueUniqueWork("uploadAnalytics", any(), any<OneTimeWorkRequest>())
+        }
+    }
+
     @Test
     fun writeAnalytics_whenEventNameAndTimestampArePresent_returnsSuccess() {
         val inputData = Data.Builder()
@@ -167,6 +184,58 @@ class AnalyticsClientUnitTest {
         verify { httpClient wasNot Called }
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_flushesBufferedEventsBeforeReadingDatabase() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration)
+            .build()
+        val sut = AnalyticsClient(
+            httpClient, analyticsDatabase, workManager, deviceInspector, analyticsEventBuffer
+        )
+        sut.uploadAnalytics(context, inputData)
+
+        verifyOrder {
+            analyticsEventBuffer.flush()
+            analyticsEventDao.getEventsAfter(0, any())
+        }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_whenBatchStartsDuringUpload_enqueuesUploadAfterRunningOne() {
+        every { analyticsEventBuffer.add(any()) } returns true
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration)
+            .build()
+        val sut = AnalyticsClient(
+            httpClient, analyticsDatabase, workManager, deviceInspector, analyticsEventBuffer
+        )
+        every { analyticsEventDao.getEventsAfter(0, any()) } answers {
+            // the event arrives after the running upload has read the table
+            sut.sendEvent(configuration, eventName, sessionId, integration, 123, authorization)
+            emptyList()
+        }
+
+        sut.uploadAnalytics(context, inputData)
+
+        verify {
+            workManager.enqueueUniqueWork(
+                "uploadAnalytics",
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
+                any<OneTimeWorkRequest>()
+            )
+        }
+    }
+
     @Test
     @Throws(Exception::class)
     fun uploadAnalytics_whenEventsExist_sendsAllEvents() {
@@ -186,7 +255,7 @@ class AnalyticsClientUnitTest {
         val events: MutableList<AnalyticsEvent> = ArrayList()
         events.add(AnalyticsEvent("event0", 123))
         events.add(AnalyticsEvent("event1", 456))
-        every { analyticsEventDao.getAllEvents() } returns events
+        every { analyticsEventDao.getEventsAfter(0, any()) } returns events
 
         val analyticsJSONSlot = slot<String>()
         every { httpClient.post(any(), capture(analyticsJSONSlot), any(), any()) }
@@ -210,6 +279,61 @@ class AnalyticsClientUnitTest {
         assertEquals(456, eventTwo.getString("timestamp").toLong())
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_pagesThroughEventsAndDeletesEachUploadedPage() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration)
+            .build()
+        every {
+            deviceInspector.getDeviceMetadata(context, sessionId, integration)
+        } returns createSampleDeviceMetadata()
+
+        val firstPage = (1..200).map { AnalyticsEvent("event$it", it.toLong()).apply { id = it } }
+        val secondPage = listOf(AnalyticsEvent("event201", 201).apply { id = 201 })
+        every { analyticsEventDao.getEventsAfter(0, 200) } returns firstPage
+        every { analyticsEventDao.getEventsAfter(200, 200) } returns secondPage
+
+        val sut = AnalyticsClient(httpClient, analyticsDatabase, workManager, deviceInspector)
+        val result = sut.uploadAnalytics(context, inputData)
+
+        assertTrue(result is ListenableWorker.Result.Success)
+        verifyOrder {
+            analyticsEventDao.getEventsAfter(0, 200)
+            analyticsEventDao.deleteEvents(firstPage)
+            analyticsEventDao.getEventsAfter(200, 200)
+            analyticsEventDao.deleteEvents(secondPage)
+        }
+        verify(exactly = 2) { httpClient.post(any(), any(), any(), any()) }
+        verify(exactly = 0) { analyticsEventDao.getAllEvents() }
+    }
+
+    @Test
+    fun chunkEvents_splitsEventsByMaximumPayloadSize() {
+        val events = listOf(
+            AnalyticsEvent("a".repeat(60), 1),
+            AnalyticsEvent("b".repeat(60), 2),
+            AnalyticsEvent("c".repeat(60), 3)
+        )
+
+        val chunks = AnalyticsClient.chunkEvents(events, 200)
+        assertEquals(2, chunks.size)
+        assertEquals(events.subList(0, 2), chunks[0])
+        assertEquals(events.subList(2, 3), chunks[1])
+    }
+
+    @Test
+    fun chunkEvents_whenEventExceedsMaximumPayloadSize_sendsItAlone() {
+        val events = listOf(AnalyticsEvent("a".repeat(300), 1), AnalyticsEvent("b", 2))
+
+        val chunks = AnalyticsClient.chunkEvents(events, 200)
+        assertEquals(listOf(events.subList(0, 1), events.subList(1, 2)), chunks)
+    }
+
     @Test
     fun uploadAnalytics_whenConfigurationIsNull_doesNothing() {
         val inputData = Data.Builder()
@@ -303,7 +427,7 @@ class AnalyticsClientUnitTest {
         val events: MutableList<AnalyticsEvent> = ArrayList()
         events.add(AnalyticsEvent("event0", 123))
         events.add(AnalyticsEvent("event1", 456))
-        every { analyticsEventDao.getAllEvents() } returns events
+        every { analyticsEventDao.getEventsAfter(0, any()) } returns events
 
         val sut = AnalyticsClient(httpClient, analyticsDatabase, workManager, deviceInspector)
         sut.uploadAnalytics(context, inputData)
@@ -330,7 +454,7 @@ class AnalyticsClientUnitTest {
         val events: MutableList<AnalyticsEvent> = ArrayList()
         events.add(AnalyticsEvent("event0", 123))
         events.add(AnalyticsEvent("event1", 456))
-        every { analyticsEventDao.getAllEvents() } returns events
+        every { analyticsEventDao.getEventsAfter(0, any()) } returns events
 
         val httpError = Exception("error")
         every { httpClient.post(any(), any(), any(), any()) } throws httpError
@@ -340,6 +464,16 @@ class AnalyticsClientUnitTest {
         assertTrue(result is ListenableWorker.Result.Failure)
     }
 
+    @Test
+    fun preconnect_preconnectsHttpClientToAnalyticsUrl() {
+        val sut = AnalyticsClient(
+            httpClient, analyticsDatabase, workManager, deviceInspector, analyticsEventBuffer
+        )
+        sut.preconnect("https://analytics.example.com/events")
+
+        verify { httpClient.preconnect("https://analytics.example.com/events") }
+    }
+
     @Test
     @Throws(Exception::class)
     fun reportCrash_whenLastKnownAnalyticsUrlExists_sendsCrashAnalyticsEvent() {
@@ -355,7 +489,8 @@ class AnalyticsClientUnitTest {
                 capture(analyticsJSONSlot),
                 isNull(),
                 authorization,
-                any()
+                any(),
+                Scheduler.PRIORITY_LOW
             )
         } returns Unit
 
@@ -0,0 +1,158 @@
+package com.braintreepayments.api
+
+import android.content.ComponentCallbacks2
+import io.mockk.*
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class AnalyticsEventBufferUnitTest {
+
+    private lateinit var analyticsDatabase: AnalyticsDatabase
+    private lateinit var analyticsEventDao: AnalyticsEventDao
+    private lateinit var scheduler: Scheduler
+
+    @Before
+    fun beforeEach() {
+        analyticsDatabase = mockk(relaxed = true)
+        analyticsEventDao = mockk(relaxed = true)
+        scheduler = mockk(relaxed = true)
+
+        every { analyticsDatabase.analyticsEventDao() } returns analyticsEventDao
+        every { analyticsDatabase.runInTransaction(any<Runnable>()) } answers {
+            firstArg<Runnable>().run()
+        }
+    }
+
+    @Test
+    fun add_doesNotWriteToDatabase() {
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.add(AnalyticsEvent("event", 1))
+
+        assertEquals(1, sut.size)
+        verify { analyticsEventDao wasNot Called }
+    }
+
+    @Test
+    fun add_firstEventOfBatch_schedulesTimedFlushOnce() {
+        val runnableSlot = slot<Runnable>()
+        every {
+            scheduler.runOnBackgroundDelayed(capture(runnableSlot), Scheduler.PRIORITY_LOW, 1000)
+        } returns Unit
+
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.add(AnalyticsEvent("event-2", 2))
+
+        verify(exactly = 1) {
+            scheduler.runOnBackgroundDelayed(any(), Scheduler.PRIORITY_LOW, 1000)
+        }
+
+        runnableSlot.captured.run()
+        val eventsSlot = slot<List<AnalyticsEvent>>()
+        verify(exactly = 1) { analyticsEventDao.insertEvents(capture(eventsSlot)) }
+        assertEquals(listOf("event-1", "event-2"), eventsSlot.captured.map { it.name })
+        assertEquals(0, sut.size)
+    }
+
+    @Test
+    fun add_returnsTrueOnlyForFirstEventOfBatch() {
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+
+        assertTrue(sut.add(AnalyticsEvent("event-1", 1)))
+        assertFalse(sut.add(AnalyticsEvent("event-2", 2)))
+
+        sut.flush()
+        assertTrue(sut.add(AnalyticsEvent("event-3", 3)))
+    }
+
+    @Test
+    fun add_whenFlushThresholdReached_flushesImmediately() {
+        val runnableSlot = slot<Runnable>()
+        every { scheduler.runOnBackground(capture(runnableSlot), Scheduler.PRIORITY_LOW) } returns Unit
+
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 3, 1000)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.add(AnalyticsEvent("event-2", 2))
+        sut.add(AnalyticsEvent("event-3", 3))
+
+        runnableSlot.captured.run()
+        verify(exactly = 1) { analyticsEventDao.insertEvents(match { it.size == 3 }) }
+        assertEquals(1, sut.flushCount)
+        assertEquals(3, sut.flushedEventCount)
+    }
+
+    @Test
+    fun add_whenBufferIsFull_dropsOldestEvent() {
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 2, 5, 1000)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.add(AnalyticsEvent("event-2", 2))
+        sut.add(AnalyticsEvent("event-3", 3))
+
+        sut.flush()
+
+        val eventsSlot = slot<List<AnalyticsEvent>>()
+        verify { analyticsEventDao.insertEvents(capture(eventsSlot)) }
+        assertEquals(listOf("event-2", "event-3"), eventsSlot.captured.map { it.name })
+        assertEquals(1, sut.droppedEventCount)
+    }
+
+    @Test
+    fun flush_whenBufferIsEmpty_doesNotWriteToDatabase() {
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.flush()
+
+        verify { analyticsEventDao wasNot Called }
+        assertEquals(0, sut.flushCount)
+    }
+
+    @Test
+    fun flush_whenDatabaseWriteFails_dropsBatch() {
+        every { analyticsEventDao.insertEvents(any()) } throws IllegalStateException("disk full")
+
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.flush()
+
+        assertEquals(1, sut.droppedEventCount)
+        assertEquals(0, sut.size)
+    }
+
+    @Test
+    fun onTrimMemory_whenUiHidden_flushesInBackground() {
+        val runnableSlot = slot<Runnable>()
+        every { scheduler.runOnBackground(capture(runnableSlot), Scheduler.PRIORITY_LOW) } returns Unit
+
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+
+        runnableSlot.captured.run()
+        verify(exactly = 1) { analyticsEventDao.insertEvents(any()) }
+    }
+
+    @Test
+    fun onTrimMemory_whenUiVisible_doesNotFlush() {
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000)
+        sut.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+
+        verify(exactly = 0) { scheduler.runOnBackground(any(), any()) }
+    }
+
+    @Test
+    fun flush_evictsOldestStoredEventsBeyondRowCap() {
+        every { analyticsEventDao.deleteEventsExceeding(50) } returns 3
+
+        val sut = AnalyticsEventBuffer(analyticsDatabase, scheduler, 10, 5, 1000, 50)
+        sut.add(AnalyticsEvent("event-1", 1))
+        sut.flush()
+
+        verifyOrder {
+            analyticsEventDao.insertEvents(any())
+            analyticsEventDao.deleteEventsExceeding(50)
+        }
+        assertEquals(3, sut.evictedEventCount)
+    }
+}
@@ -39,7 +39,7 @@ class ApiClientUnitTest {
             .build()
 
         val bodySlot = slot<String>()
-        every { braintreeClient.sendPOST(any(), capture(bodySlot), any()) } returns Unit
+        every { braintreeClient.sendPOST(any(), capture(bodySlot), any(), any()) } returns RequestHandle()
 
         val sut = ApiClient(braintreeClient)
         val card = spyk(Card())
@@ -47,7 +47,7 @@ class ApiClientUnitTest {
 
         verifyOrder {
             card.setSessionId("session-id")
-            braintreeClient.sendPOST(any(), any(), any())
+            braintreeClient.sendPOST(any(), any(), any(), any())
         }
 
         val data = JSONObject(bodySlot.captured).getJSONObject("_meta")
@@ -63,13 +63,13 @@ class ApiClientUnitTest {
             .build()
 
         val graphQLBodySlot = slot<String>()
-        every { braintreeClient.sendGraphQLPOST(capture(graphQLBodySlot), any()) } returns Unit
+        every { braintreeClient.sendGraphQLPOST(capture(graphQLBodySlot), any(), any()) } returns RequestHandle()
 
         val sut = ApiClient(braintreeClient)
         val card = Card()
         sut.tokenizeGraphQL(card.buildJSONForGraphQL(), tokenizeCallback)
 
-        verify(inverse = true) { braintreeClient.sendPOST(any(), any(), any()) }
+        verify(inverse = true) { braintreeClient.sendPOST(any(), any(), any(), any()) }
         assertEquals(card.buildJSONForGraphQL().toString(), graphQLBodySlot.captured)
     }
 
@@ -97,7 +97,7 @@ class ApiClientUnitTest {
         sut.tokenizeREST(UnionPayCard(), tokenizeCallback)
         sut.tokenizeREST(VenmoAccount(), tokenizeCallback)
 
-        verify(inverse = true) { braintreeClient.sendGraphQLPOST(any(), any()) }
+        verify(inverse = true) { braintreeClient.sendGraphQLPOST(any(), any(), any()) }
     }
 
     @Test
@@ -128,6 +128,48 @@ class ApiClientUnitTest {
         verify { braintreeClient.sendAnalyticsEvent("card.graphql.tokenization.failure") }
     }
 
+    @Test
+    @Throws(BraintreeException::class, JSONException::class)
+    fun tokenizeGraphQL_whenResponseIsNotJSON_forwardsParseError() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(graphQLEnabledConfig)
+            .sendGraphQLPOSTSuccessfulResponse("not-json")
+            .build()
+        val card = Card()
+        val sut = ApiClient(braintreeClient)
+        sut.tokenizeGraphQL(card.buildJSONForGraphQL(), tokenizeCallback)
+
+        verify { tokenizeCallback.onResult(null, ofType(JSONException::class)) }
+        verify { braintreeClient.sendAnalyticsEvent("card.graphql.tokenization.failure") }
+    }
+
+    @Test
+    fun tokenizeREST_withDeadline_forwardsDeadlineToRequest() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(graphQLDisabledConfig)
+            .build()
+
+        val deadline = Deadline.after(5000)
+        val sut = ApiClient(braintreeClient)
+        sut.tokenizeREST(Card(), deadline, tokenizeCallback)
+
+        verify { braintreeClient.sendPOST(any(), any(), deadline, any()) }
+    }
+
+    @Test
+    @Throws(BraintreeException::class, JSONException::class)
+    fun tokenizeGraphQL_withDeadline_forwardsDeadlineToRequest() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(graphQLEnabledConfig)
+            .build()
+
+        val deadline = Deadline.after(5000)
+        val sut = ApiClient(braintreeClient)
+        sut.tokenizeGraphQL(Card().buildJSONForGraphQL(), deadline, tokenizeCallback)
+
+        verify { braintreeClient.sendGraphQLPOST(any(), deadline, any()) }
+    }
+
     @Test
     fun versionedPath_returnsv1Path() {
         assertEquals("/v1/test/path", ApiClient.versionedPath("test/path"))
@@ -6,6 +6,7 @@ import io.mockk.slot
 import io.mockk.verify
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
@@ -179,4 +180,149 @@ class AuthorizationLoaderUnitTest {
         sut.loadAuthorization(callback)
         assertEquals(clientToken, sut.authorizationFromCache?.toString())
     }
+
+    @Test
+    fun loadAuthorization_whenClientTokenFetchIsInFlight_sharesFetchWithConcurrentCallers() {
+        val clientTokenProvider = mockk<ClientTokenProvider>()
+        val clientTokenCallbackSlot = slot<ClientTokenCallback>()
+        every { clientTokenProvider.getClientToken(capture(clientTokenCallbackSlot)) } returns Unit
+        val callback1 = mockk<AuthorizationCallback>(relaxed = true)
+        val callback2 = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider)
+        sut.loadAuthorization(callback1)
+        sut.loadAuthorization(callback2)
+        clientTokenCallbackSlot.captured.onSuccess(Fixtures.BASE64_CLIENT_TOKEN)
+
+        verify(exactly = 1) { clientTokenProvider.getClientToken(any()) }
+        verify { callback1.onAuthorizationResult(sut.authorizationFromCache, null) }
+        verify { callback2.onAuthorizationResult(sut.authorizationFromCache, null) }
+    }
+
+    @Test
+    fun loadAuthorization_whenClientTokenFetchFails_fetchesAgainOnNextCall() {
+        val clientTokenProvider = MockkClientTokenProviderBuilder()
+            .error(Exception("error"))
+            .build()
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider)
+        sut.loadAuthorization(callback)
+        sut.loadAuthorization(callback)
+
+        verify(exactly = 2) { clientTokenProvider.getClientToken(any()) }
+    }
+
+    @Test
+    fun loadAuthorization_whenClientTokenIsOlderThanMaxAge_returnsCachedTokenAndRefreshesInBackground() {
+        var now = 1000L
+        val clientTokenProvider = MockkClientTokenProviderBuilder()
+            .clientToken(Fixtures.BASE64_CLIENT_TOKEN, Fixtures.BASE64_CLIENT_TOKEN2)
+            .build()
+        val callback = mockk<AuthorizationCallback>()
+        val authSlot = slot<Authorization>()
+        every { callback.onAuthorizationResult(capture(authSlot), null) } returns Unit
+
+        sut = AuthorizationLoader(null, clientTokenProvider, 500L) { now }
+        sut.loadAuthorization(callback)
+        now += 500L
+        sut.loadAuthorization(callback)
+
+        assertEquals(Fixtures.BASE64_CLIENT_TOKEN, authSlot.captured.toString())
+        assertEquals(Fixtures.BASE64_CLIENT_TOKEN2, sut.authorizationFromCache?.toString())
+        verify(exactly = 2) { clientTokenProvider.getClientToken(any()) }
+    }
+
+    @Test
+    fun loadAuthorization_whenClientTokenIsYoungerThanMaxAge_doesNotRefresh() {
+        var now = 1000L
+        val clientTokenProvider = MockkClientTokenProviderBuilder()
+            .clientToken(Fixtures.BASE64_CLIENT_TOKEN)
+            .build()
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider, 500L) { now }
+        sut.loadAuthorization(callback)
+        now += 499L
+        sut.loadAuthorization(callback)
+
+        verify(exactly = 1) { clientTokenProvider.getClientToken(any()) }
+    }
+
+    @Test
+    fun loadAuthorization_whenClientTokenRefreshFails_backsOffBeforeRefreshingAgain() {
+        var now = 1000L
+        val clientTokenProvider = mockk<ClientTokenProvider>()
+        val clientTokenCallbackSlot = slot<ClientTokenCallback>()
+        every { clientTokenProvider.getClientToken(capture(clientTokenCallbackSlot)) } returns Unit
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider, 500L) { now }
+        sut.loadAuthorization(callback)
+        clientTokenCallbackSlot.captured.onSuccess(Fixtures.BASE64_CLIENT_TOKEN)
+        now += 500L
+        sut.loadAuthorization(callback)
+        clientTokenCallbackSlot.captured.onFailure(Exception("error"))
+        sut.loadAuthorization(callback)
+
+        verify(exactly = 2) { clientTokenProvider.getClientToken(any()) }
+
+        now += 30000L
+        sut.loadAuthorization(callback)
+
+        verify(exactly = 3) { clientTokenProvider.getClientToken(any()) }
+        assertEquals(Fixtures.BASE64_CLIENT_TOKEN, sut.authorizationFromCache?.toString())
+    }
+
+    @Test
+    fun invalidateClientToken_whenFetchIsInFlight_discardsFetchedClientTokenAndFetchesAgain() {
+        val clientTokenProvider = mockk<ClientTokenProvider>()
+        val clientTokenCallbacks = mutableListOf<ClientTokenCallback>()
+        every { clientTokenProvider.getClientToken(capture(clientTokenCallbacks)) } returns Unit
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider)
+        sut.loadAuthorization(callback)
+        sut.invalidateClientToken()
+        clientTokenCallbacks[0].onSuccess(Fixtures.BASE64_CLIENT_TOKEN)
+
+        assertNull(sut.authorizationFromCache)
+        verify(exactly = 2) { clientTokenProvider.getClientToken(any()) }
+        verify(exactly = 0) { callback.onAuthorizationResult(any(), any()) }
+
+        clientTokenCallbacks[1].onSuccess(Fixtures.BASE64_CLIENT_TOKEN2)
+
+        assertEquals(Fixtures.BASE64_CLIENT_TOKEN2, sut.authorizationFromCache?.toString())
+        verify { callback.onAuthorizationResult(sut.authorizationFromCache, null) }
+    }
+
+    @Test
+    fun invalidateClientToken_whenMaxAgeIsSet_prefetchesNextClientToken() {
+        val clientTokenProvider = MockkClientTokenProviderBuilder()
+            .clientToken(Fixtures.BASE64_CLIENT_TOKEN, Fixtures.BASE64_CLIENT_TOKEN2)
+            .build()
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider, 500L)
+        sut.loadAuthorization(callback)
+        sut.invalidateClientToken()
+
+        assertEquals(Fixtures.BASE64_CLIENT_TOKEN2, sut.authorizationFromCache?.toString())
+        verify(exactly = 2) { clientTokenProvider.getClientToken(any()) }
+    }
+
+    @Test
+    fun invalidateClientToken_whenMaxAgeIsNotSet_doesNotPrefetchClientToken() {
+        val clientTokenProvider = MockkClientTokenProviderBuilder()
+            .clientToken(Fixtures.BASE64_CLIENT_TOKEN)
+            .build()
+        val callback = mockk<AuthorizationCallback>(relaxed = true)
+
+        sut = AuthorizationLoader(null, clientTokenProvider)
+        sut.loadAuthorization(callback)
+        sut.invalidateClientToken()
+
+        assertNull(sut.authorizationFromCache)
+        verify(exactly = 1) { clientTokenProvider.getClientToken(any()) }
+    }
 }
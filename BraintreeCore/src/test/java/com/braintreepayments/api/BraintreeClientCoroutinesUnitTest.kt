@@ -0,0 +1,119 @@
+package com.braintreepayments.api
+
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class BraintreeClientCoroutinesUnitTest {
+
+    private lateinit var braintreeClient: BraintreeClient
+
+    @Before
+    fun beforeEach() {
+        braintreeClient = mockk(relaxed = true)
+    }
+
+    @Test
+    fun getConfiguration_returnsConfiguration() = runBlocking {
+        val configuration = mockk<Configuration>()
+        val sut = MockkBraintreeClientBuilder()
+            .configurationSuccess(configuration)
+            .build()
+
+        assertSame(configuration, sut.getConfiguration())
+    }
+
+    @Test
+    fun getConfiguration_whenConfigurationFails_throwsError() = runBlocking {
+        val error = ConfigurationException("configuration error")
+        every { braintreeClient.getConfiguration(any()) } answers {
+            firstArg<ConfigurationCallback>().onResult(null, error)
+        }
+
+        try {
+            braintreeClient.getConfiguration()
+            fail("Expected getConfiguration to throw")
+        } catch (e: ConfigurationException) {
+            assertSame(error, e)
+        }
+    }
+
+    @Test
+    fun getAuthorization_returnsAuthorization() = runBlocking {
+        val authorization = mockk<Authorization>()
+        val sut = MockkBraintreeClientBuilder()
+            .authorizationSuccess(authorization)
+            .build()
+
+        assertSame(authorization, sut.getAuthorization())
+    }
+
+    @Test
+    fun sendPOST_returnsResponseBody() = runBlocking {
+        every { braintreeClient.sendPOST("url", "data", null, any()) } answers {
+            arg<HttpResponseCallback>(3).onResult("response", null)
+            RequestHandle()
+        }
+
+        assertEquals("response", braintreeClient.sendPOST("url", "data"))
+    }
+
+    @Test
+    fun sendGraphQLPOST_whenRequestFails_throwsError() = runBlocking {
+        val error = ErrorWithResponse(422, null)
+        every { braintreeClient.sendGraphQLPOST("payload", null, any()) } answers {
+            arg<HttpResponseCallback>(2).onResult(null, error)
+            RequestHandle()
+        }
+
+        try {
+            braintreeClient.sendGraphQLPOST("payload")
+            fail("Expected sendGraphQLPOST to throw")
+        } catch (e: ErrorWithResponse) {
+            assertSame(error, e)
+        }
+    }
+
+    @Test
+    fun sendGET_whenCoroutineIsCancelled_cancelsRequest() = runBlocking {
+        val requestHandle = RequestHandle()
+        every { braintreeClient.sendGET("url", null, any()) } returns requestHandle
+
+        val job = launch(start = CoroutineStart.UNDISPATCHED) {
+            braintreeClient.sendGET("url")
+        }
+        job.cancel()
+
+        assertTrue(requestHandle.isCancelled)
+    }
+
+    @Test
+    fun circuitStateChanges_emitsStateChangesAndRemovesListenerWhenCollectionStops() =
+        runBlocking {
+            every { braintreeClient.addCircuitBreakerListener(any()) } answers {
+                firstArg<CircuitBreakerListener>().onCircuitStateChanged(
+                    "api.braintreegateway.com/v1/*",
+                    CircuitBreakerListener.STATE_OPEN
+                )
+            }
+
+            val change = braintreeClient.circuitStateChanges().first()
+
+            assertEquals("api.braintreegateway.com/v1/*", change.endpoint)
+            assertEquals(CircuitBreakerListener.STATE_OPEN, change.state)
+            verify { braintreeClient.removeCircuitBreakerListener(any()) }
+        }
+}
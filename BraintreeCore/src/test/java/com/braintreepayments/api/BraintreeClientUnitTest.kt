@@ -4,6 +4,7 @@ import android.content.Context
 import android.content.Intent
 import android.content.pm.ActivityInfo
 import android.net.Uri
+import android.os.Looper
 import androidx.fragment.app.FragmentActivity
 import androidx.test.core.app.ApplicationProvider
 import androidx.work.testing.WorkManagerTestInitHelper
@@ -16,6 +17,9 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.Mockito.mock
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 class BraintreeClientUnitTest {
@@ -65,6 +69,41 @@ class BraintreeClientUnitTest {
         assertTrue(uuidRegex.matches(sut.sessionId))
     }
 
+    @Test
+    fun builder_createsOptionsWithOptInSettings() {
+        val options = BraintreeClient.Builder(context, Fixtures.TOKENIZATION_KEY)
+            .returnUrlScheme("com.example.return")
+            .useHttp2(true)
+            .maxBackgroundThreads(4)
+            .staleWhileRevalidateConfiguration(true)
+            .requestCompressionThresholdBytes(1024)
+            .clientTokenMaxAgeMillis(60000L)
+            .multiProcessConfigurationCache(true)
+            .createOptions()
+
+        assertEquals(Fixtures.TOKENIZATION_KEY, options.initialAuthString)
+        assertEquals("com.example.return", options.returnUrlScheme)
+        assertEquals(HttpTransportType.HTTP2, options.httpTransportType)
+        assertEquals(4, options.maxBackgroundThreads)
+        assertTrue(options.staleWhileRevalidateConfiguration)
+        assertEquals(1024, options.requestCompressionThresholdBytes)
+        assertEquals(60000L, options.clientTokenMaxAgeMillis)
+        assertTrue(options.multiProcessConfigurationCache)
+    }
+
+    @Test
+    fun builder_withClientTokenProvider_keepsConstructorDefaults() {
+        val clientTokenProvider = mockk<ClientTokenProvider>()
+        val options = BraintreeClient.Builder(context, clientTokenProvider).createOptions()
+
+        assertSame(clientTokenProvider, options.clientTokenProvider)
+        assertNull(options.initialAuthString)
+        assertNull(options.httpTransportType)
+        assertNull(options.maxBackgroundThreads)
+        assertFalse(options.staleWhileRevalidateConfiguration)
+        assertFalse(options.multiProcessConfigurationCache)
+    }
+
     @Test
     @Throws(JSONException::class)
     fun configuration_onAuthorizationAndConfigurationLoadSuccess_forwardsResult() {
@@ -120,6 +159,200 @@ class BraintreeClientUnitTest {
         verify { callback.onResult(null, configFetchError) }
     }
 
+    @Test
+    fun configurationWithDeadline_whenDeadlinePassesFirst_forwardsDeadlineExceededOnce() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        // the configuration request never completes
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+
+        val callback = mockk<ConfigurationCallback>(relaxed = true)
+        sut.getConfiguration(Deadline.after(100), callback)
+        verify(exactly = 0) { callback.onResult(any(), any()) }
+
+        shadowOf(Looper.getMainLooper()).idleFor(100, TimeUnit.MILLISECONDS)
+        verify(exactly = 1) {
+            callback.onResult(null, match { it is DeadlineExceededException })
+        }
+    }
+
+    @Test
+    @Throws(JSONException::class)
+    fun configurationWithDeadline_whenConfigurationArrivesFirst_forwardsConfigurationOnce() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ANALYTICS)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+
+        val callback = mockk<ConfigurationCallback>(relaxed = true)
+        sut.getConfiguration(Deadline.after(100), callback)
+        shadowOf(Looper.getMainLooper()).idleFor(100, TimeUnit.MILLISECONDS)
+
+        verify(exactly = 1) { callback.onResult(any(), any()) }
+        verify { callback.onResult(configuration, null) }
+    }
+
+    @Test
+    fun configurationWithDeadline_whenDeadlineHasPassed_failsWithoutLoadingConfiguration() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+
+        val callback = mockk<ConfigurationCallback>(relaxed = true)
+        sut.getConfiguration(Deadline(0), callback)
+
+        verify { callback.onResult(null, match { it is DeadlineExceededException }) }
+        verify(exactly = 0) { configurationLoader.loadConfiguration(any(), any()) }
+    }
+
+    @Test
+    fun sendPOST_withDeadline_whenConfigurationDoesNotArriveInTime_doesNotSendRequest() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        sut.sendPOST("sample-url", "{}", Deadline.after(100), httpResponseCallback)
+        shadowOf(Looper.getMainLooper()).idleFor(100, TimeUnit.MILLISECONDS)
+
+        verify { httpResponseCallback.onResult(null, match { it is DeadlineExceededException }) }
+        verify(exactly = 0) {
+            braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), any())
+        }
+    }
+
+    @Test
+    fun prefetchConfiguration_loadsConfigurationForCurrentAuthorization() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        sut.prefetchConfiguration()
+
+        verify { configurationLoader.loadConfiguration(authorization, any()) }
+    }
+
+    @Test
+    fun warmUp_preconnectsToConfiguredHosts() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        every { configuration.clientApiUrl } returns "https://api.example.com/client_api"
+        every { configuration.isGraphQLEnabled } returns true
+        every { configuration.graphQLUrl } returns "https://graphql.example.com/graphql"
+        every { configuration.isAnalyticsEnabled } returns true
+        every { configuration.analyticsUrl } returns "https://analytics.example.com/events"
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        sut.warmUp()
+
+        verify { braintreeHttpClient.preconnect("https://api.example.com/client_api") }
+        verify { braintreeGraphQLClient.preconnect("https://graphql.example.com/graphql") }
+        verify { analyticsClient.preconnect("https://analytics.example.com/events") }
+        verify(exactly = 0) { braintreeHttpClient.preconnect("https://analytics.example.com/events") }
+    }
+
+    @Test
+    fun warmUp_whenGraphQLAndAnalyticsAreDisabled_onlyPreconnectsToClientApi() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        every { configuration.clientApiUrl } returns "https://api.example.com/client_api"
+        every { configuration.isGraphQLEnabled } returns false
+        every { configuration.isAnalyticsEnabled } returns false
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        sut.warmUp()
+
+        verify(exactly = 1) { braintreeHttpClient.preconnect(any()) }
+        verify(exactly = 0) { braintreeGraphQLClient.preconnect(any()) }
+        verify(exactly = 0) { analyticsClient.preconnect(any()) }
+    }
+
+    @Test
+    fun warmUp_whenConfigurationFails_doesNotPreconnect() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configurationError(Exception("configuration error"))
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        sut.warmUp()
+
+        verify(exactly = 0) { braintreeHttpClient.preconnect(any()) }
+        verify(exactly = 0) { braintreeGraphQLClient.preconnect(any()) }
+    }
+
+    @Test
+    fun setHttpEventListener_forwardsListenerToHttpClients() {
+        val listener = mockk<HttpEventListener>()
+        val params = createDefaultParams(configurationLoader, MockkAuthorizationLoaderBuilder().build())
+        val sut = BraintreeClient(params)
+
+        sut.setHttpEventListener(listener)
+
+        verify { braintreeHttpClient.setEventListener(listener) }
+        verify { braintreeGraphQLClient.setEventListener(listener) }
+    }
+
+    @Test
+    fun setCallbackExecutor_forwardsExecutorToHttpClients() {
+        val executor = Executor { it.run() }
+        val params = createDefaultParams(configurationLoader, MockkAuthorizationLoaderBuilder().build())
+        val sut = BraintreeClient(params)
+
+        sut.setCallbackExecutor(executor)
+
+        verify { braintreeHttpClient.setCallbackExecutor(executor) }
+        verify { braintreeGraphQLClient.setCallbackExecutor(executor) }
+    }
+
+    @Test
+    fun addCircuitBreakerListener_forwardsListenerToHttpClient() {
+        val listener = mockk<CircuitBreakerListener>()
+        val params = createDefaultParams(configurationLoader, MockkAuthorizationLoaderBuilder().build())
+        val sut = BraintreeClient(params)
+
+        sut.addCircuitBreakerListener(listener)
+        sut.removeCircuitBreakerListener(listener)
+
+        verify { braintreeHttpClient.addCircuitBreakerListener(listener) }
+        verify { braintreeHttpClient.removeCircuitBreakerListener(listener) }
+    }
+
     @Test
     fun authorization_forwardsInvocationToAuthorizationLoader() {
         val authorizationLoader = MockkAuthorizationLoaderBuilder().build()
@@ -164,7 +397,35 @@ class BraintreeClientUnitTest {
                 "sample-url",
                 configuration,
                 authorization,
-                httpResponseCallback
+                any()
+            )
+        }
+    }
+
+    @Test
+    fun sendGET_withDeadline_forwardsDeadlineToHttpClient() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val deadline = Deadline.after(5000)
+
+        sut.sendGET("sample-url", deadline, httpResponseCallback)
+        verify {
+            braintreeHttpClient.get(
+                "sample-url",
+                configuration,
+                authorization,
+                any(),
+                deadline
             )
         }
     }
@@ -229,7 +490,37 @@ class BraintreeClientUnitTest {
                 "{}",
                 configuration,
                 authorization,
-                httpResponseCallback
+                any()
+            )
+        }
+    }
+
+    @Test
+    fun sendPOST_withDeadline_forwardsDeadlineToHttpClient() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val deadline = Deadline.after(5000)
+        sut.sendPOST("sample-url", "{}", deadline, httpResponseCallback)
+
+        verify {
+            braintreeHttpClient.post(
+                "sample-url",
+                "{}",
+                configuration,
+                authorization,
+                any(),
+                deadline = deadline
             )
         }
     }
@@ -291,7 +582,7 @@ class BraintreeClientUnitTest {
                 "{}",
                 configuration,
                 authorization,
-                httpResponseCallback
+                any()
             )
         }
     }
@@ -332,6 +623,160 @@ class BraintreeClientUnitTest {
         verify { httpResponseCallback.onResult(null, exception) }
     }
 
+    @Test
+    fun sendGET_onHttpResult_forwardsResultToCallback() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val callbackSlot = slot<HttpResponseCallback>()
+        every {
+            braintreeHttpClient.get("sample-url", configuration, authorization, capture(callbackSlot))
+        } returns RequestHandle()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendGET("sample-url", httpResponseCallback)
+        callbackSlot.captured.onResult("response body", null)
+
+        verify { httpResponseCallback.onResult("response body", null) }
+    }
+
+    @Test
+    fun sendPOST_withDecodingCallback_keepsDecodingInHttpPipeline() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val callbackSlot = slot<HttpResponseCallback>()
+        every {
+            braintreeHttpClient.post(
+                "sample-url",
+                "{}",
+                configuration,
+                authorization,
+                capture(callbackSlot)
+            )
+        } returns RequestHandle()
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        var decodedResult: Int? = null
+        sut.sendPOST("sample-url", "{}", object : DecodingHttpResponseCallback<Int>() {
+            override fun decode(responseBody: String): Int = responseBody.toInt()
+
+            override fun onDecodedResult(result: Int?, error: Exception?) {
+                decodedResult = result
+            }
+        })
+
+        assertTrue(callbackSlot.captured is DecodingHttpResponseCallback<*>)
+        callbackSlot.captured.onResult("42", null)
+        assertEquals(42, decodedResult)
+    }
+
+    @Test
+    fun sendPOST_whenCancelled_cancelsHttpRequestAndNotifiesCallbackOfCancellation() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val requestHandle = RequestHandle()
+        val callbackSlot = slot<HttpResponseCallback>()
+        every {
+            braintreeHttpClient.post(
+                "sample-url",
+                "{}",
+                configuration,
+                authorization,
+                capture(callbackSlot)
+            )
+        } returns requestHandle
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendPOST("sample-url", "{}", httpResponseCallback).cancel()
+        callbackSlot.captured.onResult(null, Exception("Socket closed"))
+
+        assertTrue(requestHandle.isCancelled)
+        verify(exactly = 1) {
+            httpResponseCallback.onResult(null, ofType(RequestCancelledException::class))
+        }
+    }
+
+    @Test
+    fun sendGraphQLPOST_whenCancelledBeforeConfigurationLoads_notifiesCallbackWithoutSendingRequest() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configurationCallbackSlot = slot<ConfigurationLoaderCallback>()
+        every {
+            configurationLoader.loadConfiguration(any(), capture(configurationCallbackSlot))
+        } returns Unit
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendGraphQLPOST("{}", httpResponseCallback).cancel()
+        configurationCallbackSlot.captured.onResult(mockk(relaxed = true), null)
+
+        verify(exactly = 0) { braintreeGraphQLClient.post(any(), any(), any(), any(), any()) }
+        verify(exactly = 1) {
+            httpResponseCallback.onResult(null, ofType(RequestCancelledException::class))
+        }
+    }
+
+    @Test
+    fun sendGET_whenCancelledAfterResponseIsDelivered_hasNoEffect() {
+        val authorizationLoader = MockkAuthorizationLoaderBuilder()
+            .authorization(authorization)
+            .build()
+
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+
+        val requestHandle = RequestHandle()
+        val callbackSlot = slot<HttpResponseCallback>()
+        every {
+            braintreeHttpClient.get("sample-url", configuration, authorization, capture(callbackSlot))
+        } returns requestHandle
+
+        val params = createDefaultParams(configurationLoader, authorizationLoader)
+        val sut = BraintreeClient(params)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        val handle = sut.sendGET("sample-url", httpResponseCallback)
+        callbackSlot.captured.onResult("response body", null)
+        handle.cancel()
+
+        assertFalse(handle.isCancelled)
+        assertFalse(requestHandle.isCancelled)
+        verify(exactly = 1) { httpResponseCallback.onResult(any(), any()) }
+    }
+
     @Test
     @Throws(JSONException::class)
     fun sendAnalyticsEvent_sendsEventToAnalyticsClient() {
@@ -3,6 +3,7 @@ package com.braintreepayments.api
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.slot
+import io.mockk.verify
 import org.json.JSONException
 import org.junit.Assert.assertEquals
 import org.junit.Before
@@ -13,6 +14,7 @@ import java.net.MalformedURLException
 import java.net.URISyntaxException
 import java.net.URL
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.Executor
 
 @RunWith(RobolectricTestRunner::class)
 class BraintreeGraphQLClientUnitTest {
@@ -26,6 +28,7 @@ class BraintreeGraphQLClientUnitTest {
     @Throws(JSONException::class)
     fun beforeEach() {
         httpClient = mockk()
+        every { httpClient.eventListener } returns null
         httpResponseCallback = mockk()
         authorization = Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN)
         configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GRAPHQL)
@@ -139,4 +142,69 @@ class BraintreeGraphQLClientUnitTest {
             assertEquals("token invalid", e.message)
         }
     }
+
+    @Test
+    fun preconnect_forwardsUrlToHttpClient() {
+        every { httpClient.preconnect(any()) } returns Unit
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.preconnect("https://api.example.com/client_api")
+
+        verify { httpClient.preconnect("https://api.example.com/client_api") }
+    }
+
+    @Test
+    fun post_withEventListener_labelsRequestWithOperationName() {
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.eventListener } returns mockk()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), httpResponseCallback)
+        } returns Unit
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.post(
+            "{\"operationName\": \"TokenizeCreditCard\"}",
+            configuration,
+            authorization,
+            httpResponseCallback
+        )
+
+        assertEquals("graphql:TokenizeCreditCard", httpRequestSlot.captured.endpointLabel)
+    }
+
+    @Test
+    fun post_withEventListener_whenPayloadHasNoOperationName_labelsRequestWithPath() {
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.eventListener } returns mockk()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), httpResponseCallback)
+        } returns Unit
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.post("data", configuration, authorization, httpResponseCallback)
+
+        assertEquals("graphql", httpRequestSlot.captured.endpointLabel)
+    }
+
+    @Test
+    fun setEventListener_forwardsListenerToHttpClient() {
+        val listener = mockk<HttpEventListener>()
+        every { httpClient.eventListener = any() } returns Unit
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.setEventListener(listener)
+
+        verify { httpClient.eventListener = listener }
+    }
+
+    @Test
+    fun setCallbackExecutor_forwardsExecutorToHttpClient() {
+        val executor = Executor { it.run() }
+        every { httpClient.callbackExecutor = any() } returns Unit
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.setCallbackExecutor(executor)
+
+        verify { httpClient.callbackExecutor = executor }
+    }
 }
@@ -3,6 +3,7 @@ package com.braintreepayments.api
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.slot
+import io.mockk.verify
 import org.json.JSONException
 import org.junit.Assert.*
 import org.junit.Before
@@ -14,6 +15,7 @@ import java.net.URISyntaxException
 import java.net.URL
 import java.nio.charset.StandardCharsets
 import java.util.Locale
+import java.util.concurrent.Executor
 
 @RunWith(RobolectricTestRunner::class)
 class BraintreeHttpClientUnitTest {
@@ -63,6 +65,87 @@ class BraintreeHttpClientUnitTest {
         assertEquals(URL("https://example.com/sample/path"), httpRequest.url)
     }
 
+    @Test
+    fun get_withDeadline_setsDeadlineOnRequest() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val callback = mockk<HttpResponseCallback>()
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), HttpClient.NO_RETRY, callback)
+        } returns Unit
+
+        val deadline = Deadline.after(5000)
+        val sut = BraintreeHttpClient(httpClient)
+        sut.get("https://example.com/sample/path", null, tokenizationKey, callback, deadline)
+
+        assertSame(deadline, httpRequestSlot.captured.deadline)
+    }
+
+    @Test
+    fun get_withConfigurationUrl_labelsRequestAsConfig() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val callback = mockk<HttpResponseCallback>()
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), HttpClient.NO_RETRY, callback)
+        } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.get(
+            "https://api.braintreegateway.com/merchants/id/client_api/v1/configuration?configVersion=3",
+            null,
+            tokenizationKey,
+            callback
+        )
+
+        assertEquals("config", httpRequestSlot.captured.endpointLabel)
+    }
+
+    @Test
+    fun post_withThreeDSecureLookupPath_labelsRequestAs3DSLookup() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val configuration = mockk<Configuration>()
+        every { configuration.clientApiUrl } returns "https://example.com"
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.sendRequest(capture(httpRequestSlot), any()) } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.post(
+            "/v1/payment_methods/nonce123/three_d_secure/lookup",
+            "{}",
+            configuration,
+            tokenizationKey,
+            httpResponseCallback
+        )
+
+        assertEquals("3ds:lookup", httpRequestSlot.captured.endpointLabel)
+    }
+
+    @Test
+    fun setEventListener_forwardsListenerToHttpClient() {
+        val listener = mockk<HttpEventListener>()
+        every { httpClient.eventListener = any() } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.setEventListener(listener)
+
+        verify { httpClient.eventListener = listener }
+    }
+
+    @Test
+    fun setCallbackExecutor_forwardsExecutorToHttpClient() {
+        val executor = Executor { it.run() }
+        every { httpClient.callbackExecutor = any() } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.setCallbackExecutor(executor)
+
+        verify { httpClient.callbackExecutor = executor }
+    }
+
     @Test
     @Throws(MalformedURLException::class, URISyntaxException::class)
     fun get_withTokenizationKey_forwardsHttpRequestToHttpClient() {
@@ -225,6 +308,32 @@ class BraintreeHttpClientUnitTest {
         assertEquals(URL("https://example.com/sample/path"), httpRequest.url)
     }
 
+    @Test
+    fun postSync_withCompressionThreshold_marksLargeBodiesForCompression() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.sendRequest(capture(httpRequestSlot)) } returns ""
+
+        val sut = BraintreeHttpClient(httpClient, 16)
+        sut.post("https://example.com/sample/path", "{\"key\":\"a long enough value\"}", null, tokenizationKey)
+
+        assertTrue(httpRequestSlot.captured.shouldCompressData())
+    }
+
+    @Test
+    fun postSync_withoutCompressionThreshold_sendsBodyUncompressed() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.sendRequest(capture(httpRequestSlot)) } returns ""
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.post("https://example.com/sample/path", "{\"key\":\"a long enough value\"}", null, tokenizationKey)
+
+        assertFalse(httpRequestSlot.captured.shouldCompressData())
+    }
+
     @Test
     fun postSync_withInvalidToken_throwsBraintreeException() {
         val authorization: Authorization =
@@ -263,6 +372,21 @@ class BraintreeHttpClientUnitTest {
         assertEquals("{}", String(httpRequest.data, StandardCharsets.UTF_8))
     }
 
+    @Test
+    fun postAsync_withDeadline_setsDeadlineOnRequest() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val callback = mockk<HttpResponseCallback>()
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.sendRequest(capture(httpRequestSlot), callback) } returns Unit
+
+        val deadline = Deadline.after(5000)
+        val sut = BraintreeHttpClient(httpClient)
+        sut.post("https://example.com/sample/path", "{}", null, tokenizationKey, callback,
+            deadline = deadline)
+
+        assertSame(deadline, httpRequestSlot.captured.deadline)
+    }
+
     @Test
     @Throws(MalformedURLException::class, URISyntaxException::class)
     fun postAsync_withClientToken_forwardsHttpRequestToHttpClient() {
@@ -367,4 +491,67 @@ class BraintreeHttpClientUnitTest {
         val exception = exceptionSlot.captured
         assertEquals("token invalid", exception.message)
     }
+
+    @Test
+    fun preconnect_forwardsUrlToHttpClient() {
+        every { httpClient.preconnect(any()) } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.preconnect("https://api.example.com/client_api")
+
+        verify { httpClient.preconnect("https://api.example.com/client_api") }
+    }
+
+    @Test
+    fun addCircuitBreakerListener_registersListenerWithCircuitBreaker() {
+        val circuitBreaker = mockk<CircuitBreaker>(relaxed = true)
+        every { httpClient.circuitBreaker } returns circuitBreaker
+        val listener = mockk<CircuitBreakerListener>()
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.addCircuitBreakerListener(listener)
+        sut.removeCircuitBreakerListener(listener)
+
+        verify { circuitBreaker.addListener(listener) }
+        verify { circuitBreaker.removeListener(listener) }
+    }
+
+    @Test
+    fun getConditional_sendsValidatorsAndForwardsResponseValidators() {
+        val httpRequestSlot = slot<HttpRequest>()
+        val httpCallbackSlot = slot<HttpResponseCallback>()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), any(), capture(httpCallbackSlot))
+        } returns Unit
+
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val callback = mockk<ConditionalHttpResponseCallback>(relaxed = true)
+        val sut = BraintreeHttpClient(httpClient)
+        sut.getConditional(
+            "https://example.com/config",
+            tokenizationKey,
+            HttpCacheValidators("\"v1\"", null),
+            HttpClient.RETRY_MAX_3_TIMES,
+            callback
+        )
+
+        val httpRequest = httpRequestSlot.captured
+        assertEquals("\"v1\"", httpRequest.headers["If-None-Match"])
+
+        val responseValidators = HttpCacheValidators("\"v2\"", null)
+        httpRequest.setResponseValidators(responseValidators)
+        httpCallbackSlot.captured.onResult("{}", null)
+        verify { callback.onResult("{}", responseValidators, null) }
+    }
+
+    @Test
+    fun getConditional_withInvalidAuthorization_forwardsError() {
+        val authorization = InvalidAuthorization("invalid", "token invalid")
+        val callback = mockk<ConditionalHttpResponseCallback>(relaxed = true)
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.getConditional("https://example.com/config", authorization, null, HttpClient.NO_RETRY, callback)
+
+        verify { callback.onResult(null, null, ofType(BraintreeException::class)) }
+    }
 }
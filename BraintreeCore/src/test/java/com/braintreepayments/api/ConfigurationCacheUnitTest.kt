@@ -1,60 +1,122 @@
 package com.braintreepayments.api
 
+import android.content.Context
+import android.util.Base64
+import androidx.test.core.app.ApplicationProvider
 import com.braintreepayments.api.Configuration.Companion.fromJson
 import org.robolectric.RobolectricTestRunner
-import io.mockk.*
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
 import org.junit.Test
+import org.junit.rules.TemporaryFolder
 import org.junit.runner.RunWith
-import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 class ConfigurationCacheUnitTest {
 
-    private var braintreeSharedPreferences: BraintreeSharedPreferences = mockk(relaxed = true)
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private lateinit var sut: ConfigurationCache
+
+    @Before
+    fun beforeEach() {
+        sut = ConfigurationCache(ConfigurationStore(temporaryFolder.newFolder()))
+    }
 
     @Test
-    fun saveConfiguration_savesConfigurationInSharedPrefs() {
+    fun getEntry_returnsConfigurationTimestampAndValidatorsSavedTogether() {
         val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
-        val sut = ConfigurationCache(braintreeSharedPreferences)
-        sut.saveConfiguration(configuration, "cacheKey", 123L)
-        verify {
-            braintreeSharedPreferences.putStringAndLong(
-                "cacheKey",
-                configuration.toJson(),
-                "cacheKey_timestamp",
-                123L
-            )
-        }
+        val validators = HttpCacheValidators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT")
+        sut.saveConfiguration(configuration, "cacheKey", validators, 123L)
+
+        val result = sut.getEntry("cacheKey")
+        assertEquals(configuration.toJson(), result?.configuration)
+        assertEquals(123L, result?.timestamp)
+        assertEquals("\"v1\"", result?.validators?.entityTag)
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", result?.validators?.lastModified)
+    }
+
+    @Test
+    fun getEntry_whenNoConfigurationIsStored_returnsNull() {
+        assertNull(sut.getEntry("cacheKey"))
     }
 
     @Test
-    fun getConfiguration_returnsConfigurationFromSharedPrefs() {
+    fun saveConfiguration_withoutValidators_replacesPreviousValidators() {
         val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
-        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
-        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 0L
-        every { braintreeSharedPreferences.getString("cacheKey", "") } returns configuration.toJson()
+        sut.saveConfiguration(configuration, "cacheKey", HttpCacheValidators("\"v1\"", null), 0)
+        sut.saveConfiguration(configuration, "cacheKey", null, 0)
 
-        val sut = ConfigurationCache(braintreeSharedPreferences)
-        sut.saveConfiguration(configuration, "cacheKey", 0)
+        assertNull(sut.getEntry("cacheKey")?.validators)
+    }
+
+    @Test
+    fun refreshTimestamp_whenConfigurationIsStored_updatesTimestamp() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val validators = HttpCacheValidators("\"v1\"", null)
+        sut.saveConfiguration(configuration, "cacheKey", validators, 0)
+
+        val result = sut.refreshTimestamp("cacheKey", 123L)
 
-        assertEquals(
-            configuration.toJson(),
-            sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(5) - 1)
+        assertEquals(123L, result?.timestamp)
+        val entry = sut.getEntry("cacheKey")
+        assertEquals(123L, entry?.timestamp)
+        assertEquals("\"v1\"", entry?.validators?.entityTag)
+        assertEquals(configuration.toJson(), entry?.configuration)
+    }
+
+    @Test
+    fun refreshTimestamp_whenNoConfigurationIsStored_doesNothing() {
+        assertNull(sut.refreshTimestamp("cacheKey", 123L))
+
+        assertNull(sut.getEntry("cacheKey"))
+    }
+
+    @Test
+    fun removeLegacyConfigurations_removesConfigurationsStoredInSharedPreferences() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        val sharedPreferences = BraintreeSharedPreferences(
+            context.getSharedPreferences("legacy-configuration-test", Context.MODE_PRIVATE)
         )
+        val cacheKey = Base64.encodeToString(
+            "https://example.com/config?configVersion=3bearer".toByteArray(),
+            0
+        )
+        sharedPreferences.putStringAndLong(cacheKey, "{}", "${cacheKey}_timestamp", 123L)
+        sharedPreferences.putString("${cacheKey}_etag", "\"v1\"")
+        sharedPreferences.putString("InstallationGUID", "installation-guid")
+        sharedPreferences.putStringAndLong("unrelated", "value", "unrelated_timestamp", 456L)
+
+        ConfigurationCache.removeLegacyConfigurations(sharedPreferences)
+
+        assertFalse(sharedPreferences.containsKey(cacheKey))
+        assertFalse(sharedPreferences.containsKey("${cacheKey}_timestamp"))
+        assertFalse(sharedPreferences.containsKey("${cacheKey}_etag"))
+        assertTrue(sharedPreferences.containsKey("InstallationGUID"))
+        assertTrue(sharedPreferences.containsKey("unrelated"))
+        assertTrue(sharedPreferences.containsKey("unrelated_timestamp"))
     }
 
     @Test
-    fun getConfiguration_whenCacheEntryExpires_returnsNull() {
-        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
-        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
-        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns TimeUnit.MINUTES.toMillis(5)
-        every { braintreeSharedPreferences.getString("cacheKey", "") } returns configuration.toJson()
+    fun removeLegacyConfigurations_whenAlreadyRemoved_doesNothing() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        val sharedPreferences = BraintreeSharedPreferences(
+            context.getSharedPreferences("legacy-configuration-removed-test", Context.MODE_PRIVATE)
+        )
+        ConfigurationCache.removeLegacyConfigurations(sharedPreferences)
+        val cacheKey = Base64.encodeToString(
+            "https://example.com/config?configVersion=3bearer".toByteArray(),
+            0
+        )
+        sharedPreferences.putStringAndLong(cacheKey, "{}", "${cacheKey}_timestamp", 123L)
 
-        val sut = ConfigurationCache(braintreeSharedPreferences)
-        sut.saveConfiguration(configuration, "cacheKey", 0)
+        ConfigurationCache.removeLegacyConfigurations(sharedPreferences)
 
-        assertNull(sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(20)))
+        assertTrue(sharedPreferences.containsKey(cacheKey))
     }
 }
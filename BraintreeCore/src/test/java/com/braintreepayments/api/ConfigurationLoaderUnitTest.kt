@@ -1,13 +1,14 @@
 package com.braintreepayments.api
 
-import android.util.Base64
 import io.mockk.*
 import org.robolectric.RobolectricTestRunner
 import org.json.JSONException
 import org.junit.Assert.assertEquals
+import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import java.lang.Exception
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 class ConfigurationLoaderUnitTest {
@@ -15,29 +16,38 @@ class ConfigurationLoaderUnitTest {
     private var braintreeHttpClient: BraintreeHttpClient = mockk(relaxed = true)
     private var callback: ConfigurationLoaderCallback = mockk(relaxed = true)
     private var authorization: Authorization = mockk(relaxed = true)
+    private var scheduler: Scheduler = mockk(relaxed = true)
+
+    @Before
+    fun beforeEach() {
+        every { configurationCache.getEntry(any()) } returns null
+        // run disk work and deliveries to the main thread inline
+        every { scheduler.runOnBackground(any()) } answers { firstArg<Runnable>().run() }
+        every { scheduler.runOnMain(any()) } answers { firstArg<Runnable>().run() }
+    }
 
     @Test
     fun loadConfiguration_loadsConfigurationForTheCurrentEnvironment() {
 
         every { authorization.configUrl } returns "https://example.com/config"
 
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
 
         val expectedConfigUrl = "https://example.com/config?configVersion=3"
-        val callbackSlot = slot<HttpResponseCallback>()
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
         verify {
-            braintreeHttpClient.get(
+            braintreeHttpClient.getConditional(
                     expectedConfigUrl,
-                    null,
                     authorization,
+                    any(),
                     HttpClient.RETRY_MAX_3_TIMES,
                     capture(callbackSlot)
             )
         }
 
         val httpResponseCallback = callbackSlot.captured
-        httpResponseCallback.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null)
+        httpResponseCallback.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
 
         verify { callback.onResult(ofType(Configuration::class), null) }
     }
@@ -47,51 +57,48 @@ class ConfigurationLoaderUnitTest {
         every { authorization.configUrl } returns "https://example.com/config"
         every { authorization.bearer } returns "bearer"
 
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
 
         val expectedConfigUrl = "https://example.com/config?configVersion=3"
-        val callbackSlot = slot<HttpResponseCallback>()
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
         verify {
-            braintreeHttpClient.get(
+            braintreeHttpClient.getConditional(
                     expectedConfigUrl,
-                    null,
                     authorization,
+                    any(),
                     HttpClient.RETRY_MAX_3_TIMES,
                     capture(callbackSlot)
             )
         }
 
         val httpResponseCallback = callbackSlot.captured
-        httpResponseCallback.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null)
-        val cacheKey = Base64.encodeToString(
-            "https://example.com/config?configVersion=3bearer".toByteArray(),
-            0
-        )
+        httpResponseCallback.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+        val cacheKey = "https://example.com/configbearer"
 
         verify {
-            configurationCache.saveConfiguration(ofType(Configuration::class), cacheKey)
+            configurationCache.saveConfiguration(ofType(Configuration::class), cacheKey, null)
         }
     }
 
     @Test
     fun loadConfiguration_onJSONParsingError_forwardsExceptionToErrorResponseListener() {
         every { authorization.configUrl } returns "https://example.com/config"
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
 
-        val callbackSlot = slot<HttpResponseCallback>()
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
         verify {
-            braintreeHttpClient.get(
+            braintreeHttpClient.getConditional(
                     ofType(String::class),
-                    null,
                     authorization,
+                    any(),
                     HttpClient.RETRY_MAX_3_TIMES,
                     capture(callbackSlot)
             )
         }
         val httpResponseCallback = callbackSlot.captured
-        httpResponseCallback.onResult("not json", null)
+        httpResponseCallback.onResult("not json", null, null)
         verify {
             callback.onResult(null, ofType(JSONException::class))
         }
@@ -100,16 +107,16 @@ class ConfigurationLoaderUnitTest {
     @Test
     fun loadConfiguration_onHttpError_forwardsExceptionToErrorResponseListener() {
         every { authorization.configUrl } returns "https://example.com/config"
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
 
-        val callbackSlot = slot<HttpResponseCallback>()
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
 
         verify {
-            braintreeHttpClient.get(
+            braintreeHttpClient.getConditional(
                     ofType(String::class),
-                    null,
                     authorization,
+                    any(),
                     HttpClient.RETRY_MAX_3_TIMES,
                     capture(callbackSlot)
             )
@@ -117,7 +124,7 @@ class ConfigurationLoaderUnitTest {
 
         val httpResponseCallback = callbackSlot.captured
         val httpError = Exception("http error")
-        httpResponseCallback.onResult(null, httpError)
+        httpResponseCallback.onResult(null, null, httpError)
         val errorSlot = slot<Exception>()
         verify {
             callback.onResult(null, capture(errorSlot))
@@ -133,7 +140,7 @@ class ConfigurationLoaderUnitTest {
     @Test
     fun loadConfiguration_whenInvalidToken_forwardsExceptionToCallback() {
         val authorization: Authorization = InvalidAuthorization("invalid", "token invalid")
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
         val errorSlot = slot<BraintreeException>()
         verify {
@@ -146,26 +153,442 @@ class ConfigurationLoaderUnitTest {
 
     @Test
     fun loadConfiguration_whenCachedConfigurationAvailable_loadsConfigurationFromCache() {
-        val cacheKey = Base64.encodeToString(
-            "https://example.com/config?configVersion=3bearer".toByteArray(),
-            0
-        )
+        val cacheKey = "https://example.com/configbearer"
         every { authorization.configUrl } returns "https://example.com/config"
         every { authorization.bearer } returns "bearer"
-        every { configurationCache.getConfiguration(cacheKey) } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry(
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, System.currentTimeMillis(), null
+        )
 
-        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache)
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
         sut.loadConfiguration(authorization, callback)
 
         verify(exactly = 0) {
-            braintreeHttpClient.get(
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    ofType(Int::class),
+                    ofType(ConditionalHttpResponseCallback::class)
+            )
+        }
+        verify { callback.onResult(ofType(Configuration::class), null) }
+    }
+
+    @Test
+    fun loadConfiguration_whenConfigurationInMemory_skipsSharedPreferencesAndParsing() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val memoryCache = ConfigurationMemoryCache()
+        memoryCache.putConfiguration(configuration, "https://example.com/configbearer")
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        verify { callback.onResult(configuration, null) }
+        verify(exactly = 0) { configurationCache.getEntry(any()) }
+        assertEquals(1, memoryCache.hitCount)
+        assertEquals(0, memoryCache.parseCount)
+    }
+
+    @Test
+    fun loadConfiguration_whenConfigurationInSharedPreferences_promotesItToMemory() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry(
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, System.currentTimeMillis(), null
+        )
+        val memoryCache = ConfigurationMemoryCache()
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+        sut.loadConfiguration(authorization, callback)
+
+        verify(exactly = 1) { configurationCache.getEntry(cacheKey) }
+        verify(exactly = 2) { callback.onResult(ofType(Configuration::class), null) }
+        assertEquals(1, memoryCache.parseCount)
+        assertEquals(1, memoryCache.missCount)
+        assertEquals(1, memoryCache.hitCount)
+    }
+
+    @Test
+    fun loadConfiguration_afterFetchingConfiguration_servesItFromMemory() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val memoryCache = ConfigurationMemoryCache()
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+
+        sut.loadConfiguration(authorization, callback)
+
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    ofType(Int::class),
+                    ofType(ConditionalHttpResponseCallback::class)
+            )
+        }
+        assertEquals(1, memoryCache.hitCount)
+    }
+
+    @Test
+    fun loadConfiguration_whenFetchInFlight_coalescesCallersIntoOneRequest() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val secondCallback: ConfigurationLoaderCallback = mockk(relaxed = true)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+        sut.loadConfiguration(authorization, secondCallback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+
+        val configurationSlot = slot<Configuration>()
+        verify { callback.onResult(capture(configurationSlot), null) }
+        verify { secondCallback.onResult(configurationSlot.captured, null) }
+    }
+
+    @Test
+    fun loadConfiguration_whenFetchInFlightForAnotherLoader_coalescesCallersIntoOneRequest() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val secondCallback: ConfigurationLoaderCallback = mockk(relaxed = true)
+        val otherHttpClient: BraintreeHttpClient = mockk(relaxed = true)
+        val memoryCache = ConfigurationMemoryCache()
+
+        ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+            .loadConfiguration(authorization, callback)
+        ConfigurationLoader(otherHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+            .loadConfiguration(authorization, secondCallback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        verify(exactly = 0) { otherHttpClient.getConditional(any(), any(), any(), any(), any()) }
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+
+        val configurationSlot = slot<Configuration>()
+        verify { callback.onResult(capture(configurationSlot), null) }
+        verify { secondCallback.onResult(configurationSlot.captured, null) }
+    }
+
+    @Test
+    fun loadConfiguration_whenCoalescedFetchFails_forwardsErrorToAllCallers() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val secondCallback: ConfigurationLoaderCallback = mockk(relaxed = true)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+        sut.loadConfiguration(authorization, secondCallback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(null, null, Exception("http error"))
+
+        verify { callback.onResult(null, ofType(ConfigurationException::class)) }
+        verify { secondCallback.onResult(null, ofType(ConfigurationException::class)) }
+    }
+
+    @Test
+    fun loadConfiguration_afterFetchCompletes_sendsNewRequestForNextCaller() {
+        every { authorization.configUrl } returns "https://example.com/config"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(null, null, Exception("http error"))
+
+        sut.loadConfiguration(authorization, callback)
+        verify(exactly = 2) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    ofType(ConditionalHttpResponseCallback::class)
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_whenStaleWhileRevalidateAndConfigurationExpired_servesStaleAndRefreshes() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val memoryCache = ConfigurationMemoryCache()
+        val expiredTimestamp = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10)
+        memoryCache.putConfiguration(configuration, "https://example.com/configbearer", expiredTimestamp)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, true, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        verify { callback.onResult(configuration, null) }
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    "https://example.com/config?configVersion=3",
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+
+        // the refreshed configuration is served fresh without another request
+        sut.loadConfiguration(authorization, callback)
+        verify(exactly = 2) { callback.onResult(ofType(Configuration::class), null) }
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
                     ofType(String::class),
-                    null,
                     authorization,
+                    any(),
                     ofType(Int::class),
-                    ofType(HttpResponseCallback::class)
+                    ofType(ConditionalHttpResponseCallback::class)
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_whenStaleWhileRevalidateAndStaleInSharedPreferences_servesStale() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val expiredTimestamp = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10)
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry(
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, expiredTimestamp, null
+        )
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, ConfigurationMemoryCache(), true, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        verify { callback.onResult(ofType(Configuration::class), null) }
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(
+                    ofType(String::class),
+                    authorization,
+                    any(),
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    ofType(ConditionalHttpResponseCallback::class)
             )
         }
+    }
+
+    @Test
+    fun loadConfiguration_whenStaleWhileRevalidateDisabled_waitsForNetwork() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val memoryCache = ConfigurationMemoryCache()
+        val expiredTimestamp = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10)
+        memoryCache.putConfiguration(configuration, "https://example.com/configbearer", expiredTimestamp)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        verify(exactly = 0) { callback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun loadConfiguration_withStoredValidators_sendsConditionalRequest() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val validators = HttpCacheValidators("\"v1\"", null)
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry("{}", 0L, validators)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        verify {
+            braintreeHttpClient.getConditional(
+                    "https://example.com/config?configVersion=3",
+                    authorization,
+                    validators,
+                    HttpClient.RETRY_MAX_3_TIMES,
+                    any()
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_savesResponseValidatorsToCache() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(any(), authorization, any(), any(), capture(callbackSlot))
+        }
+        val responseValidators = HttpCacheValidators("\"v2\"", null)
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, responseValidators, null)
+
+        verify {
+            configurationCache.saveConfiguration(any(), cacheKey, responseValidators)
+        }
+    }
+
+    @Test
+    fun loadConfiguration_onNotModified_extendsTimeToLiveWithoutParsing() {
+        val cacheKey = "https://example.com/configbearer"
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry(
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, 0L, HttpCacheValidators("\"v1\"", null)
+        )
+        val memoryCache = ConfigurationMemoryCache()
+        val expiredTimestamp = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10)
+        memoryCache.putConfiguration(configuration, "https://example.com/configbearer", expiredTimestamp)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, memoryCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(any(), authorization, any(), any(), capture(callbackSlot))
+        }
+        callbackSlot.captured.onResult(null, null, NotModifiedException("not modified"))
+
+        verify { callback.onResult(configuration, null) }
+        verify { configurationCache.refreshTimestamp(cacheKey, any()) }
+        verify(exactly = 0) { configurationCache.saveConfiguration(any(), any(), any()) }
+        assertEquals(0, memoryCache.parseCount)
+
+        // the refreshed entry is fresh again
+        sut.loadConfiguration(authorization, callback)
+        verify(exactly = 2) { callback.onResult(configuration, null) }
+        verify(exactly = 1) {
+            braintreeHttpClient.getConditional(any(), any(), any(), any(), any())
+        }
+    }
+
+    @Test
+    fun loadConfiguration_onNotModifiedWithoutCachedCopy_requestsConfigurationUnconditionally() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        val validators = HttpCacheValidators("\"v1\"", null)
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry("{}", 0L, validators)
+        every { configurationCache.refreshTimestamp(cacheKey, any()) } returns null
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, ConfigurationMemoryCache(), scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(any(), authorization, validators, any(), capture(callbackSlot))
+        }
+        callbackSlot.captured.onResult(null, null, NotModifiedException("not modified"))
+
+        verify {
+            braintreeHttpClient.getConditional(any(), authorization, null, any(), any())
+        }
+        verify(exactly = 0) { callback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun loadConfiguration_readsStoredConfigurationOnBackgroundThreadAndDeliversOnMain() {
+        val cacheKey = "https://example.com/configbearer"
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getEntry(cacheKey) } returns ConfigurationStore.Entry(
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, System.currentTimeMillis(), null
+        )
+        val backgroundSlot = slot<Runnable>()
+        val mainSlot = slot<Runnable>()
+        every { scheduler.runOnBackground(capture(backgroundSlot)) } returns Unit
+        every { scheduler.runOnMain(capture(mainSlot)) } returns Unit
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+        verify(exactly = 0) { configurationCache.getEntry(any()) }
+
+        backgroundSlot.captured.run()
+        verify(exactly = 1) { configurationCache.getEntry(cacheKey) }
+        verify(exactly = 0) { callback.onResult(any(), any()) }
+
+        mainSlot.captured.run()
+        verify { callback.onResult(ofType(Configuration::class), null) }
+    }
+
+    @Test
+    fun loadConfiguration_savesFetchedConfigurationOnBackgroundThread() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, configurationCache, scheduler = scheduler)
+        sut.loadConfiguration(authorization, callback)
+
+        val callbackSlot = slot<ConditionalHttpResponseCallback>()
+        verify {
+            braintreeHttpClient.getConditional(any(), authorization, any(), any(), capture(callbackSlot))
+        }
+        val backgroundSlot = slot<Runnable>()
+        every { scheduler.runOnBackground(capture(backgroundSlot)) } returns Unit
+        callbackSlot.captured.onResult(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, null, null)
+
         verify { callback.onResult(ofType(Configuration::class), null) }
+        verify(exactly = 0) { configurationCache.saveConfiguration(any(), any(), any()) }
+
+        backgroundSlot.captured.run()
+        verify { configurationCache.saveConfiguration(ofType(Configuration::class), any(), null) }
     }
 }
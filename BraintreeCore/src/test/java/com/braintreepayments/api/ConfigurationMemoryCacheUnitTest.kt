@@ -0,0 +1,106 @@
+package com.braintreepayments.api
+
+import com.braintreepayments.api.Configuration.Companion.fromJson
+import org.json.JSONException
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.fail
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigurationMemoryCacheUnitTest {
+
+    @Test
+    fun getConfiguration_returnsSameParsedConfigurationAndRecordsHit() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationMemoryCache()
+        sut.putConfiguration(configuration, "cacheKey", 0)
+
+        assertSame(configuration, sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(5) - 1))
+        assertEquals(1, sut.hitCount)
+        assertEquals(0, sut.missCount)
+    }
+
+    @Test
+    fun getConfiguration_whenNotCached_returnsNullAndRecordsMiss() {
+        val sut = ConfigurationMemoryCache()
+
+        assertNull(sut.getConfiguration("cacheKey", 0))
+        assertEquals(0, sut.hitCount)
+        assertEquals(1, sut.missCount)
+    }
+
+    @Test
+    fun getConfiguration_whenCacheEntryExpires_returnsNull() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationMemoryCache()
+        sut.putConfiguration(configuration, "cacheKey", 0)
+
+        assertNull(sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(5)))
+        assertEquals(1, sut.missCount)
+    }
+
+    @Test
+    fun remove_dropsOnlyEntryForKey() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationMemoryCache()
+        sut.putConfiguration(configuration, "cacheKey1", 0)
+        sut.putConfiguration(configuration, "cacheKey2", 0)
+
+        sut.remove("cacheKey1")
+
+        assertNull(sut.getConfiguration("cacheKey1", 1))
+        assertSame(configuration, sut.getConfiguration("cacheKey2", 1))
+    }
+
+    @Test
+    fun refreshConfiguration_restartsTimeToLiveOfExpiredEntry() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationMemoryCache()
+        sut.putConfiguration(configuration, "cacheKey", 0)
+
+        val refreshedAt = TimeUnit.DAYS.toMillis(2)
+        assertSame(configuration, sut.refreshConfiguration("cacheKey", refreshedAt))
+        assertSame(configuration, sut.getConfiguration("cacheKey", refreshedAt + 1))
+    }
+
+    @Test
+    fun refreshConfiguration_whenNotCached_returnsNull() {
+        val sut = ConfigurationMemoryCache()
+
+        assertNull(sut.refreshConfiguration("cacheKey", 0))
+    }
+
+    @Test
+    fun putConfiguration_whenFull_evictsLeastRecentlyUsedEntry() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationMemoryCache(2)
+        sut.putConfiguration(configuration, "first", 0)
+        sut.putConfiguration(configuration, "second", 0)
+        sut.getConfiguration("first", 0)
+        sut.putConfiguration(configuration, "third", 0)
+
+        assertSame(configuration, sut.getConfiguration("first", 0))
+        assertNull(sut.getConfiguration("second", 0))
+        assertSame(configuration, sut.getConfiguration("third", 0))
+    }
+
+    @Test
+    fun parseConfiguration_recordsParseCount() {
+        val sut = ConfigurationMemoryCache()
+        sut.parseConfiguration(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+
+        try {
+            sut.parseConfiguration("not json")
+            fail("expected JSONException")
+        } catch (e: JSONException) {
+            // expected
+        }
+
+        assertEquals(2, sut.parseCount)
+    }
+}
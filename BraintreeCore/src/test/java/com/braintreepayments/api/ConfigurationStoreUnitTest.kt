@@ -0,0 +1,251 @@
+package com.braintreepayments.api
+
+import android.os.FileObserver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.io.RandomAccessFile
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigurationStoreUnitTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private lateinit var directory: File
+
+    @Before
+    fun beforeEach() {
+        directory = temporaryFolder.newFolder()
+    }
+
+    @Test
+    fun put_storesEachEntryInItsOwnFile() {
+        val sut = ConfigurationStore(directory)
+
+        sut.put("key1", ConfigurationStore.Entry("configuration1", 1L, null))
+        sut.put("key2", ConfigurationStore.Entry("configuration2", 2L, null))
+
+        assertEquals(2, entryFiles().size)
+        assertEquals("configuration1", sut.get("key1")?.configuration)
+        assertEquals("configuration2", sut.get("key2")?.configuration)
+    }
+
+    @Test
+    fun put_whenEntryExists_replacesIt() {
+        val sut = ConfigurationStore(directory)
+
+        sut.put("key", ConfigurationStore.Entry("configuration1", 1L, null))
+        sut.put("key", ConfigurationStore.Entry("configuration2", 2L, null))
+
+        assertEquals(1, entryFiles().size)
+        assertEquals("configuration2", sut.get("key")?.configuration)
+        assertEquals(2L, sut.get("key")?.timestamp)
+    }
+
+    @Test
+    fun put_whenMaxEntriesIsExceeded_evictsLeastRecentlySavedEntries() {
+        val sut = ConfigurationStore(directory, maxEntries = 2)
+
+        sut.put("key1", ConfigurationStore.Entry("configuration1", 1L, null))
+        sut.put("key2", ConfigurationStore.Entry("configuration2", 2L, null))
+        sut.put("key3", ConfigurationStore.Entry("configuration3", 3L, null))
+
+        assertNull(sut.get("key1"))
+        assertNotNull(sut.get("key2"))
+        assertNotNull(sut.get("key3"))
+    }
+
+    @Test
+    fun put_whenMaxBytesIsExceeded_evictsLeastRecentlySavedEntries() {
+        val sut = ConfigurationStore(directory, maxBytes = 3000)
+        val configuration = "a".repeat(1000)
+
+        for (i in 1..4) {
+            sut.put("key$i", ConfigurationStore.Entry(configuration, i.toLong(), null))
+        }
+
+        assertNull(sut.get("key1"))
+        assertNull(sut.get("key2"))
+        assertNotNull(sut.get("key3"))
+        assertNotNull(sut.get("key4"))
+    }
+
+    @Test
+    fun put_evictsEntriesOlderThanMaxAge() {
+        val sut = ConfigurationStore(directory, maxAgeMillis = TimeUnit.DAYS.toMillis(1))
+
+        sut.put("key1", ConfigurationStore.Entry("configuration1", 0L, null))
+        sut.put("key2", ConfigurationStore.Entry("configuration2", TimeUnit.DAYS.toMillis(1), null))
+
+        assertNull(sut.get("key1"))
+        assertNotNull(sut.get("key2"))
+    }
+
+    @Test
+    fun get_returnsValidators() {
+        val sut = ConfigurationStore(directory)
+        val validators = HttpCacheValidators(null, "Wed, 21 Oct 2015 07:28:00 GMT")
+
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, validators))
+
+        val entry = sut.get("key")
+        assertNull(entry?.validators?.entityTag)
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry?.validators?.lastModified)
+    }
+
+    @Test
+    fun get_whenEntryIsCorrupt_removesEntryAndReturnsNull() {
+        val sut = ConfigurationStore(directory)
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+        entryFiles().single().writeBytes(byteArrayOf(0, 0, 0, 1, 0))
+
+        assertNull(sut.get("key"))
+        assertEquals(0, entryFiles().size)
+    }
+
+    @Test
+    fun clear_removesAllEntries() {
+        val sut = ConfigurationStore(directory)
+        sut.put("key1", ConfigurationStore.Entry("configuration1", 1L, null))
+        sut.put("key2", ConfigurationStore.Entry("configuration2", 2L, null))
+
+        sut.clear()
+
+        assertNull(sut.get("key1"))
+        assertEquals(0, entryFiles().size)
+    }
+
+    @Test
+    fun enableMultiProcessMode_readsAndWritesEntriesUnderLockFile() {
+        val sut = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+
+        assertEquals("configuration", sut.get("key")?.configuration)
+        assertTrue(File(directory, "store.lock").exists())
+        assertEquals(1, entryFiles().size)
+    }
+
+    @Test
+    fun enableMultiProcessMode_sharesEntriesWithOtherStoresForSameDirectory() {
+        val sut = ConfigurationStore(directory)
+        val otherProcessStore = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        otherProcessStore.enableMultiProcessMode { }
+
+        otherProcessStore.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+
+        assertEquals("configuration", sut.get("key")?.configuration)
+    }
+
+    @Test
+    fun enableMultiProcessMode_whenDirectoryDoesNotExist_createsIt() {
+        val sut = ConfigurationStore(File(directory, "missing"))
+
+        sut.enableMultiProcessMode { }
+
+        assertTrue(File(directory, "missing").isDirectory)
+    }
+
+    @Test
+    fun onFileChanged_whenEntryWasWrittenByThisStore_doesNotReportChange() {
+        val sut = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+        val changedKeys = mutableListOf<String>()
+
+        sut.onFileChanged(FileObserver.MOVED_TO, entryFiles()[0].name) { changedKeys.add(it) }
+
+        assertTrue(changedKeys.isEmpty())
+    }
+
+    @Test
+    fun onFileChanged_whenEntryWasWrittenByOtherStore_reportsChangedKey() {
+        val sut = ConfigurationStore(directory)
+        val otherProcessStore = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        otherProcessStore.enableMultiProcessMode { }
+        sut.put("key", ConfigurationStore.Entry("configuration1", 1L, null))
+        otherProcessStore.put("key", ConfigurationStore.Entry("configuration2", 2L, null))
+        val changedKeys = mutableListOf<String>()
+
+        sut.onFileChanged(FileObserver.MOVED_TO, entryFiles()[0].name) { changedKeys.add(it) }
+
+        assertEquals(listOf("key"), changedKeys)
+    }
+
+    @Test
+    fun onFileChanged_whenEntryWasDeletedByThisStore_doesNotReportChange() {
+        val sut = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+        val fileName = entryFiles()[0].name
+        sut.clear()
+        val changedKeys = mutableListOf<String>()
+
+        sut.onFileChanged(FileObserver.DELETE, fileName) { changedKeys.add(it) }
+
+        assertTrue(changedKeys.isEmpty())
+    }
+
+    @Test
+    fun onFileChanged_whenEntryWasDeletedByOtherStore_reportsChangedKey() {
+        val sut = ConfigurationStore(directory)
+        val otherProcessStore = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        otherProcessStore.enableMultiProcessMode { }
+        sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+        val fileName = entryFiles()[0].name
+        otherProcessStore.clear()
+        val changedKeys = mutableListOf<String>()
+
+        sut.onFileChanged(FileObserver.DELETE, fileName) { changedKeys.add(it) }
+
+        assertEquals(listOf("key"), changedKeys)
+    }
+
+    @Test
+    fun onFileChanged_whenKeyOfEntryIsUnknown_doesNotReportChange() {
+        val sut = ConfigurationStore(directory)
+        val otherProcessStore = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+        otherProcessStore.enableMultiProcessMode { }
+        otherProcessStore.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+        val changedKeys = mutableListOf<String>()
+
+        sut.onFileChanged(FileObserver.MOVED_TO, entryFiles()[0].name) { changedKeys.add(it) }
+
+        assertTrue(changedKeys.isEmpty())
+    }
+
+    @Test
+    fun put_whenLockIsHeldElsewhere_givesUpInsteadOfBlocking() {
+        val sut = ConfigurationStore(directory)
+        sut.enableMultiProcessMode { }
+
+        RandomAccessFile(File(directory, "store.lock"), "rw").use { lockFile ->
+            val lock = lockFile.channel.lock()
+            try {
+                sut.put("key", ConfigurationStore.Entry("configuration", 1L, null))
+                assertNull(sut.get("key"))
+            } finally {
+                lock.release()
+            }
+        }
+
+        assertEquals(0, entryFiles().size)
+    }
+
+    private fun entryFiles() = directory.listFiles { file -> file.name.endsWith(".config") }!!
+}
@@ -360,6 +360,19 @@ class ConfigurationUnitTest {
         assertEquals(expected, sut.googlePaySupportedNetworks)
     }
 
+    @Test
+    fun googlePaySupportedNetworks_whenReadConcurrently_parsesGooglePaySectionOnce() {
+        val sut = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        val results = Collections.synchronizedList(mutableListOf<List<String>>())
+        val threads = List(4) { Thread { results.add(sut.googlePaySupportedNetworks) } }
+
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertEquals(4, results.size)
+        results.forEach { assertSame(sut.googlePaySupportedNetworks, it) }
+    }
+
     @Test
     fun googlePayPayPalClientId_forwardsValuesFromConfiguration() {
         val sut = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
@@ -394,6 +407,12 @@ class ConfigurationUnitTest {
         assertEquals(expected, sut.samsungPaySupportedCardBrands)
     }
 
+    @Test
+    fun samsungPaySupportedCardBrands_returnsSameListOnEveryAccess() {
+        val sut = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_SAMSUNGPAY)
+        assertSame(sut.samsungPaySupportedCardBrands, sut.samsungPaySupportedCardBrands)
+    }
+
     @Test
     fun samsungPayAuthorization_forwardsValueFromConfiguration() {
         val sut = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_SAMSUNGPAY)
@@ -0,0 +1,55 @@
+package com.braintreepayments.api
+
+import androidx.fragment.app.Fragment
+import androidx.fragment.app.FragmentActivity
+import androidx.lifecycle.LifecycleOwner
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class LifecycleHelperUnitTest {
+
+    @Test
+    fun isChangingConfigurations_whenActivityIsChangingConfigurations_returnsTrue() {
+        val activity = mockk<FragmentActivity>()
+        every { activity.isChangingConfigurations } returns true
+
+        assertTrue(LifecycleHelper.isChangingConfigurations(activity))
+    }
+
+    @Test
+    fun isChangingConfigurations_whenActivityOfFragmentIsChangingConfigurations_returnsTrue() {
+        val activity = mockk<FragmentActivity>()
+        every { activity.isChangingConfigurations } returns true
+        val fragment = mockk<Fragment>()
+        every { fragment.activity } returns activity
+
+        assertTrue(LifecycleHelper.isChangingConfigurations(fragment))
+    }
+
+    @Test
+    fun isChangingConfigurations_whenActivityIsFinishing_returnsFalse() {
+        val activity = mockk<FragmentActivity>()
+        every { activity.isChangingConfigurations } returns false
+
+        assertFalse(LifecycleHelper.isChangingConfigurations(activity))
+    }
+
+    @Test
+    fun isChangingConfigurations_whenFragmentIsDetached_returnsFalse() {
+        val fragment = mockk<Fragment>()
+        every { fragment.activity } returns null
+
+        assertFalse(LifecycleHelper.isChangingConfigurations(fragment))
+    }
+
+    @Test
+    fun isChangingConfigurations_whenOwnerHasNoActivity_returnsFalse() {
+        assertFalse(LifecycleHelper.isChangingConfigurations(mockk<LifecycleOwner>()))
+    }
+}
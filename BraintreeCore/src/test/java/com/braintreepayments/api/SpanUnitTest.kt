@@ -0,0 +1,115 @@
+package com.braintreepayments.api
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+class SpanUnitTest {
+
+    private lateinit var clock: FakeClock
+    private lateinit var spans: MutableList<TraceSpan>
+    private lateinit var tracer: BraintreeTracer
+
+    @Before
+    fun beforeEach() {
+        clock = FakeClock()
+        spans = mutableListOf()
+        tracer = BraintreeTracer { spans.add(it) }
+    }
+
+    @Test
+    fun start_withoutTracer_returnsDisabledSpan() {
+        val sut = Span.start(null, "card.tokenize")
+
+        assertSame(Span.DISABLED, sut)
+        assertFalse(sut.isEnabled)
+        assertSame(Span.DISABLED, sut.startChild("http"))
+    }
+
+    @Test
+    fun end_reportsSpanWithDurationAndAttributes() {
+        val sut = Span.start(tracer, "card.tokenize", clock)
+        assertTrue(sut.isEnabled)
+        sut.setAttribute("transport", "graphql")
+        clock.advance(25)
+
+        sut.end()
+
+        assertEquals(1, spans.size)
+        val span = spans[0]
+        assertEquals("card.tokenize", span.name)
+        assertEquals(1000L, span.startTimeMillis)
+        assertEquals(25L, span.durationMillis)
+        assertEquals(mapOf("transport" to "graphql"), span.attributes)
+        assertNull(span.parentSpanId)
+        assertNull(span.error)
+    }
+
+    @Test
+    fun startChild_sharesTraceIdAndReferencesParent() {
+        val sut = Span.start(tracer, "card.tokenize", clock)
+        val child = sut.startChild("http")
+        clock.advance(10)
+
+        child.end()
+        sut.end()
+
+        val childSpan = spans[0]
+        val rootSpan = spans[1]
+        assertEquals("http", childSpan.name)
+        assertEquals(rootSpan.traceId, childSpan.traceId)
+        assertEquals(rootSpan.spanId, childSpan.parentSpanId)
+        assertEquals(10L, childSpan.durationMillis)
+    }
+
+    @Test
+    fun end_reportsError() {
+        val error = Exception("error")
+        val sut = Span.start(tracer, "card.tokenize", clock)
+
+        sut.end(error)
+
+        assertSame(error, spans[0].error)
+    }
+
+    @Test
+    fun end_whenCalledTwice_reportsSpanOnce() {
+        val sut = Span.start(tracer, "card.tokenize", clock)
+
+        sut.end()
+        sut.end(Exception("error"))
+
+        assertEquals(1, spans.size)
+        assertNull(spans[0].error)
+    }
+
+    @Test
+    fun end_whenTracerThrows_doesNotPropagateException() {
+        val sut = Span.start(BraintreeTracer { throw IllegalStateException() }, "card.tokenize", clock)
+
+        sut.end()
+    }
+
+    private class FakeClock : Span.Clock {
+
+        private var nanoTime = TimeUnit.SECONDS.toNanos(1)
+        private var currentTimeMillis = 1000L
+
+        fun advance(millis: Long) {
+            nanoTime += TimeUnit.MILLISECONDS.toNanos(millis)
+            currentTimeMillis += millis
+        }
+
+        override fun currentTimeMillis() = currentTimeMillis
+
+        override fun nanoTime() = nanoTime
+    }
+}
@@ -0,0 +1,16 @@
+package com.braintreepayments.api
+
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class TLSCertificatePinningUnitTest {
+
+    @Test
+    fun socketFactory_isSharedAcrossAccesses() {
+        val socketFactory = TLSCertificatePinning.socketFactory
+
+        assertNotNull(socketFactory.trustManager)
+        assertSame(socketFactory, TLSCertificatePinning.socketFactory)
+    }
+}
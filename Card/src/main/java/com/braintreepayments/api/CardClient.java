@@ -13,9 +13,13 @@ import org.json.JSONObject;
  */
 public class CardClient {
 
+    static final long DEFAULT_TOKENIZATION_TIMEOUT_MS = 60000;
+
     private final BraintreeClient braintreeClient;
     private final ApiClient apiClient;
 
+    private long tokenizationTimeoutMillis = DEFAULT_TOKENIZATION_TIMEOUT_MS;
+
     public CardClient(@NonNull BraintreeClient braintreeClient) {
         this(braintreeClient, new ApiClient(braintreeClient));
     }
@@ -26,6 +30,17 @@ public class CardClient {
         this.apiClient = apiClient;
     }
 
+    /**
+     * Set the time {@link CardClient#tokenize(Card, CardTokenizeCallback)} may take to fetch
+     * configuration and tokenize the card before it fails with a
+     * {@link DeadlineExceededException}. Defaults to 60 seconds.
+     *
+     * @param timeoutMillis the tokenization budget in milliseconds
+     */
+    public void setTokenizationTimeout(long timeoutMillis) {
+        this.tokenizationTimeoutMillis = timeoutMillis;
+    }
+
     /**
      * Create a {@link CardNonce}.
      * <p>
@@ -47,55 +62,104 @@ public class CardClient {
      * @param callback {@link CardTokenizeCallback}
      */
     public void tokenize(@NonNull final Card card, @NonNull final CardTokenizeCallback callback) {
-        braintreeClient.getConfiguration(new ConfigurationCallback() {
+        tokenizeCancellable(card, callback);
+    }
+
+    /**
+     * Same as {@link #tokenize(Card, CardTokenizeCallback)}, returning a handle that cancels the
+     * tokenization request. Once cancelled, the callback receives a
+     * {@link RequestCancelledException}.
+     */
+    RequestHandle tokenizeCancellable(@NonNull final Card card, @NonNull final CardTokenizeCallback callback) {
+        final RequestHandle handle = new RequestHandle();
+        final Span span = Span.start(braintreeClient.getTracer(), "card.tokenize");
+        // configuration and tokenization share one budget
+        final Deadline deadline = Deadline.after(tokenizationTimeoutMillis);
+        final Span configurationSpan = span.startChild("configuration");
+        braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
             @Override
             public void onResult(@Nullable Configuration configuration, @Nullable Exception error) {
+                configurationSpan.end(error);
+                if (handle.isCancelled()) {
+                    RequestCancelledException cancellation =
+                            new RequestCancelledException(RequestHandle.CANCELLED_MESSAGE);
+                    span.end(cancellation);
+                    callback.onResult(null, cancellation);
+                    return;
+                }
                 if (error != null) {
+                    span.end(error);
                     callback.onResult(null, error);
                     return;
                 }
 
                 boolean shouldTokenizeViaGraphQL =
                     configuration.isGraphQLFeatureEnabled(GraphQLConstants.Features.TOKENIZE_CREDIT_CARDS);
+                span.setAttribute("transport", shouldTokenizeViaGraphQL ? "graphql" : "rest");
 
+                final Span httpSpan = span.startChild("http");
                 if (shouldTokenizeViaGraphQL) {
                     card.setSessionId(braintreeClient.getSessionId());
                     try {
                         JSONObject tokenizePayload = card.buildJSONForGraphQL();
-                        apiClient.tokenizeGraphQL(tokenizePayload, new TokenizeCallback() {
+                        RequestHandle requestHandle = apiClient.tokenizeGraphQL(tokenizePayload, deadline, new TokenizeCallback() {
                             @Override
                             public void onResult(JSONObject tokenizationResponse, Exception exception) {
-                                handleTokenizeResponse(tokenizationResponse, exception, callback);
+                                httpSpan.end(exception);
+                                handleTokenizeResponse(tokenizationResponse, exception, span, callback);
                             }
                         });
+                        cancelWith(handle, requestHandle);
                     } catch (BraintreeException | JSONException e) {
+                        httpSpan.end(e);
+                        span.end(e);
                         callback.onResult(null, e);
                     }
                 } else {
-                    apiClient.tokenizeREST(card, new TokenizeCallback() {
+                    RequestHandle requestHandle = apiClient.tokenizeREST(card, deadline, new TokenizeCallback() {
                         @Override
                         public void onResult(JSONObject tokenizationResponse, Exception exception) {
-                            handleTokenizeResponse(tokenizationResponse, exception, callback);
+                            httpSpan.end(exception);
+                            handleTokenizeResponse(tokenizationResponse, exception, span, callback);
                         }
                     });
+                    cancelWith(handle, requestHandle);
                 }
             }
         });
+        return handle;
+    }
+
+    private static void cancelWith(RequestHandle handle, @Nullable final RequestHandle requestHandle) {
+        if (requestHandle != null) {
+            handle.setCancelAction(new Runnable() {
+                @Override
+                public void run() {
+                    requestHandle.cancel();
+                }
+            });
+        }
     }
 
-    private void handleTokenizeResponse(JSONObject tokenizationResponse, Exception exception, CardTokenizeCallback callback) {
+    private void handleTokenizeResponse(JSONObject tokenizationResponse, Exception exception, Span span, CardTokenizeCallback callback) {
         if (tokenizationResponse != null) {
+            Span parseSpan = span.startChild("parse");
             try {
                 CardNonce cardNonce = CardNonce.fromJSON(tokenizationResponse);
+                parseSpan.end();
+                span.end();
 
                 callback.onResult(cardNonce, null);
                 braintreeClient.sendAnalyticsEvent("card.nonce-received");
 
             } catch (JSONException e) {
+                parseSpan.end(e);
+                span.end(e);
                 callback.onResult(null, e);
                 braintreeClient.sendAnalyticsEvent("card.nonce-failed");
             }
         } else {
+            span.end(exception);
             callback.onResult(null, exception);
             braintreeClient.sendAnalyticsEvent("card.nonce-failed");
         }
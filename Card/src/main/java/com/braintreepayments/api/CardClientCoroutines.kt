@@ -0,0 +1,16 @@
+@file:JvmName("CardClientCoroutines")
+
+package com.braintreepayments.api
+
+/**
+ * Create a [CardNonce], suspending until tokenization completes. Cancelling the calling coroutine
+ * cancels the tokenization request.
+ *
+ * @param card [Card]
+ * @return the [CardNonce]
+ * @throws ErrorWithResponse if the card fails validation
+ * @throws Exception the error that occurred while tokenizing the card
+ */
+suspend fun CardClient.tokenize(card: Card): CardNonce = awaitResult { callback ->
+    tokenizeCancellable(card) { cardNonce, error -> callback(cardNonce, error) }
+}
@@ -0,0 +1,52 @@
+package com.braintreepayments.api
+
+import kotlinx.coroutines.runBlocking
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class CardClientCoroutinesUnitTest {
+
+    private lateinit var braintreeClient: BraintreeClient
+
+    @Before
+    fun beforeEach() {
+        braintreeClient = MockBraintreeClientBuilder()
+            .configuration(Configuration.fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN))
+            .build()
+    }
+
+    @Test
+    fun tokenize_returnsCardNonce() = runBlocking {
+        val apiClient = MockApiClientBuilder()
+            .tokenizeRESTSuccess(JSONObject(Fixtures.PAYMENT_METHODS_RESPONSE_VISA_CREDIT_CARD))
+            .build()
+        val sut = CardClient(braintreeClient, apiClient)
+
+        val cardNonce = sut.tokenize(Card())
+
+        assertEquals("123456-12345-12345-a-adfa", cardNonce.string)
+    }
+
+    @Test
+    fun tokenize_whenTokenizationFails_throwsError() = runBlocking {
+        val error = ErrorWithResponse(422, "")
+        val apiClient = MockApiClientBuilder()
+            .tokenizeRESTError(error)
+            .build()
+        val sut = CardClient(braintreeClient, apiClient)
+
+        try {
+            sut.tokenize(Card())
+            fail("Expected tokenize to throw")
+        } catch (e: ErrorWithResponse) {
+            assertSame(error, e)
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.braintreepayments.api;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -20,6 +27,8 @@ import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class CardClientUnitTest {
 
@@ -58,7 +67,7 @@ public class CardClientUnitTest {
 
         InOrder inOrder = Mockito.inOrder(card, apiClient);
         inOrder.verify(card).setSessionId("session-id");
-        inOrder.verify(apiClient).tokenizeGraphQL(any(JSONObject.class), any(TokenizeCallback.class));
+        inOrder.verify(apiClient).tokenizeGraphQL(any(JSONObject.class), any(Deadline.class), any(TokenizeCallback.class));
     }
 
     @Test
@@ -215,4 +224,105 @@ public class CardClientUnitTest {
 
         verify(cardTokenizeCallback).onResult(null, configError);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void tokenize_whenTracerIsSet_reportsSpanForEachStage() throws JSONException {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLDisabledConfig)
+                .build();
+        BraintreeTracer tracer = mock(BraintreeTracer.class);
+        when(braintreeClient.getTracer()).thenReturn(tracer);
+
+        apiClient = new MockApiClientBuilder()
+                .tokenizeRESTSuccess(new JSONObject(Fixtures.PAYMENT_METHODS_RESPONSE_VISA_CREDIT_CARD))
+                .build();
+
+        CardClient sut = new CardClient(braintreeClient, apiClient);
+        sut.tokenize(card, cardTokenizeCallback);
+
+        ArgumentCaptor<TraceSpan> captor = ArgumentCaptor.forClass(TraceSpan.class);
+        verify(tracer, times(4)).onSpanEnd(captor.capture());
+        List<TraceSpan> spans = captor.getAllValues();
+        assertEquals("configuration", spans.get(0).getName());
+        assertEquals("http", spans.get(1).getName());
+        assertEquals("parse", spans.get(2).getName());
+
+        TraceSpan rootSpan = spans.get(3);
+        assertEquals("card.tokenize", rootSpan.getName());
+        assertEquals("rest", rootSpan.getAttributes().get("transport"));
+        assertNull(rootSpan.getError());
+        assertEquals(rootSpan.getSpanId(), spans.get(1).getParentSpanId());
+    }
+
+    @Test
+    public void tokenize_whenTracerIsSet_reportsErrorOnRootSpan() {
+        Exception error = new Exception();
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLEnabledConfig)
+                .build();
+        BraintreeTracer tracer = mock(BraintreeTracer.class);
+        when(braintreeClient.getTracer()).thenReturn(tracer);
+
+        apiClient = new MockApiClientBuilder()
+                .tokenizeGraphQLError(error)
+                .build();
+
+        CardClient sut = new CardClient(braintreeClient, apiClient);
+        sut.tokenize(card, cardTokenizeCallback);
+
+        ArgumentCaptor<TraceSpan> captor = ArgumentCaptor.forClass(TraceSpan.class);
+        verify(tracer, times(3)).onSpanEnd(captor.capture());
+        TraceSpan rootSpan = captor.getAllValues().get(2);
+        assertEquals("card.tokenize", rootSpan.getName());
+        assertEquals("graphql", rootSpan.getAttributes().get("transport"));
+        assertSame(error, rootSpan.getError());
+    }
+
+    @Test
+    public void tokenizeCancellable_whenCancelled_cancelsTokenizeRequest() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLDisabledConfig)
+                .build();
+        RequestHandle requestHandle = mock(RequestHandle.class);
+        when(apiClient.tokenizeREST(any(PaymentMethod.class), any(Deadline.class), any(TokenizeCallback.class)))
+                .thenReturn(requestHandle);
+
+        CardClient sut = new CardClient(braintreeClient, apiClient);
+        sut.tokenizeCancellable(card, cardTokenizeCallback).cancel();
+
+        verify(requestHandle).cancel();
+    }
+
+    @Test
+    public void tokenizeCancellable_whenCancelledBeforeConfigurationLoads_notifiesCallbackWithoutTokenizing() {
+        BraintreeClient braintreeClient = mock(BraintreeClient.class);
+
+        CardClient sut = new CardClient(braintreeClient, apiClient);
+        sut.tokenizeCancellable(card, cardTokenizeCallback).cancel();
+
+        ArgumentCaptor<ConfigurationCallback> captor =
+                ArgumentCaptor.forClass(ConfigurationCallback.class);
+        verify(braintreeClient).getConfiguration(any(Deadline.class), captor.capture());
+        captor.getValue().onResult(graphQLDisabledConfig, null);
+
+        verify(apiClient, never()).tokenizeREST(any(PaymentMethod.class), nullable(Deadline.class), any(TokenizeCallback.class));
+        verify(cardTokenizeCallback).onResult(isNull(), any(RequestCancelledException.class));
+    }
+
+    @Test
+    public void tokenize_boundsConfigurationAndTokenizationBySameDeadline() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLDisabledConfig)
+                .build();
+
+        CardClient sut = new CardClient(braintreeClient, apiClient);
+        sut.setTokenizationTimeout(5000);
+        sut.tokenize(card, cardTokenizeCallback);
+
+        ArgumentCaptor<Deadline> captor = ArgumentCaptor.forClass(Deadline.class);
+        verify(braintreeClient).getConfiguration(captor.capture(), any(ConfigurationCallback.class));
+        Deadline deadline = captor.getValue();
+        assertTrue(deadline.remainingMillis() <= 5000);
+        verify(apiClient).tokenizeREST(same(card), same(deadline), any(TokenizeCallback.class));
+    }
+}
@@ -21,10 +21,13 @@ import org.json.JSONObject;
  */
 public class PayPalClient {
 
+    static final long DEFAULT_PAYMENT_SETUP_TIMEOUT_MS = 60000;
+
     private final BraintreeClient braintreeClient;
     private final PayPalInternalClient internalPayPalClient;
 
     private PayPalListener listener;
+    private long paymentSetupTimeoutMillis = DEFAULT_PAYMENT_SETUP_TIMEOUT_MS;
 
     @VisibleForTesting
     BrowserSwitchResult pendingBrowserSwitchResult;
@@ -84,6 +87,18 @@ public class PayPalClient {
         }
     }
 
+    /**
+     * Set the time {@link PayPalClient#tokenizePayPalAccount(FragmentActivity, PayPalRequest)} may
+     * take to fetch configuration and create the PayPal payment before it fails with a
+     * {@link DeadlineExceededException}. The time the customer spends in the browser does not
+     * count towards this budget. Defaults to 60 seconds.
+     *
+     * @param timeoutMillis the payment setup budget in milliseconds
+     */
+    public void setPaymentSetupTimeout(long timeoutMillis) {
+        this.paymentSetupTimeoutMillis = timeoutMillis;
+    }
+
     private static boolean payPalConfigInvalid(Configuration configuration) {
         return (configuration == null || !configuration.isPayPalEnabled());
     }
@@ -206,9 +221,15 @@ public class PayPalClient {
             braintreeClient.sendAnalyticsEvent("paypal.single-payment.paylater.offered");
         }
 
-        braintreeClient.getConfiguration(new ConfigurationCallback() {
+        // configuration and payment resource creation share one budget
+        final Deadline deadline = Deadline.after(paymentSetupTimeoutMillis);
+        braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
             @Override
             public void onResult(@Nullable final Configuration configuration, @Nullable Exception error) {
+                if (error instanceof DeadlineExceededException) {
+                    callback.onResult(error);
+                    return;
+                }
                 if (payPalConfigInvalid(configuration)) {
                     Exception configInvalidError = createPayPalError();
                     callback.onResult(configInvalidError);
@@ -224,7 +245,7 @@ public class PayPalClient {
                     callback.onResult(manifestInvalidError);
                     return;
                 }
-                sendPayPalRequest(activity, payPalCheckoutRequest, callback);
+                sendPayPalRequest(activity, payPalCheckoutRequest, deadline, callback);
             }
         });
 
@@ -236,9 +257,15 @@ public class PayPalClient {
             braintreeClient.sendAnalyticsEvent("paypal.billing-agreement.credit.offered");
         }
 
-        braintreeClient.getConfiguration(new ConfigurationCallback() {
+        // configuration and payment resource creation share one budget
+        final Deadline deadline = Deadline.after(paymentSetupTimeoutMillis);
+        braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
             @Override
             public void onResult(@Nullable final Configuration configuration, @Nullable Exception error) {
+                if (error instanceof DeadlineExceededException) {
+                    callback.onResult(error);
+                    return;
+                }
                 if (payPalConfigInvalid(configuration)) {
                     Exception configInvalidError = createPayPalError();
                     callback.onResult(configInvalidError);
@@ -254,13 +281,13 @@ public class PayPalClient {
                     callback.onResult(manifestInvalidError);
                     return;
                 }
-                sendPayPalRequest(activity, payPalVaultRequest, callback);
+                sendPayPalRequest(activity, payPalVaultRequest, deadline, callback);
             }
         });
     }
 
-    private void sendPayPalRequest(final FragmentActivity activity, final PayPalRequest payPalRequest, final PayPalFlowStartedCallback callback) {
-        internalPayPalClient.sendRequest(activity, payPalRequest, new PayPalInternalClientCallback() {
+    private void sendPayPalRequest(final FragmentActivity activity, final PayPalRequest payPalRequest, final Deadline deadline, final PayPalFlowStartedCallback callback) {
+        internalPayPalClient.sendRequest(activity, payPalRequest, deadline, new PayPalInternalClientCallback() {
             @Override
             public void onResult(PayPalResponse payPalResponse, Exception error) {
                 if (payPalResponse != null) {
@@ -307,6 +334,16 @@ public class PayPalClient {
         return request instanceof PayPalVaultRequest ? "paypal.billing-agreement" : "paypal.single-payment";
     }
 
+    /**
+     * Cancel requests this client started that have not completed, e.g. when the screen hosting
+     * the payment flow is destroyed. Requests that other clients sent through the same
+     * {@link BraintreeClient} are left untouched. The callbacks of cancelled requests receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        internalPayPalClient.cancelPendingRequests();
+    }
+
     void onBrowserSwitchResult(@NonNull BrowserSwitchResult browserSwitchResult) {
         this.pendingBrowserSwitchResult = browserSwitchResult;
         if (listener != null) {
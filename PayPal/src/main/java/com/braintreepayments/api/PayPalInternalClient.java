@@ -3,6 +3,7 @@ package com.braintreepayments.api;
 import android.content.Context;
 import android.net.Uri;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
@@ -20,6 +21,7 @@ class PayPalInternalClient {
     private final BraintreeClient braintreeClient;
     private final PayPalDataCollector payPalDataCollector;
     private final ApiClient apiClient;
+    private final PendingRequests pendingRequests = new PendingRequests();
 
     PayPalInternalClient(BraintreeClient braintreeClient) {
         this(braintreeClient, new PayPalDataCollector(braintreeClient), new ApiClient(braintreeClient));
@@ -35,16 +37,32 @@ class PayPalInternalClient {
         this.successUrl = String.format("%s://onetouch/v1/success", braintreeClient.getReturnUrlScheme());
     }
 
-    void sendRequest(final Context context, final PayPalRequest payPalRequest, final PayPalInternalClientCallback callback) {
+    /**
+     * @param deadline deadline of the PayPal flow, or null for none
+     */
+    void sendRequest(final Context context, final PayPalRequest payPalRequest, @Nullable final Deadline deadline, final PayPalInternalClientCallback callback) {
+        final Span span = Span.start(braintreeClient.getTracer(), "paypal.send-request");
+        final PayPalInternalClientCallback tracedCallback = new PayPalInternalClientCallback() {
+            @Override
+            public void onResult(@Nullable PayPalResponse payPalResponse, @Nullable Exception error) {
+                span.end(error);
+                callback.onResult(payPalResponse, error);
+            }
+        };
+
+        final Span authorizationSpan = span.startChild("authorization");
         braintreeClient.getAuthorization(new AuthorizationCallback() {
             @Override
             public void onAuthorizationResult(@Nullable final Authorization authorization, @Nullable Exception authError) {
+                authorizationSpan.end(authError);
                 if (authorization != null) {
-                    braintreeClient.getConfiguration(new ConfigurationCallback() {
+                    final Span configurationSpan = span.startChild("configuration");
+                    braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
                         @Override
                         public void onResult(@Nullable final Configuration configuration, @Nullable Exception configError) {
+                            configurationSpan.end(configError);
                             if (configuration == null) {
-                                callback.onResult(null, configError);
+                                tracedCallback.onResult(null, configError);
                                 return;
                             }
                             try {
@@ -52,60 +70,72 @@ class PayPalInternalClient {
                                 String endpoint = isBillingAgreement
                                         ? SETUP_BILLING_AGREEMENT_ENDPOINT : CREATE_SINGLE_PAYMENT_ENDPOINT;
                                 String url = String.format("/v1/%s", endpoint);
+                                span.setAttribute("intent", isBillingAgreement ? "vault" : "checkout");
 
                                 String requestBody = payPalRequest.createRequestBody(configuration, authorization, successUrl, cancelUrl);
 
-                                braintreeClient.sendPOST(url, requestBody, new HttpResponseCallback() {
+                                final Span httpSpan = span.startChild("http");
+                                RequestHandle requestHandle = braintreeClient.sendPOST(url, requestBody, deadline, new DecodingHttpResponseCallback<PayPalPaymentResource>() {
 
                                     @Override
-                                    public void onResult(String responseBody, Exception httpError) {
-                                        if (responseBody != null) {
-                                            try {
-                                                PayPalResponse payPalResponse = new PayPalResponse(payPalRequest)
-                                                        .successUrl(successUrl);
-
-                                                PayPalPaymentResource paypalPaymentResource = PayPalPaymentResource.fromJson(responseBody);
-                                                String redirectUrl = paypalPaymentResource.getRedirectUrl();
-                                                if (redirectUrl != null) {
-                                                    Uri parsedRedirectUri = Uri.parse(redirectUrl);
-
-                                                    String pairingIdKey = isBillingAgreement ? "ba_token" : "token";
-                                                    String pairingId = parsedRedirectUri.getQueryParameter(pairingIdKey);
-                                                    String clientMetadataId = payPalRequest.getRiskCorrelationId() != null
-                                                            ? payPalRequest.getRiskCorrelationId() : payPalDataCollector.getClientMetadataId(context, configuration);
-
-                                                    if (pairingId != null) {
-                                                        payPalResponse
-                                                                .pairingId(pairingId)
-                                                                .clientMetadataId(clientMetadataId);
-                                                    }
-
-                                                    payPalResponse.approvalUrl(parsedRedirectUri.toString());
+                                    public PayPalPaymentResource decode(@NonNull String responseBody) throws JSONException {
+                                        httpSpan.end();
+                                        Span parseSpan = span.startChild("parse");
+                                        try {
+                                            PayPalPaymentResource paypalPaymentResource = PayPalPaymentResource.fromJson(responseBody);
+                                            parseSpan.end();
+                                            return paypalPaymentResource;
+                                        } catch (JSONException exception) {
+                                            parseSpan.end(exception);
+                                            throw exception;
+                                        }
+                                    }
+
+                                    @Override
+                                    public void onDecodedResult(@Nullable PayPalPaymentResource paypalPaymentResource, @Nullable Exception error) {
+                                        httpSpan.end(error);
+                                        if (paypalPaymentResource != null) {
+                                            PayPalResponse payPalResponse = new PayPalResponse(payPalRequest)
+                                                    .successUrl(successUrl);
+
+                                            String redirectUrl = paypalPaymentResource.getRedirectUrl();
+                                            if (redirectUrl != null) {
+                                                Uri parsedRedirectUri = Uri.parse(redirectUrl);
+
+                                                String pairingIdKey = isBillingAgreement ? "ba_token" : "token";
+                                                String pairingId = parsedRedirectUri.getQueryParameter(pairingIdKey);
+                                                String clientMetadataId = payPalRequest.getRiskCorrelationId() != null
+                                                        ? payPalRequest.getRiskCorrelationId() : payPalDataCollector.getClientMetadataId(context, configuration);
+
+                                                if (pairingId != null) {
+                                                    payPalResponse
+                                                            .pairingId(pairingId)
+                                                            .clientMetadataId(clientMetadataId);
                                                 }
-                                                callback.onResult(payPalResponse, null);
 
-                                            } catch (JSONException exception) {
-                                                callback.onResult(null, exception);
+                                                payPalResponse.approvalUrl(parsedRedirectUri.toString());
                                             }
+                                            tracedCallback.onResult(payPalResponse, null);
                                         } else {
-                                            callback.onResult(null, httpError);
+                                            tracedCallback.onResult(null, error);
                                         }
                                     }
                                 });
+                                pendingRequests.add(requestHandle);
                             } catch (JSONException exception) {
-                                callback.onResult(null, exception);
+                                tracedCallback.onResult(null, exception);
                             }
                         }
                     });
                 } else {
-                    callback.onResult(null, authError);
+                    tracedCallback.onResult(null, authError);
                 }
             }
         });
     }
 
     void tokenize(PayPalAccount payPalAccount, final PayPalBrowserSwitchResultCallback callback) {
-        apiClient.tokenizeREST(payPalAccount, new TokenizeCallback() {
+        RequestHandle requestHandle = apiClient.tokenizeREST(payPalAccount, new TokenizeCallback() {
             @Override
             public void onResult(JSONObject tokenizationResponse, Exception exception) {
                 if (tokenizationResponse != null) {
@@ -121,5 +151,14 @@ class PayPalInternalClient {
                 }
             }
         });
+        pendingRequests.add(requestHandle);
+    }
+
+    /**
+     * Cancel the requests sent by this client that have not completed. Their callbacks receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        pendingRequests.cancelAll();
     }
 }
@@ -1,5 +1,6 @@
 package com.braintreepayments.api;
 
+import static androidx.lifecycle.Lifecycle.Event.ON_DESTROY;
 import static androidx.lifecycle.Lifecycle.Event.ON_RESUME;
 
 import static com.braintreepayments.api.BraintreeRequestCodes.PAYPAL;
@@ -77,6 +78,8 @@ class PayPalLifecycleObserver implements LifecycleEventObserver {
                     }
                 });
             }
+        } else if (event == ON_DESTROY && !LifecycleHelper.isChangingConfigurations(lifecycleOwner)) {
+            payPalClient.cancelPendingRequests();
         }
     }
 }
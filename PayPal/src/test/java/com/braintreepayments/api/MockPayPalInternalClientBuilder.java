@@ -1,6 +1,7 @@
 package com.braintreepayments.api;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -36,7 +37,7 @@ public class MockPayPalInternalClientBuilder {
         doAnswer(new Answer<Void>() {
             @Override
             public Void answer(InvocationOnMock invocation) {
-                PayPalInternalClientCallback callback = (PayPalInternalClientCallback) invocation.getArguments()[2];
+                PayPalInternalClientCallback callback = (PayPalInternalClientCallback) invocation.getArguments()[3];
                 if (successResponse != null) {
                     callback.onResult(successResponse, null);
                 } else if (error != null) {
@@ -44,7 +45,7 @@ public class MockPayPalInternalClientBuilder {
                 }
                 return null;
             }
-        }).when(payPalInternalClient).sendRequest(any(Context.class), any(PayPalRequest.class), any(PayPalInternalClientCallback.class));
+        }).when(payPalInternalClient).sendRequest(any(Context.class), any(PayPalRequest.class), nullable(Deadline.class), any(PayPalInternalClientCallback.class));
 
         doAnswer(new Answer<Void>() {
             @Override
@@ -332,6 +332,43 @@ public class PayPalClientUnitTest {
         assertEquals("authorize", metadata.get("intent"));
     }
 
+    @Test
+    public void tokenizePayPalAccount_boundsConfigurationAndPaymentResourceBySameDeadline() {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(payPalEnabledConfig)
+                .build();
+
+        PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
+
+        PayPalClient sut = new PayPalClient(activity, lifecycle, braintreeClient, payPalInternalClient);
+        sut.setPaymentSetupTimeout(5000);
+        sut.tokenizePayPalAccount(activity, payPalRequest);
+
+        ArgumentCaptor<Deadline> captor = ArgumentCaptor.forClass(Deadline.class);
+        verify(braintreeClient).getConfiguration(captor.capture(), any(ConfigurationCallback.class));
+        Deadline deadline = captor.getValue();
+        assertTrue(deadline.remainingMillis() <= 5000);
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), same(deadline), any(PayPalInternalClientCallback.class));
+    }
+
+    @Test
+    public void tokenizePayPalAccount_whenConfigurationMissesDeadline_forwardsDeadlineErrorToListener() {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+
+        DeadlineExceededException deadlineError = new DeadlineExceededException("deadline exceeded");
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configurationError(deadlineError)
+                .build();
+
+        PayPalClient sut = new PayPalClient(activity, lifecycle, braintreeClient, payPalInternalClient);
+        sut.setListener(listener);
+        sut.tokenizePayPalAccount(activity, new PayPalVaultRequest());
+
+        verify(listener).onPayPalFailure(deadlineError);
+    }
+
     @Test
     public void requestOneTimePayment_whenPayPalNotEnabled_returnsErrorToListener() {
         PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
@@ -426,7 +463,7 @@ public class PayPalClientUnitTest {
         PayPalClient sut = new PayPalClient(activity, lifecycle, braintreeClient, payPalInternalClient);
         sut.tokenizePayPalAccount(activity, payPalRequest);
 
-        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), any(PayPalInternalClientCallback.class));
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), any(Deadline.class), any(PayPalInternalClientCallback.class));
     }
 
     @Test
@@ -442,7 +479,7 @@ public class PayPalClientUnitTest {
         PayPalClient sut = new PayPalClient(activity, lifecycle, braintreeClient, payPalInternalClient);
         sut.tokenizePayPalAccount(activity, payPalRequest);
 
-        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), any(PayPalInternalClientCallback.class));
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), any(Deadline.class), any(PayPalInternalClientCallback.class));
     }
 
     @Test
@@ -10,6 +10,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,6 +28,7 @@ import org.skyscreamer.jsonassert.JSONAssert;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
 public class PayPalInternalClientUnitTest {
@@ -85,10 +87,10 @@ public class PayPalInternalClientUnitTest {
         payPalRequest.setShouldOfferCredit(true);
         payPalRequest.setShippingAddressOverride(shippingAddressOverride);
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/setup_billing_agreement"), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/setup_billing_agreement"), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -159,10 +161,10 @@ public class PayPalInternalClientUnitTest {
         payPalRequest.setLineItems(Collections.singletonList(item));
         payPalRequest.setShippingAddressOverride(shippingAddressOverride);
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/create_payment_resource"), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/create_payment_resource"), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -217,10 +219,10 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -240,10 +242,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setDisplayName("");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -262,10 +264,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setLocaleCode(null);
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -284,10 +286,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setMerchantAccountId(null);
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -306,10 +308,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setShippingAddressOverride(null);
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -331,10 +333,10 @@ public class PayPalInternalClientUnitTest {
         payPalRequest.setShippingAddressEditable(false);
         payPalRequest.setShippingAddressOverride(new PostalAddress());
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/setup_billing_agreement"), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(eq("/v1/paypal_hermes/setup_billing_agreement"), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -353,10 +355,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setBillingAgreementDescription("");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -374,10 +376,10 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -396,10 +398,10 @@ public class PayPalInternalClientUnitTest {
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
         payPalRequest.setLineItems(new ArrayList<PayPalLineItem>());
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -422,7 +424,7 @@ public class PayPalInternalClientUnitTest {
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
         payPalRequest.setRiskCorrelationId("risk-correlation-id");
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<PayPalResponse> captor = ArgumentCaptor.forClass(PayPalResponse.class);
         verify(payPalInternalClientCallback).onResult(captor.capture(), isNull());
@@ -445,7 +447,7 @@ public class PayPalInternalClientUnitTest {
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<PayPalResponse> captor = ArgumentCaptor.forClass(PayPalResponse.class);
         verify(payPalInternalClientCallback).onResult(captor.capture(), (Exception) isNull());
@@ -455,6 +457,33 @@ public class PayPalInternalClientUnitTest {
         assertEquals("sample-client-metadata-id", payPalResponse.getClientMetadataId());
     }
 
+    @Test
+    public void sendRequest_whenTracerIsSet_reportsSpanForEachStage() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(configuration)
+                .authorizationSuccess(clientToken)
+                .sendPOSTSuccessfulResponse(Fixtures.PAYPAL_HERMES_RESPONSE)
+                .build();
+        BraintreeTracer tracer = mock(BraintreeTracer.class);
+        when(braintreeClient.getTracer()).thenReturn(tracer);
+
+        PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
+        sut.sendRequest(context, new PayPalCheckoutRequest("1.00"), payPalInternalClientCallback);
+
+        ArgumentCaptor<TraceSpan> captor = ArgumentCaptor.forClass(TraceSpan.class);
+        verify(tracer, times(5)).onSpanEnd(captor.capture());
+        List<TraceSpan> spans = captor.getAllValues();
+        assertEquals("authorization", spans.get(0).getName());
+        assertEquals("configuration", spans.get(1).getName());
+        assertEquals("http", spans.get(2).getName());
+        assertEquals("parse", spans.get(3).getName());
+
+        TraceSpan rootSpan = spans.get(4);
+        assertEquals("paypal.send-request", rootSpan.getName());
+        assertEquals("checkout", rootSpan.getAttributes().get("intent"));
+        assertNull(rootSpan.getError());
+    }
+
     @Test
     public void sendRequest_withPayPalCheckoutRequest_whenRequestBillingAgreementFalse_andBillingAgreementDescriptionSet_doesNotSettBillingAgreementDescription() throws JSONException {
         BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
@@ -467,10 +496,10 @@ public class PayPalInternalClientUnitTest {
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
         payPalRequest.setShouldRequestBillingAgreement(false);
         payPalRequest.setBillingAgreementDescription("Billing agreement description");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String result = captor.getValue();
         JSONObject actual = new JSONObject(result);
@@ -495,7 +524,7 @@ public class PayPalInternalClientUnitTest {
         PayPalVaultRequest payPalRequest = new PayPalVaultRequest();
         payPalRequest.setMerchantAccountId("sample-merchant-account-id");
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<PayPalResponse> captor = ArgumentCaptor.forClass(PayPalResponse.class);
         verify(payPalInternalClientCallback).onResult(captor.capture(), (Exception) isNull());
@@ -528,7 +557,7 @@ public class PayPalInternalClientUnitTest {
         payPalRequest.setMerchantAccountId("sample-merchant-account-id");
         payPalRequest.setUserAction(PayPalCheckoutRequest.USER_ACTION_COMMIT);
 
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         ArgumentCaptor<PayPalResponse> captor = ArgumentCaptor.forClass(PayPalResponse.class);
         verify(payPalInternalClientCallback).onResult(captor.capture(), (Exception) isNull());
@@ -556,7 +585,7 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         verify(payPalInternalClientCallback).onResult(null, httpError);
     }
@@ -572,7 +601,7 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         verify(payPalInternalClientCallback).onResult((PayPalResponse) isNull(), any(JSONException.class));
     }
@@ -587,7 +616,7 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         verify(payPalInternalClientCallback).onResult(null, authError);
     }
@@ -603,7 +632,7 @@ public class PayPalInternalClientUnitTest {
         PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
 
         PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00");
-        sut.sendRequest(context, payPalRequest, payPalInternalClientCallback);
+        sut.sendRequest(context, payPalRequest, null, payPalInternalClientCallback);
 
         verify(payPalInternalClientCallback).onResult(null, configurationError);
     }
@@ -658,4 +687,36 @@ public class PayPalInternalClientUnitTest {
 
         verify(callback).onResult((PayPalAccountNonce) isNull(), same(error));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sendRequest_boundsConfigurationAndRequestByFlowDeadline() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(configuration)
+                .authorizationSuccess(clientToken)
+                .build();
+
+        PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
+        Deadline deadline = Deadline.after(5000);
+        sut.sendRequest(context, new PayPalCheckoutRequest("1.00"), deadline, payPalInternalClientCallback);
+
+        verify(braintreeClient).getConfiguration(same(deadline), any(ConfigurationCallback.class));
+        verify(braintreeClient).sendPOST(anyString(), anyString(), same(deadline), any(HttpResponseCallback.class));
+    }
+
+    @Test
+    public void cancelPendingRequests_cancelsRequestsSentByThisInstance() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+        RequestHandle requestHandle = new RequestHandle();
+        when(apiClient.tokenizeREST(any(PayPalAccount.class), any(TokenizeCallback.class)))
+                .thenReturn(requestHandle);
+
+        PayPalInternalClient sut = new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient);
+        sut.tokenize(new PayPalAccount(), mock(PayPalBrowserSwitchResultCallback.class));
+
+        new PayPalInternalClient(braintreeClient, payPalDataCollector, apiClient).cancelPendingRequests();
+        assertFalse(requestHandle.isCancelled());
+
+        sut.cancelPendingRequests();
+        assertTrue(requestHandle.isCancelled());
+    }
+}
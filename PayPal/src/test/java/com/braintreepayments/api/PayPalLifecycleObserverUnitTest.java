@@ -133,4 +133,27 @@ public class PayPalLifecycleObserverUnitTest {
         shadowOf(getMainLooper()).idle();
         verify(payPalClient, never()).onBrowserSwitchResult(any(BrowserSwitchResult.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onDestroy_cancelsPendingRequests() {
+        FragmentActivity activity = mock(FragmentActivity.class);
+        PayPalClient payPalClient = mock(PayPalClient.class);
+
+        PayPalLifecycleObserver sut = new PayPalLifecycleObserver(payPalClient);
+        sut.onStateChanged(activity, Lifecycle.Event.ON_DESTROY);
+
+        verify(payPalClient).cancelPendingRequests();
+    }
+
+    @Test
+    public void onDestroy_whenChangingConfigurations_keepsPendingRequests() {
+        FragmentActivity activity = mock(FragmentActivity.class);
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        PayPalClient payPalClient = mock(PayPalClient.class);
+
+        PayPalLifecycleObserver sut = new PayPalLifecycleObserver(payPalClient);
+        sut.onStateChanged(activity, Lifecycle.Event.ON_DESTROY);
+
+        verify(payPalClient, never()).cancelPendingRequests();
+    }
+}
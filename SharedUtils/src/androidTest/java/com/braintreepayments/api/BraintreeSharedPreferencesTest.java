@@ -15,6 +15,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+
 @RunWith(AndroidJUnit4ClassRunner.class)
 public class BraintreeSharedPreferencesTest {
 
@@ -103,4 +105,30 @@ public class BraintreeSharedPreferencesTest {
         assertFalse(sut.containsKey("stringKey2"));
         assertFalse(sut.containsKey("longKey"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getKeys_returnsStoredKeys() {
+        BraintreeSharedPreferences sut = new BraintreeSharedPreferences(workingSharedPreferences);
+        sut.putString("stringKey", "stringValue");
+        sut.putBoolean("booleanKey", true);
+
+        assertEquals(2, sut.getKeys().size());
+        assertTrue(sut.getKeys().contains("stringKey"));
+        assertTrue(sut.getKeys().contains("booleanKey"));
+    }
+
+    @Test
+    public void remove_removesKeys() {
+        BraintreeSharedPreferences sut = new BraintreeSharedPreferences(workingSharedPreferences);
+        sut.putString("stringKey", "stringValue");
+        sut.putBoolean("booleanKey", true);
+        sut.putStringAndLong("stringKey2", "stringValue2", "longKey", 123L);
+
+        sut.remove(Arrays.asList("stringKey", "booleanKey"));
+
+        assertFalse(sut.containsKey("stringKey"));
+        assertFalse(sut.containsKey("booleanKey"));
+        assertTrue(sut.containsKey("stringKey2"));
+        assertTrue(sut.containsKey("longKey"));
+    }
+}
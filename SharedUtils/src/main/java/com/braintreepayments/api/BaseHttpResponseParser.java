@@ -1,10 +1,18 @@
 package com.braintreepayments.api;
 
-import java.io.ByteArrayOutputStream;
+import androidx.annotation.VisibleForTesting;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
@@ -12,6 +20,7 @@ import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_CREATED;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
@@ -25,6 +34,22 @@ class BaseHttpResponseParser implements HttpResponseParser {
     private static final int HTTP_UPGRADE_REQUIRED = 426;
     private static final int HTTP_TOO_MANY_REQUESTS = 429;
 
+    // largest response buffer allocated up front from an untrusted Content-Length header
+    private static final int MAX_PRESIZED_LENGTH = ResponseBufferPool.DEFAULT_MAX_POOLED_BUFFER_SIZE;
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final ResponseBufferPool bufferPool;
+
+    BaseHttpResponseParser() {
+        this(ResponseBufferPool.getSharedInstance());
+    }
+
+    @VisibleForTesting
+    BaseHttpResponseParser(ResponseBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     /**
      * @param responseCode the response code returned when the http request was made.
      * @param connection the connection through which the http request was made.
@@ -35,6 +60,8 @@ class BaseHttpResponseParser implements HttpResponseParser {
         switch (responseCode) {
             case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
                 return responseBody;
+            case HTTP_NOT_MODIFIED:
+                throw new NotModifiedException("The cached copy of this resource is still current.");
             case HTTP_BAD_REQUEST: case HTTP_UNPROCESSABLE_ENTITY:
                 throw new UnprocessableEntityException(responseBody);
             case HTTP_UNAUTHORIZED:
@@ -44,11 +71,13 @@ class BaseHttpResponseParser implements HttpResponseParser {
             case HTTP_UPGRADE_REQUIRED:
                 throw new UpgradeRequiredException(responseBody);
             case HTTP_TOO_MANY_REQUESTS:
-                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.");
+                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.",
+                        parseRetryAfter(connection.getHeaderField("Retry-After"), System.currentTimeMillis()));
             case HTTP_INTERNAL_ERROR:
                 throw new ServerException(responseBody);
             case HTTP_UNAVAILABLE:
-                throw new ServiceUnavailableException(responseBody);
+                throw new ServiceUnavailableException(responseBody,
+                        parseRetryAfter(connection.getHeaderField("Retry-After"), System.currentTimeMillis()));
             default:
                 throw new UnexpectedException(responseBody);
         }
@@ -58,7 +87,8 @@ class BaseHttpResponseParser implements HttpResponseParser {
         boolean gzip = "gzip".equals(connection.getContentEncoding());
         switch (responseCode) {
             case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
-                return readStream(connection.getInputStream(), gzip);
+                return readStream(connection.getInputStream(), gzip, connection.getContentLength());
+            case HTTP_NOT_MODIFIED:
             case HTTP_TOO_MANY_REQUESTS:
                 return null;
             case HTTP_UNAUTHORIZED:
@@ -69,31 +99,68 @@ class BaseHttpResponseParser implements HttpResponseParser {
             case HTTP_INTERNAL_ERROR:
             case HTTP_UNAVAILABLE:
             default:
-                return readStream(connection.getErrorStream(), gzip);
+                return readStream(connection.getErrorStream(), gzip, connection.getContentLength());
+        }
+    }
+
+    /**
+     * @param retryAfter the value of a Retry-After header, either delay-seconds or an HTTP-date
+     * @param currentTimeMillis the current time, used to convert an HTTP-date to a delay
+     * @return the requested delay in milliseconds, or 0 if the header is missing or malformed
+     */
+    static long parseRetryAfter(String retryAfter, long currentTimeMillis) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {}
+
+        try {
+            SimpleDateFormat httpDateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+            Date retryAt = httpDateFormat.parse(value);
+            return (retryAt == null) ? 0 : Math.max(0, retryAt.getTime() - currentTimeMillis);
+        } catch (ParseException ignored) {
+            return 0;
         }
     }
 
-    private String readStream(InputStream in, boolean gzip) throws IOException {
+    private String readStream(InputStream in, boolean gzip, int contentLength) throws IOException {
         if (in == null) {
             return null;
         }
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // size for the whole body plus one byte so that end of stream is reached without growing;
+        // for gzip responses the compressed length is still a useful lower bound. Content-Length
+        // comes from the server, so larger bodies start from a capped buffer and grow as read.
+        int expectedLength = (contentLength > 0)
+                ? Math.min(contentLength, MAX_PRESIZED_LENGTH) + 1 : 0;
+        byte[] buffer = bufferPool.acquire(expectedLength);
+        int length = 0;
         try {
             if (gzip) {
                 in = new GZIPInputStream(in);
             }
 
-            byte[] buffer = new byte[1024];
-            for (int count; (count = in.read(buffer)) != -1; ) {
-                out.write(buffer, 0, count);
+            for (int count; (count = in.read(buffer, length, buffer.length - length)) != -1; ) {
+                length += count;
+                if (length == buffer.length) {
+                    buffer = bufferPool.grow(buffer);
+                }
             }
-            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            // decode once, directly from the pooled buffer into the final string
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
 
         } finally {
             try {
                 in.close();
             } catch (IOException ignored) {}
+
+            // response bodies may contain sensitive data, so don't leave it in pooled memory
+            Arrays.fill(buffer, 0, length, (byte) 0);
+            bufferPool.release(buffer);
         }
     }
 }
@@ -5,6 +5,10 @@ import android.content.SharedPreferences;
 
 import androidx.annotation.VisibleForTesting;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 class BraintreeSharedPreferences {
 
     private static final String PREFERENCES_FILE_KEY =
@@ -67,6 +71,18 @@ class BraintreeSharedPreferences {
                 .apply();
     }
 
+    Set<String> getKeys() {
+        return new HashSet<>(sharedPreferences.getAll().keySet());
+    }
+
+    void remove(Collection<String> keys) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (String key : keys) {
+            editor.remove(key);
+        }
+        editor.apply();
+    }
+
     void clearSharedPreferences() {
         sharedPreferences.edit().clear().apply();
     }
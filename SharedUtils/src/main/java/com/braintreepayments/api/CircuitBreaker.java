@@ -0,0 +1,262 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks failures per endpoint so that {@link HttpClient} can fail fast while an endpoint is down
+ * instead of letting every request wait for its full timeout.
+ *
+ * An endpoint is a host plus a path class: the url path with identifiers such as merchant ids
+ * replaced by {@code *}. After {@code failureThreshold} consecutive server errors or timeouts the
+ * endpoint's circuit opens and requests are rejected. Once {@code openDurationMillis} have passed
+ * the circuit half-opens and a single probe request is let through; its result closes or re-opens
+ * the circuit.
+ */
+class CircuitBreaker {
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_OPEN_DURATION_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static CircuitBreaker sharedInstance;
+
+    private static class Circuit {
+        @CircuitBreakerListener.State
+        int state = CircuitBreakerListener.STATE_CLOSED;
+        int failureCount;
+        long openedAtMillis;
+        boolean isProbeInFlight;
+    }
+
+    private final Scheduler scheduler;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    // only endpoints with recent failures are tracked; a closed circuit is removed on success
+    private final Map<String, Circuit> circuits;
+    private final List<CircuitBreakerListener> listeners;
+
+    /**
+     * @return the circuit breaker shared by the Braintree HTTP clients of this process, so that
+     * failures seen by one client protect the others
+     */
+    static synchronized CircuitBreaker getSharedInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new CircuitBreaker(new ThreadScheduler());
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * @param scheduler the scheduler used to notify listeners on the main thread
+     */
+    CircuitBreaker(Scheduler scheduler) {
+        this(scheduler, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS);
+    }
+
+    @VisibleForTesting
+    CircuitBreaker(Scheduler scheduler, int failureThreshold, long openDurationMillis) {
+        this.scheduler = scheduler;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.circuits = new HashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    void addListener(CircuitBreakerListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    void removeListener(CircuitBreakerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param url the url of a request
+     * @return the endpoint the request belongs to, e.g.
+     * {@code api.braintreegateway.com/merchants/&#42;/client_api/v1/configuration}
+     */
+    static String getEndpoint(URL url) {
+        String pathClass = getPathClass(url.getPath());
+        return pathClass.isEmpty() ? url.getHost() : url.getHost() + "/" + pathClass;
+    }
+
+    /**
+     * @param path a url path, optionally followed by a query
+     * @return the path without its query and leading slash, with identifiers replaced by
+     * {@code *}
+     */
+    static String getPathClass(String path) {
+        if (path == null) {
+            return "";
+        }
+        int queryStart = path.indexOf('?');
+        if (queryStart >= 0) {
+            path = path.substring(0, queryStart);
+        }
+        StringBuilder pathClass = new StringBuilder();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                if (pathClass.length() > 0) {
+                    pathClass.append('/');
+                }
+                pathClass.append(isIdentifier(segment) ? "*" : segment);
+            }
+        }
+        return pathClass.toString();
+    }
+
+    // ids, nonces and tokens contain digits; api versions such as "v1" are kept
+    private static boolean isIdentifier(String segment) {
+        if (segment.matches("v\\d+")) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (Character.isDigit(segment.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param endpoint the endpoint of the request about to be sent
+     * @return false if the request should fail without being sent
+     */
+    boolean allowRequest(String endpoint) {
+        return allowRequest(endpoint, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    boolean allowRequest(String endpoint, long currentTimeMillis) {
+        boolean isHalfOpened = false;
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(endpoint);
+            if (circuit == null || circuit.state == CircuitBreakerListener.STATE_CLOSED) {
+                return true;
+            }
+            if (circuit.state == CircuitBreakerListener.STATE_OPEN) {
+                if (currentTimeMillis - circuit.openedAtMillis < openDurationMillis) {
+                    return false;
+                }
+                circuit.state = CircuitBreakerListener.STATE_HALF_OPEN;
+                isHalfOpened = true;
+            } else if (circuit.isProbeInFlight) {
+                // only one request probes a half-open endpoint at a time
+                return false;
+            }
+            circuit.isProbeInFlight = true;
+        }
+        if (isHalfOpened) {
+            notifyStateChanged(endpoint, CircuitBreakerListener.STATE_HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * Record the outcome of a request that {@link #allowRequest(String)} let through.
+     *
+     * @param endpoint the endpoint of the request
+     * @param error    the error the request failed with, or null if it succeeded
+     */
+    void recordResult(String endpoint, Exception error) {
+        recordResult(endpoint, error, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    void recordResult(String endpoint, Exception error, long currentTimeMillis) {
+        if (error == null || isServerResponse(error)) {
+            recordSuccess(endpoint);
+        } else if (isEndpointFailure(error)) {
+            recordFailure(endpoint, currentTimeMillis);
+        } else {
+            // e.g. the device is offline or the request was cancelled; says nothing about the
+            // endpoint, but lets another request probe it
+            synchronized (circuits) {
+                Circuit circuit = circuits.get(endpoint);
+                if (circuit != null) {
+                    circuit.isProbeInFlight = false;
+                }
+            }
+        }
+    }
+
+    @CircuitBreakerListener.State
+    int getState(String endpoint) {
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(endpoint);
+            return (circuit == null) ? CircuitBreakerListener.STATE_CLOSED : circuit.state;
+        }
+    }
+
+    private void recordSuccess(String endpoint) {
+        Circuit circuit;
+        synchronized (circuits) {
+            circuit = circuits.remove(endpoint);
+        }
+        if (circuit != null && circuit.state != CircuitBreakerListener.STATE_CLOSED) {
+            notifyStateChanged(endpoint, CircuitBreakerListener.STATE_CLOSED);
+        }
+    }
+
+    private void recordFailure(String endpoint, long currentTimeMillis) {
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(endpoint);
+            if (circuit == null) {
+                circuit = new Circuit();
+                circuits.put(endpoint, circuit);
+            }
+            if (circuit.state == CircuitBreakerListener.STATE_OPEN) {
+                // a request sent before the circuit opened
+                return;
+            }
+            circuit.failureCount++;
+            circuit.isProbeInFlight = false;
+            if (circuit.state == CircuitBreakerListener.STATE_CLOSED
+                    && circuit.failureCount < failureThreshold) {
+                return;
+            }
+            circuit.state = CircuitBreakerListener.STATE_OPEN;
+            circuit.openedAtMillis = currentTimeMillis;
+        }
+        notifyStateChanged(endpoint, CircuitBreakerListener.STATE_OPEN);
+    }
+
+    private void notifyStateChanged(final String endpoint, @CircuitBreakerListener.State final int state) {
+        for (final CircuitBreakerListener listener : listeners) {
+            scheduler.runOnMain(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onCircuitStateChanged(endpoint, state);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if the server answered and the error is specific to the request
+     */
+    private static boolean isServerResponse(Exception error) {
+        return error instanceof AuthenticationException
+                || error instanceof AuthorizationException
+                || error instanceof UnprocessableEntityException
+                || error instanceof UpgradeRequiredException
+                || error instanceof NotModifiedException
+                || error instanceof RateLimitException;
+    }
+
+    private static boolean isEndpointFailure(Exception error) {
+        return error instanceof ServerException
+                || error instanceof ServiceUnavailableException
+                || error instanceof SocketTimeoutException;
+    }
+}
@@ -0,0 +1,44 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Listener notified when requests to a Braintree endpoint start or stop failing fast. Use it to
+ * offer another payment method while an endpoint is unavailable instead of waiting for requests
+ * to time out.
+ */
+public interface CircuitBreakerListener {
+
+    @IntDef({ STATE_CLOSED, STATE_OPEN, STATE_HALF_OPEN })
+    @Retention(RetentionPolicy.SOURCE)
+    @interface State {
+    }
+
+    /**
+     * Requests to the endpoint are sent normally.
+     */
+    int STATE_CLOSED = 0;
+
+    /**
+     * The endpoint has failed repeatedly; requests fail with a
+     * {@link CircuitBreakerOpenException} without being sent.
+     */
+    int STATE_OPEN = 1;
+
+    /**
+     * A single request is being sent to check whether the endpoint has recovered.
+     */
+    int STATE_HALF_OPEN = 2;
+
+    /**
+     * @param endpoint the host and path of the endpoint, with identifiers replaced by {@code *}
+     * @param state    the new state of the endpoint's circuit
+     */
+    @MainThread
+    void onCircuitStateChanged(@NonNull String endpoint, @State int state);
+}
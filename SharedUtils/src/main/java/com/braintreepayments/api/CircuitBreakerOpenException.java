@@ -0,0 +1,12 @@
+package com.braintreepayments.api;
+
+/**
+ * Exception returned without sending a request because its endpoint has failed repeatedly and
+ * the circuit breaker for it is open. The endpoint is tried again once the breaker half-opens.
+ */
+public class CircuitBreakerOpenException extends Exception {
+
+    CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
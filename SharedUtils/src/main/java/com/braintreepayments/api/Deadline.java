@@ -0,0 +1,46 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * A point in time by which a multi-step flow must complete. The same deadline is passed to every
+ * request of the flow so that each request only waits for the time left in the overall budget,
+ * and the flow fails with a {@link DeadlineExceededException} once the budget is spent.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class Deadline {
+
+    private final long expiresAtMillis;
+
+    /**
+     * @param budgetMillis the time the flow may take, starting now
+     * @return a deadline that expires {@code budgetMillis} from now
+     */
+    public static Deadline after(long budgetMillis) {
+        return new Deadline(System.currentTimeMillis() + budgetMillis);
+    }
+
+    @VisibleForTesting
+    Deadline(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * @return the time left before this deadline expires, or 0 if it has expired
+     */
+    public long remainingMillis() {
+        return remainingMillis(System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    long remainingMillis(long currentTimeMillis) {
+        return Math.max(0, expiresAtMillis - currentTimeMillis);
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+}
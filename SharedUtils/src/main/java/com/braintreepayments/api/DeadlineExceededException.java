@@ -0,0 +1,16 @@
+package com.braintreepayments.api;
+
+/**
+ * Exception thrown when a request could not complete before the {@link Deadline} of the flow it
+ * belongs to. The request was either not sent or abandoned after its timeout.
+ */
+public class DeadlineExceededException extends Exception {
+
+    DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,72 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.WorkerThread;
+
+/**
+ * An {@link HttpResponseCallback} that decodes the response body into a typed result. When the
+ * request is sent by {@link HttpClient}, {@link #decode(String)} runs on the background thread
+ * that received the response and only the decoded result is delivered on the callback thread, so
+ * large responses are not parsed on the main thread.
+ *
+ * @param <T> the type of the decoded result
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public abstract class DecodingHttpResponseCallback<T> implements HttpResponseCallback {
+
+    /**
+     * @param responseBody the body of a successful response
+     * @return the decoded result
+     * @throws Exception if the body cannot be decoded; it is delivered as the error of
+     *                   {@link #onDecodedResult(Object, Exception)}
+     */
+    @WorkerThread
+    public abstract T decode(@NonNull String responseBody) throws Exception;
+
+    /**
+     * @param result the decoded result, or null if the request or decoding failed
+     * @param error  the error the request or decoding failed with, or null on success
+     */
+    @MainThread
+    public abstract void onDecodedResult(@Nullable T result, @Nullable Exception error);
+
+    /**
+     * Decode {@code responseBody} on the calling thread and deliver the result. Used when the
+     * response is delivered by code that does not decode ahead of time.
+     */
+    @Override
+    public final void onResult(@Nullable String responseBody, @Nullable Exception httpError) {
+        if (responseBody != null) {
+            decodeForDelivery(responseBody).run();
+        } else {
+            onDecodedResult(null, httpError);
+        }
+    }
+
+    /**
+     * Decode {@code responseBody} on the calling thread.
+     *
+     * @return a runnable that delivers the decoded result or the decoding error
+     */
+    Runnable decodeForDelivery(@NonNull String responseBody) {
+        T result = null;
+        Exception error = null;
+        try {
+            result = decode(responseBody);
+        } catch (Exception e) {
+            error = e;
+        }
+        final T decodedResult = result;
+        final Exception decodeError = error;
+        return new Runnable() {
+            @Override
+            public void run() {
+                onDecodedResult(decodedResult, decodeError);
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.braintreepayments.api;
+
+import java.net.HttpURLConnection;
+
+/**
+ * The {@code ETag} and {@code Last-Modified} values of an http response. They are stored with a
+ * cached copy of the response and sent back with a conditional request, so the server can answer
+ * with {@code 304 Not Modified} instead of the full body when the copy is still current.
+ */
+class HttpCacheValidators {
+
+    private final String entityTag;
+    private final String lastModified;
+
+    HttpCacheValidators(String entityTag, String lastModified) {
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param connection a connection whose response headers have been received
+     * @return the validators sent with the response, or null if it had none
+     */
+    static HttpCacheValidators fromConnection(HttpURLConnection connection) {
+        String entityTag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (entityTag == null && lastModified == null) {
+            return null;
+        }
+        return new HttpCacheValidators(entityTag, lastModified);
+    }
+
+    /**
+     * @return the value of the {@code ETag} header, or null if none was sent
+     */
+    String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * @return the value of the {@code Last-Modified} header, or null if none was sent
+     */
+    String getLastModified() {
+        return lastModified;
+    }
+}
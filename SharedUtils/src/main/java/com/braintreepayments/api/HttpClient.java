@@ -1,15 +1,11 @@
 package com.braintreepayments.api;
 
 import androidx.annotation.IntDef;
-import androidx.annotation.VisibleForTesting;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.net.MalformedURLException;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -25,24 +21,120 @@ class HttpClient {
 
     static final int MAX_RETRY_ATTEMPTS = 3;
 
+    private static final String DEADLINE_EXCEEDED_MESSAGE =
+            "The request could not be completed before its deadline.";
+
     private final Scheduler scheduler;
-    private final SynchronousHttpClient syncHttpClient;
+    private final HttpTransport transport;
+    private final CircuitBreaker circuitBreaker;
 
-    private final Map<URL, Integer> retryCountMap;
+    private volatile HttpEventListener eventListener;
+    private volatile Executor callbackExecutor;
 
     protected HttpClient(SSLSocketFactory socketFactory, HttpResponseParser httpResponseParser) {
         this(new SynchronousHttpClient(socketFactory, httpResponseParser), new ThreadScheduler());
     }
 
-    @VisibleForTesting
-    HttpClient(SynchronousHttpClient syncHttpClient, Scheduler scheduler) {
-        this.syncHttpClient = syncHttpClient;
+    /**
+     * @param transport the engine used to execute requests
+     * @param scheduler the scheduler used to run requests in the background and deliver results
+     */
+    HttpClient(HttpTransport transport, Scheduler scheduler) {
+        this(transport, scheduler, new CircuitBreaker(scheduler));
+    }
+
+    /**
+     * @param transport      the engine used to execute requests
+     * @param scheduler      the scheduler used to run requests in the background and deliver results
+     * @param circuitBreaker the circuit breaker that rejects requests to failing endpoints
+     */
+    HttpClient(HttpTransport transport, Scheduler scheduler, CircuitBreaker circuitBreaker) {
+        this.transport = transport;
         this.scheduler = scheduler;
-        this.retryCountMap = new HashMap<>();
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @param eventListener listener notified of the phases of every request attempt, or null to
+     * stop instrumenting requests
+     */
+    void setEventListener(HttpEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    HttpEventListener getEventListener() {
+        return eventListener;
+    }
+
+    /**
+     * @param callbackExecutor executor that runs response callbacks, or null to run them on the
+     * main thread
+     */
+    void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * @return the keep-alive pool used by this client, or null when connection reuse is disabled
+     */
+    HttpConnectionPool getConnectionPool() {
+        if (transport instanceof SynchronousHttpClient) {
+            return ((SynchronousHttpClient) transport).getConnectionPool();
+        }
+        return null;
+    }
+
+    /**
+     * Connect to the origin of {@code url} in the background so that a later request to the same
+     * origin skips DNS resolution, TCP connect and the TLS handshake. Failures are ignored; the
+     * later request simply opens its own connection.
+     *
+     * @param url a Braintree API url on the origin to connect to; it receives a {@code HEAD}
+     *            request
+     */
+    void preconnect(final String url) {
+        scheduler.runOnBackground(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transport.preconnect(new URL(url));
+                } catch (Exception ignored) {
+                    // best effort
+                }
+            }
+        }, Scheduler.PRIORITY_LOW);
     }
 
     String sendRequest(HttpRequest request) throws Exception {
-        return syncHttpClient.request(request);
+        Deadline deadline = request.getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE);
+        }
+        String endpoint = getEndpoint(request);
+        if (endpoint != null && !circuitBreaker.allowRequest(endpoint)) {
+            throw createCircuitBreakerOpenException(endpoint);
+        }
+        HttpEventRecorder events = startEventRecorder(request);
+        try {
+            String responseBody = transport.request(request);
+            events.requestEnd();
+            recordResult(endpoint, null);
+            return responseBody;
+        } catch (Exception e) {
+            events.requestFailed(e);
+            // a timeout shortened by the deadline says nothing about the endpoint
+            Exception error = asDeadlineExceeded(request, e);
+            recordResult(endpoint, error);
+            throw error;
+        }
     }
 
     void sendRequest(HttpRequest request, HttpResponseCallback callback) {
@@ -50,90 +142,195 @@ class HttpClient {
     }
 
     void sendRequest(HttpRequest request, @RetryStrategy int retryStrategy, HttpResponseCallback callback) {
-        scheduleRequest(request, retryStrategy, callback);
+        RetryPolicy retryPolicy = null;
+        if (retryStrategy == HttpClient.RETRY_MAX_3_TIMES) {
+            // one policy per request so concurrent requests to the same url never share attempts
+            retryPolicy = new RetryPolicy(MAX_RETRY_ATTEMPTS);
+        }
+        scheduleRequest(request, retryPolicy, callback, 0);
     }
 
-    private void scheduleRequest(final HttpRequest request, @RetryStrategy final int retryStrategy, final HttpResponseCallback callback) {
-        resetRetryCount(request);
-
-        scheduler.runOnBackground(new Runnable() {
+    private void scheduleRequest(final HttpRequest request, final RetryPolicy retryPolicy, final HttpResponseCallback callback, long delayMillis) {
+        Runnable runnable = new Runnable() {
             @Override
             public void run() {
+                if (request.getHandle().isCancelled()) {
+                    // free the thread for other work
+                    notifyError(request, callback, createRequestCancelledException());
+                    return;
+                }
+                Deadline deadline = request.getDeadline();
+                if (deadline != null && deadline.isExpired()) {
+                    notifyError(request, callback, new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE));
+                    return;
+                }
+                String endpoint = getEndpoint(request);
+                if (endpoint != null && !circuitBreaker.allowRequest(endpoint)) {
+                    // fail fast instead of waiting for a timeout; never retried
+                    notifyError(request, callback, createCircuitBreakerOpenException(endpoint));
+                    return;
+                }
+                HttpEventRecorder events = startEventRecorder(request);
                 try {
-                    String responseBody = syncHttpClient.request(request);
-                    notifySuccessOnMainThread(callback, responseBody);
+                    String responseBody = transport.request(request);
+                    events.requestEnd();
+                    recordResult(endpoint, null);
+                    notifySuccess(request, callback, responseBody);
                 } catch (Exception e) {
-                    switch (retryStrategy) {
-                        case HttpClient.NO_RETRY:
-                            notifyErrorOnMainThread(callback, e);
-                            break;
-                        case HttpClient.RETRY_MAX_3_TIMES:
-                            retryGet(request, retryStrategy, callback);
-                            break;
+                    events.requestFailed(e);
+                    Exception error = asDeadlineExceeded(request, e);
+                    if (!request.getHandle().isCancelled()) {
+                        // a request abandoned by its caller says nothing about the endpoint
+                        recordResult(endpoint, error);
+                    }
+                    if (retryPolicy == null || error instanceof DeadlineExceededException) {
+                        notifyError(request, callback, error);
+                    } else {
+                        retryRequest(request, retryPolicy, callback, error);
                     }
                 }
             }
-        });
+        };
+
+        if (delayMillis > 0) {
+            scheduler.runOnBackgroundDelayed(runnable, request.getPriority(), delayMillis);
+        } else {
+            scheduler.runOnBackground(runnable, request.getPriority());
+        }
     }
 
-    private void retryGet(final HttpRequest request, @RetryStrategy final int retryStrategy, final HttpResponseCallback callback) {
-        URL url = null;
+    private void retryRequest(HttpRequest request, RetryPolicy retryPolicy, HttpResponseCallback callback, Exception error) {
+        if (request.getHandle().isCancelled()) {
+            notifyError(request, callback, createRequestCancelledException());
+            return;
+        }
+        long delayMillis = retryPolicy.nextRetryDelay(error);
+        Deadline deadline = request.getDeadline();
+        if (delayMillis != RetryPolicy.NO_RETRY
+                && deadline != null && delayMillis >= deadline.remainingMillis()) {
+            // the retry could not be sent before the flow gives up
+            notifyError(request, callback, new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE, error));
+        } else if (delayMillis != RetryPolicy.NO_RETRY) {
+            scheduleRequest(request, retryPolicy, callback, delayMillis);
+        } else if (!retryPolicy.isRetryable(error)) {
+            notifyError(request, callback, error);
+        } else {
+            String message = "Retry limit has been exceeded. Try again later.";
+            HttpClientException retryLimitException = new HttpClientException(message);
+            notifyError(request, callback, retryLimitException);
+        }
+    }
+
+    /**
+     * @return the circuit breaker endpoint of {@code request}, or null if its url is invalid
+     */
+    private static String getEndpoint(HttpRequest request) {
         try {
-            url = request.getURL();
-        } catch (MalformedURLException | URISyntaxException ignore) {}
-
-        if (url != null) {
-            int retryCount = getNumRetriesSoFar(url);
-            boolean shouldRetry = ((retryCount + 1) < MAX_RETRY_ATTEMPTS);
-            if (shouldRetry) {
-                scheduleRequest(request, retryStrategy, callback);
-                retryCountMap.put(url, retryCount + 1);
-            } else {
-                String message = "Retry limit has been exceeded. Try again later.";
-                HttpClientException retryLimitException = new HttpClientException(message);
-                notifyErrorOnMainThread(callback, retryLimitException);
-            }
+            return CircuitBreaker.getEndpoint(request.getURL());
+        } catch (Exception e) {
+            // the transport reports the invalid url
+            return null;
         }
     }
 
-    private int getNumRetriesSoFar(URL url) {
-        Integer retryCount = retryCountMap.get(url);
-        if (retryCount == null) {
-            return 0;
+    /**
+     * Attach a new {@link HttpEventRecorder} for the attempt about to be sent and report its start.
+     */
+    private HttpEventRecorder startEventRecorder(HttpRequest request) {
+        HttpEventListener listener = eventListener;
+        HttpEventRecorder events = (listener == null) ? HttpEventRecorder.DISABLED
+                : new HttpEventRecorder(listener, request.getEndpointLabel());
+        request.setEventRecorder(events);
+        events.requestStart();
+        return events;
+    }
+
+    private void recordResult(String endpoint, Exception error) {
+        if (endpoint != null) {
+            circuitBreaker.recordResult(endpoint, error);
         }
-        return retryCount;
     }
 
-    private void resetRetryCount(HttpRequest request) {
-        URL url = null;
-        try {
-            url = request.getURL();
-        } catch (MalformedURLException | URISyntaxException ignore) {}
+    private static CircuitBreakerOpenException createCircuitBreakerOpenException(String endpoint) {
+        return new CircuitBreakerOpenException(
+                "Requests to " + endpoint + " are failing. Try again later.");
+    }
 
-        if (url != null) {
-            retryCountMap.remove(url);
+    /**
+     * @return a {@link DeadlineExceededException} wrapping {@code error} if the request failed
+     * because its deadline ran out, otherwise {@code error}
+     */
+    private static Exception asDeadlineExceeded(HttpRequest request, Exception error) {
+        Deadline deadline = request.getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            return new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE, error);
         }
+        return error;
     }
 
-    private void notifySuccessOnMainThread(final HttpResponseCallback callback, final String responseBody) {
-        if (callback != null) {
-            scheduler.runOnMain(new Runnable() {
+    private static RequestCancelledException createRequestCancelledException() {
+        return new RequestCancelledException(RequestHandle.CANCELLED_MESSAGE);
+    }
+
+    private void notifySuccess(final HttpRequest request, final HttpResponseCallback callback, final String responseBody) {
+        if (callback instanceof DecodingHttpResponseCallback) {
+            if (request.getHandle().isCancelled()) {
+                // skip decoding a response nobody will use
+                notifyError(request, callback, createRequestCancelledException());
+                return;
+            }
+            // decode on this background thread so only the typed result reaches the callback thread
+            final Runnable delivery =
+                    ((DecodingHttpResponseCallback<?>) callback).decodeForDelivery(responseBody);
+            runOnCallbackThread(new Runnable() {
                 @Override
                 public void run() {
-                    callback.onResult(responseBody, null);
+                    if (request.getHandle().complete()) {
+                        delivery.run();
+                    } else {
+                        callback.onResult(null, createRequestCancelledException());
+                    }
+                }
+            });
+        } else if (callback != null) {
+            runOnCallbackThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (request.getHandle().complete()) {
+                        callback.onResult(responseBody, null);
+                    } else {
+                        callback.onResult(null, createRequestCancelledException());
+                    }
                 }
             });
         }
     }
 
-    private void notifyErrorOnMainThread(final HttpResponseCallback callback, final Exception e) {
+    /**
+     * Deliver {@code e}, or a {@link RequestCancelledException} if the request was cancelled
+     * before the error reached the callback thread.
+     */
+    private void notifyError(final HttpRequest request, final HttpResponseCallback callback, final Exception e) {
         if (callback != null) {
-            scheduler.runOnMain(new Runnable() {
+            runOnCallbackThread(new Runnable() {
                 @Override
                 public void run() {
-                    callback.onResult(null, e);
+                    if (request.getHandle().complete()) {
+                        callback.onResult(null, e);
+                    } else {
+                        callback.onResult(null, createRequestCancelledException());
+                    }
                 }
             });
         }
     }
+
+    private void runOnCallbackThread(Runnable runnable) {
+        Executor executor = callbackExecutor;
+        if (executor != null) {
+            executor.execute(runnable);
+        } else {
+            scheduler.runOnMain(runnable);
+        }
+    }
 }
@@ -0,0 +1,229 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Bookkeeping for keep-alive connections used by {@link SynchronousHttpClient}.
+ *
+ * {@link java.net.HttpURLConnection} keeps a socket (and its TLS session) warm when the response
+ * stream is closed instead of calling {@link java.net.HttpURLConnection#disconnect()}. This class
+ * decides, per host, whether a finished connection should be released back to the platform's
+ * keep-alive cache or disconnected, so that at most {@code maxIdleConnectionsPerHost} idle
+ * connections are parked per host and none are tracked for longer than {@code keepAliveDurationMs}.
+ *
+ * The platform owns the sockets and reuses them on its own. Whether requests actually reused a
+ * connection is measured by counting the sockets a {@link TLSSocketFactory} opened for each host:
+ * every new socket is a miss, and every other request is a hit.
+ */
+class HttpConnectionPool {
+
+    static final int DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST = 5;
+    static final long DEFAULT_KEEP_ALIVE_DURATION_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final int maxIdleConnectionsPerHost;
+    private final long keepAliveDurationMs;
+
+    // release timestamps of idle connections, oldest first, keyed by scheme://host:port
+    private final Map<String, ArrayDeque<Long>> idleConnections;
+
+    // sockets the socket factory had opened for each requested host when last counted, keyed
+    // like idleConnections
+    private final Map<String, HostSockets> countedSockets;
+
+    private TLSSocketFactory socketFactory;
+    private int requestCount;
+    private int missCount;
+
+    HttpConnectionPool() {
+        this(DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, DEFAULT_KEEP_ALIVE_DURATION_MS);
+    }
+
+    HttpConnectionPool(int maxIdleConnectionsPerHost, long keepAliveDurationMs) {
+        if (maxIdleConnectionsPerHost < 0) {
+            throw new IllegalArgumentException("maxIdleConnectionsPerHost < 0");
+        }
+        if (keepAliveDurationMs <= 0) {
+            throw new IllegalArgumentException("keepAliveDurationMs <= 0");
+        }
+        this.maxIdleConnectionsPerHost = maxIdleConnectionsPerHost;
+        this.keepAliveDurationMs = keepAliveDurationMs;
+        this.idleConnections = new HashMap<>();
+        this.countedSockets = new HashMap<>();
+    }
+
+    /**
+     * Count new connections opened through {@code socketFactory} as misses from now on. Misses
+     * can only be counted for a {@link TLSSocketFactory}; with any other factory every request is
+     * counted as a hit.
+     *
+     * @param socketFactory the factory https connections are opened with
+     */
+    synchronized void setSocketFactory(SSLSocketFactory socketFactory) {
+        countMisses();
+        this.socketFactory = (socketFactory instanceof TLSSocketFactory)
+                ? (TLSSocketFactory) socketFactory : null;
+        // sockets the new factory opened before are not this pool's misses
+        countedSockets.clear();
+    }
+
+    /**
+     * Record that a request to the host of the given url is starting, so a connection parked for
+     * that host is no longer counted as idle. Whether the platform hands the request that
+     * connection or opens a new one is up to the platform.
+     *
+     * @param url the url about to be requested
+     */
+    void acquire(URL url) {
+        acquire(url, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    synchronized void acquire(URL url, long currentTimeMillis) {
+        String hostKey = createHostKey(url);
+        requestCount++;
+        if (!countedSockets.containsKey(hostKey)) {
+            HostSockets hostSockets = new HostSockets(url.getHost(), getPort(url));
+            hostSockets.count = getSocketCount(hostSockets);
+            countedSockets.put(hostKey, hostSockets);
+        }
+
+        ArrayDeque<Long> idle = idleConnections.get(hostKey);
+        evictExpired(idle, currentTimeMillis);
+
+        // the platform reuses the most recently released connection first
+        if (idle != null) {
+            idle.pollLast();
+        }
+    }
+
+    /**
+     * Return a finished connection to the pool.
+     *
+     * @param url the url that was requested
+     * @return true if the connection should be kept alive, false if it should be disconnected
+     */
+    boolean release(URL url) {
+        return release(url, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    synchronized boolean release(URL url, long currentTimeMillis) {
+        if (maxIdleConnectionsPerHost == 0) {
+            return false;
+        }
+
+        String hostKey = createHostKey(url);
+        ArrayDeque<Long> idle = idleConnections.get(hostKey);
+        if (idle == null) {
+            idle = new ArrayDeque<>();
+            idleConnections.put(hostKey, idle);
+        }
+        evictExpired(idle, currentTimeMillis);
+
+        if (idle.size() >= maxIdleConnectionsPerHost) {
+            return false;
+        }
+        idle.addLast(currentTimeMillis);
+        return true;
+    }
+
+    /**
+     * Drop all idle connection bookkeeping. Connections released after this call start a fresh
+     * pool, and the platform closes any sockets it still holds on its own keep-alive timeout.
+     */
+    synchronized void evictAll() {
+        idleConnections.clear();
+    }
+
+    synchronized int getIdleConnectionCount() {
+        int count = 0;
+        for (ArrayDeque<Long> idle : idleConnections.values()) {
+            count += idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of requests, including preconnects, started through this pool
+     */
+    synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of requests that opened a new connection instead of reusing one
+     */
+    synchronized int getMissCount() {
+        countMisses();
+        return missCount;
+    }
+
+    /**
+     * @return the number of requests that reused a connection
+     */
+    synchronized int getHitCount() {
+        return Math.max(0, requestCount - getMissCount());
+    }
+
+    int getMaxIdleConnectionsPerHost() {
+        return maxIdleConnectionsPerHost;
+    }
+
+    long getKeepAliveDurationMs() {
+        return keepAliveDurationMs;
+    }
+
+    private void evictExpired(ArrayDeque<Long> idle, long currentTimeMillis) {
+        if (idle == null) {
+            return;
+        }
+        Long releasedAt;
+        while ((releasedAt = idle.peekFirst()) != null
+                && (currentTimeMillis - releasedAt) >= keepAliveDurationMs) {
+            idle.pollFirst();
+        }
+    }
+
+    private void countMisses() {
+        for (HostSockets hostSockets : countedSockets.values()) {
+            int socketCount = getSocketCount(hostSockets);
+            missCount += socketCount - hostSockets.count;
+            hostSockets.count = socketCount;
+        }
+    }
+
+    private int getSocketCount(HostSockets hostSockets) {
+        if (socketFactory == null) {
+            return 0;
+        }
+        return socketFactory.getSocketCount(hostSockets.host, hostSockets.port);
+    }
+
+    private static String createHostKey(URL url) {
+        return url.getProtocol() + "://" + url.getHost() + ":" + getPort(url);
+    }
+
+    private static int getPort(URL url) {
+        return (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+    }
+
+    private static class HostSockets {
+
+        private final String host;
+        private final int port;
+        private int count;
+
+        HostSockets(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+}
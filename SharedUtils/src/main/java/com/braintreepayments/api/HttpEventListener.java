@@ -0,0 +1,110 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Listener for the phases of each HTTP request sent by the SDK, for example to record latency
+ * percentiles per Braintree endpoint in an APM tool. Override the events you are interested in.
+ *
+ * Every event receives an endpoint label such as {@code config}, {@code 3ds:lookup} or
+ * {@code graphql:TokenizeCreditCard}. Events are delivered on the thread sending the request, so
+ * implementations must return quickly. Retried requests report every attempt.
+ *
+ * The default transport cannot observe DNS resolution or the TLS handshake separately; it reports
+ * their time as part of {@link #onConnectEnd(String, long)}.
+ */
+public abstract class HttpEventListener {
+
+    /**
+     * @param endpoint the endpoint label of the request
+     */
+    @WorkerThread
+    public void onRequestStart(@NonNull String endpoint) {
+    }
+
+    /**
+     * Called after the host of a new connection has been resolved.
+     *
+     * @param endpoint       the endpoint label of the request
+     * @param durationMillis time spent resolving the host
+     */
+    @WorkerThread
+    public void onDnsEnd(@NonNull String endpoint, long durationMillis) {
+    }
+
+    /**
+     * Called after a connection has been opened, including its TLS handshake. Requests that reuse
+     * a pooled connection may not report this event, or report a duration close to 0.
+     *
+     * @param endpoint       the endpoint label of the request
+     * @param durationMillis time spent connecting
+     */
+    @WorkerThread
+    public void onConnectEnd(@NonNull String endpoint, long durationMillis) {
+    }
+
+    /**
+     * @param endpoint       the endpoint label of the request
+     * @param durationMillis time spent on the TLS handshake of a new connection
+     */
+    @WorkerThread
+    public void onTlsHandshakeEnd(@NonNull String endpoint, long durationMillis) {
+    }
+
+    /**
+     * @param endpoint  the endpoint label of the request
+     * @param byteCount number of request body bytes written, after compression
+     */
+    @WorkerThread
+    public void onRequestBodyEnd(@NonNull String endpoint, long byteCount) {
+    }
+
+    /**
+     * @param endpoint              the endpoint label of the request
+     * @param statusCode            the HTTP status code of the response
+     * @param timeToFirstByteMillis time from the start of the request until the response headers
+     *                              were received
+     */
+    @WorkerThread
+    public void onResponseHeadersEnd(@NonNull String endpoint, int statusCode, long timeToFirstByteMillis) {
+    }
+
+    /**
+     * @param endpoint       the endpoint label of the request
+     * @param byteCount      number of response body bytes read, before decompression
+     * @param durationMillis time spent reading the body after the headers were received
+     */
+    @WorkerThread
+    public void onResponseBodyEnd(@NonNull String endpoint, long byteCount, long durationMillis) {
+    }
+
+    /**
+     * @param endpoint       the endpoint label of the request
+     * @param durationMillis time spent parsing the response after its body was read
+     */
+    @WorkerThread
+    public void onParseEnd(@NonNull String endpoint, long durationMillis) {
+    }
+
+    /**
+     * Called when a request completes successfully.
+     *
+     * @param endpoint       the endpoint label of the request
+     * @param durationMillis total time of the request
+     */
+    @WorkerThread
+    public void onRequestEnd(@NonNull String endpoint, long durationMillis) {
+    }
+
+    /**
+     * Called when a request fails, including when the server responds with an error status.
+     *
+     * @param endpoint       the endpoint label of the request
+     * @param error          the error the request failed with
+     * @param durationMillis total time of the request
+     */
+    @WorkerThread
+    public void onRequestFailed(@NonNull String endpoint, @NonNull Exception error, long durationMillis) {
+    }
+}
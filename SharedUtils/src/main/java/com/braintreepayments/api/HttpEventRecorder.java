@@ -0,0 +1,178 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the phases of a single attempt of an {@link HttpRequest} and reports them to an
+ * {@link HttpEventListener}. Transports call the phase methods on the thread sending the request;
+ * when no listener is set every method is a no-op.
+ */
+class HttpEventRecorder {
+
+    static final HttpEventRecorder DISABLED = new HttpEventRecorder(null, "");
+
+    interface Clock {
+        long nanoTime();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final HttpEventListener listener;
+    private final String endpoint;
+    private final Clock clock;
+
+    private long requestStartNanos;
+    private long dnsStartNanos;
+    private long connectStartNanos;
+    private long tlsStartNanos;
+    private long responseHeadersEndNanos;
+    private long responseBodyEndNanos;
+
+    HttpEventRecorder(HttpEventListener listener, String endpoint) {
+        this(listener, endpoint, SYSTEM_CLOCK);
+    }
+
+    @VisibleForTesting
+    HttpEventRecorder(HttpEventListener listener, String endpoint, Clock clock) {
+        this.listener = listener;
+        this.endpoint = endpoint;
+        this.clock = clock;
+    }
+
+    boolean isEnabled() {
+        return listener != null;
+    }
+
+    void requestStart() {
+        if (isEnabled()) {
+            requestStartNanos = clock.nanoTime();
+            try {
+                listener.onRequestStart(endpoint);
+            } catch (RuntimeException ignored) {
+                // a faulty listener must not break the request
+            }
+        }
+    }
+
+    void dnsStart() {
+        if (isEnabled()) {
+            dnsStartNanos = clock.nanoTime();
+        }
+    }
+
+    void dnsEnd() {
+        if (isEnabled()) {
+            long duration = millisSince(dnsStartNanos);
+            try {
+                listener.onDnsEnd(endpoint, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void connectStart() {
+        if (isEnabled()) {
+            connectStartNanos = clock.nanoTime();
+        }
+    }
+
+    void connectEnd() {
+        if (isEnabled()) {
+            long duration = millisSince(connectStartNanos);
+            try {
+                listener.onConnectEnd(endpoint, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void tlsHandshakeStart() {
+        if (isEnabled()) {
+            tlsStartNanos = clock.nanoTime();
+        }
+    }
+
+    void tlsHandshakeEnd() {
+        if (isEnabled()) {
+            long duration = millisSince(tlsStartNanos);
+            try {
+                listener.onTlsHandshakeEnd(endpoint, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void requestBodyEnd(long byteCount) {
+        if (isEnabled()) {
+            try {
+                listener.onRequestBodyEnd(endpoint, byteCount);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void responseHeadersEnd(int statusCode) {
+        if (isEnabled()) {
+            responseHeadersEndNanos = clock.nanoTime();
+            long timeToFirstByte = millisSince(requestStartNanos);
+            try {
+                listener.onResponseHeadersEnd(endpoint, statusCode, timeToFirstByte);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void responseBodyEnd(long byteCount) {
+        if (isEnabled()) {
+            responseBodyEndNanos = clock.nanoTime();
+            long duration = millisSince(responseHeadersEndNanos);
+            try {
+                listener.onResponseBodyEnd(endpoint, byteCount, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void parseEnd() {
+        if (isEnabled()) {
+            // responses without a body are parsed from the end of the headers
+            long parseStartNanos = (responseBodyEndNanos != 0) ? responseBodyEndNanos : responseHeadersEndNanos;
+            long duration = millisSince(parseStartNanos);
+            try {
+                listener.onParseEnd(endpoint, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void requestEnd() {
+        if (isEnabled()) {
+            long duration = millisSince(requestStartNanos);
+            try {
+                listener.onRequestEnd(endpoint, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void requestFailed(Exception error) {
+        if (isEnabled()) {
+            long duration = millisSince(requestStartNanos);
+            try {
+                listener.onRequestFailed(endpoint, error, duration);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    private long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - startNanos);
+    }
+}
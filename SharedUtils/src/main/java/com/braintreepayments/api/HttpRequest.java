@@ -16,10 +16,20 @@ class HttpRequest {
 
     private static final int THIRTY_SECONDS_MS = 30000;
 
+    static final int NO_COMPRESSION = -1;
+
     private String path;
     private String baseUrl;
     private byte[] data;
     private String method;
+    private int priority;
+    private int compressionThreshold;
+    private HttpCacheValidators validators;
+    private volatile HttpCacheValidators responseValidators;
+    private Deadline deadline;
+    private RequestHandle handle;
+    private String endpointLabel;
+    private HttpEventRecorder eventRecorder;
 
     private final int readTimeout;
     private final int connectTimeout;
@@ -35,6 +45,10 @@ class HttpRequest {
         headers = null;
         additionalHeaders = new HashMap<>();
         baseUrl = "";
+        priority = Scheduler.PRIORITY_DEFAULT;
+        compressionThreshold = NO_COMPRESSION;
+        handle = new RequestHandle();
+        eventRecorder = HttpEventRecorder.DISABLED;
 
         readTimeout = THIRTY_SECONDS_MS;
         connectTimeout = THIRTY_SECONDS_MS;
@@ -60,6 +74,64 @@ class HttpRequest {
         return this;
     }
 
+    HttpRequest priority(@Scheduler.Priority int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Send the request body with {@code Content-Encoding: gzip} when it is at least
+     * {@code minSizeBytes} long. Smaller bodies are sent uncompressed since gzip framing would
+     * outweigh the savings.
+     *
+     * @param minSizeBytes the minimum body size to compress, or {@link #NO_COMPRESSION}
+     */
+    HttpRequest compressData(int minSizeBytes) {
+        this.compressionThreshold = minSizeBytes;
+        return this;
+    }
+
+    /**
+     * Make this a conditional request for a resource the caller has a cached copy of. The server
+     * responds with {@code 304 Not Modified}, surfaced as a {@link NotModifiedException}, when the
+     * copy is still current.
+     *
+     * @param validators the validators returned with the cached copy
+     */
+    HttpRequest validators(HttpCacheValidators validators) {
+        this.validators = validators;
+        return this;
+    }
+
+    /**
+     * Limit the connect and read timeouts of this request to the time left before
+     * {@code deadline}, so that a request late in a multi-step flow cannot outlast the flow.
+     *
+     * @param deadline the deadline of the flow this request belongs to, or null for none
+     */
+    HttpRequest deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * @param handle the handle used to cancel this request, for example one shared with the work
+     * that precedes it
+     */
+    HttpRequest handle(RequestHandle handle) {
+        this.handle = handle;
+        return this;
+    }
+
+    /**
+     * @param endpointLabel the label reported to an {@link HttpEventListener} for this request, or
+     * null to derive one from its path
+     */
+    HttpRequest endpointLabel(String endpointLabel) {
+        this.endpointLabel = endpointLabel;
+        return this;
+    }
+
     HttpRequest addHeader(String name, String value) {
         additionalHeaders.put(name, value);
         return this;
@@ -73,6 +145,12 @@ class HttpRequest {
         return data;
     }
 
+    boolean shouldCompressData() {
+        return compressionThreshold != NO_COMPRESSION
+                && data != null
+                && data.length >= compressionThreshold;
+    }
+
     void dispose() {
         // overwrite data content with zeros
         if (data != null) {
@@ -84,22 +162,90 @@ class HttpRequest {
         return method;
     }
 
+    @Scheduler.Priority
+    int getPriority() {
+        return priority;
+    }
+
     Map<String, String> getHeaders() {
         if (headers == null) {
             headers = new HashMap<>();
             headers.put("Accept-Encoding", "gzip");
             headers.put("Accept-Language", Locale.getDefault().getLanguage());
+            if (validators != null) {
+                if (validators.getEntityTag() != null) {
+                    headers.put("If-None-Match", validators.getEntityTag());
+                }
+                if (validators.getLastModified() != null) {
+                    headers.put("If-Modified-Since", validators.getLastModified());
+                }
+            }
             headers.putAll(additionalHeaders);
         }
         return Collections.unmodifiableMap(headers);
     }
 
+    /**
+     * @return the validators sent with the response to this request, or null if the response had
+     * none or has not been received
+     */
+    HttpCacheValidators getResponseValidators() {
+        return responseValidators;
+    }
+
+    void setResponseValidators(HttpCacheValidators responseValidators) {
+        this.responseValidators = responseValidators;
+    }
+
+    RequestHandle getHandle() {
+        return handle;
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return the label set with {@link #endpointLabel(String)}, or the request path with
+     * identifiers replaced by {@code *}
+     */
+    String getEndpointLabel() {
+        if (endpointLabel != null) {
+            return endpointLabel;
+        }
+        String labelPath = path;
+        if (path == null || path.isEmpty() || path.startsWith("http")) {
+            try {
+                labelPath = getURL().getPath();
+            } catch (Exception ignored) {
+                // label the request with its raw path
+            }
+        }
+        return CircuitBreaker.getPathClass(labelPath);
+    }
+
+    HttpEventRecorder getEventRecorder() {
+        return eventRecorder;
+    }
+
+    void setEventRecorder(HttpEventRecorder eventRecorder) {
+        this.eventRecorder = eventRecorder;
+    }
+
     int getReadTimeout() {
-        return readTimeout;
+        return limitToDeadline(readTimeout);
     }
 
     int getConnectTimeout() {
-        return connectTimeout;
+        return limitToDeadline(connectTimeout);
+    }
+
+    private int limitToDeadline(int timeout) {
+        if (deadline == null) {
+            return timeout;
+        }
+        // a timeout of 0 means wait forever, so never go below 1ms
+        return (int) Math.max(1, Math.min(timeout, deadline.remainingMillis()));
     }
 
     URL getURL() throws MalformedURLException, URISyntaxException {
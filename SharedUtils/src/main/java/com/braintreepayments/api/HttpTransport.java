@@ -0,0 +1,30 @@
+package com.braintreepayments.api;
+
+import java.net.URL;
+
+/**
+ * Transport engine used by {@link HttpClient} to execute a single http request. Implementations
+ * perform the request on the calling thread; {@link HttpClient} is responsible for scheduling the
+ * call on a background thread via its {@link Scheduler}.
+ */
+interface HttpTransport {
+
+    int PRECONNECT_TIMEOUT_MS = 10000;
+
+    /**
+     * @param httpRequest the request to execute
+     * @return the parsed body of the http response
+     * @throws Exception if the request fails or the response indicates an error
+     */
+    String request(HttpRequest httpRequest) throws Exception;
+
+    /**
+     * Resolve the host of {@code url}, connect and complete the TLS handshake with a {@code HEAD}
+     * request to {@code url}, then park the connection so the next request to the same origin can
+     * reuse it. Redirects are not followed, so only the origin of {@code url} is warmed up.
+     *
+     * @param url a Braintree API url on the origin to connect to
+     * @throws Exception if the connection cannot be established
+     */
+    void preconnect(URL url) throws Exception;
+}
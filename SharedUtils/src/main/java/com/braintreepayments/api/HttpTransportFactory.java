@@ -0,0 +1,66 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Creates the {@link HttpTransport} engines available to {@link HttpClient}.
+ */
+class HttpTransportFactory {
+
+    private static final String OK_HTTP_CLIENT_CLASS_NAME = "okhttp3.OkHttpClient";
+
+    private final ClassHelper classHelper;
+
+    HttpTransportFactory() {
+        this(new ClassHelper());
+    }
+
+    @VisibleForTesting
+    HttpTransportFactory(ClassHelper classHelper) {
+        this.classHelper = classHelper;
+    }
+
+    /**
+     * @return true if the optional OkHttp dependency required for HTTP/2 is on the classpath
+     */
+    boolean isHttp2Available() {
+        return classHelper.isClassAvailable(OK_HTTP_CLIENT_CLASS_NAME);
+    }
+
+    /**
+     * @param useHttp2 true to use the HTTP/2 engine when OkHttp is on the classpath
+     * @param socketFactory the socket factory used for https connections
+     * @param parser the parser used to read http responses
+     * @return the engine to send requests with
+     */
+    HttpTransport createTransport(boolean useHttp2, TLSSocketFactory socketFactory, HttpResponseParser parser) throws SSLException {
+        if (useHttp2) {
+            return createHttp2Transport(socketFactory, parser);
+        }
+        return createDefaultTransport(socketFactory, parser);
+    }
+
+    /**
+     * @param socketFactory the socket factory used for https connections
+     * @param parser the parser used to read http responses
+     * @return the default {@link java.net.HttpURLConnection} engine with keep-alive connection reuse
+     */
+    HttpTransport createDefaultTransport(TLSSocketFactory socketFactory, HttpResponseParser parser) {
+        return new SynchronousHttpClient(socketFactory, parser, new HttpConnectionPool());
+    }
+
+    /**
+     * @param socketFactory the socket factory used for https connections
+     * @param parser the parser used to read http responses
+     * @return an engine that multiplexes requests over one HTTP/2 connection per origin, or the
+     * default engine if OkHttp is not on the classpath
+     */
+    HttpTransport createHttp2Transport(TLSSocketFactory socketFactory, HttpResponseParser parser) throws SSLException {
+        if (isHttp2Available()) {
+            return new OkHttpTransport(socketFactory, parser);
+        }
+        return createDefaultTransport(socketFactory, parser);
+    }
+}
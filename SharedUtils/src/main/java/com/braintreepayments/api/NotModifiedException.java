@@ -0,0 +1,12 @@
+package com.braintreepayments.api;
+
+/**
+ * Exception thrown when a 304 HTTP_NOT_MODIFIED response is encountered. Indicates that the copy
+ * the client sent validators for in a conditional request is still current.
+ */
+public class NotModifiedException extends Exception {
+
+    NotModifiedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,309 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * {@link HttpTransport} backed by OkHttp. Requests to the same origin are multiplexed over a
+ * single HTTP/2 connection when the server negotiates it via ALPN, falling back to HTTP/1.1
+ * keep-alive otherwise.
+ *
+ * OkHttp is an optional dependency; use {@link HttpTransportFactory} to create this transport only
+ * when OkHttp is on the classpath.
+ */
+class OkHttpTransport implements HttpTransport {
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+
+    // shared so that every transport multiplexes onto the same per-origin connections
+    private static final ConnectionPool SHARED_CONNECTION_POOL = new ConnectionPool();
+
+    private final OkHttpClient okHttpClient;
+    private final HttpResponseParser parser;
+
+    OkHttpTransport(TLSSocketFactory socketFactory, HttpResponseParser parser) throws SSLException {
+        this(createOkHttpClient(socketFactory != null ? socketFactory : TLSSocketFactory.newInstance()), parser);
+    }
+
+    @VisibleForTesting
+    OkHttpTransport(OkHttpClient okHttpClient, HttpResponseParser parser) {
+        this.okHttpClient = okHttpClient;
+        this.parser = parser;
+    }
+
+    @Override
+    public String request(HttpRequest httpRequest) throws Exception {
+        if (httpRequest.getPath() == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        URL url = httpRequest.getURL();
+
+        HttpEventRecorder events = httpRequest.getEventRecorder();
+        OkHttpClient.Builder clientBuilder = okHttpClient.newBuilder()
+                .readTimeout(httpRequest.getReadTimeout(), TimeUnit.MILLISECONDS)
+                .connectTimeout(httpRequest.getConnectTimeout(), TimeUnit.MILLISECONDS);
+        if (events.isEnabled()) {
+            clientBuilder.eventListener(new EventRecorderListener(events));
+        }
+        OkHttpClient client = clientBuilder.build();
+
+        Request.Builder requestBuilder = new Request.Builder().url(url);
+
+        // apply request headers
+        Map<String, String> headers = httpRequest.getHeaders();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            requestBuilder.header(entry.getKey(), entry.getValue());
+        }
+
+        String requestMethod = httpRequest.getMethod();
+        if (requestMethod != null && requestMethod.equals("POST")) {
+            if (httpRequest.shouldCompressData()) {
+                requestBuilder.header("Content-Encoding", "gzip");
+                requestBuilder.post(new GzipRequestBody(httpRequest.getData()));
+            } else {
+                // a POST without data is sent with an empty body, as the default engine does
+                byte[] data = httpRequest.getData();
+                requestBuilder.post(RequestBody.create(JSON_MEDIA_TYPE, (data != null) ? data : new byte[0]));
+            }
+        } else {
+            requestBuilder.method(requestMethod, null);
+        }
+
+        final Call call = client.newCall(requestBuilder.build());
+        RequestHandle handle = httpRequest.getHandle();
+        handle.setCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                call.cancel();
+            }
+        });
+
+        try {
+            Response response;
+            try {
+                response = call.execute();
+            } finally {
+                httpRequest.dispose();
+            }
+
+            try {
+                ResponseConnection connection = new ResponseConnection(url, response);
+                httpRequest.setResponseValidators(HttpCacheValidators.fromConnection(connection));
+                String responseBody = parser.parse(response.code(), connection);
+                events.parseEnd();
+                return responseBody;
+            } finally {
+                response.close();
+            }
+        } finally {
+            handle.setCancelAction(null);
+        }
+    }
+
+    @Override
+    public void preconnect(URL url) throws Exception {
+        OkHttpClient client = okHttpClient.newBuilder()
+                .readTimeout(PRECONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .connectTimeout(PRECONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                // a redirect would warm up the connection to the redirect target instead
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .build();
+
+        // closing the response returns the connection to the shared pool regardless of status
+        Request request = new Request.Builder().url(url).head().build();
+        client.newCall(request).execute().close();
+    }
+
+    private static OkHttpClient createOkHttpClient(TLSSocketFactory socketFactory) {
+        return new OkHttpClient.Builder()
+                .sslSocketFactory(socketFactory, socketFactory.getTrustManager())
+                .connectionPool(SHARED_CONNECTION_POOL)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * Request body that gzips its content while it is written to the connection. The content
+     * length is unknown up front, so OkHttp sends it chunked (or as HTTP/2 data frames).
+     */
+    private static class GzipRequestBody extends RequestBody {
+
+        private final byte[] data;
+
+        GzipRequestBody(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON_MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+            gzipSink.write(data);
+            gzipSink.close();
+        }
+    }
+
+    /**
+     * Reports the phases OkHttp observes while executing a call to an {@link HttpEventRecorder}.
+     * OkHttp notifies the listener on the thread executing the call.
+     */
+    private static class EventRecorderListener extends EventListener {
+
+        private final HttpEventRecorder events;
+
+        EventRecorderListener(HttpEventRecorder events) {
+            this.events = events;
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            events.dnsStart();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            events.dnsEnd();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            events.connectStart();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            events.tlsHandshakeStart();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            events.tlsHandshakeEnd();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            events.connectEnd();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            events.requestBodyEnd(byteCount);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            events.responseHeadersEnd(response.code());
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            events.responseBodyEnd(byteCount);
+        }
+    }
+
+    /**
+     * Read-only {@link HttpURLConnection} view of an OkHttp {@link Response} so that the existing
+     * {@link HttpResponseParser} implementations can be shared between transports.
+     */
+    @VisibleForTesting
+    static class ResponseConnection extends HttpURLConnection {
+
+        private final Response response;
+
+        ResponseConnection(URL url, Response response) {
+            super(url);
+            this.response = response;
+            this.responseCode = response.code();
+            this.responseMessage = response.message();
+            this.connected = true;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return response.code();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (response.code() >= HTTP_BAD_REQUEST) {
+                throw new IOException("Server returned HTTP response code: " + response.code());
+            }
+            return bodyStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            if (response.code() >= HTTP_BAD_REQUEST) {
+                return bodyStream();
+            }
+            return null;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return response.header(name);
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return response.headers().toMultimap();
+        }
+
+        @Override
+        public void connect() {
+            // the request has already been executed by OkHttp
+        }
+
+        @Override
+        public void disconnect() {
+            response.close();
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        private InputStream bodyStream() {
+            ResponseBody body = response.body();
+            return (body != null) ? body.byteStream() : null;
+        }
+    }
+}
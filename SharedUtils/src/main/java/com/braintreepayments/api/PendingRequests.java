@@ -0,0 +1,57 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The requests started by one payment flow. Cancelling them leaves requests that other flows send
+ * through the same client untouched.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class PendingRequests {
+
+    private final List<RequestHandle> handles = new ArrayList<>();
+
+    /**
+     * @param handle the handle of a request the flow started, or null if it did not return one
+     */
+    public synchronized void add(@Nullable RequestHandle handle) {
+        // forget completed requests so only requests in flight are held
+        Iterator<RequestHandle> iterator = handles.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isCompleted()) {
+                iterator.remove();
+            }
+        }
+        if (handle != null && !handle.isCompleted()) {
+            handles.add(handle);
+        }
+    }
+
+    /**
+     * Cancel every added request that has not completed. Each one delivers a
+     * {@link RequestCancelledException} to its callback.
+     */
+    public void cancelAll() {
+        List<RequestHandle> requests;
+        synchronized (this) {
+            requests = new ArrayList<>(handles);
+            handles.clear();
+        }
+        for (RequestHandle request : requests) {
+            request.cancel();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return handles.size();
+    }
+}
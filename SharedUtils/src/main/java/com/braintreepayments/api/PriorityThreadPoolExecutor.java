@@ -0,0 +1,162 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded background executor for {@link ThreadScheduler}. Tasks are ordered by
+ * {@link Scheduler.Priority} (FIFO within a priority) and run on at most {@code maxPoolSize} named
+ * threads, which exit after being idle for {@code keepAliveSeconds}.
+ *
+ * An unbounded priority queue never triggers {@link ThreadPoolExecutor}'s growth past its core
+ * size, so the core and maximum sizes are the same and core threads are allowed to time out.
+ */
+class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+    static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+    private static final String THREAD_NAME_PREFIX = "braintree-background-";
+
+    private static volatile PriorityThreadPoolExecutor sharedInstance;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong totalWaitTimeNanos = new AtomicLong();
+    private final AtomicLong totalExecutionTimeNanos = new AtomicLong();
+
+    /**
+     * @param maxPoolSize the maximum number of background threads, used only when the shared
+     *                    executor is created
+     * @return an executor shared by every {@link ThreadScheduler} in the process. The pool is
+     * sized once by the first caller; later sizes are ignored so that one client cannot shrink or
+     * grow the pool other clients are already using.
+     */
+    static PriorityThreadPoolExecutor getSharedInstance(int maxPoolSize) {
+        if (sharedInstance == null) {
+            synchronized (PriorityThreadPoolExecutor.class) {
+                // double check that instance was not created in another thread
+                if (sharedInstance == null) {
+                    sharedInstance =
+                            new PriorityThreadPoolExecutor(maxPoolSize, DEFAULT_KEEP_ALIVE_SECONDS);
+                }
+            }
+        }
+        return sharedInstance;
+    }
+
+    PriorityThreadPoolExecutor(int maxPoolSize, int keepAliveSeconds) {
+        super(maxPoolSize, maxPoolSize, keepAliveSeconds, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new NamedThreadFactory());
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param runnable the task to run
+     * @param priority the {@link Scheduler.Priority} of the task
+     */
+    void execute(Runnable runnable, @Scheduler.Priority int priority) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+        super.execute(new PrioritizedTask(runnable, priority, sequence.getAndIncrement()));
+
+        int queueDepth = getQueue().size();
+        int currentMax;
+        while (queueDepth > (currentMax = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(currentMax, queueDepth)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        if (runnable instanceof PrioritizedTask) {
+            super.execute(runnable);
+        } else {
+            execute(runnable, Scheduler.PRIORITY_DEFAULT);
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof PrioritizedTask) {
+            PrioritizedTask task = (PrioritizedTask) runnable;
+            task.startedAtNanos = System.nanoTime();
+            totalWaitTimeNanos.addAndGet(task.startedAtNanos - task.enqueuedAtNanos);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        super.afterExecute(runnable, throwable);
+        if (runnable instanceof PrioritizedTask) {
+            PrioritizedTask task = (PrioritizedTask) runnable;
+            totalExecutionTimeNanos.addAndGet(System.nanoTime() - task.startedAtNanos);
+        }
+    }
+
+    int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    long getTotalWaitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitTimeNanos.get());
+    }
+
+    long getTotalExecutionTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalExecutionTimeNanos.get());
+    }
+
+    @VisibleForTesting
+    static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        private final Runnable runnable;
+        private final int priority;
+        private final long sequence;
+        private final long enqueuedAtNanos;
+        private long startedAtNanos;
+
+        PrioritizedTask(Runnable runnable, int priority, long sequence) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAtNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return (priority < other.priority) ? -1 : 1;
+            }
+            return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -6,7 +6,21 @@ package com.braintreepayments.api;
  */
 public class RateLimitException extends Exception {
 
+    private final long retryAfterMillis;
+
     RateLimitException(String message) {
+        this(message, 0);
+    }
+
+    RateLimitException(String message, long retryAfterMillis) {
         super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return the delay requested by the server's Retry-After header, or 0 if none was sent
+     */
+    long getRetryAfterMillis() {
+        return retryAfterMillis;
     }
 }
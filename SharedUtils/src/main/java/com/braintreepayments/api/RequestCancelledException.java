@@ -0,0 +1,12 @@
+package com.braintreepayments.api;
+
+/**
+ * Exception delivered to the callback of a request that was cancelled before it completed, e.g.
+ * because the screen of the payment flow that sent it was destroyed.
+ */
+public class RequestCancelledException extends Exception {
+
+    RequestCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Handle to a request sent in the background. Cancelling it abandons the request: a request that
+ * has not started is never sent, an open connection is disconnected, and the request's callback
+ * receives a {@link RequestCancelledException} instead of the response.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class RequestHandle {
+
+    static final String CANCELLED_MESSAGE = "The request was cancelled.";
+
+    private boolean cancelled;
+    private boolean completed;
+    private Runnable cancelAction;
+
+    public RequestHandle() {
+    }
+
+    /**
+     * Cancel the request. Has no effect if the request has already completed or been cancelled.
+     */
+    public void cancel() {
+        Runnable action;
+        synchronized (this) {
+            if (cancelled || completed) {
+                return;
+            }
+            cancelled = true;
+            action = cancelAction;
+            cancelAction = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Mark the request as completed when its result is about to be delivered, after which
+     * cancelling it has no effect.
+     *
+     * @return true if the result should be delivered, false if the request was cancelled first
+     * and its callback should receive a {@link RequestCancelledException} instead
+     */
+    synchronized boolean complete() {
+        completed = true;
+        cancelAction = null;
+        return !cancelled;
+    }
+
+    synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @param action work to run when this handle is cancelled, e.g. disconnecting the request's
+     * connection, or null to clear it; runs immediately if the handle is already cancelled
+     */
+    void setCancelAction(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelAction = action;
+                return;
+            }
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte buffers used by {@link BaseHttpResponseParser} to read response bodies.
+ *
+ * Buffers are returned to the pool after each response so that repeated requests reuse the same
+ * memory instead of allocating a new buffer (and growing copies of it) for every response. Only a
+ * few buffers up to {@code maxPooledBufferSize} are retained; larger buffers are left to the
+ * garbage collector.
+ */
+class ResponseBufferPool {
+
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+    static final int DEFAULT_MAX_POOLED_BUFFERS = 4;
+
+    private static final ResponseBufferPool SHARED_INSTANCE = new ResponseBufferPool();
+
+    private final int maxPooledBufferSize;
+    private final int maxPooledBuffers;
+    private final ArrayDeque<byte[]> buffers;
+
+    private final AtomicLong allocatedBytes;
+    private final AtomicInteger reuseCount;
+
+    static ResponseBufferPool getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    ResponseBufferPool() {
+        this(DEFAULT_MAX_POOLED_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    @VisibleForTesting
+    ResponseBufferPool(int maxPooledBufferSize, int maxPooledBuffers) {
+        this.maxPooledBufferSize = maxPooledBufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.buffers = new ArrayDeque<>();
+        this.allocatedBytes = new AtomicLong();
+        this.reuseCount = new AtomicInteger();
+    }
+
+    /**
+     * @param minSize the number of bytes the caller expects to read, or 0 if unknown
+     * @return a buffer with a length of at least {@code minSize}
+     */
+    byte[] acquire(int minSize) {
+        synchronized (buffers) {
+            Iterator<byte[]> iterator = buffers.iterator();
+            while (iterator.hasNext()) {
+                byte[] buffer = iterator.next();
+                if (buffer.length >= minSize) {
+                    iterator.remove();
+                    reuseCount.incrementAndGet();
+                    return buffer;
+                }
+            }
+        }
+        return allocate(Math.max(minSize, DEFAULT_BUFFER_SIZE));
+    }
+
+    /**
+     * Replace a full buffer with one twice its size containing the same bytes. The smaller buffer
+     * is zeroed and released back to the pool.
+     *
+     * @param buffer a buffer acquired from this pool
+     * @return a larger buffer with the contents of {@code buffer}
+     */
+    byte[] grow(byte[] buffer) {
+        int newSize = (buffer.length > Integer.MAX_VALUE / 2) ? Integer.MAX_VALUE : buffer.length * 2;
+        byte[] grown = Arrays.copyOf(buffer, newSize);
+        allocatedBytes.addAndGet(newSize);
+        // the full buffer holds response bytes that must not stay in pooled memory
+        Arrays.fill(buffer, (byte) 0);
+        release(buffer);
+        return grown;
+    }
+
+    void release(byte[] buffer) {
+        if (buffer == null || buffer.length > maxPooledBufferSize) {
+            return;
+        }
+        synchronized (buffers) {
+            if (buffers.size() < maxPooledBuffers) {
+                buffers.addLast(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return total bytes allocated for new buffers since this pool was created
+     */
+    long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    int getReuseCount() {
+        return reuseCount.get();
+    }
+
+    int getPooledBufferCount() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+
+    private byte[] allocate(int size) {
+        allocatedBytes.addAndGet(size);
+        return new byte[size];
+    }
+}
@@ -0,0 +1,117 @@
+package com.braintreepayments.api;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry state for a single request sent by {@link HttpClient}. A new instance must be created for
+ * every request so that concurrent requests to the same url do not share attempt counts.
+ *
+ * Attempts are spaced by exponential backoff with jitter, a server provided {@code Retry-After}
+ * delay is honored when it is longer, and no attempt is scheduled past the total time budget. The
+ * budget is measured from the creation of the policy, so it includes the first attempt.
+ */
+class RetryPolicy {
+
+    static final long NO_RETRY = -1;
+
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_INITIAL_BACKOFF_MS = TimeUnit.SECONDS.toMillis(1);
+    static final long DEFAULT_MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(8);
+    static final long DEFAULT_TOTAL_BUDGET_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long totalBudgetMs;
+    private final Random random;
+
+    private final long startedAtMs;
+
+    private int attemptCount;
+
+    /**
+     * Create the policy right before the first attempt is scheduled.
+     */
+    RetryPolicy(int maxAttempts) {
+        this(maxAttempts, DEFAULT_INITIAL_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS, DEFAULT_TOTAL_BUDGET_MS, new Random(), System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs, long totalBudgetMs, Random random, long startedAtMs) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.totalBudgetMs = totalBudgetMs;
+        this.random = random;
+        this.startedAtMs = startedAtMs;
+    }
+
+    /**
+     * Record a failed attempt and compute when the next attempt should run.
+     *
+     * @param error the error returned by the failed attempt
+     * @return the delay in milliseconds before the next attempt, or {@link #NO_RETRY} if the
+     * request should not be attempted again
+     */
+    long nextRetryDelay(Exception error) {
+        return nextRetryDelay(error, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    synchronized long nextRetryDelay(Exception error, long currentTimeMillis) {
+        attemptCount++;
+
+        if (!isRetryable(error) || attemptCount >= maxAttempts) {
+            return NO_RETRY;
+        }
+
+        long delay = Math.max(computeBackoff(attemptCount), getRetryAfterMillis(error));
+        long elapsed = currentTimeMillis - startedAtMs;
+        if (elapsed + delay > totalBudgetMs) {
+            return NO_RETRY;
+        }
+        return delay;
+    }
+
+    /**
+     * @param error the error returned by the failed attempt
+     * @return false for client errors and other responses that will be the same when retried
+     */
+    boolean isRetryable(Exception error) {
+        return !(error instanceof AuthenticationException
+                || error instanceof AuthorizationException
+                || error instanceof UnprocessableEntityException
+                || error instanceof UpgradeRequiredException
+                || error instanceof NotModifiedException
+                || error instanceof IllegalArgumentException);
+    }
+
+    synchronized int getAttemptCount() {
+        return attemptCount;
+    }
+
+    // exponential backoff with "equal jitter": half of the backoff is fixed and half is random,
+    // so that clients recovering from the same outage spread out without retrying immediately
+    private long computeBackoff(int failedAttempts) {
+        long backoff = initialBackoffMs;
+        for (int i = 1; i < failedAttempts && backoff < maxBackoffMs; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffMs);
+
+        long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half));
+    }
+
+    private static long getRetryAfterMillis(Exception error) {
+        if (error instanceof RateLimitException) {
+            return ((RateLimitException) error).getRetryAfterMillis();
+        } else if (error instanceof ServiceUnavailableException) {
+            return ((ServiceUnavailableException) error).getRetryAfterMillis();
+        }
+        return 0;
+    }
+}
@@ -1,6 +1,27 @@
 package com.braintreepayments.api;
 
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 interface Scheduler {
+
+    @IntDef({ PRIORITY_DEFAULT, PRIORITY_LOW })
+    @Retention(RetentionPolicy.SOURCE)
+    @interface Priority {
+    }
+
+    // payment flow work, e.g. configuration, tokenization and 3DS requests
+    int PRIORITY_DEFAULT = 0;
+
+    // work that should yield to payment flows, e.g. analytics and crash reports
+    int PRIORITY_LOW = 1;
+
     void runOnMain(Runnable runnable);
     void runOnBackground(Runnable runnable);
+    void runOnBackground(Runnable runnable, @Priority int priority);
+
+    // runs the runnable in the background after the delay without holding a background thread
+    void runOnBackgroundDelayed(Runnable runnable, @Priority int priority, long delayMillis);
 }
@@ -1,9 +1,15 @@
 package com.braintreepayments.api;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
@@ -13,13 +19,25 @@ import javax.net.ssl.SSLSocketFactory;
  * This class performs an http request on the calling thread. The external caller is
  * responsible for thread scheduling to ensure that this is not called on the main thread.
  */
-class SynchronousHttpClient {
+class SynchronousHttpClient implements HttpTransport {
 
     private SSLSocketFactory socketFactory;
     private final HttpResponseParser parser;
+    private final HttpConnectionPool connectionPool;
 
     SynchronousHttpClient(SSLSocketFactory socketFactory, HttpResponseParser parser) {
+        this(socketFactory, parser, null);
+    }
+
+    /**
+     * @param socketFactory the socket factory used for https connections
+     * @param parser the parser used to read http responses
+     * @param connectionPool when non-null, finished connections are released to the platform's
+     *                       keep-alive cache (bounded by the pool) instead of being disconnected
+     */
+    SynchronousHttpClient(SSLSocketFactory socketFactory, HttpResponseParser parser, HttpConnectionPool connectionPool) {
         this.parser = parser;
+        this.connectionPool = connectionPool;
         if (socketFactory != null) {
             this.socketFactory = socketFactory;
         } else {
@@ -29,18 +47,156 @@ class SynchronousHttpClient {
                 this.socketFactory = null;
             }
         }
+        if (connectionPool != null) {
+            connectionPool.setSocketFactory(this.socketFactory);
+        }
     }
 
     void setSSLSocketFactory(SSLSocketFactory socketFactory) {
         this.socketFactory = socketFactory;
+        if (connectionPool != null) {
+            // connections opened with the previous factory can no longer be reused
+            connectionPool.evictAll();
+            connectionPool.setSocketFactory(socketFactory);
+        }
+    }
+
+    HttpConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
-    String request(HttpRequest httpRequest) throws Exception {
+    @Override
+    public String request(HttpRequest httpRequest) throws Exception {
         if (httpRequest.getPath() == null) {
             throw new IllegalArgumentException("Path cannot be null");
         }
         URL url = httpRequest.getURL();
+        if (connectionPool != null) {
+            connectionPool.acquire(url);
+        }
+
+        final HttpURLConnection connection = openConnection(url);
+
+        // cancelling the request aborts any blocking read or write on the connection
+        RequestHandle handle = httpRequest.getHandle();
+        handle.setCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                connection.disconnect();
+            }
+        });
+
+        boolean keepAlive = false;
+        try {
+            String requestMethod = httpRequest.getMethod();
+            connection.setRequestMethod(requestMethod);
+
+            connection.setReadTimeout(httpRequest.getReadTimeout());
+            connection.setConnectTimeout(httpRequest.getConnectTimeout());
+
+            // apply request headers
+            Map<String, String> headers = httpRequest.getHeaders();
+            for (Map.Entry<String,String> entry : headers.entrySet()) {
+                connection.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+
+            boolean isPost = requestMethod != null && requestMethod.equals("POST");
+            boolean compressData = isPost && httpRequest.shouldCompressData();
+            if (isPost) {
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setDoOutput(true);
+            }
+            if (compressData) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+                // stream chunks as they are compressed instead of buffering the compressed body
+                // to compute a Content-Length
+                connection.setChunkedStreamingMode(0);
+            }
+
+            HttpEventRecorder events = httpRequest.getEventRecorder();
+            if (events.isEnabled()) {
+                // connect explicitly so the time to open the connection is reported on its own
+                events.connectStart();
+                connection.connect();
+                events.connectEnd();
+            }
+
+            if (isPost) {
+                OutputStream outputStream = connection.getOutputStream();
+                CountingOutputStream countingStream = null;
+                if (events.isEnabled()) {
+                    countingStream = new CountingOutputStream(outputStream);
+                    outputStream = countingStream;
+                }
+                if (compressData) {
+                    outputStream = new GZIPOutputStream(outputStream);
+                }
+                byte[] data = httpRequest.getData();
+                if (data != null) {
+                    outputStream.write(data);
+                }
+                outputStream.flush();
+                outputStream.close();
+                if (countingStream != null) {
+                    events.requestBodyEnd(countingStream.getByteCount());
+                }
+
+                httpRequest.dispose();
+            }
 
+            int responseCode = connection.getResponseCode();
+            events.responseHeadersEnd(responseCode);
+            httpRequest.setResponseValidators(HttpCacheValidators.fromConnection(connection));
+
+            HttpURLConnection responseConnection = events.isEnabled()
+                    ? new InstrumentedConnection(connection, events) : connection;
+            String responseBody = parser.parse(responseCode, responseConnection);
+            events.parseEnd();
+
+            // the parser has consumed and closed the response stream, so the socket is reusable
+            keepAlive = (connectionPool != null)
+                    && !"close".equalsIgnoreCase(connection.getHeaderField("Connection"));
+            return responseBody;
+        } finally {
+            handle.setCancelAction(null);
+            if (!keepAlive || !connectionPool.release(url)) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Override
+    public void preconnect(URL url) throws Exception {
+        if (connectionPool != null) {
+            connectionPool.acquire(url);
+        }
+        HttpURLConnection connection = openConnection(url);
+        connection.setRequestMethod("HEAD");
+        // a redirect would warm up the connection to the redirect target instead of this host
+        connection.setInstanceFollowRedirects(false);
+        connection.setReadTimeout(PRECONNECT_TIMEOUT_MS);
+        connection.setConnectTimeout(PRECONNECT_TIMEOUT_MS);
+
+        boolean keepAlive = false;
+        try {
+            // any status will do; the connection is reusable once the response is consumed
+            int responseCode = connection.getResponseCode();
+            InputStream responseStream = (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST)
+                    ? connection.getErrorStream() : connection.getInputStream();
+            if (responseStream != null) {
+                responseStream.close();
+            }
+
+            keepAlive = (connectionPool != null)
+                    && !"close".equalsIgnoreCase(connection.getHeaderField("Connection"));
+        } finally {
+            if (!keepAlive || !connectionPool.release(url)) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private HttpURLConnection openConnection(URL url) throws Exception {
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         if (connection instanceof HttpsURLConnection) {
             if (socketFactory == null) {
@@ -48,36 +204,160 @@ class SynchronousHttpClient {
             }
             ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
         }
+        return connection;
+    }
 
-        String requestMethod = httpRequest.getMethod();
-        connection.setRequestMethod(requestMethod);
+    /**
+     * Counts the bytes written to the connection, after compression.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
 
-        connection.setReadTimeout(httpRequest.getReadTimeout());
-        connection.setConnectTimeout(httpRequest.getConnectTimeout());
+        private long byteCount;
 
-        // apply request headers
-        Map<String, String> headers = httpRequest.getHeaders();
-        for (Map.Entry<String,String> entry : headers.entrySet()) {
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        CountingOutputStream(OutputStream out) {
+            super(out);
         }
 
-        if (requestMethod != null && requestMethod.equals("POST")) {
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            byteCount++;
+        }
 
-            OutputStream outputStream = connection.getOutputStream();
-            outputStream.write(httpRequest.getData());
-            outputStream.flush();
-            outputStream.close();
+        @Override
+        public void write(byte[] b) throws IOException {
+            out.write(b);
+            byteCount += b.length;
+        }
 
-            httpRequest.dispose();
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would otherwise write one byte at a time
+            out.write(b, off, len);
+            byteCount += len;
         }
 
-        try {
-            int responseCode = connection.getResponseCode();
-            return parser.parse(responseCode, connection);
-        } finally {
+        long getByteCount() {
+            return byteCount;
+        }
+    }
+
+    /**
+     * View of a connection handed to the {@link HttpResponseParser} when requests are
+     * instrumented, so the end of the response body can be reported separately from parsing.
+     */
+    private static class InstrumentedConnection extends HttpURLConnection {
+
+        private final HttpURLConnection connection;
+        private final HttpEventRecorder events;
+
+        InstrumentedConnection(HttpURLConnection connection, HttpEventRecorder events) {
+            super(connection.getURL());
+            this.connection = connection;
+            this.events = events;
+            this.connected = true;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new CountingInputStream(connection.getInputStream(), events);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            InputStream errorStream = connection.getErrorStream();
+            return (errorStream != null) ? new CountingInputStream(errorStream, events) : null;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            return connection.getHeaderField(n);
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            return connection.getHeaderFieldKey(n);
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return connection.getHeaderFields();
+        }
+
+        @Override
+        public void connect() {
+            // the request has already been sent
+        }
+
+        @Override
+        public void disconnect() {
             connection.disconnect();
         }
+
+        @Override
+        public boolean usingProxy() {
+            return connection.usingProxy();
+        }
+    }
+
+    /**
+     * Counts the bytes read from the connection, before decompression, and reports them once the
+     * body has been read or the stream is closed.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final HttpEventRecorder events;
+        private long byteCount;
+        private boolean isReported;
+
+        CountingInputStream(InputStream in, HttpEventRecorder events) {
+            super(in);
+            this.events = events;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                reportBodyEnd();
+            } else {
+                byteCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count == -1) {
+                reportBodyEnd();
+            } else {
+                byteCount += count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reportBodyEnd();
+            super.close();
+        }
+
+        private void reportBodyEnd() {
+            if (!isReported) {
+                isReported = true;
+                events.responseBodyEnd(byteCount);
+            }
+        }
     }
 }
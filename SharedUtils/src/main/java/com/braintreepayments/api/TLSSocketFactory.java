@@ -1,11 +1,18 @@
 package com.braintreepayments.api;
 
+import android.net.SSLCertificateSocketFactory;
+import android.net.ssl.SSLSockets;
+import android.os.Build;
+
+import androidx.annotation.VisibleForTesting;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
+import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
@@ -14,16 +21,38 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
 
 class TLSSocketFactory extends SSLSocketFactory {
 
+    // sessions are cached per host and port, and Braintree only talks to a handful of hosts, so a
+    // small cache is enough to keep a resumable session for each of them without holding on to
+    // stale sessions
+    static final int SESSION_CACHE_SIZE = 16;
+    static final int SESSION_TIMEOUT_SECONDS = (int) TimeUnit.HOURS.toSeconds(8);
+
     private final SSLSocketFactory internalSSLSocketFactory;
+    private final X509TrustManager trustManager;
+
+    private final AtomicInteger handshakeCount = new AtomicInteger();
+    private final AtomicInteger resumedHandshakeCount = new AtomicInteger();
+
+    // TLS sockets created by this factory, keyed by host:port
+    private final ConcurrentMap<String, AtomicInteger> socketCounts = new ConcurrentHashMap<>();
 
     static TLSSocketFactory newInstance() throws SSLException {
         return new TLSSocketFactory();
@@ -31,10 +60,14 @@ class TLSSocketFactory extends SSLSocketFactory {
 
     TLSSocketFactory() throws SSLException {
         try {
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, null, null); // use system security providers
-            internalSSLSocketFactory = sslContext.getSocketFactory();
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            // use system security providers
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init((KeyStore) null);
+            trustManager = findX509TrustManager(tmf.getTrustManagers());
+
+            internalSSLSocketFactory = createSSLContext(trustManager).getSocketFactory();
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
             throw new SSLException(e.getMessage());
         }
     }
@@ -61,10 +94,9 @@ class TLSSocketFactory extends SSLSocketFactory {
             TrustManagerFactory tmf = TrustManagerFactory.getInstance(
                     TrustManagerFactory.getDefaultAlgorithm());
             tmf.init(keyStore);
+            trustManager = findX509TrustManager(tmf.getTrustManagers());
 
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, tmf.getTrustManagers(), null);
-            internalSSLSocketFactory = sslContext.getSocketFactory();
+            internalSSLSocketFactory = createSSLContext(trustManager).getSocketFactory();
         } catch (Exception e) {
             throw new SSLException(e.getMessage());
         } finally {
@@ -74,6 +106,39 @@ class TLSSocketFactory extends SSLSocketFactory {
         }
     }
 
+    /**
+     * @return the trust manager backing this factory, for http engines that need to verify the
+     * server certificate chain themselves
+     */
+    X509TrustManager getTrustManager() {
+        return trustManager;
+    }
+
+    /**
+     * @return the number of TLS handshakes completed on sockets created by this factory
+     */
+    int getHandshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * @return an estimate of the number of completed handshakes that resumed a cached session
+     * instead of performing a full handshake. JSSE does not report resumption, so a handshake is
+     * counted as resumed when its session was created before the socket; this is a heuristic.
+     */
+    int getResumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
+    /**
+     * @return the number of TLS sockets this factory created for the given host and port. Every
+     * socket is a new connection, so a request that reused a pooled connection does not add to it.
+     */
+    int getSocketCount(String host, int port) {
+        AtomicInteger count = socketCounts.get(createHostKey(host, port));
+        return (count != null) ? count.get() : 0;
+    }
+
     @Override
     public String[] getDefaultCipherSuites() {
         return internalSSLSocketFactory.getDefaultCipherSuites();
@@ -87,42 +152,135 @@ class TLSSocketFactory extends SSLSocketFactory {
     @Override
     public Socket createSocket(Socket s, String host, int port, boolean autoClose)
             throws IOException {
-        return enableTLSOnSocket(internalSSLSocketFactory.createSocket(s, host, port, autoClose));
+        return enableTLSOnSocket(
+                internalSSLSocketFactory.createSocket(s, host, port, autoClose), host, port);
     }
 
     @Override
     public Socket createSocket(String host, int port) throws IOException {
-        return enableTLSOnSocket(internalSSLSocketFactory.createSocket(host, port));
+        return enableTLSOnSocket(internalSSLSocketFactory.createSocket(host, port), host, port);
     }
 
     @Override
     public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
             throws IOException {
         return enableTLSOnSocket(
-                internalSSLSocketFactory.createSocket(host, port, localHost, localPort));
+                internalSSLSocketFactory.createSocket(host, port, localHost, localPort), host, port);
     }
 
     @Override
     public Socket createSocket(InetAddress host, int port) throws IOException {
-        return enableTLSOnSocket(internalSSLSocketFactory.createSocket(host, port));
+        return enableTLSOnSocket(
+                internalSSLSocketFactory.createSocket(host, port), host.getHostName(), port);
     }
 
     @Override
     public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
             int localPort) throws IOException {
         return enableTLSOnSocket(
-                internalSSLSocketFactory.createSocket(address, port, localAddress, localPort));
+                internalSSLSocketFactory.createSocket(address, port, localAddress, localPort),
+                address.getHostName(), port);
+    }
+
+    private static X509TrustManager findX509TrustManager(TrustManager[] trustManagers) throws KeyStoreException {
+        for (TrustManager trustManager : trustManagers) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new KeyStoreException("No X509TrustManager available");
+    }
+
+    private static SSLContext createSSLContext(X509TrustManager trustManager)
+            throws NoSuchAlgorithmException, KeyManagementException {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[] { trustManager }, null);
+
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessionContext.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+        }
+        return sslContext;
     }
 
-    private Socket enableTLSOnSocket(Socket socket) {
+    private Socket enableTLSOnSocket(Socket socket, String host, int port) {
         if (socket instanceof SSLSocket) {
+            countSocket(host, port);
+            SSLSocket sslSocket = (SSLSocket) socket;
             ArrayList<String> supportedProtocols =
-                    new ArrayList<>(Arrays.asList(((SSLSocket) socket).getSupportedProtocols()));
+                    new ArrayList<>(Arrays.asList(sslSocket.getSupportedProtocols()));
             supportedProtocols.retainAll(Collections.singletonList("TLSv1.2"));
 
-            ((SSLSocket) socket).setEnabledProtocols(supportedProtocols.toArray(new String[supportedProtocols.size()]));
+            sslSocket.setEnabledProtocols(supportedProtocols.toArray(new String[supportedProtocols.size()]));
+            enableSessionTickets(sslSocket);
+            sslSocket.addHandshakeCompletedListener(
+                    new HandshakeCounter(System.currentTimeMillis()));
         }
 
         return socket;
     }
+
+    /**
+     * Conscrypt, the TLS provider on Android, only sends session tickets when asked to. Tickets
+     * let the server resume a session without keeping per-client state. Without them, sessions
+     * are still resumed from the session cache.
+     */
+    @SuppressWarnings("deprecation")
+    private static void enableSessionTickets(SSLSocket socket) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (SSLSockets.isSupportedSocket(socket)) {
+                SSLSockets.setUseSessionTickets(socket, true);
+            }
+            return;
+        }
+        try {
+            SSLCertificateSocketFactory platformFactory =
+                    (SSLCertificateSocketFactory) SSLCertificateSocketFactory.getDefault(0);
+            platformFactory.setUseSessionTickets(socket, true);
+        } catch (RuntimeException ignored) {
+            // not a platform socket, e.g. one from a security provider the app installed
+        }
+    }
+
+    private void countSocket(String host, int port) {
+        String hostKey = createHostKey(host, port);
+        AtomicInteger count = socketCounts.get(hostKey);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = socketCounts.putIfAbsent(hostKey, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private static String createHostKey(String host, int port) {
+        return host + ":" + port;
+    }
+
+    @VisibleForTesting
+    void onHandshakeCompleted(long sessionCreationTime, long socketCreationTime) {
+        handshakeCount.incrementAndGet();
+        // heuristic: a resumed session keeps the creation time of the handshake that originally
+        // created it, which makes it older than the socket
+        if (sessionCreationTime < socketCreationTime) {
+            resumedHandshakeCount.incrementAndGet();
+        }
+    }
+
+    private class HandshakeCounter implements HandshakeCompletedListener {
+
+        private final long socketCreationTime;
+
+        HandshakeCounter(long socketCreationTime) {
+            this.socketCreationTime = socketCreationTime;
+        }
+
+        @Override
+        public void handshakeCompleted(HandshakeCompletedEvent event) {
+            onHandshakeCompleted(event.getSession().getCreationTime(), socketCreationTime);
+        }
+    }
 }
@@ -17,6 +17,16 @@ class ThreadScheduler implements Scheduler {
         this(new Handler(Looper.getMainLooper()), Executors.newCachedThreadPool());
     }
 
+    /**
+     * @param maxPoolSize the maximum number of background threads. Background work is run by
+     *                    priority on a pool shared by every bounded {@link ThreadScheduler} in the
+     *                    process, which is sized by the first bounded scheduler created.
+     */
+    ThreadScheduler(int maxPoolSize) {
+        this(new Handler(Looper.getMainLooper()),
+                PriorityThreadPoolExecutor.getSharedInstance(maxPoolSize));
+    }
+
     @VisibleForTesting
     ThreadScheduler(Handler mainThreadHandler, ExecutorService backgroundThreadPool) {
         this.mainThreadHandler = mainThreadHandler;
@@ -27,6 +37,24 @@ class ThreadScheduler implements Scheduler {
         backgroundThreadService.submit(runnable);
     }
 
+    public void runOnBackground(Runnable runnable, @Priority int priority) {
+        if (backgroundThreadService instanceof PriorityThreadPoolExecutor) {
+            ((PriorityThreadPoolExecutor) backgroundThreadService).execute(runnable, priority);
+        } else {
+            backgroundThreadService.submit(runnable);
+        }
+    }
+
+    public void runOnBackgroundDelayed(final Runnable runnable, @Priority final int priority, long delayMillis) {
+        // the main thread handler only keeps the timer, the runnable itself runs in the background
+        mainThreadHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                runOnBackground(runnable, priority);
+            }
+        }, delayMillis);
+    }
+
     public void runOnMain(Runnable runnable) {
         mainThreadHandler.post(runnable);
     }
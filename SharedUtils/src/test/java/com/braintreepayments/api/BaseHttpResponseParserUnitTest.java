@@ -27,6 +27,7 @@ import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -152,6 +153,128 @@ public class BaseHttpResponseParserUnitTest {
         }
     }
 
+    public static class HttpNotModifiedTest {
+
+        @Test
+        public void parse() throws IOException {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+
+            final BaseHttpResponseParser sut = new BaseHttpResponseParser();
+            assertThrows(NotModifiedException.class, new ThrowingRunnable() {
+                @Override
+                public void run() throws Throwable {
+                    sut.parse(304, connection);
+                }
+            });
+
+            verify(connection, never()).getInputStream();
+        }
+    }
+
+    public static class BufferPoolTest {
+
+        @Test
+        public void parse_reusesPooledBufferAcrossResponses() throws Exception {
+            ResponseBufferPool bufferPool = new ResponseBufferPool();
+            BaseHttpResponseParser sut = new BaseHttpResponseParser(bufferPool);
+
+            for (int i = 0; i < 3; i++) {
+                HttpURLConnection connection = mock(HttpURLConnection.class);
+                when(connection.getInputStream()).thenReturn(createPlainTextInputStream("response " + i));
+                assertEquals("response " + i, sut.parse(HTTP_OK, connection));
+            }
+
+            assertEquals(ResponseBufferPool.DEFAULT_BUFFER_SIZE, bufferPool.getAllocatedBytes());
+            assertEquals(2, bufferPool.getReuseCount());
+        }
+
+        @Test
+        public void parse_withContentLength_presizesBufferWithoutGrowing() throws Exception {
+            ResponseBufferPool bufferPool = new ResponseBufferPool();
+            BaseHttpResponseParser sut = new BaseHttpResponseParser(bufferPool);
+
+            String body = createBody(20000);
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getContentLength()).thenReturn(20000);
+            when(connection.getInputStream()).thenReturn(createPlainTextInputStream(body));
+
+            assertEquals(body, sut.parse(HTTP_OK, connection));
+            assertEquals(20001, bufferPool.getAllocatedBytes());
+        }
+
+        @Test
+        public void parse_withHugeContentLength_capsPresizedBuffer() throws Exception {
+            ResponseBufferPool bufferPool = new ResponseBufferPool();
+            BaseHttpResponseParser sut = new BaseHttpResponseParser(bufferPool);
+
+            String body = createBody(100);
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getContentLength()).thenReturn(Integer.MAX_VALUE);
+            when(connection.getInputStream()).thenReturn(createPlainTextInputStream(body));
+
+            assertEquals(body, sut.parse(HTTP_OK, connection));
+            assertEquals(ResponseBufferPool.DEFAULT_MAX_POOLED_BUFFER_SIZE + 1,
+                    bufferPool.getAllocatedBytes());
+        }
+
+        @Test
+        public void parse_withoutContentLength_growsBufferForLargeBody() throws Exception {
+            BaseHttpResponseParser sut = new BaseHttpResponseParser(new ResponseBufferPool());
+
+            String body = createBody(50000) + "ü";
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getContentEncoding()).thenReturn("gzip");
+            when(connection.getInputStream()).thenReturn(createGzippedInputStream(body));
+
+            assertEquals(body, sut.parse(HTTP_OK, connection));
+        }
+
+        private static String createBody(int length) {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + (i % 26)));
+            }
+            return builder.toString();
+        }
+    }
+
+    public static class RetryAfterTest {
+
+        @Test
+        public void parse_with429AndRetryAfterSeconds_exposesRetryAfterMillis() {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getHeaderField("Retry-After")).thenReturn("7");
+
+            final BaseHttpResponseParser sut = new BaseHttpResponseParser();
+            RateLimitException exception = assertThrows(RateLimitException.class, new ThrowingRunnable() {
+                @Override
+                public void run() throws Throwable {
+                    sut.parse(429, connection);
+                }
+            });
+
+            assertEquals(7000, exception.getRetryAfterMillis());
+        }
+
+        @Test
+        public void parseRetryAfter_withHttpDate_returnsDelayUntilDate() {
+            // Thu, 01 Jan 1970 00:00:10 GMT
+            assertEquals(4000, BaseHttpResponseParser.parseRetryAfter("Thu, 01 Jan 1970 00:00:10 GMT", 6000));
+        }
+
+        @Test
+        public void parseRetryAfter_withDateInPast_returnsZero() {
+            assertEquals(0, BaseHttpResponseParser.parseRetryAfter("Thu, 01 Jan 1970 00:00:10 GMT", 60000));
+        }
+
+        @Test
+        public void parseRetryAfter_withMissingOrInvalidValue_returnsZero() {
+            assertEquals(0, BaseHttpResponseParser.parseRetryAfter(null, 0));
+            assertEquals(0, BaseHttpResponseParser.parseRetryAfter("soon", 0));
+            assertEquals(0, BaseHttpResponseParser.parseRetryAfter("-5", 0));
+        }
+    }
+
     private static InputStream createPlainTextInputStream(String input) {
         return spy(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
     }
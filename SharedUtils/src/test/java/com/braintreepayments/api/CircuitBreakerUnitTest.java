@@ -0,0 +1,162 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+public class CircuitBreakerUnitTest {
+
+    private static final String ENDPOINT = "api.braintreegateway.com/merchants/*/client_api/v1/configuration";
+
+    private MockThreadScheduler threadScheduler;
+    private CircuitBreakerListener listener;
+
+    @Before
+    public void beforeEach() {
+        threadScheduler = new MockThreadScheduler();
+        listener = mock(CircuitBreakerListener.class);
+    }
+
+    @Test
+    public void getEndpoint_replacesIdentifiersInPath() throws Exception {
+        URL url = new URL("https://api.braintreegateway.com:443/merchants/integration_merchant_id1/client_api/v1/configuration?configVersion=3");
+        assertEquals(ENDPOINT, CircuitBreaker.getEndpoint(url));
+    }
+
+    @Test
+    public void getEndpoint_keepsPathsWithoutIdentifiers() throws Exception {
+        URL url = new URL("https://payments.braintree-api.com/graphql");
+        assertEquals("payments.braintree-api.com/graphql", CircuitBreaker.getEndpoint(url));
+    }
+
+    @Test
+    public void recordResult_opensCircuitAfterFailureThreshold() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 3, 30000);
+        sut.addListener(listener);
+
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+        sut.recordResult(ENDPOINT, new ServiceUnavailableException("error"), 1000);
+        assertEquals(CircuitBreakerListener.STATE_CLOSED, sut.getState(ENDPOINT));
+        assertTrue(sut.allowRequest(ENDPOINT, 1000));
+
+        sut.recordResult(ENDPOINT, new SocketTimeoutException("timeout"), 1000);
+        assertEquals(CircuitBreakerListener.STATE_OPEN, sut.getState(ENDPOINT));
+        assertFalse(sut.allowRequest(ENDPOINT, 1000));
+
+        threadScheduler.flushMainThread();
+        verify(listener).onCircuitStateChanged(ENDPOINT, CircuitBreakerListener.STATE_OPEN);
+    }
+
+    @Test
+    public void recordResult_successResetsFailureCount() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 2, 30000);
+
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+        sut.recordResult(ENDPOINT, null, 1000);
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+
+        assertEquals(CircuitBreakerListener.STATE_CLOSED, sut.getState(ENDPOINT));
+    }
+
+    @Test
+    public void recordResult_doesNotCountClientErrorsOrConnectivityErrors() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+
+        sut.recordResult(ENDPOINT, new AuthorizationException("error"), 1000);
+        sut.recordResult(ENDPOINT, new IOException("offline"), 1000);
+        sut.recordResult(ENDPOINT, new DeadlineExceededException("deadline"), 1000);
+
+        assertEquals(CircuitBreakerListener.STATE_CLOSED, sut.getState(ENDPOINT));
+    }
+
+    @Test
+    public void recordResult_tracksEndpointsIndependently() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+
+        assertFalse(sut.allowRequest(ENDPOINT, 1000));
+        assertTrue(sut.allowRequest("payments.braintree-api.com/graphql", 1000));
+    }
+
+    @Test
+    public void allowRequest_afterOpenDuration_letsOneProbeThrough() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+        sut.addListener(listener);
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+
+        assertFalse(sut.allowRequest(ENDPOINT, 30999));
+        assertTrue(sut.allowRequest(ENDPOINT, 31000));
+        assertEquals(CircuitBreakerListener.STATE_HALF_OPEN, sut.getState(ENDPOINT));
+        assertFalse(sut.allowRequest(ENDPOINT, 31000));
+
+        threadScheduler.flushMainThread();
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onCircuitStateChanged(ENDPOINT, CircuitBreakerListener.STATE_OPEN);
+        inOrder.verify(listener).onCircuitStateChanged(ENDPOINT, CircuitBreakerListener.STATE_HALF_OPEN);
+    }
+
+    @Test
+    public void recordResult_whenProbeSucceeds_closesCircuit() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+        sut.allowRequest(ENDPOINT, 31000);
+        sut.addListener(listener);
+
+        sut.recordResult(ENDPOINT, null, 31500);
+
+        assertEquals(CircuitBreakerListener.STATE_CLOSED, sut.getState(ENDPOINT));
+        assertTrue(sut.allowRequest(ENDPOINT, 31500));
+        threadScheduler.flushMainThread();
+        verify(listener).onCircuitStateChanged(ENDPOINT, CircuitBreakerListener.STATE_CLOSED);
+    }
+
+    @Test
+    public void recordResult_whenProbeFails_reopensCircuit() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+        sut.allowRequest(ENDPOINT, 31000);
+
+        sut.recordResult(ENDPOINT, new SocketTimeoutException("timeout"), 41000);
+
+        assertEquals(CircuitBreakerListener.STATE_OPEN, sut.getState(ENDPOINT));
+        assertFalse(sut.allowRequest(ENDPOINT, 70999));
+        assertTrue(sut.allowRequest(ENDPOINT, 71000));
+    }
+
+    @Test
+    public void recordResult_whenProbeIsInconclusive_letsAnotherProbeThrough() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+        sut.allowRequest(ENDPOINT, 31000);
+
+        sut.recordResult(ENDPOINT, new IOException("Canceled"), 31000);
+
+        assertEquals(CircuitBreakerListener.STATE_HALF_OPEN, sut.getState(ENDPOINT));
+        assertTrue(sut.allowRequest(ENDPOINT, 31000));
+    }
+
+    @Test
+    public void removeListener_stopsNotifyingListener() {
+        CircuitBreaker sut = new CircuitBreaker(threadScheduler, 1, 30000);
+        sut.addListener(listener);
+        sut.removeListener(listener);
+
+        sut.recordResult(ENDPOINT, new ServerException("error"), 1000);
+
+        threadScheduler.flushMainThread();
+        verifyNoInteractions(listener);
+    }
+}
@@ -0,0 +1,38 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DeadlineUnitTest {
+
+    @Test
+    public void remainingMillis_returnsTimeLeftBeforeExpiry() {
+        Deadline sut = new Deadline(10000);
+        assertEquals(4000, sut.remainingMillis(6000));
+    }
+
+    @Test
+    public void remainingMillis_whenExpired_returnsZero() {
+        Deadline sut = new Deadline(10000);
+        assertEquals(0, sut.remainingMillis(10000));
+        assertEquals(0, sut.remainingMillis(15000));
+    }
+
+    @Test
+    public void after_expiresAfterBudget() {
+        Deadline sut = Deadline.after(60000);
+
+        assertFalse(sut.isExpired());
+        assertTrue(sut.remainingMillis() <= 60000);
+        assertTrue(sut.remainingMillis() > 0);
+    }
+
+    @Test
+    public void isExpired_whenBudgetIsSpent_returnsTrue() {
+        assertTrue(Deadline.after(0).isExpired());
+        assertTrue(Deadline.after(-1).isExpired());
+    }
+}
@@ -0,0 +1,63 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class DecodingHttpResponseCallbackUnitTest {
+
+    @Test
+    public void onResult_withResponseBody_decodesAndDeliversResult() {
+        RecordingCallback sut = new RecordingCallback();
+
+        sut.onResult("42", null);
+
+        assertEquals(Integer.valueOf(42), sut.result);
+        assertNull(sut.error);
+    }
+
+    @Test
+    public void onResult_withError_deliversErrorWithoutDecoding() {
+        RecordingCallback sut = new RecordingCallback();
+        Exception httpError = new Exception("error");
+
+        sut.onResult(null, httpError);
+
+        assertNull(sut.result);
+        assertSame(httpError, sut.error);
+        assertEquals(0, sut.decodeCount);
+    }
+
+    @Test
+    public void decodeForDelivery_decodesImmediatelyAndDeliversWhenRun() {
+        RecordingCallback sut = new RecordingCallback();
+
+        Runnable delivery = sut.decodeForDelivery("42");
+        assertEquals(1, sut.decodeCount);
+        assertNull(sut.result);
+
+        delivery.run();
+        assertEquals(Integer.valueOf(42), sut.result);
+    }
+
+    private static class RecordingCallback extends DecodingHttpResponseCallback<Integer> {
+
+        int decodeCount;
+        Integer result;
+        Exception error;
+
+        @Override
+        public Integer decode(String responseBody) {
+            decodeCount++;
+            return Integer.parseInt(responseBody);
+        }
+
+        @Override
+        public void onDecodedResult(Integer result, Exception error) {
+            this.result = result;
+            this.error = error;
+        }
+    }
+}
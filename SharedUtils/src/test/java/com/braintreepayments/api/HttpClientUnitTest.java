@@ -1,8 +1,14 @@
 package com.braintreepayments.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -15,6 +21,16 @@ import static org.mockito.Mockito.when;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public class HttpClientUnitTest {
 
@@ -44,6 +60,17 @@ public class HttpClientUnitTest {
         verify(syncHttpClient).request(httpRequest);
     }
 
+    @Test
+    public void sendRequest_schedulesRequestWithRequestPriority() {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        httpRequest.priority(Scheduler.PRIORITY_LOW);
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+
+        verify(threadScheduler).runOnBackground(any(Runnable.class), eq(Scheduler.PRIORITY_LOW));
+    }
+
     @Test
     public void sendRequest_whenBaseHttpClientThrowsException_notifiesErrorViaCallbackOnMainThread() throws Exception {
         HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
@@ -162,6 +189,425 @@ public class HttpClientUnitTest {
         verify(callback).onResult("response body", null);
     }
 
+    @Test
+    public void sendRequest_whenRetryMax3TimesEnabled_schedulesRetriesWithBackoffDelay() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        when(syncHttpClient.request(httpRequest)).thenThrow(new Exception("error"));
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+
+        List<Long> delays = threadScheduler.getBackgroundThreadDelays();
+        assertEquals(2, delays.size());
+        assertTrue(delays.get(0) >= 500 && delays.get(0) <= 1000);
+        assertTrue(delays.get(1) >= 1000 && delays.get(1) <= 2000);
+    }
+
+    @Test
+    public void sendRequest_whenRetryMax3TimesEnabled_honorsRetryAfter() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        when(syncHttpClient.request(httpRequest))
+                .thenThrow(new ServiceUnavailableException("unavailable", 5000))
+                .thenReturn("response body");
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        assertEquals(Collections.singletonList(5000L), threadScheduler.getBackgroundThreadDelays());
+        verify(callback).onResult("response body", null);
+    }
+
+    @Test
+    public void sendRequest_whenRetryMax3TimesEnabledAndErrorIsNotRetryable_notifiesOriginalError() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        AuthorizationException exception = new AuthorizationException("forbidden");
+        when(syncHttpClient.request(httpRequest)).thenThrow(exception);
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(syncHttpClient, times(1)).request(httpRequest);
+        verify(callback).onResult(null, exception);
+    }
+
+    @Test
+    public void sendRequest_whenRetryMax3TimesEnabled_concurrentRequestsToSameUrlRetryIndependently() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        when(syncHttpClient.request(httpRequest)).thenThrow(new Exception("error"));
+
+        HttpResponseCallback callback1 = mock(HttpResponseCallback.class);
+        HttpResponseCallback callback2 = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback1);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback2);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(syncHttpClient, times(6)).request(httpRequest);
+        verify(callback1).onResult((String) isNull(), any(HttpClientException.class));
+        verify(callback2).onResult((String) isNull(), any(HttpClientException.class));
+    }
+
+    @Test
+    public void sendRequest_whenDeadlineHasExpired_notifiesDeadlineExceededWithoutSendingRequest() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        httpRequest.deadline(Deadline.after(0));
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verifyNoInteractions(syncHttpClient);
+        verify(callback).onResult((String) isNull(), any(DeadlineExceededException.class));
+    }
+
+    @Test
+    public void sendRequest_whenRequestFailsAfterDeadlineExpires_notifiesDeadlineExceeded() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        final Deadline deadline = spy(Deadline.after(60000));
+        httpRequest.deadline(deadline);
+
+        final SocketTimeoutException timeout = new SocketTimeoutException("timeout");
+        when(syncHttpClient.request(httpRequest)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                // the request times out because the deadline ran out
+                when(deadline.isExpired()).thenReturn(true);
+                throw timeout;
+            }
+        });
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        ArgumentCaptor<Exception> captor = ArgumentCaptor.forClass(Exception.class);
+        verify(syncHttpClient, times(1)).request(httpRequest);
+        verify(callback).onResult((String) isNull(), captor.capture());
+        assertTrue(captor.getValue() instanceof DeadlineExceededException);
+        assertSame(timeout, captor.getValue().getCause());
+    }
+
+    @Test
+    public void sendRequest_whenRetryDelayExceedsDeadline_notifiesDeadlineExceeded() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        httpRequest.deadline(Deadline.after(2000));
+
+        ServiceUnavailableException exception = new ServiceUnavailableException("unavailable", 5000);
+        when(syncHttpClient.request(httpRequest)).thenThrow(exception);
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        ArgumentCaptor<Exception> captor = ArgumentCaptor.forClass(Exception.class);
+        assertTrue(threadScheduler.getBackgroundThreadDelays().isEmpty());
+        verify(syncHttpClient, times(1)).request(httpRequest);
+        verify(callback).onResult((String) isNull(), captor.capture());
+        assertTrue(captor.getValue() instanceof DeadlineExceededException);
+        assertSame(exception, captor.getValue().getCause());
+    }
+
+    @Test
+    public void sendRequest_whenRetryFitsInDeadline_retries() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        httpRequest.deadline(Deadline.after(60000));
+
+        when(syncHttpClient.request(httpRequest))
+                .thenThrow(new ServiceUnavailableException("unavailable", 5000))
+                .thenReturn("response body");
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(callback).onResult("response body", null);
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void sendRequestSynchronous_whenDeadlineHasExpired_throwsDeadlineExceeded() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        httpRequest.deadline(Deadline.after(0));
+
+        try {
+            sut.sendRequest(httpRequest);
+        } finally {
+            verifyNoInteractions(syncHttpClient);
+        }
+    }
+
+    @Test
+    public void sendRequest_whenCancelledBeforeRunning_doesNotSendRequestAndNotifiesCancellation() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+        httpRequest.getHandle().cancel();
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verifyNoInteractions(syncHttpClient);
+        verify(callback, times(1)).onResult((String) isNull(), any(RequestCancelledException.class));
+    }
+
+    @Test
+    public void sendRequest_whenCancelledBeforeResponseIsDelivered_notifiesCancellationInsteadOfResponse() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenReturn("response body");
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+
+        threadScheduler.flushBackgroundThread();
+        httpRequest.getHandle().cancel();
+        threadScheduler.flushMainThread();
+
+        verify(syncHttpClient).request(httpRequest);
+        verify(callback, times(1)).onResult((String) isNull(), any(RequestCancelledException.class));
+        verify(callback, never()).onResult(eq("response body"), (Exception) isNull());
+    }
+
+    @Test
+    public void sendRequest_whenCancelledAfterResponseIsDelivered_hasNoEffect() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenReturn("response body");
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+        httpRequest.getHandle().cancel();
+
+        verify(callback, times(1)).onResult("response body", null);
+        assertFalse(httpRequest.getHandle().isCancelled());
+    }
+
+    @Test
+    public void sendRequest_whenCancelledDuringRequest_doesNotRetry() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                // cancelling disconnects the connection underneath the blocked request
+                httpRequest.getHandle().cancel();
+                throw new SocketException("Socket closed");
+            }
+        });
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(syncHttpClient, times(1)).request(httpRequest);
+        assertTrue(threadScheduler.getBackgroundThreadDelays().isEmpty());
+        verify(callback, times(1)).onResult((String) isNull(), any(RequestCancelledException.class));
+    }
+
+    @Test
+    public void sendRequest_whenCircuitIsOpen_failsFastWithoutSendingRequest() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(threadScheduler, 1, 30000);
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler, circuitBreaker);
+
+        when(syncHttpClient.request(httpRequest)).thenThrow(new ServerException("error"));
+        sut.sendRequest(httpRequest, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, callback);
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(syncHttpClient, times(1)).request(httpRequest);
+        verify(callback).onResult((String) isNull(), any(CircuitBreakerOpenException.class));
+        assertTrue(threadScheduler.getBackgroundThreadDelays().isEmpty());
+    }
+
+    @Test
+    public void sendRequest_whenRetriesTimeOut_opensCircuitForOtherRequests() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(threadScheduler, 3, 30000);
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler, circuitBreaker);
+
+        when(syncHttpClient.request(httpRequest)).thenThrow(new SocketTimeoutException("timeout"));
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        String endpoint = CircuitBreaker.getEndpoint(httpRequest.getURL());
+        assertEquals(CircuitBreakerListener.STATE_OPEN, circuitBreaker.getState(endpoint));
+    }
+
+    @Test
+    public void sendRequest_whenTimeoutIsCausedByDeadline_doesNotCountFailure() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(threadScheduler, 1, 30000);
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler, circuitBreaker);
+        final Deadline deadline = spy(Deadline.after(60000));
+        httpRequest.deadline(deadline);
+
+        when(syncHttpClient.request(httpRequest)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                // the timeout was shortened to the time left in the deadline
+                when(deadline.isExpired()).thenReturn(true);
+                throw new SocketTimeoutException("timeout");
+            }
+        });
+        sut.sendRequest(httpRequest, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        String endpoint = CircuitBreaker.getEndpoint(httpRequest.getURL());
+        assertEquals(CircuitBreakerListener.STATE_CLOSED, circuitBreaker.getState(endpoint));
+    }
+
+    @Test(expected = CircuitBreakerOpenException.class)
+    public void sendRequestSynchronous_whenCircuitIsOpen_throwsCircuitBreakerOpenException() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(threadScheduler, 1, 30000);
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler, circuitBreaker);
+        circuitBreaker.recordResult(CircuitBreaker.getEndpoint(httpRequest.getURL()), new ServerException("error"));
+
+        sut.sendRequest(httpRequest);
+    }
+
+    @Test
+    public void sendRequest_withEventListener_reportsStartAndEndOfRequest() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        HttpEventListener listener = mock(HttpEventListener.class);
+        sut.setEventListener(listener);
+        httpRequest.endpointLabel("config");
+
+        when(syncHttpClient.request(httpRequest)).thenReturn("response body");
+        sut.sendRequest(httpRequest, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        assertTrue(httpRequest.getEventRecorder().isEnabled());
+        verify(listener).onRequestStart("config");
+        verify(listener).onRequestEnd(eq("config"), anyLong());
+    }
+
+    @Test
+    public void sendRequest_withEventListener_reportsEveryFailedAttempt() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        HttpEventListener listener = mock(HttpEventListener.class);
+        sut.setEventListener(listener);
+        httpRequest.endpointLabel("config");
+
+        Exception exception = new ServerException("error");
+        when(syncHttpClient.request(httpRequest)).thenThrow(exception);
+        sut.sendRequest(httpRequest, HttpClient.RETRY_MAX_3_TIMES, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        verify(listener, times(3)).onRequestStart("config");
+        verify(listener, times(3)).onRequestFailed(eq("config"), same(exception), anyLong());
+    }
+
+    @Test
+    public void sendRequest_withoutEventListener_doesNotInstrumentRequest() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+
+        sut.sendRequest(httpRequest, mock(HttpResponseCallback.class));
+        threadScheduler.flushBackgroundThread();
+
+        assertSame(HttpEventRecorder.DISABLED, httpRequest.getEventRecorder());
+    }
+
+    @Test
+    public void sendRequest_withDecodingCallback_decodesOnBackgroundThreadAndDeliversOnMainThread() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenReturn("42");
+
+        final List<String> events = new ArrayList<>();
+        sut.sendRequest(httpRequest, new DecodingHttpResponseCallback<Integer>() {
+            @Override
+            public Integer decode(String responseBody) {
+                events.add("decode");
+                return Integer.parseInt(responseBody);
+            }
+
+            @Override
+            public void onDecodedResult(Integer result, Exception error) {
+                events.add("result " + result);
+            }
+        });
+
+        threadScheduler.flushBackgroundThread();
+        assertEquals(Collections.singletonList("decode"), events);
+
+        threadScheduler.flushMainThread();
+        assertEquals(Arrays.asList("decode", "result 42"), events);
+    }
+
+    @Test
+    public void sendRequest_withDecodingCallback_whenDecodeFails_deliversDecodeError() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenReturn("not a number");
+
+        final List<Exception> errors = new ArrayList<>();
+        sut.sendRequest(httpRequest, new DecodingHttpResponseCallback<Integer>() {
+            @Override
+            public Integer decode(String responseBody) {
+                return Integer.parseInt(responseBody);
+            }
+
+            @Override
+            public void onDecodedResult(Integer result, Exception error) {
+                errors.add(error);
+            }
+        });
+
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof NumberFormatException);
+    }
+
+    @Test
+    public void sendRequest_withCallbackExecutor_deliversResultOnExecutor() throws Exception {
+        HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
+        when(syncHttpClient.request(httpRequest)).thenReturn("response body");
+
+        final List<Runnable> executedRunnables = new ArrayList<>();
+        sut.setCallbackExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                executedRunnables.add(runnable);
+            }
+        });
+
+        HttpResponseCallback callback = mock(HttpResponseCallback.class);
+        sut.sendRequest(httpRequest, callback);
+        threadScheduler.flushBackgroundThread();
+        threadScheduler.flushMainThread();
+
+        verify(callback, never()).onResult(any(), any());
+        assertEquals(1, executedRunnables.size());
+
+        executedRunnables.get(0).run();
+        verify(callback).onResult("response body", null);
+    }
+
     @Test
     public void sendRequestSynchronous_sendsHttpRequest() throws Exception {
         HttpClient sut = new HttpClient(syncHttpClient, threadScheduler);
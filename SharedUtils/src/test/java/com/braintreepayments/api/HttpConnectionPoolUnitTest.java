@@ -0,0 +1,143 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+
+public class HttpConnectionPoolUnitTest {
+
+    private URL url;
+    private URL otherHostUrl;
+
+    @Before
+    public void beforeEach() throws Exception {
+        url = new URL("https://api.braintreegateway.com/v1/configuration");
+        otherHostUrl = new URL("https://payments.braintree-api.com/graphql");
+    }
+
+    @Test
+    public void acquire_afterRelease_claimsIdleConnectionForSameHost() throws Exception {
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+
+        sut.release(url, 0);
+        sut.acquire(new URL("https://api.braintreegateway.com/v1/payment_methods"), 10);
+
+        assertEquals(0, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void acquire_afterReleaseForDifferentHost_keepsIdleConnection() {
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+
+        sut.release(url, 0);
+        sut.acquire(otherHostUrl, 10);
+
+        assertEquals(1, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void acquire_whenIdleConnectionHasExpired_evictsIt() {
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+
+        sut.release(url, 0);
+        sut.release(otherHostUrl, 999);
+        sut.acquire(url, 1000);
+
+        assertEquals(1, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void release_afterAcquire_makesRoomForFinishedConnection() {
+        HttpConnectionPool sut = new HttpConnectionPool(1, 1000);
+
+        assertTrue(sut.release(url, 0));
+        sut.acquire(url, 1);
+        assertTrue(sut.release(url, 2));
+    }
+
+    @Test
+    public void release_whenHostIsAtCapacity_returnsFalse() {
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+
+        assertTrue(sut.release(url, 0));
+        assertTrue(sut.release(url, 1));
+        assertFalse(sut.release(url, 2));
+        assertTrue(sut.release(otherHostUrl, 3));
+        assertEquals(3, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void release_whenMaxIdleIsZero_returnsFalse() {
+        HttpConnectionPool sut = new HttpConnectionPool(0, 1000);
+
+        assertFalse(sut.release(url, 0));
+        assertEquals(0, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void evictAll_clearsIdleConnections() {
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+        sut.release(url, 0);
+        sut.release(otherHostUrl, 0);
+
+        sut.evictAll();
+
+        assertEquals(0, sut.getIdleConnectionCount());
+    }
+
+    @Test
+    public void getMissCount_countsSocketsOpenedForRequestedHostsAfterTheirFirstRequest() {
+        TLSSocketFactory socketFactory = mock(TLSSocketFactory.class);
+        when(socketFactory.getSocketCount("api.braintreegateway.com", 443)).thenReturn(3);
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+        sut.setSocketFactory(socketFactory);
+
+        sut.acquire(url, 0);
+        when(socketFactory.getSocketCount("api.braintreegateway.com", 443)).thenReturn(4);
+        sut.acquire(url, 1);
+        sut.acquire(url, 2);
+
+        assertEquals(3, sut.getRequestCount());
+        assertEquals(1, sut.getMissCount());
+        assertEquals(2, sut.getHitCount());
+    }
+
+    @Test
+    public void getMissCount_ignoresSocketsOpenedForHostsThatWereNotRequested() {
+        TLSSocketFactory socketFactory = mock(TLSSocketFactory.class);
+        when(socketFactory.getSocketCount("payments.braintree-api.com", 443)).thenReturn(5);
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+        sut.setSocketFactory(socketFactory);
+
+        sut.acquire(url, 0);
+
+        assertEquals(0, sut.getMissCount());
+        assertEquals(1, sut.getHitCount());
+    }
+
+    @Test
+    public void setSocketFactory_countsMissesOfNewFactoryFromItsCurrentSocketCount() {
+        TLSSocketFactory first = mock(TLSSocketFactory.class);
+        TLSSocketFactory second = mock(TLSSocketFactory.class);
+        when(second.getSocketCount("api.braintreegateway.com", 443)).thenReturn(7);
+        HttpConnectionPool sut = new HttpConnectionPool(2, 1000);
+        sut.setSocketFactory(first);
+        sut.acquire(url, 0);
+        when(first.getSocketCount("api.braintreegateway.com", 443)).thenReturn(1);
+
+        sut.setSocketFactory(second);
+        sut.acquire(url, 1);
+        when(second.getSocketCount("api.braintreegateway.com", 443)).thenReturn(8);
+
+        assertEquals(2, sut.getRequestCount());
+        assertEquals(2, sut.getMissCount());
+        assertEquals(0, sut.getHitCount());
+    }
+}
@@ -0,0 +1,113 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class HttpEventRecorderUnitTest {
+
+    private FakeClock clock;
+    private HttpEventListener listener;
+
+    @Before
+    public void beforeEach() {
+        clock = new FakeClock();
+        listener = mock(HttpEventListener.class);
+    }
+
+    @Test
+    public void isEnabled_returnsTrueOnlyWithListener() {
+        assertTrue(new HttpEventRecorder(listener, "config").isEnabled());
+        assertFalse(HttpEventRecorder.DISABLED.isEnabled());
+    }
+
+    @Test
+    public void reportsDurationOfEachPhase() {
+        HttpEventRecorder sut = new HttpEventRecorder(listener, "config", clock);
+
+        sut.requestStart();
+        sut.dnsStart();
+        clock.advance(5);
+        sut.dnsEnd();
+        sut.connectStart();
+        clock.advance(10);
+        sut.tlsHandshakeStart();
+        clock.advance(20);
+        sut.tlsHandshakeEnd();
+        sut.connectEnd();
+        clock.advance(40);
+        sut.responseHeadersEnd(200);
+        clock.advance(8);
+        sut.responseBodyEnd(1024);
+        clock.advance(2);
+        sut.parseEnd();
+        sut.requestEnd();
+
+        verify(listener).onRequestStart("config");
+        verify(listener).onDnsEnd("config", 5);
+        verify(listener).onTlsHandshakeEnd("config", 20);
+        verify(listener).onConnectEnd("config", 30);
+        verify(listener).onResponseHeadersEnd("config", 200, 75);
+        verify(listener).onResponseBodyEnd("config", 1024, 8);
+        verify(listener).onParseEnd("config", 2);
+        verify(listener).onRequestEnd("config", 85);
+    }
+
+    @Test
+    public void parseEnd_whenResponseHasNoBody_reportsTimeSinceHeaders() {
+        HttpEventRecorder sut = new HttpEventRecorder(listener, "config", clock);
+
+        sut.requestStart();
+        clock.advance(40);
+        sut.responseHeadersEnd(304);
+        clock.advance(3);
+        sut.parseEnd();
+
+        verify(listener).onParseEnd("config", 3);
+    }
+
+    @Test
+    public void requestFailed_reportsErrorAndTotalDuration() {
+        HttpEventRecorder sut = new HttpEventRecorder(listener, "3ds:lookup", clock);
+        Exception error = new ServerException("error");
+
+        sut.requestStart();
+        clock.advance(120);
+        sut.requestFailed(error);
+
+        verify(listener).onRequestFailed("3ds:lookup", error, 120);
+    }
+
+    @Test
+    public void whenListenerThrows_doesNotPropagateException() {
+        doThrow(new IllegalStateException()).when(listener).onRequestStart(anyString());
+        HttpEventRecorder sut = new HttpEventRecorder(listener, "config", clock);
+
+        sut.requestStart();
+        sut.requestEnd();
+
+        verify(listener).onRequestEnd("config", 0);
+    }
+
+    private static class FakeClock implements HttpEventRecorder.Clock {
+
+        private long nanoTime = TimeUnit.SECONDS.toNanos(1);
+
+        void advance(long millis) {
+            nanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanoTime;
+        }
+    }
+}
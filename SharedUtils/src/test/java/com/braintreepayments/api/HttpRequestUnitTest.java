@@ -82,6 +82,24 @@ public class HttpRequestUnitTest {
             assertEquals("1", sut.getHeaders().get("Header-1"));
         }
 
+        @Test
+        public void getHeaders_withValidators_addsConditionalHeaders() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .validators(new HttpCacheValidators("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT"));
+
+            assertEquals("\"abc\"", sut.getHeaders().get("If-None-Match"));
+            assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", sut.getHeaders().get("If-Modified-Since"));
+        }
+
+        @Test
+        public void getHeaders_withETagOnly_omitsIfModifiedSince() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .validators(new HttpCacheValidators("\"abc\"", null));
+
+            assertEquals("\"abc\"", sut.getHeaders().get("If-None-Match"));
+            assertFalse(sut.getHeaders().containsKey("If-Modified-Since"));
+        }
+
         @Test
         public void getURL_whenPathStartsWithHttp_returnsPathWithNoModification() throws MalformedURLException, URISyntaxException {
             HttpRequest sut = HttpRequest.newInstance()
@@ -91,6 +109,24 @@ public class HttpRequestUnitTest {
             assertEquals(expectedURL, sut.getURL());
         }
 
+        @Test
+        public void shouldCompressData_byDefault_returnsFalse() {
+            HttpRequest request = new HttpRequest().data("test data");
+            assertFalse(request.shouldCompressData());
+        }
+
+        @Test
+        public void shouldCompressData_whenDataMeetsThreshold_returnsTrue() {
+            HttpRequest request = new HttpRequest().data("test data").compressData(9);
+            assertTrue(request.shouldCompressData());
+        }
+
+        @Test
+        public void shouldCompressData_whenDataBelowThreshold_returnsFalse() {
+            HttpRequest request = new HttpRequest().data("test data").compressData(10);
+            assertFalse(request.shouldCompressData());
+        }
+
         @Test
         public void constructor_setsConnectTimeoutTo30SecondsByDefault() {
             HttpRequest sut = HttpRequest.newInstance();
@@ -103,6 +139,63 @@ public class HttpRequestUnitTest {
             assertEquals(30000, sut.getReadTimeout());
         }
 
+        @Test
+        public void getTimeouts_whenDeadlineHasLessTimeLeft_returnsTimeLeft() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(Deadline.after(5000));
+
+            assertTrue(sut.getConnectTimeout() <= 5000);
+            assertTrue(sut.getConnectTimeout() > 0);
+            assertTrue(sut.getReadTimeout() <= 5000);
+            assertTrue(sut.getReadTimeout() > 0);
+        }
+
+        @Test
+        public void getTimeouts_whenDeadlineHasMoreTimeLeft_returnsDefaultTimeouts() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(Deadline.after(120000));
+
+            assertEquals(30000, sut.getConnectTimeout());
+            assertEquals(30000, sut.getReadTimeout());
+        }
+
+        @Test
+        public void getTimeouts_whenDeadlineHasExpired_returnsMinimumTimeout() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(Deadline.after(0));
+
+            // 0 would disable the timeout
+            assertEquals(1, sut.getConnectTimeout());
+            assertEquals(1, sut.getReadTimeout());
+        }
+
+        @Test
+        public void getEndpointLabel_whenSet_returnsLabel() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .path("v1/payment_methods/abc123/three_d_secure/lookup")
+                    .endpointLabel("3ds:lookup");
+
+            assertEquals("3ds:lookup", sut.getEndpointLabel());
+        }
+
+        @Test
+        public void getEndpointLabel_whenNotSet_returnsRelativePathWithoutIdentifiers() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .baseUrl("https://api.braintreegateway.com/merchants/merchant_id1/client_api")
+                    .path("/v1/payment_methods/abc123/three_d_secure/lookup?authorizationFingerprint=fingerprint");
+
+            assertEquals("v1/payment_methods/*/three_d_secure/lookup", sut.getEndpointLabel());
+        }
+
+        @Test
+        public void getEndpointLabel_whenPathIsEmpty_returnsPathOfBaseUrl() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .baseUrl("https://payments.braintree-api.com/graphql")
+                    .path("");
+
+            assertEquals("graphql", sut.getEndpointLabel());
+        }
+
         @Test
         public void getURL_throwsMalformedURLExceptionIfBaseURLIsNull() {
             HttpRequest sut = HttpRequest.newInstance()
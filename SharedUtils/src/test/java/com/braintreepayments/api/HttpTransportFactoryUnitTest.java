@@ -0,0 +1,72 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpTransportFactoryUnitTest {
+
+    private ClassHelper classHelper;
+    private HttpResponseParser parser;
+
+    @Before
+    public void beforeEach() {
+        classHelper = mock(ClassHelper.class);
+        parser = mock(HttpResponseParser.class);
+    }
+
+    @Test
+    public void isHttp2Available_whenOkHttpIsOnClasspath_returnsTrue() {
+        when(classHelper.isClassAvailable("okhttp3.OkHttpClient")).thenReturn(true);
+
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        assertTrue(sut.isHttp2Available());
+    }
+
+    @Test
+    public void createDefaultTransport_returnsSynchronousHttpClientWithConnectionPool() {
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        HttpTransport transport = sut.createDefaultTransport(null, parser);
+
+        assertTrue(transport instanceof SynchronousHttpClient);
+        assertNotNull(((SynchronousHttpClient) transport).getConnectionPool());
+    }
+
+    @Test
+    public void createHttp2Transport_whenOkHttpIsOnClasspath_returnsOkHttpTransport() throws Exception {
+        when(classHelper.isClassAvailable("okhttp3.OkHttpClient")).thenReturn(true);
+
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        assertTrue(sut.createHttp2Transport(null, parser) instanceof OkHttpTransport);
+    }
+
+    @Test
+    public void createHttp2Transport_whenOkHttpIsNotOnClasspath_fallsBackToDefaultTransport() throws Exception {
+        when(classHelper.isClassAvailable("okhttp3.OkHttpClient")).thenReturn(false);
+
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        assertFalse(sut.isHttp2Available());
+        assertTrue(sut.createHttp2Transport(null, parser) instanceof SynchronousHttpClient);
+    }
+
+    @Test
+    public void createTransport_withHttp2_whenOkHttpIsOnClasspath_returnsOkHttpTransport() throws Exception {
+        when(classHelper.isClassAvailable("okhttp3.OkHttpClient")).thenReturn(true);
+
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        assertTrue(sut.createTransport(true, null, parser) instanceof OkHttpTransport);
+    }
+
+    @Test
+    public void createTransport_withoutHttp2_returnsDefaultTransport() throws Exception {
+        when(classHelper.isClassAvailable("okhttp3.OkHttpClient")).thenReturn(true);
+
+        HttpTransportFactory sut = new HttpTransportFactory(classHelper);
+        assertTrue(sut.createTransport(false, null, parser) instanceof SynchronousHttpClient);
+    }
+}
@@ -0,0 +1,422 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import okio.Buffer;
+
+/**
+ * Runs the same requests through {@link SynchronousHttpClient} and {@link OkHttpTransport} against
+ * a local TLS server to verify that both engines behave the same.
+ */
+public class OkHttpTransportUnitTest {
+
+    private MockWebServer server;
+    private HeldCertificate rootCertificate;
+
+    @Before
+    public void beforeEach() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("localhost"), 0);
+
+        rootCertificate = new HeldCertificate.Builder()
+                .certificateAuthority(0)
+                .build();
+        HeldCertificate serverCertificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(server.getHostName())
+                .signedBy(rootCertificate)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(serverCertificate)
+                .build();
+
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void request_get_returnsSameResponseForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"key\":\"value\"}"));
+
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration")
+                    .addHeader("Client-Key", "sandbox_tokenization_key");
+
+            assertEquals(engine.getKey(), "{\"key\":\"value\"}", engine.getValue().request(request));
+
+            RecordedRequest recordedRequest = server.takeRequest();
+            assertEquals(engine.getKey(), "GET", recordedRequest.getMethod());
+            assertEquals(engine.getKey(), "/v1/configuration", recordedRequest.getPath());
+            assertEquals(engine.getKey(), "gzip", recordedRequest.getHeader("Accept-Encoding"));
+            assertEquals(engine.getKey(), "sandbox_tokenization_key", recordedRequest.getHeader("Client-Key"));
+        }
+    }
+
+    @Test
+    public void request_post_sendsSameBodyForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(201).setBody("created"));
+
+            HttpRequest request = new HttpRequest()
+                    .method("POST")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/payment_methods/credit_cards")
+                    .data("{\"creditCard\":{}}");
+
+            assertEquals(engine.getKey(), "created", engine.getValue().request(request));
+
+            RecordedRequest recordedRequest = server.takeRequest();
+            assertEquals(engine.getKey(), "POST", recordedRequest.getMethod());
+            assertEquals(engine.getKey(), "{\"creditCard\":{}}", recordedRequest.getBody().readUtf8());
+            assertTrue(engine.getKey(), recordedRequest.getHeader("Content-Type").startsWith("application/json"));
+        }
+    }
+
+    @Test
+    public void request_postWithoutData_sendsEmptyBodyForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(201).setBody("created"));
+
+            HttpRequest request = new HttpRequest()
+                    .method("POST")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/payment_methods/credit_cards");
+
+            assertEquals(engine.getKey(), "created", engine.getValue().request(request));
+
+            RecordedRequest recordedRequest = server.takeRequest();
+            assertEquals(engine.getKey(), "POST", recordedRequest.getMethod());
+            assertEquals(engine.getKey(), 0, recordedRequest.getBodySize());
+        }
+    }
+
+    @Test
+    public void request_postWithCompression_sendsGzippedBodyForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(201).setBody("created"));
+
+            HttpRequest request = new HttpRequest()
+                    .method("POST")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/tracking/batch/events")
+                    .data("{\"analytics\":[{\"kind\":\"event\"},{\"kind\":\"event\"}]}")
+                    .compressData(16);
+
+            assertEquals(engine.getKey(), "created", engine.getValue().request(request));
+
+            RecordedRequest recordedRequest = server.takeRequest();
+            assertEquals(engine.getKey(), "gzip", recordedRequest.getHeader("Content-Encoding"));
+            Buffer body = new Buffer();
+            body.writeAll(new okio.GzipSource(recordedRequest.getBody()));
+            assertEquals(engine.getKey(),
+                    "{\"analytics\":[{\"kind\":\"event\"},{\"kind\":\"event\"}]}", body.readUtf8());
+        }
+    }
+
+    @Test
+    public void request_withGzipResponse_decompressesBodyForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .addHeader("Content-Encoding", "gzip")
+                    .setBody(gzip("compressed body")));
+
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("gzip");
+
+            assertEquals(engine.getKey(), "compressed body", engine.getValue().request(request));
+            server.takeRequest();
+        }
+    }
+
+    @Test
+    public void request_onErrorResponse_throwsSameExceptionForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(422).setBody("unprocessable"));
+            server.enqueue(new MockResponse().setResponseCode(429));
+
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("error");
+
+            try {
+                engine.getValue().request(request);
+                fail(engine.getKey());
+            } catch (UnprocessableEntityException e) {
+                assertEquals(engine.getKey(), "unprocessable", e.getMessage());
+            }
+
+            try {
+                engine.getValue().request(request);
+                fail(engine.getKey());
+            } catch (RateLimitException e) {
+                assertEquals(engine.getKey(),
+                        "You are being rate-limited. Please try again in a few minutes.", e.getMessage());
+            }
+            server.takeRequest();
+            server.takeRequest();
+        }
+    }
+
+    @Test
+    public void request_reusesConnectionForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("first"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("second"));
+
+            HttpRequest first = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("first");
+            HttpRequest second = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("second");
+
+            engine.getValue().request(first);
+            engine.getValue().request(second);
+
+            assertEquals(engine.getKey(), 0, server.takeRequest().getSequenceNumber());
+            assertEquals(engine.getKey(), 1, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void request_conditional_recordsValidatorsAndThrowsNotModifiedForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .addHeader("ETag", "\"v1\"")
+                    .setBody("{}"));
+            server.enqueue(new MockResponse().setResponseCode(304).addHeader("ETag", "\"v1\""));
+
+            HttpRequest first = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration");
+            assertEquals(engine.getKey(), "{}", engine.getValue().request(first));
+            HttpCacheValidators validators = first.getResponseValidators();
+            assertEquals(engine.getKey(), "\"v1\"", validators.getEntityTag());
+            server.takeRequest();
+
+            HttpRequest second = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration")
+                    .validators(validators);
+            try {
+                engine.getValue().request(second);
+                fail(engine.getKey());
+            } catch (NotModifiedException expected) {
+                // the cached copy is still current
+            }
+            assertEquals(engine.getKey(), "\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        }
+    }
+
+    @Test
+    public void preconnect_doesNotFollowRedirectsForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse()
+                    .setResponseCode(302)
+                    .setHeader("Location", server.url("/elsewhere").toString()));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+            engine.getValue().preconnect(server.url("/merchants/id/client_api").url());
+            assertEquals(engine.getKey(), "/merchants/id/client_api", server.takeRequest().getPath());
+
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration");
+            assertEquals(engine.getKey(), "{}", engine.getValue().request(request));
+            assertEquals(engine.getKey(), "/v1/configuration", server.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    public void preconnect_parksConnectionForNextRequestForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(404));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+            engine.getValue().preconnect(server.url("/merchants/id/client_api").url());
+
+            RecordedRequest preconnect = server.takeRequest();
+            assertEquals(engine.getKey(), "HEAD", preconnect.getMethod());
+            assertEquals(engine.getKey(), "/merchants/id/client_api", preconnect.getPath());
+
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration");
+            assertEquals(engine.getKey(), "{}", engine.getValue().request(request));
+
+            // the request went out on the connection opened by preconnect
+            assertEquals(engine.getKey(), 1, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void request_whenCancelled_abortsBlockedRequestForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse()
+                    .setBody("{}")
+                    .setHeadersDelay(3, TimeUnit.SECONDS));
+
+            final HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("slow");
+
+            Thread canceller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(250);
+                    } catch (InterruptedException ignored) {
+                    }
+                    request.getHandle().cancel();
+                }
+            });
+
+            long start = System.currentTimeMillis();
+            canceller.start();
+            try {
+                engine.getValue().request(request);
+                fail(engine.getKey());
+            } catch (IOException expected) {
+                // the connection was closed underneath the blocked read
+            }
+            canceller.join();
+
+            assertTrue(engine.getKey(), System.currentTimeMillis() - start < 2000);
+            server.takeRequest();
+        }
+    }
+
+    @Test
+    public void responseConnection_exposesResponseHeaders() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).addHeader("ETag", "abc"));
+
+        TLSSocketFactory socketFactory = createSocketFactory();
+        okhttp3.Response response = new okhttp3.OkHttpClient.Builder()
+                .sslSocketFactory(socketFactory, socketFactory.getTrustManager())
+                .build()
+                .newCall(new okhttp3.Request.Builder().url(server.url("/")).build())
+                .execute();
+
+        OkHttpTransport.ResponseConnection sut =
+                new OkHttpTransport.ResponseConnection(server.url("/").url(), response);
+        assertEquals(200, sut.getResponseCode());
+        assertEquals("abc", sut.getHeaderField("etag"));
+        assertNull(sut.getErrorStream());
+        response.close();
+    }
+
+    @Test
+    public void request_whenInstrumented_reportsRequestPhasesForBothEngines() throws Exception {
+        for (Map.Entry<String, HttpTransport> engine : createEngines().entrySet()) {
+            server.enqueue(new MockResponse().setResponseCode(201).setBody("created"));
+
+            HttpEventListener listener = mock(HttpEventListener.class);
+            HttpRequest request = new HttpRequest()
+                    .method("POST")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/payment_methods/credit_cards")
+                    .data("{\"creditCard\":{}}");
+            request.setEventRecorder(new HttpEventRecorder(listener, "card:tokenize"));
+
+            assertEquals(engine.getKey(), "created", engine.getValue().request(request));
+
+            InOrder inOrder = inOrder(listener);
+            inOrder.verify(listener).onConnectEnd(eq("card:tokenize"), anyLong());
+            inOrder.verify(listener).onRequestBodyEnd("card:tokenize", 17);
+            inOrder.verify(listener).onResponseHeadersEnd(eq("card:tokenize"), eq(201), anyLong());
+            inOrder.verify(listener).onResponseBodyEnd(eq("card:tokenize"), eq(7L), anyLong());
+            inOrder.verify(listener).onParseEnd(eq("card:tokenize"), anyLong());
+            server.takeRequest();
+        }
+    }
+
+    @Test
+    public void request_whenInstrumented_reportsDnsAndTlsHandshakeForHttp2Engine() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+        HttpEventListener listener = mock(HttpEventListener.class);
+        HttpRequest request = new HttpRequest()
+                .method("GET")
+                .baseUrl(server.url("/").toString())
+                .path("v1/configuration");
+        request.setEventRecorder(new HttpEventRecorder(listener, "config"));
+
+        HttpTransport sut = new OkHttpTransport(createSocketFactory(), new BaseHttpResponseParser());
+        sut.request(request);
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onDnsEnd(eq("config"), anyLong());
+        inOrder.verify(listener).onTlsHandshakeEnd(eq("config"), anyLong());
+        inOrder.verify(listener).onConnectEnd(eq("config"), anyLong());
+        inOrder.verify(listener).onResponseHeadersEnd(eq("config"), eq(200), anyLong());
+    }
+
+    private Map<String, HttpTransport> createEngines() throws Exception {
+        Map<String, HttpTransport> engines = new LinkedHashMap<>();
+        engines.put("url_connection", new SynchronousHttpClient(
+                createSocketFactory(), new BaseHttpResponseParser(), new HttpConnectionPool()));
+        engines.put("http2", new OkHttpTransport(createSocketFactory(), new BaseHttpResponseParser()));
+        return engines;
+    }
+
+    private TLSSocketFactory createSocketFactory() throws Exception {
+        byte[] pem = rootCertificate.certificatePem().getBytes(StandardCharsets.UTF_8);
+        return new TLSSocketFactory(new ByteArrayInputStream(pem));
+    }
+
+    private static Buffer gzip(String body) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(bytes);
+        gzipStream.write(body.getBytes(StandardCharsets.UTF_8));
+        gzipStream.close();
+        return new Buffer().write(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,53 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PendingRequestsUnitTest {
+
+    @Test
+    public void cancelAll_cancelsOnlyRequestsThatHaveNotCompleted() {
+        PendingRequests sut = new PendingRequests();
+        RequestHandle pending = new RequestHandle();
+        RequestHandle completed = new RequestHandle();
+        sut.add(pending);
+        sut.add(completed);
+        completed.complete();
+
+        sut.cancelAll();
+
+        assertTrue(pending.isCancelled());
+        assertFalse(completed.isCancelled());
+    }
+
+    @Test
+    public void cancelAll_leavesRequestsAddedToOtherInstancesUntouched() {
+        PendingRequests sut = new PendingRequests();
+        PendingRequests otherFlow = new PendingRequests();
+        RequestHandle handle = new RequestHandle();
+        RequestHandle otherHandle = new RequestHandle();
+        sut.add(handle);
+        otherFlow.add(otherHandle);
+
+        sut.cancelAll();
+
+        assertTrue(handle.isCancelled());
+        assertFalse(otherHandle.isCancelled());
+    }
+
+    @Test
+    public void add_forgetsCompletedRequestsAndIgnoresNull() {
+        PendingRequests sut = new PendingRequests();
+        RequestHandle completed = new RequestHandle();
+        sut.add(completed);
+        completed.complete();
+
+        sut.add(null);
+        sut.add(new RequestHandle());
+
+        assertEquals(1, sut.size());
+    }
+}
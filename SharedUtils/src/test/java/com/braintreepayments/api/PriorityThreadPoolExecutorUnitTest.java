@@ -0,0 +1,121 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PriorityThreadPoolExecutorUnitTest {
+
+    private PriorityThreadPoolExecutor sut;
+
+    @Before
+    public void beforeEach() {
+        sut = new PriorityThreadPoolExecutor(1, 1);
+    }
+
+    @After
+    public void afterEach() {
+        sut.shutdownNow();
+    }
+
+    @Test(timeout = 5000)
+    public void execute_runsDefaultPriorityTasksBeforeLowPriorityTasks() throws Exception {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(4);
+        final List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        // occupy the only thread so that the remaining tasks are queued
+        sut.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignored) {}
+            }
+        });
+
+        sut.execute(createTask("analytics", executionOrder, finished), Scheduler.PRIORITY_LOW);
+        sut.execute(createTask("tokenize", executionOrder, finished), Scheduler.PRIORITY_DEFAULT);
+        sut.execute(createTask("crash", executionOrder, finished), Scheduler.PRIORITY_LOW);
+        sut.execute(createTask("3ds", executionOrder, finished), Scheduler.PRIORITY_DEFAULT);
+        assertEquals(4, sut.getQueueDepth());
+
+        blocker.countDown();
+        finished.await();
+
+        assertEquals("tokenize", executionOrder.get(0));
+        assertEquals("3ds", executionOrder.get(1));
+        assertEquals("analytics", executionOrder.get(2));
+        assertEquals("crash", executionOrder.get(3));
+        assertEquals(4, sut.getMaxQueueDepth());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_recordsWaitAndExecutionTime() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(1);
+        sut.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {}
+                finished.countDown();
+            }
+        });
+
+        finished.await();
+        sut.shutdown();
+        sut.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertTrue(sut.getTotalExecutionTimeMs() >= 20);
+        assertTrue(sut.getTotalWaitTimeMs() >= 0);
+        assertEquals(0, sut.getQueueDepth());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_runsTasksOnNamedThreads() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        sut.submit(new Runnable() {
+            @Override
+            public void run() {
+                threadNames.add(Thread.currentThread().getName());
+                finished.countDown();
+            }
+        });
+
+        finished.await();
+        assertTrue(threadNames.get(0).startsWith("braintree-background-"));
+    }
+
+    @Test
+    public void getSharedInstance_returnsSameExecutorWithoutResizingIt() {
+        PriorityThreadPoolExecutor first = PriorityThreadPoolExecutor.getSharedInstance(2);
+        int maxPoolSize = first.getMaximumPoolSize();
+        PriorityThreadPoolExecutor second =
+                PriorityThreadPoolExecutor.getSharedInstance(maxPoolSize + 2);
+
+        assertTrue(first == second);
+        assertEquals(maxPoolSize, second.getMaximumPoolSize());
+        assertEquals(maxPoolSize, second.getCorePoolSize());
+    }
+
+    private static Runnable createTask(final String name, final List<String> executionOrder, final CountDownLatch finished) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                executionOrder.add(name);
+                finished.countDown();
+            }
+        };
+    }
+}
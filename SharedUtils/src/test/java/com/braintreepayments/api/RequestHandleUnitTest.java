@@ -0,0 +1,76 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+
+public class RequestHandleUnitTest {
+
+    @Test
+    public void cancel_runsCancelActionOnce() {
+        RequestHandle sut = new RequestHandle();
+        Runnable cancelAction = mock(Runnable.class);
+        sut.setCancelAction(cancelAction);
+
+        sut.cancel();
+        sut.cancel();
+
+        assertTrue(sut.isCancelled());
+        verify(cancelAction, times(1)).run();
+    }
+
+    @Test
+    public void cancel_afterCancelActionIsCleared_doesNotRunIt() {
+        RequestHandle sut = new RequestHandle();
+        Runnable cancelAction = mock(Runnable.class);
+        sut.setCancelAction(cancelAction);
+        sut.setCancelAction(null);
+
+        sut.cancel();
+
+        verify(cancelAction, never()).run();
+    }
+
+    @Test
+    public void setCancelAction_whenAlreadyCancelled_runsActionImmediately() {
+        RequestHandle sut = new RequestHandle();
+        sut.cancel();
+
+        Runnable cancelAction = mock(Runnable.class);
+        sut.setCancelAction(cancelAction);
+
+        verify(cancelAction).run();
+    }
+
+    @Test
+    public void isCancelled_byDefault_returnsFalse() {
+        assertFalse(new RequestHandle().isCancelled());
+    }
+
+    @Test
+    public void complete_whenNotCancelled_returnsTrueAndMakesCancelNoOp() {
+        RequestHandle sut = new RequestHandle();
+        Runnable cancelAction = mock(Runnable.class);
+        sut.setCancelAction(cancelAction);
+
+        assertTrue(sut.complete());
+        sut.cancel();
+
+        assertTrue(sut.isCompleted());
+        assertFalse(sut.isCancelled());
+        verify(cancelAction, never()).run();
+    }
+
+    @Test
+    public void complete_whenCancelled_returnsFalse() {
+        RequestHandle sut = new RequestHandle();
+        sut.cancel();
+
+        assertFalse(sut.complete());
+    }
+}
@@ -0,0 +1,94 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ResponseBufferPoolUnitTest {
+
+    @Test
+    public void acquire_whenPoolIsEmpty_allocatesDefaultSizedBuffer() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+
+        byte[] buffer = sut.acquire(0);
+        assertEquals(ResponseBufferPool.DEFAULT_BUFFER_SIZE, buffer.length);
+        assertEquals(ResponseBufferPool.DEFAULT_BUFFER_SIZE, sut.getAllocatedBytes());
+    }
+
+    @Test
+    public void acquire_withMinSizeLargerThanDefault_allocatesMinSize() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+
+        byte[] buffer = sut.acquire(20000);
+        assertEquals(20000, buffer.length);
+    }
+
+    @Test
+    public void acquire_afterRelease_reusesBufferWithoutAllocating() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+        byte[] buffer = sut.acquire(0);
+        sut.release(buffer);
+
+        assertSame(buffer, sut.acquire(100));
+        assertEquals(1, sut.getReuseCount());
+        assertEquals(ResponseBufferPool.DEFAULT_BUFFER_SIZE, sut.getAllocatedBytes());
+    }
+
+    @Test
+    public void acquire_whenPooledBuffersAreTooSmall_allocatesNewBuffer() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+        byte[] buffer = sut.acquire(0);
+        sut.release(buffer);
+
+        assertNotSame(buffer, sut.acquire(ResponseBufferPool.DEFAULT_BUFFER_SIZE + 1));
+        assertEquals(1, sut.getPooledBufferCount());
+    }
+
+    @Test
+    public void grow_doublesBufferAndKeepsContents() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+        byte[] buffer = sut.acquire(0);
+        Arrays.fill(buffer, (byte) 7);
+
+        byte[] expected = Arrays.copyOf(buffer, buffer.length);
+
+        byte[] grown = sut.grow(buffer);
+        assertEquals(buffer.length * 2, grown.length);
+        assertArrayEquals(expected, Arrays.copyOf(grown, buffer.length));
+        assertEquals(1, sut.getPooledBufferCount());
+    }
+
+    @Test
+    public void grow_zeroesReleasedBuffer() {
+        ResponseBufferPool sut = new ResponseBufferPool();
+        byte[] buffer = sut.acquire(0);
+        Arrays.fill(buffer, (byte) 7);
+
+        sut.grow(buffer);
+        assertArrayEquals(new byte[buffer.length], buffer);
+    }
+
+    @Test
+    public void release_whenBufferIsLargerThanMaxPooledSize_dropsBuffer() {
+        ResponseBufferPool sut = new ResponseBufferPool(1024, 4);
+
+        sut.release(new byte[2048]);
+        assertEquals(0, sut.getPooledBufferCount());
+    }
+
+    @Test
+    public void release_whenPoolIsFull_dropsBuffer() {
+        ResponseBufferPool sut = new ResponseBufferPool(1024, 1);
+
+        sut.release(new byte[512]);
+        sut.release(new byte[512]);
+        assertEquals(1, sut.getPooledBufferCount());
+        assertTrue(sut.getAllocatedBytes() == 0);
+    }
+}
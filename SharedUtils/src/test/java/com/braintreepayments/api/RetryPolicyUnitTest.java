@@ -0,0 +1,116 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RetryPolicyUnitTest {
+
+    private Random random;
+
+    @Before
+    public void beforeEach() {
+        random = mock(Random.class);
+    }
+
+    @Test
+    public void nextRetryDelay_growsExponentiallyWithJitter() {
+        when(random.nextDouble()).thenReturn(0.0, 1.0, 0.5);
+        RetryPolicy sut = new RetryPolicy(5, 1000, 8000, 60000, random, 0);
+
+        Exception error = new Exception("error");
+        assertEquals(500, sut.nextRetryDelay(error, 0));
+        assertEquals(2000, sut.nextRetryDelay(error, 0));
+        assertEquals(3000, sut.nextRetryDelay(error, 0));
+    }
+
+    @Test
+    public void nextRetryDelay_capsBackoffAtMaxBackoff() {
+        when(random.nextDouble()).thenReturn(1.0);
+        RetryPolicy sut = new RetryPolicy(10, 1000, 4000, 60000, random, 0);
+
+        Exception error = new Exception("error");
+        long delay = 0;
+        for (int i = 0; i < 6; i++) {
+            delay = sut.nextRetryDelay(error, 0);
+        }
+        assertEquals(4000, delay);
+    }
+
+    @Test
+    public void nextRetryDelay_whenMaxAttemptsReached_returnsNoRetry() {
+        RetryPolicy sut = new RetryPolicy(3, 1000, 8000, 60000, random, 0);
+
+        Exception error = new Exception("error");
+        assertTrue(sut.nextRetryDelay(error, 0) != RetryPolicy.NO_RETRY);
+        assertTrue(sut.nextRetryDelay(error, 0) != RetryPolicy.NO_RETRY);
+        assertEquals(RetryPolicy.NO_RETRY, sut.nextRetryDelay(error, 0));
+        assertEquals(3, sut.getAttemptCount());
+    }
+
+    @Test
+    public void nextRetryDelay_whenRetryAfterIsLongerThanBackoff_returnsRetryAfter() {
+        RetryPolicy sut = new RetryPolicy(3, 1000, 8000, 60000, random, 0);
+
+        assertEquals(10000, sut.nextRetryDelay(new RateLimitException("rate limited", 10000), 0));
+    }
+
+    @Test
+    public void nextRetryDelay_whenRetryAfterIsShorterThanBackoff_returnsBackoff() {
+        when(random.nextDouble()).thenReturn(1.0);
+        RetryPolicy sut = new RetryPolicy(3, 1000, 8000, 60000, random, 0);
+
+        assertEquals(1000, sut.nextRetryDelay(new ServiceUnavailableException("unavailable", 200), 0));
+    }
+
+    @Test
+    public void nextRetryDelay_whenTotalBudgetWouldBeExceeded_returnsNoRetry() {
+        RetryPolicy sut = new RetryPolicy(5, 1000, 8000, 10000, random, 0);
+
+        Exception error = new Exception("error");
+        assertEquals(500, sut.nextRetryDelay(error, 0));
+        assertEquals(RetryPolicy.NO_RETRY, sut.nextRetryDelay(error, 9800));
+    }
+
+    @Test
+    public void nextRetryDelay_countsFirstAttemptAgainstTotalBudget() {
+        RetryPolicy sut = new RetryPolicy(5, 1000, 8000, 10000, random, 1000);
+
+        // the first attempt timed out after 9.8 seconds
+        assertEquals(RetryPolicy.NO_RETRY, sut.nextRetryDelay(new Exception("timeout"), 10800));
+    }
+
+    @Test
+    public void nextRetryDelay_whenRetryAfterExceedsTotalBudget_returnsNoRetry() {
+        RetryPolicy sut = new RetryPolicy(3, 1000, 8000, 10000, random, 0);
+
+        assertEquals(RetryPolicy.NO_RETRY, sut.nextRetryDelay(new RateLimitException("rate limited", 20000), 0));
+    }
+
+    @Test
+    public void nextRetryDelay_whenErrorIsNotRetryable_returnsNoRetry() {
+        RetryPolicy sut = new RetryPolicy(3, 1000, 8000, 60000, random, 0);
+
+        assertEquals(RetryPolicy.NO_RETRY, sut.nextRetryDelay(new AuthenticationException("unauthorized"), 0));
+    }
+
+    @Test
+    public void isRetryable_returnsFalseForClientErrors() {
+        RetryPolicy sut = new RetryPolicy(3);
+
+        assertFalse(sut.isRetryable(new AuthenticationException("unauthorized")));
+        assertFalse(sut.isRetryable(new AuthorizationException("forbidden")));
+        assertFalse(sut.isRetryable(new UnprocessableEntityException("unprocessable")));
+        assertFalse(sut.isRetryable(new UpgradeRequiredException("upgrade")));
+        assertFalse(sut.isRetryable(new NotModifiedException("not modified")));
+        assertTrue(sut.isRetryable(new ServerException("server error")));
+        assertTrue(sut.isRetryable(new java.io.IOException("timeout")));
+    }
+}
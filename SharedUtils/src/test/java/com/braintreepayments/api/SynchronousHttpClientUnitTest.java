@@ -3,8 +3,11 @@ package com.braintreepayments.api;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -12,11 +15,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
@@ -292,6 +299,116 @@ public class SynchronousHttpClientUnitTest {
         verify(connection).disconnect();
     }
 
+    @Test
+    public void request_whenWritingBodyFails_closesUrlConnectionAndRemovesCancelAction() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+        when(connection.getOutputStream()).thenThrow(new IOException("broken pipe"));
+
+        final SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        assertThrows(IOException.class, new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                sut.request(httpRequest);
+            }
+        });
+        verify(connection).disconnect();
+
+        // cancelling afterwards no longer touches the closed connection
+        httpRequest.getHandle().cancel();
+        verify(connection, times(1)).disconnect();
+    }
+
+    @Test
+    public void request_withConnectionPool_onSuccess_keepsUrlConnectionAlive() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = spy(new URL("https://www.sample.com/sample/path"));
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpsURLConnection connection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        HttpConnectionPool connectionPool = new HttpConnectionPool();
+        SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        sut.request(httpRequest);
+        sut.request(httpRequest);
+
+        verify(connection, never()).disconnect();
+        assertEquals(1, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void request_withConnectionPool_whenServerClosesConnection_closesUrlConnection() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpsURLConnection connection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(connection.getHeaderField("Connection")).thenReturn("close");
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        HttpConnectionPool connectionPool = new HttpConnectionPool();
+        SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        sut.request(httpRequest);
+
+        verify(connection).disconnect();
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void request_withConnectionPool_onHttpResponseParserException_closesUrlConnection() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpsURLConnection connection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(500);
+        when(httpResponseParser.parse(500, connection)).thenThrow(new ServerException("error"));
+
+        HttpConnectionPool connectionPool = new HttpConnectionPool();
+        final SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        assertThrows(ServerException.class, new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                sut.request(httpRequest);
+            }
+        });
+        verify(connection).disconnect();
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
     @Test
     public void request_whenPost_addsContentTypeHeader() throws Exception {
         final HttpRequest httpRequest = spy(new HttpRequest()
@@ -376,6 +493,73 @@ public class SynchronousHttpClientUnitTest {
         verify(httpRequest).dispose();
     }
 
+    @Test
+    public void request_whenPostBodyAboveCompressionThreshold_streamsGzippedBody() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data test data test data")
+                .compressData(10)
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(outputStream);
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        sut.request(httpRequest);
+
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection).setChunkedStreamingMode(0);
+
+        GZIPInputStream gzipInputStream =
+                new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64];
+        int count;
+        while ((count = gzipInputStream.read(buffer)) != -1) {
+            decompressed.write(buffer, 0, count);
+        }
+        assertEquals("test data test data test data", decompressed.toString("UTF-8"));
+    }
+
+    @Test
+    public void request_whenPostBodyBelowCompressionThreshold_sendsBodyUncompressed() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .compressData(1024)
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(outputStream);
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        sut.request(httpRequest);
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection, never()).setChunkedStreamingMode(anyInt());
+        assertEquals("test data", outputStream.toString("UTF-8"));
+    }
+
     private static byte[] toByteArray(String data) {
         return data.getBytes(StandardCharsets.UTF_8);
     }
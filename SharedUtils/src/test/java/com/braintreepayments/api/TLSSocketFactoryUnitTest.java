@@ -0,0 +1,147 @@
+package com.braintreepayments.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+public class TLSSocketFactoryUnitTest {
+
+    private MockWebServer server;
+    private HeldCertificate rootCertificate;
+
+    @Before
+    public void beforeEach() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("localhost"), 0);
+
+        rootCertificate = new HeldCertificate.Builder()
+                .certificateAuthority(0)
+                .build();
+        HeldCertificate serverCertificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(server.getHostName())
+                .signedBy(rootCertificate)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(serverCertificate)
+                .build();
+
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setProtocols(Collections.singletonList(Protocol.HTTP_1_1));
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void onHandshakeCompleted_countsResumedSessionsSeparately() throws Exception {
+        TLSSocketFactory sut = createSocketFactory();
+
+        sut.onHandshakeCompleted(1000, 1000);
+        sut.onHandshakeCompleted(500, 1000);
+
+        assertEquals(2, sut.getHandshakeCount());
+        assertEquals(1, sut.getResumedHandshakeCount());
+    }
+
+    @Test
+    public void createSocket_resumesSessionAcrossClientsSharingTheFactory() throws Exception {
+        TLSSocketFactory sut = createSocketFactory();
+
+        // separate clients without a connection pool open a new connection for every request
+        SynchronousHttpClient firstClient = new SynchronousHttpClient(sut, new BaseHttpResponseParser());
+        SynchronousHttpClient secondClient = new SynchronousHttpClient(sut, new BaseHttpResponseParser());
+        assertNotSame(firstClient, secondClient);
+
+        sendRequest(firstClient);
+        awaitHandshakeCount(sut, 1);
+
+        // make sure the resumed session is older than the next socket
+        Thread.sleep(10);
+        sendRequest(secondClient);
+        awaitHandshakeCount(sut, 2);
+
+        assertEquals(2, sut.getHandshakeCount());
+        assertEquals(1, sut.getResumedHandshakeCount());
+    }
+
+    @Test
+    public void createSocket_doesNotShareSessionsBetweenFactories() throws Exception {
+        TLSSocketFactory first = createSocketFactory();
+        TLSSocketFactory second = createSocketFactory();
+
+        sendRequest(new SynchronousHttpClient(first, new BaseHttpResponseParser()));
+        awaitHandshakeCount(first, 1);
+
+        Thread.sleep(10);
+        sendRequest(new SynchronousHttpClient(second, new BaseHttpResponseParser()));
+        awaitHandshakeCount(second, 1);
+
+        assertEquals(0, first.getResumedHandshakeCount());
+        assertEquals(0, second.getResumedHandshakeCount());
+    }
+
+    @Test
+    public void getSocketCount_countsOnlyNewConnections() throws Exception {
+        TLSSocketFactory sut = createSocketFactory();
+        HttpConnectionPool connectionPool = new HttpConnectionPool();
+        SynchronousHttpClient client =
+                new SynchronousHttpClient(sut, new BaseHttpResponseParser(), connectionPool);
+
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+            HttpRequest request = new HttpRequest()
+                    .method("GET")
+                    .baseUrl(server.url("/").toString())
+                    .path("v1/configuration");
+            assertEquals("{}", client.request(request));
+        }
+
+        assertEquals(1, sut.getSocketCount(server.getHostName(), server.getPort()));
+        assertEquals(3, connectionPool.getRequestCount());
+        assertEquals(1, connectionPool.getMissCount());
+        assertEquals(2, connectionPool.getHitCount());
+    }
+
+    private void sendRequest(SynchronousHttpClient client) throws Exception {
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Connection", "close")
+                .setBody("{}"));
+
+        HttpRequest request = new HttpRequest()
+                .method("GET")
+                .baseUrl(server.url("/").toString())
+                .path("v1/configuration");
+        assertEquals("{}", client.request(request));
+    }
+
+    private TLSSocketFactory createSocketFactory() throws Exception {
+        byte[] pem = rootCertificate.certificatePem().getBytes(StandardCharsets.UTF_8);
+        return new TLSSocketFactory(new ByteArrayInputStream(pem));
+    }
+
+    private static void awaitHandshakeCount(TLSSocketFactory socketFactory, int count)
+            throws InterruptedException {
+        // handshake listeners may be notified on a separate thread
+        long deadline = System.currentTimeMillis() + 5000;
+        while (socketFactory.getHandshakeCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
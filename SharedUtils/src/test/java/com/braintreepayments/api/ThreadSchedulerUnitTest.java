@@ -36,6 +36,32 @@ public class ThreadSchedulerUnitTest {
         verify(backgroundThreadPool).submit(runnable);
     }
 
+    @Test
+    public void runOnBackground_withPriority_whenExecutorIsPrioritized_executesRunnableWithPriority() {
+        PriorityThreadPoolExecutor priorityThreadPool = mock(PriorityThreadPoolExecutor.class);
+        ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, priorityThreadPool);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {}
+        };
+
+        sut.runOnBackground(runnable, Scheduler.PRIORITY_LOW);
+
+        verify(priorityThreadPool).execute(runnable, Scheduler.PRIORITY_LOW);
+    }
+
+    @Test
+    public void runOnBackground_withPriority_whenExecutorIsNotPrioritized_submitsRunnableToThreadPool() {
+        ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, backgroundThreadPool);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {}
+        };
+
+        sut.runOnBackground(runnable, Scheduler.PRIORITY_LOW);
+
+        verify(backgroundThreadPool).submit(runnable);
+    }
 
     @Test
     public void runOnMain_postsRunnableToHandler() {
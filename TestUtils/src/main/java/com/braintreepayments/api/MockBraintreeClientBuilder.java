@@ -3,6 +3,7 @@ package com.braintreepayments.api;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -170,6 +171,19 @@ public class MockBraintreeClientBuilder {
             }
         }).when(braintreeClient).getConfiguration(any(ConfigurationCallback.class));
 
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ConfigurationCallback callback = (ConfigurationCallback) invocation.getArguments()[1];
+                if (configuration != null) {
+                    callback.onResult(configuration, null);
+                } else if (configurationError != null) {
+                    callback.onResult(null, configurationError);
+                }
+                return null;
+            }
+        }).when(braintreeClient).getConfiguration(nullable(Deadline.class), any(ConfigurationCallback.class));
+
         doAnswer(new Answer<Void>() {
             @Override
             public Void answer(InvocationOnMock invocation) {
@@ -196,6 +210,19 @@ public class MockBraintreeClientBuilder {
             }
         }).when(braintreeClient).sendPOST(anyString(), anyString(), any(HttpResponseCallback.class));
 
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                HttpResponseCallback callback = (HttpResponseCallback) invocation.getArguments()[3];
+                if (sendPOSTSuccess != null) {
+                    callback.onResult(sendPOSTSuccess, null);
+                } else if (sendPOSTError != null) {
+                    callback.onResult(null, sendPOSTError);
+                }
+                return null;
+            }
+        }).when(braintreeClient).sendPOST(anyString(), anyString(), nullable(Deadline.class), any(HttpResponseCallback.class));
+
         doAnswer(new Answer<Void>() {
             @Override
             public Void answer(InvocationOnMock invocation) {
@@ -209,6 +236,19 @@ public class MockBraintreeClientBuilder {
             }
         }).when(braintreeClient).sendGraphQLPOST(anyString(), any(HttpResponseCallback.class));
 
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                HttpResponseCallback callback = (HttpResponseCallback) invocation.getArguments()[2];
+                if (sendGraphQLPOSTSuccess != null) {
+                    callback.onResult(sendGraphQLPOSTSuccess, null);
+                } else if (sendGraphQLPOSTError != null) {
+                    callback.onResult(null, sendGraphQLPOSTError);
+                }
+                return null;
+            }
+        }).when(braintreeClient).sendGraphQLPOST(anyString(), nullable(Deadline.class), any(HttpResponseCallback.class));
+
         return braintreeClient;
     }
 }
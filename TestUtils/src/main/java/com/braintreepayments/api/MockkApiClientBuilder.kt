@@ -38,11 +38,24 @@ class MockkApiClientBuilder {
         every { apiClient.tokenizeREST(any(), any()) } answers {
             val listener = lastArg() as TokenizeCallback
             listener.onResult(tokenizeRESTSuccess, tokenizeRESTError)
+            RequestHandle()
         }
 
         every { apiClient.tokenizeGraphQL(any(), any()) } answers {
             val listener = lastArg() as TokenizeCallback
             listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError)
+            RequestHandle()
+        }
+        every { apiClient.tokenizeREST(any(), any(), any()) } answers {
+            val listener = lastArg() as TokenizeCallback
+            listener.onResult(tokenizeRESTSuccess, tokenizeRESTError)
+            RequestHandle()
+        }
+
+        every { apiClient.tokenizeGraphQL(any(), any(), any()) } answers {
+            val listener = lastArg() as TokenizeCallback
+            listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError)
+            RequestHandle()
         }
         return apiClient
     }
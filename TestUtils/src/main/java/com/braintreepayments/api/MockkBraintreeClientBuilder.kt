@@ -37,6 +37,11 @@ class MockkBraintreeClientBuilder {
             configurationSuccess?.let { callback.onResult(it, null) }
         }
 
+        every { braintreeClient.getConfiguration(any(), any()) } answers { call ->
+            val callback = call.invocation.args[1] as ConfigurationCallback
+            configurationSuccess?.let { callback.onResult(it, null) }
+        }
+
         every { braintreeClient.getAuthorization(any()) } answers { call ->
             val callback = call.invocation.args[0] as AuthorizationCallback
             authorizationSuccess?.let { callback.onAuthorizationResult(it, null) }
@@ -46,6 +51,14 @@ class MockkBraintreeClientBuilder {
             val callback = call.invocation.args[1] as HttpResponseCallback
             sendGraphQLPostSuccess?.let { callback.onResult(it, null) }
                 ?: sendGraphQLPOSTError?.let { callback.onResult(null, it) }
+            RequestHandle()
+        }
+
+        every { braintreeClient.sendGraphQLPOST(any(), any(), any()) } answers { call ->
+            val callback = call.invocation.args[2] as HttpResponseCallback
+            sendGraphQLPostSuccess?.let { callback.onResult(it, null) }
+                ?: sendGraphQLPOSTError?.let { callback.onResult(null, it) }
+            RequestHandle()
         }
 
         return braintreeClient
@@ -2,8 +2,6 @@ package com.braintreepayments.api;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.net.Uri;
-import android.util.Base64;
 
 public class SharedPreferencesHelper {
 
@@ -16,20 +14,16 @@ public class SharedPreferencesHelper {
     }
 
     public static void overrideConfigurationCache(Context context, Authorization authorization, Configuration configuration) {
-        final String configUrl = Uri.parse(authorization.getConfigUrl())
-                .buildUpon()
-                .appendQueryParameter("configVersion", "3")
-                .build()
-                .toString();
-
-        String cacheKey = Base64.encodeToString(String.format("%s%s", configUrl, authorization.getBearer()).getBytes(), 0);
-        String timestampKey = String.format("%s_timestamp", cacheKey);
-        BraintreeSharedPreferences
+        String cacheKey = ConfigurationCache.Companion.createCacheKey(authorization);
+        ConfigurationCache.Companion
                 .getInstance(context)
-                .putStringAndLong(cacheKey, configuration.toJson(), timestampKey, System.currentTimeMillis());
+                .saveConfiguration(configuration, cacheKey, null);
+        // drop a copy parsed before the override so the stored one is read
+        ConfigurationMemoryCache.Companion.getInstance().remove(cacheKey);
     }
 
     public static void clearConfigurationCacheOverride(Context context) {
         BraintreeSharedPreferences.getInstance(context).clearSharedPreferences();
+        ConfigurationCache.Companion.getInstance(context).clear();
     }
 }
@@ -1,36 +1,40 @@
 package com.braintreepayments.api;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
 class ThreeDSecureAPI {
 
     private final BraintreeClient braintreeClient;
+    private final PendingRequests pendingRequests = new PendingRequests();
 
     ThreeDSecureAPI(BraintreeClient braintreeClient) {
         this.braintreeClient = braintreeClient;
     }
 
-    void performLookup(final ThreeDSecureRequest request, String cardinalConsumerSessionId, final ThreeDSecureResultCallback callback) {
+    /**
+     * @param deadline deadline of the verification flow, or null for none
+     */
+    void performLookup(final ThreeDSecureRequest request, String cardinalConsumerSessionId, Deadline deadline, final ThreeDSecureResultCallback callback) {
         String url = ApiClient.versionedPath(ApiClient.PAYMENT_METHOD_ENDPOINT + "/" + request.getNonce() + "/three_d_secure/lookup");
         String data = request.build(cardinalConsumerSessionId);
 
-        braintreeClient.sendPOST(url, data, new HttpResponseCallback() {
+        RequestHandle requestHandle = braintreeClient.sendPOST(url, data, deadline, new DecodingHttpResponseCallback<ThreeDSecureResult>() {
 
             @Override
-            public void onResult(String responseBody, Exception httpError) {
-                if (responseBody != null) {
-                    try {
-                        ThreeDSecureResult result = ThreeDSecureResult.fromJson(responseBody);
-                        callback.onResult(result, null);
-                    } catch (JSONException e) {
-                        callback.onResult(null, e);
-                    }
-                } else {
-                    callback.onResult(null, httpError);
-                }
+            public ThreeDSecureResult decode(@NonNull String responseBody) throws JSONException {
+                return ThreeDSecureResult.fromJson(responseBody);
+            }
+
+            @Override
+            public void onDecodedResult(@Nullable ThreeDSecureResult result, @Nullable Exception error) {
+                callback.onResult(result, error);
             }
         });
+        pendingRequests.add(requestHandle);
     }
 
     void authenticateCardinalJWT(ThreeDSecureResult threeDSecureResult, String cardinalJWT, final ThreeDSecureResultCallback callback) {
@@ -50,7 +54,7 @@ class ThreeDSecureAPI {
         String url = ApiClient.versionedPath(ApiClient.PAYMENT_METHOD_ENDPOINT + "/" + lookupNonce + "/three_d_secure/authenticate_from_jwt");
         String data = body.toString();
 
-        braintreeClient.sendPOST(url, data, new HttpResponseCallback() {
+        RequestHandle requestHandle = braintreeClient.sendPOST(url, data, new HttpResponseCallback() {
 
             @Override
             public void onResult(String responseBody, Exception httpError) {
@@ -70,5 +74,14 @@ class ThreeDSecureAPI {
                 }
             }
         });
+        pendingRequests.add(requestHandle);
+    }
+
+    /**
+     * Cancel the requests sent by this instance that have not completed. Their callbacks receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        pendingRequests.cancelAll();
     }
 }
@@ -32,10 +32,13 @@ import org.json.JSONObject;
  */
 public class ThreeDSecureClient {
 
+    static final long DEFAULT_VERIFICATION_TIMEOUT_MS = 60000;
+
     private final CardinalClient cardinalClient;
     private final BraintreeClient braintreeClient;
     private final ThreeDSecureAPI api;
     private ThreeDSecureListener listener;
+    private long verificationTimeoutMillis = DEFAULT_VERIFICATION_TIMEOUT_MS;
 
     @VisibleForTesting
     BrowserSwitchResult pendingBrowserSwitchResult;
@@ -106,6 +109,18 @@ public class ThreeDSecureClient {
         }
     }
 
+    /**
+     * Set the time {@link ThreeDSecureClient#performVerification(FragmentActivity, ThreeDSecureRequest, ThreeDSecureResultCallback)}
+     * may take to fetch configuration, set up the 3DS SDK and look up the card before the lookup
+     * fails with a {@link DeadlineExceededException}. The time the customer spends on a
+     * challenge does not count towards this budget. Defaults to 60 seconds.
+     *
+     * @param timeoutMillis the verification budget in milliseconds
+     */
+    public void setVerificationTimeout(long timeoutMillis) {
+        this.verificationTimeoutMillis = timeoutMillis;
+    }
+
     // region Cardinal Initialize/Prepare Callback Methods
 
     /**
@@ -129,16 +144,30 @@ public class ThreeDSecureClient {
             return;
         }
 
-        braintreeClient.getConfiguration(new ConfigurationCallback() {
+        // the span ends with the lookup; a challenge is reported by the activity result
+        final Span span = Span.start(braintreeClient.getTracer(), "three-d-secure.verification");
+        final ThreeDSecureResultCallback tracedCallback = new ThreeDSecureResultCallback() {
+            @Override
+            public void onResult(@Nullable ThreeDSecureResult threeDSecureResult, @Nullable Exception error) {
+                span.end(error);
+                callback.onResult(threeDSecureResult, error);
+            }
+        };
+
+        // configuration, SDK setup and lookup share one budget
+        final Deadline deadline = Deadline.after(verificationTimeoutMillis);
+        final Span configurationSpan = span.startChild("configuration");
+        braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
             @Override
             public void onResult(@Nullable final Configuration configuration, @Nullable Exception error) {
+                configurationSpan.end(error);
                 if (configuration == null) {
-                    callback.onResult(null, error);
+                    tracedCallback.onResult(null, error);
                     return;
                 }
 
                 if (!configuration.isThreeDSecureEnabled()) {
-                    callback.onResult(null, new BraintreeException("Three D Secure is not enabled for this account. " +
+                    tracedCallback.onResult(null, new BraintreeException("Three D Secure is not enabled for this account. " +
                             "Please contact Braintree Support for assistance."));
                     return;
                 }
@@ -148,25 +177,35 @@ public class ThreeDSecureClient {
                             "3D Secure v1 is deprecated and no longer supported. See https://developer.paypal.com/braintree/docs/guides/3d-secure/client-side/android/v4 for more information.";
                     BraintreeException threeDSecureV1UnsupportedError =
                             new BraintreeException(threeDSecureV1UnsupportedMessage);
-                    callback.onResult(null, threeDSecureV1UnsupportedError);
+                    tracedCallback.onResult(null, threeDSecureV1UnsupportedError);
 
                 } else {
                     // VERSION_2
                     if (configuration.getCardinalAuthenticationJwt() == null) {
-                        callback.onResult(null, new BraintreeException("Merchant is not configured for 3DS 2.0. " +
+                        tracedCallback.onResult(null, new BraintreeException("Merchant is not configured for 3DS 2.0. " +
                                 "Please contact Braintree Support for assistance."));
                         return;
                     }
                     braintreeClient.sendAnalyticsEvent("three-d-secure.initialized");
 
+                    final Span cardinalSpan = span.startChild("cardinal-setup");
                     CardinalInitializeCallback cardinalInitializeCallback = new CardinalInitializeCallback() {
                         @Override
                         public void onResult(String consumerSessionId, Exception error) {
+                            cardinalSpan.end(error);
+                            final Span lookupSpan = span.startChild("lookup");
+                            ThreeDSecureResultCallback lookupCallback = new ThreeDSecureResultCallback() {
+                                @Override
+                                public void onResult(@Nullable ThreeDSecureResult threeDSecureResult, @Nullable Exception lookupError) {
+                                    lookupSpan.end(lookupError);
+                                    tracedCallback.onResult(threeDSecureResult, lookupError);
+                                }
+                            };
                             if (consumerSessionId != null) {
-                                api.performLookup(request, cardinalClient.getConsumerSessionId(), callback);
+                                api.performLookup(request, cardinalClient.getConsumerSessionId(), deadline, lookupCallback);
                                 braintreeClient.sendAnalyticsEvent("three-d-secure.cardinal-sdk.init.setup-completed");
                             } else {
-                                api.performLookup(request, cardinalClient.getConsumerSessionId(), callback);
+                                api.performLookup(request, cardinalClient.getConsumerSessionId(), deadline, lookupCallback);
                                 braintreeClient.sendAnalyticsEvent("three-d-secure.cardinal-sdk.init.setup-failed");
                             }
                         }
@@ -175,8 +214,9 @@ public class ThreeDSecureClient {
                     try {
                         cardinalClient.initialize(activity, configuration, request, cardinalInitializeCallback);
                     } catch (BraintreeException initializeException) {
+                        cardinalSpan.end(initializeException);
                         braintreeClient.sendAnalyticsEvent("three-d-secure.cardinal-sdk.init.failed");
-                        callback.onResult(null, initializeException);
+                        tracedCallback.onResult(null, initializeException);
                     }
                 }
             }
@@ -567,6 +607,16 @@ public class ThreeDSecureClient {
         this.pendingBrowserSwitchResult = null;
     }
 
+    /**
+     * Cancel requests this client started that have not completed, e.g. when the screen hosting
+     * the payment flow is destroyed. Requests that other clients sent through the same
+     * {@link BraintreeClient} are left untouched. The callbacks of cancelled requests receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        api.cancelPendingRequests();
+    }
+
     void onCardinalResult(CardinalResult cardinalResult) {
         Exception threeDSecureError = cardinalResult.getError();
         if (threeDSecureError != null && listener != null) {
@@ -42,6 +42,11 @@ class ThreeDSecureLifecycleObserver implements LifecycleEventObserver {
     @Override
     public void onStateChanged(@NonNull LifecycleOwner lifecycleOwner, @NonNull Lifecycle.Event event) {
         switch (event) {
+            case ON_DESTROY:
+                if (!LifecycleHelper.isChangingConfigurations(lifecycleOwner)) {
+                    threeDSecureClient.cancelPendingRequests();
+                }
+                break;
             case ON_CREATE:
                 activityLauncher = activityResultRegistry.register(THREE_D_SECURE_RESULT, lifecycleOwner, new ThreeDSecureActivityResultContract(), new ActivityResultCallback<CardinalResult>() {
                     @Override
@@ -33,12 +33,13 @@ public class ThreeDSecureAPIUnitTest {
         when(threeDSecureRequest.getNonce()).thenReturn("sample-nonce");
         when(threeDSecureRequest.build("cardinal-session-id")).thenReturn(mockData);
 
+        Deadline deadline = Deadline.after(60000);
         ThreeDSecureResultCallback callback = mock(ThreeDSecureResultCallback.class);
-        sut.performLookup(threeDSecureRequest, "cardinal-session-id", callback);
+        sut.performLookup(threeDSecureRequest, "cardinal-session-id", deadline, callback);
 
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> dataCaptor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(urlCaptor.capture(), dataCaptor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(urlCaptor.capture(), dataCaptor.capture(), same(deadline), any(HttpResponseCallback.class));
 
         String url = urlCaptor.getValue();
         assertEquals("/v1/payment_methods/sample-nonce/three_d_secure/lookup", url);
@@ -58,7 +59,7 @@ public class ThreeDSecureAPIUnitTest {
         when(threeDSecureRequest.build(anyString())).thenReturn("{}");
 
         ThreeDSecureResultCallback callback = mock(ThreeDSecureResultCallback.class);
-        sut.performLookup(threeDSecureRequest, "another-session-id", callback);
+        sut.performLookup(threeDSecureRequest, "another-session-id", null, callback);
 
         verify(callback).onResult(any(ThreeDSecureResult.class), isNull());
     }
@@ -74,7 +75,7 @@ public class ThreeDSecureAPIUnitTest {
         when(threeDSecureRequest.build(anyString())).thenReturn("{}");
 
         ThreeDSecureResultCallback callback = mock(ThreeDSecureResultCallback.class);
-        sut.performLookup(threeDSecureRequest, "cardinal-session-id", callback);
+        sut.performLookup(threeDSecureRequest, "cardinal-session-id", null, callback);
 
         verify(callback).onResult(isNull(), any(JSONException.class));
     }
@@ -91,7 +92,7 @@ public class ThreeDSecureAPIUnitTest {
         when(threeDSecureRequest.build(anyString())).thenReturn("{}");
 
         ThreeDSecureResultCallback callback = mock(ThreeDSecureResultCallback.class);
-        sut.performLookup(threeDSecureRequest, "cardinal-session-id", callback);
+        sut.performLookup(threeDSecureRequest, "cardinal-session-id", null, callback);
 
         verify(callback).onResult(isNull(), same(httpError));
     }
@@ -281,4 +282,23 @@ public class ThreeDSecureAPIUnitTest {
 
         verify(threeDSecureResultCallback).onResult(null, exception);
     }
+
+    @Test
+    public void cancelPendingRequests_cancelsRequestsSentByThisInstance() {
+        BraintreeClient braintreeClient = mock(BraintreeClient.class);
+        RequestHandle requestHandle = new RequestHandle();
+        when(braintreeClient.sendPOST(anyString(), anyString(), isNull(), any(HttpResponseCallback.class)))
+                .thenReturn(requestHandle);
+        sut = new ThreeDSecureAPI(braintreeClient);
+
+        ThreeDSecureRequest threeDSecureRequest = mock(ThreeDSecureRequest.class);
+        when(threeDSecureRequest.build(anyString())).thenReturn("{}");
+        sut.performLookup(threeDSecureRequest, "cardinal-session-id", null, mock(ThreeDSecureResultCallback.class));
+
+        new ThreeDSecureAPI(braintreeClient).cancelPendingRequests();
+        assertFalse(requestHandle.isCancelled());
+
+        sut.cancelPendingRequests();
+        assertTrue(requestHandle.isCancelled());
+    }
 }
@@ -10,9 +10,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -40,6 +42,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class ThreeDSecureClientUnitTest {
 
@@ -126,7 +130,7 @@ public class ThreeDSecureClientUnitTest {
 
         String expectedUrl = "/v1/payment_methods/a-nonce/three_d_secure/lookup";
         ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(eq(expectedUrl), bodyCaptor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(eq(expectedUrl), bodyCaptor.capture(), any(Deadline.class), any(HttpResponseCallback.class));
 
         JSONObject body = new JSONObject(bodyCaptor.getValue());
         assertEquals("amount", body.getString("amount"));
@@ -135,6 +139,30 @@ public class ThreeDSecureClientUnitTest {
         assertEquals("secure_corporate", body.getString("requested_exemption_type"));
     }
 
+    @Test
+    public void performVerification_sendsLookupWithVerificationDeadline() throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder()
+                .successReferenceId("df-reference-id")
+                .build();
+
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(threeDSecureEnabledConfig)
+                .build();
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(activity, lifecycle, braintreeClient, cardinalClient, new ThreeDSecureAPI(braintreeClient));
+        sut.setVerificationTimeout(5000);
+        sut.performVerification(activity, basicRequest, threeDSecureResultCallback);
+
+        ArgumentCaptor<Deadline> deadlineCaptor = ArgumentCaptor.forClass(Deadline.class);
+        verify(braintreeClient).sendPOST(anyString(), anyString(), deadlineCaptor.capture(), any(HttpResponseCallback.class));
+
+        long remainingMillis = deadlineCaptor.getValue().remainingMillis();
+        assertTrue(remainingMillis > 0 && remainingMillis <= 5000);
+
+        // the configuration fetch counts towards the same budget
+        verify(braintreeClient).getConfiguration(same(deadlineCaptor.getValue()), any(ConfigurationCallback.class));
+    }
+
     @Test
     public void performVerification_performsLookup_WhenCardinalSDKInitFails() throws JSONException, BraintreeException {
         CardinalClient cardinalClient = new MockCardinalClientBuilder()
@@ -159,7 +187,7 @@ public class ThreeDSecureClientUnitTest {
 
         ArgumentCaptor<String> pathCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendPOST(pathCaptor.capture(), bodyCaptor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendPOST(pathCaptor.capture(), bodyCaptor.capture(), any(Deadline.class), any(HttpResponseCallback.class));
 
         String path = pathCaptor.getValue();
         String body = bodyCaptor.getValue();
@@ -201,6 +229,33 @@ public class ThreeDSecureClientUnitTest {
         verify(threeDSecureResultCallback).onResult(any(ThreeDSecureResult.class), (Exception) isNull());
     }
 
+    @Test
+    public void performVerification_whenTracerIsSet_reportsSpanForEachStage() throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder()
+                .successReferenceId("sample-session-id")
+                .build();
+
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(threeDSecureEnabledConfig)
+                .sendPOSTSuccessfulResponse(Fixtures.THREE_D_SECURE_LOOKUP_RESPONSE)
+                .build();
+        BraintreeTracer tracer = mock(BraintreeTracer.class);
+        when(braintreeClient.getTracer()).thenReturn(tracer);
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(activity, lifecycle, braintreeClient, cardinalClient, new ThreeDSecureAPI(braintreeClient));
+        sut.performVerification(activity, basicRequest, threeDSecureResultCallback);
+
+        ArgumentCaptor<TraceSpan> captor = ArgumentCaptor.forClass(TraceSpan.class);
+        verify(tracer, times(4)).onSpanEnd(captor.capture());
+        List<TraceSpan> spans = captor.getAllValues();
+        assertEquals("configuration", spans.get(0).getName());
+        assertEquals("cardinal-setup", spans.get(1).getName());
+        assertEquals("lookup", spans.get(2).getName());
+        assertEquals("three-d-secure.verification", spans.get(3).getName());
+        assertEquals(spans.get(3).getSpanId(), spans.get(2).getParentSpanId());
+        assertNull(spans.get(3).getError());
+    }
+
     @Test
     public void performVerification_withInvalidRequest_postsException() throws BraintreeException {
         CardinalClient cardinalClient = new MockCardinalClientBuilder().build();
@@ -10,6 +10,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.robolectric.Shadows.shadowOf;
 
@@ -215,4 +216,30 @@ public class ThreeDSecureLifecycleObserverUnitTest {
         sut.launch(threeDSecureResult);
         verify(resultLauncher).launch(threeDSecureResult);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onDestroy_cancelsPendingRequests() {
+        ActivityResultRegistry activityResultRegistry = mock(ActivityResultRegistry.class);
+        ThreeDSecureClient threeDSecureClient = mock(ThreeDSecureClient.class);
+        ThreeDSecureLifecycleObserver sut = new ThreeDSecureLifecycleObserver(activityResultRegistry, threeDSecureClient);
+
+        FragmentActivity lifecycleOwner = new FragmentActivity();
+        sut.onStateChanged(lifecycleOwner, Lifecycle.Event.ON_DESTROY);
+
+        verify(threeDSecureClient).cancelPendingRequests();
+        verifyNoInteractions(activityResultRegistry);
+    }
+
+    @Test
+    public void onDestroy_whenChangingConfigurations_keepsPendingRequests() {
+        ActivityResultRegistry activityResultRegistry = mock(ActivityResultRegistry.class);
+        ThreeDSecureClient threeDSecureClient = mock(ThreeDSecureClient.class);
+        ThreeDSecureLifecycleObserver sut = new ThreeDSecureLifecycleObserver(activityResultRegistry, threeDSecureClient);
+
+        FragmentActivity lifecycleOwner = mock(FragmentActivity.class);
+        when(lifecycleOwner.isChangingConfigurations()).thenReturn(true);
+        sut.onStateChanged(lifecycleOwner, Lifecycle.Event.ON_DESTROY);
+
+        verify(threeDSecureClient, never()).cancelPendingRequests();
+    }
+}
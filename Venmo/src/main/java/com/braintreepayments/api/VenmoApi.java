@@ -3,6 +3,7 @@ package com.braintreepayments.api;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -12,13 +13,17 @@ class VenmoApi {
 
     private final BraintreeClient braintreeClient;
     private final ApiClient apiClient;
+    private final PendingRequests pendingRequests = new PendingRequests();
 
     VenmoApi(BraintreeClient braintreeClient, ApiClient apiClient) {
         this.braintreeClient = braintreeClient;
         this.apiClient = apiClient;
     }
 
-    void createPaymentContext(@NonNull final VenmoRequest request, String venmoProfileId, final VenmoApiCallback callback) {
+    /**
+     * @param deadline deadline of the Venmo flow, or null for none
+     */
+    void createPaymentContext(@NonNull final VenmoRequest request, String venmoProfileId, @Nullable Deadline deadline, final VenmoApiCallback callback) {
         JSONObject params = new JSONObject();
         try {
             params.put("query", "mutation CreateVenmoPaymentContext($input: CreateVenmoPaymentContextInput!) { createVenmoPaymentContext(input: $input) { venmoPaymentContext { id } } }");
@@ -63,7 +68,7 @@ class VenmoApi {
             callback.onResult(null, new BraintreeException("unexpected error"));
         }
 
-        braintreeClient.sendGraphQLPOST(params.toString(), new HttpResponseCallback() {
+        RequestHandle requestHandle = braintreeClient.sendGraphQLPOST(params.toString(), deadline, new HttpResponseCallback() {
 
             @Override
             public void onResult(String responseBody, Exception httpError) {
@@ -79,6 +84,7 @@ class VenmoApi {
                 }
             }
         });
+        pendingRequests.add(requestHandle);
     }
 
     void createNonceFromPaymentContext(String paymentContextId, final VenmoOnActivityResultCallback callback) {
@@ -90,24 +96,20 @@ class VenmoApi {
             variables.put("id", paymentContextId);
             params.put("variables", variables);
 
-            braintreeClient.sendGraphQLPOST(params.toString(), new HttpResponseCallback() {
+            RequestHandle requestHandle = braintreeClient.sendGraphQLPOST(params.toString(), new DecodingHttpResponseCallback<VenmoAccountNonce>() {
 
                 @Override
-                public void onResult(String responseBody, Exception httpError) {
-                    if (responseBody != null) {
-                        try {
-                            JSONObject data = new JSONObject(responseBody).getJSONObject("data");
-                            VenmoAccountNonce nonce = VenmoAccountNonce.fromJSON(data.getJSONObject("node"));
-
-                            callback.onResult(nonce, null);
-                        } catch (JSONException exception) {
-                            callback.onResult(null, exception);
-                        }
-                    } else {
-                        callback.onResult(null, httpError);
-                    }
+                public VenmoAccountNonce decode(@NonNull String responseBody) throws JSONException {
+                    JSONObject data = new JSONObject(responseBody).getJSONObject("data");
+                    return VenmoAccountNonce.fromJSON(data.getJSONObject("node"));
+                }
+
+                @Override
+                public void onDecodedResult(@Nullable VenmoAccountNonce nonce, @Nullable Exception error) {
+                    callback.onResult(nonce, error);
                 }
             });
+            pendingRequests.add(requestHandle);
 
         } catch (JSONException exception) {
             callback.onResult(null, exception);
@@ -118,7 +120,7 @@ class VenmoApi {
         VenmoAccount venmoAccount = new VenmoAccount();
         venmoAccount.setNonce(nonce);
 
-        apiClient.tokenizeREST(venmoAccount, new TokenizeCallback() {
+        RequestHandle requestHandle = apiClient.tokenizeREST(venmoAccount, new TokenizeCallback() {
             @Override
             public void onResult(JSONObject tokenizationResponse, Exception exception) {
                 if (tokenizationResponse != null) {
@@ -133,6 +135,15 @@ class VenmoApi {
                 }
             }
         });
+        pendingRequests.add(requestHandle);
+    }
+
+    /**
+     * Cancel the requests sent by this instance that have not completed. Their callbacks receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        pendingRequests.cancelAll();
     }
 
     private static String parsePaymentContextId(String createPaymentContextResponse) {
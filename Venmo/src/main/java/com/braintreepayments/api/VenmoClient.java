@@ -33,11 +33,14 @@ public class VenmoClient {
     static final String EXTRA_USERNAME = "com.braintreepayments.api.EXTRA_USER_NAME";
     static final String EXTRA_RESOURCE_ID = "com.braintreepayments.api.EXTRA_RESOURCE_ID";
 
+    static final long DEFAULT_PAYMENT_SETUP_TIMEOUT_MS = 60000;
+
     private final BraintreeClient braintreeClient;
     private final VenmoApi venmoApi;
     private final VenmoSharedPrefsWriter sharedPrefsWriter;
     private final DeviceInspector deviceInspector;
     private VenmoListener listener;
+    private long paymentSetupTimeoutMillis = DEFAULT_PAYMENT_SETUP_TIMEOUT_MS;
 
     @VisibleForTesting
     VenmoLifecycleObserver observer;
@@ -106,6 +109,18 @@ public class VenmoClient {
         this.listener = listener;
     }
 
+    /**
+     * Set the time {@link VenmoClient#tokenizeVenmoAccount(FragmentActivity, VenmoRequest)} may
+     * take to fetch configuration and create the Venmo payment context before it fails with a
+     * {@link DeadlineExceededException}. The time the customer spends in the Venmo app does not
+     * count towards this budget. Defaults to 60 seconds.
+     *
+     * @param timeoutMillis the payment setup budget in milliseconds
+     */
+    public void setPaymentSetupTimeout(long timeoutMillis) {
+        this.paymentSetupTimeoutMillis = timeoutMillis;
+    }
+
     /**
      * Launches an Android Intent pointing to the Venmo app on the Google Play Store
      *
@@ -152,11 +167,26 @@ public class VenmoClient {
     @Deprecated
     public void tokenizeVenmoAccount(@NonNull final FragmentActivity activity, @NonNull final VenmoRequest request, @NonNull final VenmoTokenizeAccountCallback callback) {
         braintreeClient.sendAnalyticsEvent("pay-with-venmo.selected");
-        braintreeClient.getConfiguration(new ConfigurationCallback() {
+
+        // the span ends when the app switch starts; the customer's time in Venmo is not traced
+        final Span span = Span.start(braintreeClient.getTracer(), "venmo.tokenize-venmo-account");
+        final VenmoTokenizeAccountCallback tracedCallback = new VenmoTokenizeAccountCallback() {
+            @Override
+            public void onResult(@Nullable Exception error) {
+                span.end(error);
+                callback.onResult(error);
+            }
+        };
+
+        // configuration and payment context creation share one budget
+        final Deadline deadline = Deadline.after(paymentSetupTimeoutMillis);
+        final Span configurationSpan = span.startChild("configuration");
+        braintreeClient.getConfiguration(deadline, new ConfigurationCallback() {
             @Override
             public void onResult(@Nullable final Configuration configuration, @Nullable Exception error) {
+                configurationSpan.end(error);
                 if (configuration == null) {
-                    callback.onResult(error);
+                    tracedCallback.onResult(error);
                     braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.failed");
                     return;
                 }
@@ -169,14 +199,14 @@ public class VenmoClient {
                 }
 
                 if (exceptionMessage != null) {
-                    callback.onResult(new AppSwitchNotAvailableException(exceptionMessage));
+                    tracedCallback.onResult(new AppSwitchNotAvailableException(exceptionMessage));
                     braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.failed");
                     return;
                 }
 
                 // Merchants are not allowed to collect user addresses unless ECD (Enriched Customer Data) is enabled on the BT Control Panel.
                 if ((request.getCollectCustomerShippingAddress() || request.getCollectCustomerBillingAddress()) && !configuration.getVenmoEnrichedCustomerDataEnabled()) {
-                    callback.onResult(new BraintreeException("Cannot collect customer data when ECD is disabled. Enable this feature in the Control Panel to collect this data."));
+                    tracedCallback.onResult(new BraintreeException("Cannot collect customer data when ECD is disabled. Enable this feature in the Control Panel to collect this data."));
                     braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.failed");
                     return;
                 }
@@ -187,22 +217,29 @@ public class VenmoClient {
                 }
 
                 final String finalVenmoProfileId = venmoProfileId;
-                venmoApi.createPaymentContext(request, venmoProfileId, new VenmoApiCallback() {
+                final Span paymentContextSpan = span.startChild("payment-context");
+                venmoApi.createPaymentContext(request, venmoProfileId, deadline, new VenmoApiCallback() {
                     @Override
                     public void onResult(@Nullable final String paymentContextId, @Nullable Exception exception) {
+                        paymentContextSpan.end(exception);
                         if (exception == null) {
+                            final Span authorizationSpan = span.startChild("authorization");
                             braintreeClient.getAuthorization(new AuthorizationCallback() {
                                 @Override
                                 public void onAuthorizationResult(@Nullable Authorization authorization, @Nullable Exception authError) {
+                                    authorizationSpan.end(authError);
                                     if (authorization != null) {
+                                        Span appSwitchSpan = span.startChild("app-switch");
                                         startVenmoActivityForResult(activity, request, configuration, authorization, finalVenmoProfileId, paymentContextId);
+                                        appSwitchSpan.end();
+                                        span.end();
                                     } else {
-                                        callback.onResult(authError);
+                                        tracedCallback.onResult(authError);
                                     }
                                 }
                             });
                         } else {
-                            callback.onResult(exception);
+                            tracedCallback.onResult(exception);
                             braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.failed");
                         }
                     }
@@ -232,6 +269,16 @@ public class VenmoClient {
         braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.started");
     }
 
+    /**
+     * Cancel requests this client started that have not completed, e.g. when the screen hosting
+     * the payment flow is destroyed. Requests that other clients sent through the same
+     * {@link BraintreeClient} are left untouched. The callbacks of cancelled requests receive a
+     * {@link RequestCancelledException}.
+     */
+    void cancelPendingRequests() {
+        venmoApi.cancelPendingRequests();
+    }
+
     void onVenmoResult(final VenmoResult venmoResult) {
         if (venmoResult.getError() == null) {
             braintreeClient.sendAnalyticsEvent("pay-with-venmo.app-switch.success");
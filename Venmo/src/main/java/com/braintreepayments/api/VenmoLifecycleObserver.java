@@ -37,6 +37,8 @@ class VenmoLifecycleObserver implements LifecycleEventObserver {
                     venmoClient.onVenmoResult(venmoResult);
                 }
             });
+        } else if (event == Lifecycle.Event.ON_DESTROY && !LifecycleHelper.isChangingConfigurations(lifecycleOwner)) {
+            venmoClient.cancelPendingRequests();
         }
     }
 
@@ -2,6 +2,7 @@ package com.braintreepayments.api;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -53,7 +54,7 @@ public class MockVenmoApiBuilder {
         doAnswer(new Answer<Void>() {
             @Override
             public Void answer(InvocationOnMock invocation) {
-                VenmoApiCallback callback = (VenmoApiCallback) invocation.getArguments()[2];
+                VenmoApiCallback callback = (VenmoApiCallback) invocation.getArguments()[3];
                 if (venmoPaymentContextId != null) {
                     callback.onResult(venmoPaymentContextId, null);
                 } else if(createPaymentContextError != null) {
@@ -62,7 +63,7 @@ public class MockVenmoApiBuilder {
 
                 return null;
             }
-        }).when(venmoApi).createPaymentContext(any(VenmoRequest.class), anyString(), any(VenmoApiCallback.class));
+        }).when(venmoApi).createPaymentContext(any(VenmoRequest.class), anyString(), nullable(Deadline.class), any(VenmoApiCallback.class));
 
         doAnswer(new Answer<Void>() {
             @Override
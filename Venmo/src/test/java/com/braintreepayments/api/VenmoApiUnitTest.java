@@ -9,6 +9,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -50,10 +51,10 @@ public class VenmoApiUnitTest {
         lineItems.add(new VenmoLineItem(VenmoLineItem.KIND_DEBIT, "Some Item", 1, "1"));
         request.setLineItems(lineItems);
 
-        venmoAPI.createPaymentContext(request, request.getProfileId(), mock(VenmoApiCallback.class));
+        venmoAPI.createPaymentContext(request, request.getProfileId(), null, mock(VenmoApiCallback.class));
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendGraphQLPOST(captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendGraphQLPOST(captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String graphQLBody = captor.getValue();
         JSONObject graphQLJSON = new JSONObject(graphQLBody);
@@ -92,10 +93,10 @@ public class VenmoApiUnitTest {
         request.setShouldVault(false);
         request.setCollectCustomerBillingAddress(true);
 
-        venmoAPI.createPaymentContext(request, request.getProfileId(), mock(VenmoApiCallback.class));
+        venmoAPI.createPaymentContext(request, request.getProfileId(), null, mock(VenmoApiCallback.class));
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(braintreeClient).sendGraphQLPOST(captor.capture(), any(HttpResponseCallback.class));
+        verify(braintreeClient).sendGraphQLPOST(captor.capture(), (Deadline) isNull(), any(HttpResponseCallback.class));
 
         String graphQLBody = captor.getValue();
         JSONObject graphQLJSON = new JSONObject(graphQLBody);
@@ -114,6 +115,19 @@ public class VenmoApiUnitTest {
         assertFalse(paysheetDetails.has("lineItems"));
     }
 
+    @Test
+    public void createPaymentContext_withDeadline_forwardsDeadlineToRequest() {
+        VenmoApi venmoAPI = new VenmoApi(braintreeClient, apiClient);
+
+        VenmoRequest request = new VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE);
+        request.setProfileId("sample-venmo-merchant");
+
+        Deadline deadline = Deadline.after(5000);
+        venmoAPI.createPaymentContext(request, request.getProfileId(), deadline, mock(VenmoApiCallback.class));
+
+        verify(braintreeClient).sendGraphQLPOST(anyString(), same(deadline), any(HttpResponseCallback.class));
+    }
+
     @Test
     public void createPaymentContext_whenGraphQLPostSuccess_includesPaymentContextID_callsBackNull() {
         BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
@@ -125,7 +139,7 @@ public class VenmoApiUnitTest {
         request.setProfileId("sample-venmo-merchant");
 
         VenmoApiCallback callback = mock(VenmoApiCallback.class);
-        venmoAPI.createPaymentContext(request, request.getProfileId(), callback);
+        venmoAPI.createPaymentContext(request, request.getProfileId(), null, callback);
 
         verify(callback).onResult(anyString(), (Exception) isNull());
     }
@@ -141,7 +155,7 @@ public class VenmoApiUnitTest {
         request.setProfileId("sample-venmo-merchant");
 
         VenmoApiCallback callback = mock(VenmoApiCallback.class);
-        venmoAPI.createPaymentContext(request, request.getProfileId(), callback);
+        venmoAPI.createPaymentContext(request, request.getProfileId(), null, callback);
 
         ArgumentCaptor<Exception> captor = ArgumentCaptor.forClass(Exception.class);
         verify(callback).onResult((String) isNull(), captor.capture());
@@ -163,7 +177,7 @@ public class VenmoApiUnitTest {
         request.setProfileId("sample-venmo-merchant");
 
         VenmoApiCallback callback = mock(VenmoApiCallback.class);
-        venmoAPI.createPaymentContext(request, request.getProfileId(), callback);
+        venmoAPI.createPaymentContext(request, request.getProfileId(), null, callback);
 
         verify(callback).onResult(null, error);
     }
@@ -275,4 +289,20 @@ public class VenmoApiUnitTest {
 
         verify(callback).onResult((VenmoAccountNonce) isNull(), same(error));
     }
+
+    @Test
+    public void cancelPendingRequests_cancelsRequestsSentByThisInstance() {
+        RequestHandle requestHandle = new RequestHandle();
+        when(apiClient.tokenizeREST(any(VenmoAccount.class), any(TokenizeCallback.class)))
+                .thenReturn(requestHandle);
+
+        VenmoApi sut = new VenmoApi(braintreeClient, apiClient);
+        sut.vaultVenmoAccountNonce("nonce", mock(VenmoOnActivityResultCallback.class));
+
+        new VenmoApi(braintreeClient, apiClient).cancelPendingRequests();
+        assertFalse(requestHandle.isCancelled());
+
+        sut.cancelPendingRequests();
+        assertTrue(requestHandle.isCancelled());
+    }
 }
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,6 +49,8 @@ import org.robolectric.RobolectricTestRunner;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class VenmoClientUnitTest {
 
@@ -156,6 +159,34 @@ public class VenmoClientUnitTest {
         verify(braintreeClient).sendAnalyticsEvent("android.pay-with-venmo.app-store.invoked");
     }
 
+    @Test
+    public void tokenizeVenmoAccount_boundsConfigurationAndPaymentContextBySameDeadline() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(venmoEnabledConfiguration)
+                .authorizationSuccess(clientToken)
+                .build();
+
+        VenmoApi venmoApi = new MockVenmoApiBuilder()
+                .createPaymentContextSuccess("venmo-payment-context-id")
+                .build();
+
+        when(deviceInspector.isVenmoAppSwitchAvailable(activity)).thenReturn(true);
+
+        VenmoRequest request = new VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE);
+        request.setProfileId("sample-venmo-merchant");
+
+        VenmoClient sut = new VenmoClient(activity, lifecycle, braintreeClient, venmoApi, sharedPrefsWriter, deviceInspector);
+        sut.observer = mock(VenmoLifecycleObserver.class);
+        sut.setPaymentSetupTimeout(5000);
+        sut.tokenizeVenmoAccount(activity, request);
+
+        ArgumentCaptor<Deadline> captor = ArgumentCaptor.forClass(Deadline.class);
+        verify(braintreeClient).getConfiguration(captor.capture(), any(ConfigurationCallback.class));
+        Deadline deadline = captor.getValue();
+        assertTrue(deadline.remainingMillis() <= 5000);
+        verify(venmoApi).createPaymentContext(same(request), eq("sample-venmo-merchant"), same(deadline), any(VenmoApiCallback.class));
+    }
+
     @Test
     public void tokenizeVenmoAccount_whenCreatePaymentContextSucceeds_withObserver_launchesObserverWithVenmoIntentData_andSendsAnalytics() {
         BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
@@ -194,6 +225,36 @@ public class VenmoClientUnitTest {
         verify(braintreeClient).sendAnalyticsEvent("pay-with-venmo.app-switch.started");
     }
 
+    @Test
+    public void tokenizeVenmoAccount_whenTracerIsSet_reportsSpanForEachStageUntilAppSwitch() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(venmoEnabledConfiguration)
+                .authorizationSuccess(clientToken)
+                .build();
+        BraintreeTracer tracer = mock(BraintreeTracer.class);
+        when(braintreeClient.getTracer()).thenReturn(tracer);
+
+        VenmoApi venmoApi = new MockVenmoApiBuilder()
+                .createPaymentContextSuccess("venmo-payment-context-id")
+                .build();
+
+        when(deviceInspector.isVenmoAppSwitchAvailable(activity)).thenReturn(true);
+
+        VenmoClient sut = new VenmoClient(activity, lifecycle, braintreeClient, venmoApi, sharedPrefsWriter, deviceInspector);
+        sut.observer = mock(VenmoLifecycleObserver.class);
+        sut.tokenizeVenmoAccount(activity, new VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE));
+
+        ArgumentCaptor<TraceSpan> captor = ArgumentCaptor.forClass(TraceSpan.class);
+        verify(tracer, times(5)).onSpanEnd(captor.capture());
+        List<TraceSpan> spans = captor.getAllValues();
+        assertEquals("configuration", spans.get(0).getName());
+        assertEquals("payment-context", spans.get(1).getName());
+        assertEquals("authorization", spans.get(2).getName());
+        assertEquals("app-switch", spans.get(3).getName());
+        assertEquals("venmo.tokenize-venmo-account", spans.get(4).getName());
+        assertNull(spans.get(4).getError());
+    }
+
     @Test
     public void tokenizeVenmoAccount_whenCreatePaymentContextFails_collectAddressWithEcdDisabled() {
         BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
@@ -5,7 +5,9 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import androidx.activity.result.ActivityResultCallback;
 import androidx.activity.result.ActivityResultLauncher;
@@ -84,4 +86,29 @@ public class VenmoLifecycleObserverUnitTest {
         sut.launch(venmoIntentData);
         verify(activityResultLauncher).launch(venmoIntentData);
     }
+
+    @Test
+    public void onDestroy_cancelsPendingRequests() {
+        ActivityResultRegistry activityResultRegistry = mock(ActivityResultRegistry.class);
+        VenmoClient venmoClient = mock(VenmoClient.class);
+        VenmoLifecycleObserver sut = new VenmoLifecycleObserver(activityResultRegistry, venmoClient);
+
+        FragmentActivity lifecycleOwner = new FragmentActivity();
+        sut.onStateChanged(lifecycleOwner, Lifecycle.Event.ON_DESTROY);
+
+        verify(venmoClient).cancelPendingRequests();
+    }
+
+    @Test
+    public void onDestroy_whenChangingConfigurations_keepsPendingRequests() {
+        ActivityResultRegistry activityResultRegistry = mock(ActivityResultRegistry.class);
+        VenmoClient venmoClient = mock(VenmoClient.class);
+        VenmoLifecycleObserver sut = new VenmoLifecycleObserver(activityResultRegistry, venmoClient);
+
+        FragmentActivity lifecycleOwner = mock(FragmentActivity.class);
+        when(lifecycleOwner.isChangingConfigurations()).thenReturn(true);
+        sut.onStateChanged(lifecycleOwner, Lifecycle.Event.ON_DESTROY);
+
+        verify(venmoClient, never()).cancelPendingRequests();
+    }
 }